@@ -19,7 +19,13 @@
  */
 package org.xwiki.cache;
 
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
 import org.xwiki.cache.event.CacheEntryListener;
+import org.xwiki.stability.Unstable;
 
 /**
  * Cache interface. Used to add/get/remove value from cache which can be local or distributed, with a limited capacity
@@ -45,12 +51,121 @@
      */
     void set(String key, T value);
 
+    /**
+     * Add a new value or overwrite the existing one associated with the provided key, and associate the entry with the
+     * provided groups so that it can be removed with {@link #invalidateGroup(String)}.
+     * <p>
+     * The groups of an entry are the ones provided the last time it was set: {@link #set(String, Object)} removes the
+     * entry from its groups. The default implementation ignores the groups, see
+     * {@link org.xwiki.cache.util.AbstractCache} for one that does not.
+     * </p>
+     * 
+     * @param key the associated key used to access the value in the cache
+     * @param value the value to store in the cache; if {@code null}, the cache entry is removed
+     * @param groups the groups of the entry (for example the wiki or the space the value is about)
+     * @since 11.9RC1
+     */
+    @Unstable
+    default void set(String key, T value, Collection<String> groups)
+    {
+        set(key, value);
+    }
+
     /**
      * @param key the key used to access the value in the cache.
      * @return the value associated with the provided key, or {@code null} if there is no value.
      */
     T get(String key);
 
+    /**
+     * Return the value associated with the provided key or, if there is none, load it using the provided loader and
+     * store it in the cache (if not {@code null}).
+     * <p>
+     * When several threads are asking for the same missing key at the same time, implementations should only call the
+     * loader once and make the other threads wait for its result. The default implementation does not provide this
+     * guarantee, see {@link org.xwiki.cache.util.AbstractCache} for one that does.
+     * 
+     * @param key the key used to access the value in the cache
+     * @param loader the function called to load the value when it's not in the cache
+     * @return the value associated with the provided key, or {@code null} if there is none and the loader returned
+     *         {@code null}
+     * @since 11.9RC1
+     */
+    @Unstable
+    default T get(String key, Function<String, ? extends T> loader)
+    {
+        T value = get(key);
+
+        if (value == null) {
+            value = loader.apply(key);
+
+            if (value != null) {
+                set(key, value);
+            }
+        }
+
+        return value;
+    }
+
+    /**
+     * Associate the provided value with the provided key only if the cache does not already contain an entry for this
+     * key.
+     * <p>
+     * Implementations should make this operation atomic, which is not the case of the default implementation.
+     * 
+     * @param key the associated key used to access the value in the cache
+     * @param value the value to store in the cache
+     * @return the value already associated with the provided key, or {@code null} if the provided value was stored
+     * @since 11.9RC1
+     */
+    @Unstable
+    default T setIfAbsent(String key, T value)
+    {
+        T existingValue = get(key);
+
+        if (existingValue == null) {
+            set(key, value);
+        }
+
+        return existingValue;
+    }
+
+    /**
+     * @param keys the keys used to access the values in the cache
+     * @return the values associated with the provided keys, the keys without any value are not included
+     * @since 11.9RC1
+     */
+    @Unstable
+    default Map<String, T> getAll(Collection<String> keys)
+    {
+        Map<String, T> values = new LinkedHashMap<>(keys.size());
+
+        for (String key : keys) {
+            T value = get(key);
+
+            if (value != null) {
+                values.put(key, value);
+            }
+        }
+
+        return values;
+    }
+
+    /**
+     * Add new values or overwrite the existing ones associated with the provided keys.
+     * 
+     * @param entries the keys and values to store in the cache; the entries with a {@code null} value are removed
+     * @see #set(String, Object)
+     * @since 11.9RC1
+     */
+    @Unstable
+    default void setAll(Map<String, ? extends T> entries)
+    {
+        for (Map.Entry<String, ? extends T> entry : entries.entrySet()) {
+            set(entry.getKey(), entry.getValue());
+        }
+    }
+
     /**
      * Remove the entry associated with the provided key from the cache.
      * <p>
@@ -69,6 +184,24 @@
      */
     void removeAll();
 
+    /**
+     * Remove all the entries associated with the provided group when they were {@link #set(String, Object, Collection)
+     * set}, instead of all the entries of the cache.
+     * <p>
+     * You can catch this events using
+     * {@link CacheEntryListener#cacheEntryRemoved(org.xwiki.cache.event.CacheEntryEvent)}. The default implementation
+     * falls back on {@link #removeAll()} since it does not keep track of the groups.
+     * </p>
+     * 
+     * @param group the group of the entries to remove
+     * @since 11.9RC1
+     */
+    @Unstable
+    default void invalidateGroup(String group)
+    {
+        removeAll();
+    }
+
     /**
      * Add the provided listener to the cache to catch events on entries like add, remove etc.
      * 
@@ -87,4 +220,20 @@
      * Release all the resources this cache use.
      */
     void dispose();
+
+    /**
+     * Give access to the implementation of the cache, since the caches created by {@link CacheManager} can be wrapped
+     * (to collect their {@link CacheStatistics statistics} for example) and thus are not instances of the classes
+     * created by the {@link CacheFactory}.
+     * 
+     * @param <C> the type of the implementation
+     * @param type the type of the implementation
+     * @return this cache or the cache it wraps if it's an instance of the passed type, {@code null} otherwise
+     * @since 11.9RC1
+     */
+    @Unstable
+    default <C> C unwrap(Class<C> type)
+    {
+        return type.isInstance(this) ? type.cast(this) : null;
+    }
 }
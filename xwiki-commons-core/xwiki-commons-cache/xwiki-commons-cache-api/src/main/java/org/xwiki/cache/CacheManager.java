@@ -19,12 +19,22 @@
  */
 package org.xwiki.cache;
 
+import java.util.Collection;
+import java.util.Collections;
+
 import org.xwiki.cache.config.CacheConfiguration;
 import org.xwiki.component.annotation.Role;
 import org.xwiki.component.manager.ComponentLookupException;
+import org.xwiki.stability.Unstable;
 
 /**
  * Choose the cache component to use for cache or local cache.
+ * <p>
+ * Since 11.9RC1, when {@link CacheManagerConfiguration#isStatisticsEnabled() enabled}, the caches created by
+ * {@link #createNewCache(CacheConfiguration)} and {@link #createNewLocalCache(CacheConfiguration)} are wrapped to
+ * collect their {@link #getStatistics() statistics}, so they are not instances of the classes of the
+ * {@link CacheFactory} implementations anymore. Use {@link Cache#unwrap(Class)} to access the implementation, or the
+ * {@link CacheFactory} directly to get caches which are not wrapped.
  * 
  * @version $Id$
  * @since 1.7M1
@@ -70,4 +80,15 @@
      * @throws CacheException error when creating the cache.
      */
     <T> Cache<T> createNewLocalCache(CacheConfiguration config) throws CacheException;
+
+    /**
+     * @return the statistics of the caches created by this manager which are not disposed yet, sorted by name, empty
+     *         when the statistics are not {@link CacheManagerConfiguration#isStatisticsEnabled() enabled}
+     * @since 11.9RC1
+     */
+    @Unstable
+    default Collection<CacheStatistics> getStatistics()
+    {
+        return Collections.emptyList();
+    }
 }
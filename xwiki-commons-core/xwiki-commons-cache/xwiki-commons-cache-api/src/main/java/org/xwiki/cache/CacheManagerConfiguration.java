@@ -20,6 +20,7 @@
 package org.xwiki.cache;
 
 import org.xwiki.component.annotation.Role;
+import org.xwiki.stability.Unstable;
 
 /**
  * Get {@link CacheManager} configuration.
@@ -38,4 +39,14 @@
      * @return the role hint of configured default local cache component.
      */
     String getDefaultLocalCache();
+
+    /**
+     * @return {@code true} if the caches created by the {@link CacheManager} should collect statistics
+     * @since 11.9RC1
+     */
+    @Unstable
+    default boolean isStatisticsEnabled()
+    {
+        return false;
+    }
 }
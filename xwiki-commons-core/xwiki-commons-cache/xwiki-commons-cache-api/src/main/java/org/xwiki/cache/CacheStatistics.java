@@ -0,0 +1,88 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.cache;
+
+import org.xwiki.stability.Unstable;
+
+/**
+ * Statistics about the use of a cache created through the {@link CacheManager}.
+ *
+ * @version $Id$
+ * @since 11.9RC1
+ */
+@Unstable
+public interface CacheStatistics
+{
+    /**
+     * @return the name of the cache, which is its configuration identifier (followed by a number when several caches
+     *         have the same identifier)
+     */
+    String getName();
+
+    /**
+     * @return the number of lookups which found a value
+     */
+    long getHits();
+
+    /**
+     * @return the number of lookups which did not find any value
+     */
+    long getMisses();
+
+    /**
+     * @return the ratio of lookups which found a value, between 0 and 1 (1 when there was no lookup)
+     */
+    default double getHitRatio()
+    {
+        long hits = getHits();
+        long requests = hits + getMisses();
+
+        return requests == 0 ? 1.0 : (double) hits / requests;
+    }
+
+    /**
+     * @return the number of values loaded by {@link Cache#get(String, java.util.function.Function)}
+     */
+    long getLoads();
+
+    /**
+     * @return the total time spent loading values with {@link Cache#get(String, java.util.function.Function)}, in
+     *         nanoseconds
+     */
+    long getLoadTime();
+
+    /**
+     * @return the number of entries which were removed by the cache itself (because of its capacity or because they
+     *         expired) and not explicitly
+     */
+    long getEvictions();
+
+    /**
+     * @return the current number of entries in the cache
+     */
+    long getSize();
+
+    /**
+     * @return the current total weight of the entries in the cache (see
+     *         {@link org.xwiki.cache.eviction.LRUEvictionConfiguration#getMaxWeight()}), 0 if the cache does not
+     *         report it
+     */
+    long getWeight();
+}
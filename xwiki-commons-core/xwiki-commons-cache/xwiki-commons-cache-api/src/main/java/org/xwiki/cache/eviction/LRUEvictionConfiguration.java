@@ -19,6 +19,9 @@
  */
 package org.xwiki.cache.eviction;
 
+import org.xwiki.cache.util.EstimatedSizeWeigher;
+import org.xwiki.stability.Unstable;
+
 /**
  * An helper for {@link EntryEvictionConfiguration.Algorithm#NONE} cache algorithm. Evicts the least recently used entry
  * when thresholds are hit.
@@ -37,6 +40,20 @@ public class LRUEvictionConfiguration extends EntryEvictionConfiguration
      */
     public static final String LIFESPAN_ID = "lifespan";
 
+    /**
+     * @see #getMaxWeight()
+     * @since 11.9RC1
+     */
+    @Unstable
+    public static final String MAXWEIGHT_ID = "maxweight";
+
+    /**
+     * @see #getWeigher()
+     * @since 11.9RC1
+     */
+    @Unstable
+    public static final String WEIGHER_ID = "weigher";
+
     /**
      * Create a new EntryEvictionConfiguration based on LRU algorithm.
      */
@@ -120,4 +137,51 @@ public int getLifespan()
 
         return obj == null ? 0 : (Integer) get(LIFESPAN_ID);
     }
+
+    /**
+     * @param maxWeight see {@link #getMaxWeight()}
+     * @since 11.9RC1
+     */
+    @Unstable
+    public void setMaxWeight(long maxWeight)
+    {
+        put(MAXWEIGHT_ID, maxWeight);
+    }
+
+    /**
+     * @return the maximum total weight of the entries the cache can contain, as computed by {@link #getWeigher()}, 0
+     *         for no limit. When the cache reaches it, the defined eviction algorithm kicks in to remove existing cache
+     *         entries. It's useful to bound the memory used by a cache whose entries have very different sizes.
+     * @since 11.9RC1
+     */
+    @Unstable
+    public long getMaxWeight()
+    {
+        Object obj = get(MAXWEIGHT_ID);
+
+        return obj instanceof Number ? ((Number) obj).longValue() : 0;
+    }
+
+    /**
+     * @param weigher see {@link #getWeigher()}
+     * @since 11.9RC1
+     */
+    @Unstable
+    public void setWeigher(CacheWeigher<?> weigher)
+    {
+        put(WEIGHER_ID, weigher);
+    }
+
+    /**
+     * @return the weigher used to compute the weight of the entries when a {@link #getMaxWeight() maximum weight} is
+     *         set, {@link EstimatedSizeWeigher} (approximate size in bytes) by default
+     * @since 11.9RC1
+     */
+    @Unstable
+    public CacheWeigher<?> getWeigher()
+    {
+        Object obj = get(WEIGHER_ID);
+
+        return obj instanceof CacheWeigher ? (CacheWeigher<?>) obj : EstimatedSizeWeigher.INSTANCE;
+    }
 }
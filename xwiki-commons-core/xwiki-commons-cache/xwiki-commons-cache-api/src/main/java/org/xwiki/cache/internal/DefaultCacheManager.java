@@ -19,22 +19,37 @@
  */
 package org.xwiki.cache.internal;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
+import org.slf4j.Logger;
 import org.xwiki.cache.Cache;
 import org.xwiki.cache.CacheException;
 import org.xwiki.cache.CacheFactory;
 import org.xwiki.cache.CacheManager;
 import org.xwiki.cache.CacheManagerConfiguration;
+import org.xwiki.cache.CacheStatistics;
 import org.xwiki.cache.config.CacheConfiguration;
+import org.xwiki.cache.internal.jmx.JMXCacheStatistics;
 import org.xwiki.component.annotation.Component;
 import org.xwiki.component.manager.ComponentLookupException;
 import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.management.JMXBeanRegistration;
 
 /**
  * The default implementation of CacheManager. It uses ConfigurationManager to find the cache an local cache hints to
  * use to lookup cache components.
+ * <p>
+ * When the statistics are {@link CacheManagerConfiguration#isStatisticsEnabled() enabled}, the created caches are
+ * wrapped to collect their statistics, which are exposed as JMX MBeans (when available) and through
+ * {@link #getStatistics()}. The implementation of a created cache can be accessed with {@link Cache#unwrap(Class)}.
  * 
  * @version $Id$
  * @since 1.7M1
@@ -43,6 +58,10 @@
 @Singleton
 public class DefaultCacheManager implements CacheManager
 {
+    private static final String MBEANNAME_PREFIX = "type=Cache,domain=Statistics,name=";
+
+    private static final String ANONYMOUS_NAME = "anonymous";
+
     /**
      * The component manager to use to find cache components.
      */
@@ -55,6 +74,21 @@ public class DefaultCacheManager implements CacheManager
     @Inject
     private CacheManagerConfiguration configuration;
 
+    @Inject
+    private Logger logger;
+
+    /**
+     * The statistics of the caches which are not disposed, indexed by name.
+     */
+    private final Map<String, DefaultCacheStatistics> statistics = new ConcurrentHashMap<>();
+
+    /**
+     * Optional, used to expose the statistics of the caches.
+     */
+    private JMXBeanRegistration jmxRegistration;
+
+    private boolean jmxRegistrationInitialized;
+
     @Override
     public CacheFactory getCacheFactory() throws ComponentLookupException
     {
@@ -109,6 +143,72 @@ public <T> Cache<T> createNewCache(CacheConfiguration config, String cacheHint)
             throw new CacheException("Failed to get cache factory for role hint [" + cacheHint + "]", e);
         }
 
-        return cacheFactory.newCache(config);
+        Cache<T> cache = cacheFactory.newCache(config);
+
+        return this.configuration.isStatisticsEnabled() ? monitor(cache, config) : cache;
+    }
+
+    @Override
+    public Collection<CacheStatistics> getStatistics()
+    {
+        List<CacheStatistics> list = new ArrayList<>(this.statistics.values());
+        list.sort(Comparator.comparing(CacheStatistics::getName));
+
+        return list;
+    }
+
+    private <T> Cache<T> monitor(Cache<T> cache, CacheConfiguration config)
+    {
+        String baseName = config != null && config.getConfigurationId() != null ? config.getConfigurationId()
+            : ANONYMOUS_NAME;
+
+        // Several caches can have the same identifier
+        DefaultCacheStatistics cacheStatistics = new DefaultCacheStatistics(baseName, cache);
+        for (int i = 2; this.statistics.putIfAbsent(cacheStatistics.getName(), cacheStatistics) != null; ++i) {
+            cacheStatistics = new DefaultCacheStatistics(baseName + '#' + i, cache);
+        }
+
+        JMXBeanRegistration registration = getJMXRegistration();
+        if (registration != null) {
+            registration.registerMBean(new JMXCacheStatistics(cacheStatistics), getMBeanName(cacheStatistics));
+        }
+
+        return new MonitoredCache<>(cache, cacheStatistics, this::disposed);
+    }
+
+    private void disposed(MonitoredCache<?> cache)
+    {
+        DefaultCacheStatistics cacheStatistics = cache.getStatistics();
+
+        if (this.statistics.remove(cacheStatistics.getName(), cacheStatistics)) {
+            JMXBeanRegistration registration = getJMXRegistration();
+            if (registration != null) {
+                registration.unregisterMBean(getMBeanName(cacheStatistics));
+            }
+        }
+    }
+
+    private String getMBeanName(CacheStatistics cacheStatistics)
+    {
+        return MBEANNAME_PREFIX + cacheStatistics.getName().replaceAll("[,=:*?\\'\"\n]", "_");
+    }
+
+    private synchronized JMXBeanRegistration getJMXRegistration()
+    {
+        // Note that the JMX registration is optional so that the cache can be used in environments without it
+        if (!this.jmxRegistrationInitialized) {
+            if (this.componentManager.hasComponent(JMXBeanRegistration.class)) {
+                try {
+                    this.jmxRegistration = this.componentManager.getInstance(JMXBeanRegistration.class);
+                } catch (ComponentLookupException e) {
+                    this.logger.warn("Failed to lookup the JMX registration, the cache statistics won't be exposed: {}",
+                        e.getMessage());
+                }
+            }
+
+            this.jmxRegistrationInitialized = true;
+        }
+
+        return this.jmxRegistration;
     }
 }
@@ -70,4 +70,10 @@ public String getDefaultLocalCache()
     {
         return getConfigurationSource().getProperty(PREFIX + "defaultLocalCache", DEFAULT_LOCALCACHE_HINT);
     }
+
+    @Override
+    public boolean isStatisticsEnabled()
+    {
+        return getConfigurationSource().getProperty(PREFIX + "statistics", false);
+    }
 }
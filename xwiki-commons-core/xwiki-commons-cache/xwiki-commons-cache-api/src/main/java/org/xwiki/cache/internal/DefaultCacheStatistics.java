@@ -0,0 +1,165 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.cache.internal;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.xwiki.cache.Cache;
+import org.xwiki.cache.CacheStatistics;
+import org.xwiki.cache.SizedCache;
+import org.xwiki.cache.eviction.WeightedCache;
+
+/**
+ * Default implementation of {@link CacheStatistics}, updated by {@link MonitoredCache}.
+ *
+ * @version $Id$
+ * @since 11.9RC1
+ */
+public class DefaultCacheStatistics implements CacheStatistics
+{
+    private final String name;
+
+    private final Cache<?> cache;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder loads = new LongAdder();
+
+    private final LongAdder loadTime = new LongAdder();
+
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * The number of entries computed from the events, when the cache does not report it.
+     */
+    private final AtomicLong size = new AtomicLong();
+
+    /**
+     * @param name the name of the cache
+     * @param cache the cache, used to get the measures it reports itself (see {@link SizedCache} and
+     *            {@link WeightedCache})
+     */
+    public DefaultCacheStatistics(String name, Cache<?> cache)
+    {
+        this.name = name;
+        this.cache = cache;
+    }
+
+    @Override
+    public String getName()
+    {
+        return this.name;
+    }
+
+    @Override
+    public long getHits()
+    {
+        return this.hits.sum();
+    }
+
+    @Override
+    public long getMisses()
+    {
+        return this.misses.sum();
+    }
+
+    @Override
+    public long getLoads()
+    {
+        return this.loads.sum();
+    }
+
+    @Override
+    public long getLoadTime()
+    {
+        return this.loadTime.sum();
+    }
+
+    @Override
+    public long getEvictions()
+    {
+        return this.evictions.sum();
+    }
+
+    @Override
+    public long getSize()
+    {
+        SizedCache sizedCache = this.cache.unwrap(SizedCache.class);
+        if (sizedCache != null) {
+            return sizedCache.getSize();
+        }
+
+        // The events of concurrent modifications might be received in a different order
+        return Math.max(0, this.size.get());
+    }
+
+    @Override
+    public long getWeight()
+    {
+        WeightedCache weightedCache = this.cache.unwrap(WeightedCache.class);
+
+        return weightedCache != null ? weightedCache.getWeight() : 0;
+    }
+
+    void hits(int count)
+    {
+        this.hits.add(count);
+    }
+
+    void misses(int count)
+    {
+        this.misses.add(count);
+    }
+
+    void loaded(long time)
+    {
+        this.loads.increment();
+        this.loadTime.add(time);
+    }
+
+    void added()
+    {
+        this.size.incrementAndGet();
+    }
+
+    void removed(boolean evicted)
+    {
+        this.size.decrementAndGet();
+
+        if (evicted) {
+            this.evictions.increment();
+        }
+    }
+
+    void cleared()
+    {
+        this.size.set(0);
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s: hits=%d, misses=%d, hit ratio=%.2f, loads=%d, evictions=%d, size=%d, weight=%d",
+            getName(), getHits(), getMisses(), getHitRatio(), getLoads(), getEvictions(), getSize(), getWeight());
+    }
+}
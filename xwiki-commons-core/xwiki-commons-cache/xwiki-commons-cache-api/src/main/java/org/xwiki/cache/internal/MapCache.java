@@ -122,10 +122,23 @@ public void remove(String key)
         }
     }
 
+    @Override
+    protected boolean remove(String key, T value)
+    {
+        if (this.map.remove(key, value)) {
+            sendEntryRemovedEvent(toEvent(key, value));
+
+            return true;
+        }
+
+        return false;
+    }
+
     @Override
     public void removeAll()
     {
         this.map.clear();
+        clearGroups();
 
         Map<String, T> eventMap = new HashMap<>(this.map);
 
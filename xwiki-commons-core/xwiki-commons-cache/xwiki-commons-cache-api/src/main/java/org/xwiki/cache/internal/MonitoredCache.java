@@ -0,0 +1,349 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.cache.internal;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.xwiki.cache.Cache;
+import org.xwiki.cache.CacheEntry;
+import org.xwiki.cache.event.CacheEntryEvent;
+import org.xwiki.cache.event.CacheEntryListener;
+
+/**
+ * Wrap the caches created by {@link DefaultCacheManager} to collect their {@link DefaultCacheStatistics statistics}.
+ * <p>
+ * The events received by the listeners are about this cache and not the wrapped one. Use {@link #unwrap(Class)} to
+ * access the implementation of the wrapped cache.
+ *
+ * @param <T> the class of the data stored in the cache
+ * @version $Id$
+ * @since 11.9RC1
+ */
+public class MonitoredCache<T> implements Cache<T>
+{
+    /**
+     * The cache currently removing entries on the current thread, to distinguish the removals from the evictions.
+     */
+    private static final ThreadLocal<Cache<?>> REMOVING = new ThreadLocal<>();
+
+    private final Cache<T> cache;
+
+    private final DefaultCacheStatistics statistics;
+
+    private final Consumer<MonitoredCache<T>> onDispose;
+
+    private final Map<CacheEntryListener<T>, CacheEntryListener<T>> listeners = new ConcurrentHashMap<>();
+
+    /**
+     * Send the events of the wrapped cache to the listeners of this cache.
+     *
+     * @version $Id$
+     */
+    private final class ListenerWrapper implements CacheEntryListener<T>
+    {
+        private final CacheEntryListener<T> listener;
+
+        ListenerWrapper(CacheEntryListener<T> listener)
+        {
+            this.listener = listener;
+        }
+
+        @Override
+        public void cacheEntryAdded(CacheEntryEvent<T> event)
+        {
+            this.listener.cacheEntryAdded(new MonitoredCacheEntryEvent(event));
+        }
+
+        @Override
+        public void cacheEntryRemoved(CacheEntryEvent<T> event)
+        {
+            this.listener.cacheEntryRemoved(new MonitoredCacheEntryEvent(event));
+        }
+
+        @Override
+        public void cacheEntryModified(CacheEntryEvent<T> event)
+        {
+            this.listener.cacheEntryModified(new MonitoredCacheEntryEvent(event));
+        }
+    }
+
+    /**
+     * An event of the wrapped cache, seen as an event of this cache.
+     *
+     * @version $Id$
+     */
+    private final class MonitoredCacheEntryEvent implements CacheEntryEvent<T>, CacheEntry<T>
+    {
+        private final CacheEntry<T> entry;
+
+        MonitoredCacheEntryEvent(CacheEntryEvent<T> event)
+        {
+            this.entry = event.getEntry();
+        }
+
+        @Override
+        public Cache<T> getCache()
+        {
+            return MonitoredCache.this;
+        }
+
+        @Override
+        public CacheEntry<T> getEntry()
+        {
+            return this;
+        }
+
+        @Override
+        public String getKey()
+        {
+            return this.entry.getKey();
+        }
+
+        @Override
+        public T getValue()
+        {
+            return this.entry.getValue();
+        }
+    }
+
+    /**
+     * @param cache the wrapped cache
+     * @param statistics the statistics to update
+     * @param onDispose called when the cache is disposed
+     */
+    public MonitoredCache(Cache<T> cache, DefaultCacheStatistics statistics, Consumer<MonitoredCache<T>> onDispose)
+    {
+        this.cache = cache;
+        this.statistics = statistics;
+        this.onDispose = onDispose;
+
+        this.cache.addCacheEntryListener(new CacheEntryListener<T>()
+        {
+            @Override
+            public void cacheEntryAdded(CacheEntryEvent<T> event)
+            {
+                statistics.added();
+            }
+
+            @Override
+            public void cacheEntryRemoved(CacheEntryEvent<T> event)
+            {
+                statistics.removed(REMOVING.get() != MonitoredCache.this);
+            }
+
+            @Override
+            public void cacheEntryModified(CacheEntryEvent<T> event)
+            {
+                // Does not change the statistics
+            }
+        });
+    }
+
+    /**
+     * @return the wrapped cache
+     */
+    public Cache<T> getCache()
+    {
+        return this.cache;
+    }
+
+    /**
+     * @return the statistics of the cache
+     */
+    public DefaultCacheStatistics getStatistics()
+    {
+        return this.statistics;
+    }
+
+    @Override
+    public void set(String key, T value)
+    {
+        if (value == null) {
+            remove(key);
+        } else {
+            this.cache.set(key, value);
+        }
+    }
+
+    @Override
+    public void set(String key, T value, Collection<String> groups)
+    {
+        if (value == null) {
+            remove(key);
+        } else {
+            this.cache.set(key, value, groups);
+        }
+    }
+
+    @Override
+    public T get(String key)
+    {
+        T value = this.cache.get(key);
+
+        if (value != null) {
+            this.statistics.hits(1);
+        } else {
+            this.statistics.misses(1);
+        }
+
+        return value;
+    }
+
+    @Override
+    public T get(String key, Function<String, ? extends T> loader)
+    {
+        boolean[] loaded = new boolean[1];
+
+        T value = this.cache.get(key, k -> {
+            loaded[0] = true;
+
+            long start = System.nanoTime();
+            try {
+                return loader.apply(k);
+            } finally {
+                this.statistics.loaded(System.nanoTime() - start);
+            }
+        });
+
+        if (loaded[0]) {
+            this.statistics.misses(1);
+        } else {
+            this.statistics.hits(1);
+        }
+
+        return value;
+    }
+
+    @Override
+    public T setIfAbsent(String key, T value)
+    {
+        return this.cache.setIfAbsent(key, value);
+    }
+
+    @Override
+    public Map<String, T> getAll(Collection<String> keys)
+    {
+        Map<String, T> values = this.cache.getAll(keys);
+
+        this.statistics.hits(values.size());
+        this.statistics.misses(keys.size() - values.size());
+
+        return values;
+    }
+
+    @Override
+    public void setAll(Map<String, ? extends T> entries)
+    {
+        Map<String, T> values = new HashMap<>(entries.size());
+        for (Map.Entry<String, ? extends T> entry : entries.entrySet()) {
+            if (entry.getValue() != null) {
+                values.put(entry.getKey(), entry.getValue());
+            } else {
+                // Make sure it's not counted as an eviction
+                remove(entry.getKey());
+            }
+        }
+
+        this.cache.setAll(values);
+    }
+
+    @Override
+    public void remove(String key)
+    {
+        REMOVING.set(this);
+        try {
+            this.cache.remove(key);
+        } finally {
+            REMOVING.remove();
+        }
+    }
+
+    @Override
+    public void removeAll()
+    {
+        REMOVING.set(this);
+        try {
+            this.cache.removeAll();
+        } finally {
+            REMOVING.remove();
+        }
+
+        // Not all caches send events when removing all the entries
+        this.statistics.cleared();
+    }
+
+    @Override
+    public void invalidateGroup(String group)
+    {
+        REMOVING.set(this);
+        try {
+            this.cache.invalidateGroup(group);
+        } finally {
+            REMOVING.remove();
+        }
+    }
+
+    @Override
+    public void addCacheEntryListener(CacheEntryListener<T> listener)
+    {
+        CacheEntryListener<T> wrapper = new ListenerWrapper(listener);
+
+        if (this.listeners.putIfAbsent(listener, wrapper) == null) {
+            this.cache.addCacheEntryListener(wrapper);
+        }
+    }
+
+    @Override
+    public void removeCacheEntryListener(CacheEntryListener<T> listener)
+    {
+        CacheEntryListener<T> wrapper = this.listeners.remove(listener);
+
+        if (wrapper != null) {
+            this.cache.removeCacheEntryListener(wrapper);
+        }
+    }
+
+    @Override
+    public void dispose()
+    {
+        this.listeners.clear();
+
+        this.cache.dispose();
+
+        this.onDispose.accept(this);
+    }
+
+    @Override
+    public <C> C unwrap(Class<C> type)
+    {
+        return type.isInstance(this) ? type.cast(this) : this.cache.unwrap(type);
+    }
+
+    @Override
+    public String toString()
+    {
+        return this.cache.toString();
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.cache.internal.jmx;
+
+import java.util.concurrent.TimeUnit;
+
+import org.xwiki.cache.CacheStatistics;
+
+/**
+ * Expose the statistics of a cache as a JMX MBean.
+ *
+ * @version $Id$
+ * @since 11.9RC1
+ */
+public class JMXCacheStatistics implements JMXCacheStatisticsMBean
+{
+    private final CacheStatistics statistics;
+
+    /**
+     * @param statistics the statistics to expose
+     */
+    public JMXCacheStatistics(CacheStatistics statistics)
+    {
+        this.statistics = statistics;
+    }
+
+    @Override
+    public long getHits()
+    {
+        return this.statistics.getHits();
+    }
+
+    @Override
+    public long getMisses()
+    {
+        return this.statistics.getMisses();
+    }
+
+    @Override
+    public double getHitRatio()
+    {
+        return this.statistics.getHitRatio();
+    }
+
+    @Override
+    public long getLoads()
+    {
+        return this.statistics.getLoads();
+    }
+
+    @Override
+    public double getAverageLoadTime()
+    {
+        long loads = this.statistics.getLoads();
+
+        return loads == 0 ? 0 : (double) this.statistics.getLoadTime() / loads / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    @Override
+    public long getEvictions()
+    {
+        return this.statistics.getEvictions();
+    }
+
+    @Override
+    public long getSize()
+    {
+        return this.statistics.getSize();
+    }
+
+    @Override
+    public long getWeight()
+    {
+        return this.statistics.getWeight();
+    }
+}
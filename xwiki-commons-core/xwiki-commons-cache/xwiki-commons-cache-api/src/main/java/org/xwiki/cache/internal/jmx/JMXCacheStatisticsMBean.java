@@ -0,0 +1,69 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.cache.internal.jmx;
+
+/**
+ * MBean API exposing the statistics of a cache.
+ *
+ * @version $Id$
+ * @since 11.9RC1
+ */
+public interface JMXCacheStatisticsMBean
+{
+    /**
+     * @return the number of lookups which found a value
+     */
+    long getHits();
+
+    /**
+     * @return the number of lookups which did not find any value
+     */
+    long getMisses();
+
+    /**
+     * @return the ratio of lookups which found a value, between 0 and 1
+     */
+    double getHitRatio();
+
+    /**
+     * @return the number of loaded values
+     */
+    long getLoads();
+
+    /**
+     * @return the average time spent loading a value, in milliseconds
+     */
+    double getAverageLoadTime();
+
+    /**
+     * @return the number of entries removed by the cache itself
+     */
+    long getEvictions();
+
+    /**
+     * @return the current number of entries in the cache
+     */
+    long getSize();
+
+    /**
+     * @return the current total weight of the entries in the cache
+     */
+    long getWeight();
+}
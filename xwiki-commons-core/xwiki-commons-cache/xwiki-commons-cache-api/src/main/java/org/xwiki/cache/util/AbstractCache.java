@@ -19,6 +19,13 @@
  */
 package org.xwiki.cache.util;
 
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
 import javax.swing.event.EventListenerList;
 
 import org.slf4j.Logger;
@@ -28,6 +35,7 @@
 import org.xwiki.cache.config.CacheConfiguration;
 import org.xwiki.cache.event.CacheEntryEvent;
 import org.xwiki.cache.event.CacheEntryListener;
+import org.xwiki.stability.Unstable;
 
 /**
  * Base class for {@link Cache} implementations. It provides events {@link DisposableCacheValue} management.
@@ -52,6 +60,16 @@
      */
     protected final EventListenerList cacheEntryListeners = new EventListenerList();
 
+    /**
+     * The values currently being loaded by {@link #get(String, Function)}.
+     */
+    private final ConcurrentMap<String, CompletableFuture<T>> loadings = new ConcurrentHashMap<>();
+
+    /**
+     * The groups of the entries, created the first time an entry is set with groups.
+     */
+    private volatile CacheGroupIndex groupIndex;
+
     /**
      * @deprecated since 8.3RC1, use {@link #AbstractCache(CacheConfiguration)} instead
      */
@@ -77,6 +95,163 @@ public void dispose()
         }
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Only one thread calls the loader for a given key, the other threads asking for the same key wait for its result
+     * (or its failure). Note that the loader must not ask for the same key.
+     * 
+     * @since 11.9RC1
+     */
+    @Override
+    @Unstable
+    public T get(String key, Function<String, ? extends T> loader)
+    {
+        T value = get(key);
+
+        if (value != null) {
+            return value;
+        }
+
+        CompletableFuture<T> loading = new CompletableFuture<>();
+        CompletableFuture<T> currentLoading = this.loadings.putIfAbsent(key, loading);
+        if (currentLoading != null) {
+            return join(currentLoading);
+        }
+
+        try {
+            // The value might have been loaded since the last check
+            value = get(key);
+
+            if (value == null) {
+                value = loader.apply(key);
+
+                if (value != null) {
+                    set(key, value);
+                }
+            }
+
+            loading.complete(value);
+
+            return value;
+        } catch (RuntimeException | Error e) {
+            loading.completeExceptionally(e);
+
+            throw e;
+        } finally {
+            this.loadings.remove(key, loading);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The groups replace the previous groups of the entry, after setting it. They are forgotten when the cache sends a
+     * modified event with another value for the entry (when it's replaced with {@link #set(String, Object)} for
+     * example) or the removed event of the value.
+     * 
+     * @since 11.9RC1
+     */
+    @Override
+    @Unstable
+    public void set(String key, T value, Collection<String> groups)
+    {
+        if (value == null) {
+            remove(key);
+
+            return;
+        }
+
+        if (this.groupIndex == null) {
+            synchronized (this) {
+                if (this.groupIndex == null) {
+                    this.groupIndex = new CacheGroupIndex();
+                }
+            }
+        }
+
+        set(key, value);
+
+        this.groupIndex.add(key, value, groups);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Only {@link #remove(String, Object) removes} the entries of the group which still have the value they were set
+     * with.
+     * 
+     * @since 11.9RC1
+     */
+    @Override
+    @Unstable
+    @SuppressWarnings("unchecked")
+    public void invalidateGroup(String group)
+    {
+        CacheGroupIndex index = this.groupIndex;
+
+        if (index != null) {
+            for (CacheGroupIndex.GroupedValue groupedValue : index.removeGroup(group)) {
+                remove(groupedValue.getKey(), (T) groupedValue.getValue());
+            }
+        }
+    }
+
+    /**
+     * Remove the entry only if it's associated with the passed value.
+     * <p>
+     * The default implementation checks the value with {@link #get(String)}, which is not atomic and counts as an
+     * access to the entry. Implementations should override it to rely on the conditional removal of their storage.
+     * 
+     * @param key the key of the entry
+     * @param value the value the entry should be associated with
+     * @return {@code true} if the entry was removed
+     * @since 11.9RC1
+     */
+    @Unstable
+    protected boolean remove(String key, T value)
+    {
+        if (value != null && value.equals(get(key))) {
+            remove(key);
+
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Forget the groups of all the entries, to call when all the entries are removed without sending the removed
+     * events.
+     * 
+     * @since 11.9RC1
+     */
+    @Unstable
+    protected void clearGroups()
+    {
+        CacheGroupIndex index = this.groupIndex;
+
+        if (index != null) {
+            index.clear();
+        }
+    }
+
+    private T join(CompletableFuture<T> loading)
+    {
+        try {
+            return loading.join();
+        } catch (CompletionException e) {
+            // Rethrow the exception of the loader
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            } else if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+
+            throw e;
+        }
+    }
+
     @Override
     public void addCacheEntryListener(CacheEntryListener<T> listener)
     {
@@ -96,12 +271,22 @@ public void removeCacheEntryListener(CacheEntryListener<T> listener)
      */
     protected void sendEntryAddedEvent(CacheEntryEvent<T> event)
     {
+        updateGroups(event);
+
         for (org.xwiki.cache.event.CacheEntryListener<T> listener : this.cacheEntryListeners
             .getListeners(org.xwiki.cache.event.CacheEntryListener.class)) {
             listener.cacheEntryAdded(event);
         }
     }
 
+    private void updateGroups(CacheEntryEvent<T> event)
+    {
+        CacheGroupIndex index = this.groupIndex;
+        if (index != null) {
+            index.update(event.getEntry().getKey(), event.getEntry().getValue());
+        }
+    }
+
     /**
      * Helper method to send event when an existing cache entry is removed.
      * 
@@ -109,6 +294,11 @@ protected void sendEntryAddedEvent(CacheEntryEvent<T> event)
      */
     protected void sendEntryRemovedEvent(CacheEntryEvent<T> event)
     {
+        CacheGroupIndex index = this.groupIndex;
+        if (index != null) {
+            index.remove(event.getEntry().getKey(), event.getEntry().getValue());
+        }
+
         for (org.xwiki.cache.event.CacheEntryListener<T> listener : this.cacheEntryListeners
             .getListeners(org.xwiki.cache.event.CacheEntryListener.class)) {
             listener.cacheEntryRemoved(event);
@@ -124,6 +314,8 @@ protected void sendEntryRemovedEvent(CacheEntryEvent<T> event)
      */
     protected void sendEntryModifiedEvent(CacheEntryEvent<T> event)
     {
+        updateGroups(event);
+
         for (org.xwiki.cache.event.CacheEntryListener<T> listener : this.cacheEntryListeners
             .getListeners(org.xwiki.cache.event.CacheEntryListener.class)) {
             listener.cacheEntryModified(event);
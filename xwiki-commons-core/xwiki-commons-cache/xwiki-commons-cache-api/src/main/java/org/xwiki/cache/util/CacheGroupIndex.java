@@ -0,0 +1,187 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.cache.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keep track of the groups of the entries of a cache which does not support them natively.
+ * <p>
+ * The groups are indexed by the key of the entry, along with the value they were set with. They are forgotten when the
+ * entry is modified or removed, unless the event is about another value (compared by identity) so that the index does
+ * not depend on the order in which the cache sends its events: a late removed event about a previous value does not
+ * remove the groups of the current value.
+ *
+ * @version $Id$
+ * @since 11.9RC1
+ */
+class CacheGroupIndex
+{
+    /**
+     * A value set with groups.
+     *
+     * @version $Id$
+     */
+    static final class GroupedValue
+    {
+        private final String key;
+
+        private final Object value;
+
+        private final Collection<String> groups;
+
+        GroupedValue(String key, Object value, Collection<String> groups)
+        {
+            this.key = key;
+            this.value = value;
+            this.groups = groups;
+        }
+
+        /**
+         * @return the key of the entry
+         */
+        String getKey()
+        {
+            return this.key;
+        }
+
+        /**
+         * @return the value set with the groups
+         */
+        Object getValue()
+        {
+            return this.value;
+        }
+    }
+
+    private final Map<String, GroupedValue> valuesByKey = new HashMap<>();
+
+    private final Map<String, Set<String>> keysByGroup = new HashMap<>();
+
+    /**
+     * Replace the groups of an entry.
+     *
+     * @param key the key of the entry
+     * @param value the value set with the groups
+     * @param groups the groups of the entry
+     */
+    synchronized void add(String key, Object value, Collection<String> groups)
+    {
+        removeKey(key);
+
+        if (groups != null && !groups.isEmpty()) {
+            GroupedValue groupedValue = new GroupedValue(key, value, new ArrayList<>(groups));
+            this.valuesByKey.put(key, groupedValue);
+
+            for (String group : groupedValue.groups) {
+                this.keysByGroup.computeIfAbsent(group, k -> new HashSet<>()).add(key);
+            }
+        }
+    }
+
+    /**
+     * Forget the groups of an entry which was set with another value.
+     *
+     * @param key the key of the modified entry
+     * @param value the new value
+     */
+    synchronized void update(String key, Object value)
+    {
+        GroupedValue groupedValue = this.valuesByKey.get(key);
+
+        if (groupedValue != null && groupedValue.value != value) {
+            removeKey(key);
+        }
+    }
+
+    /**
+     * Forget the groups of a removed entry.
+     *
+     * @param key the key of the removed entry
+     * @param value the removed value
+     */
+    synchronized void remove(String key, Object value)
+    {
+        GroupedValue groupedValue = this.valuesByKey.get(key);
+
+        if (groupedValue != null && (value == null || groupedValue.value == value)) {
+            removeKey(key);
+        }
+    }
+
+    private void removeKey(String key)
+    {
+        GroupedValue groupedValue = this.valuesByKey.remove(key);
+
+        if (groupedValue != null) {
+            for (String group : groupedValue.groups) {
+                Set<String> keys = this.keysByGroup.get(group);
+
+                if (keys != null) {
+                    keys.remove(key);
+
+                    if (keys.isEmpty()) {
+                        this.keysByGroup.remove(group);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Forget a group.
+     *
+     * @param group the group
+     * @return the values which were set with the group
+     */
+    synchronized Collection<GroupedValue> removeGroup(String group)
+    {
+        Set<String> keys = this.keysByGroup.remove(group);
+
+        if (keys == null) {
+            return Collections.emptyList();
+        }
+
+        List<GroupedValue> groupedValues = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            groupedValues.add(this.valuesByKey.get(key));
+
+            removeKey(key);
+        }
+
+        return groupedValues;
+    }
+
+    /**
+     * Forget all the groups.
+     */
+    synchronized void clear()
+    {
+        this.valuesByKey.clear();
+        this.keysByGroup.clear();
+    }
+}
@@ -0,0 +1,231 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.cache.util;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.xwiki.cache.eviction.CacheWeigher;
+import org.xwiki.stability.Unstable;
+
+/**
+ * A {@link CacheWeigher} estimating the memory used by the cache entries, in bytes.
+ * <p>
+ * It's only an approximation: the size of strings, arrays, collections and maps is computed from their content (up to
+ * a few levels and from a sample of their elements) but the other objects are only counted for their own fields,
+ * without following their references, since walking the whole object graph would be too expensive. Provide your own
+ * {@link CacheWeigher} when the values of a cache are complex objects.
+ *
+ * @version $Id$
+ * @since 11.9RC1
+ */
+@Unstable
+public class EstimatedSizeWeigher implements CacheWeigher<Object>
+{
+    /**
+     * The shared instance.
+     */
+    public static final EstimatedSizeWeigher INSTANCE = new EstimatedSizeWeigher();
+
+    /**
+     * The size of the header of an object.
+     */
+    private static final int HEADER = 16;
+
+    /**
+     * The size of the header of an array.
+     */
+    private static final int ARRAY_HEADER = 20;
+
+    /**
+     * The size of a reference.
+     */
+    private static final int REFERENCE = 8;
+
+    /**
+     * The objects are aligned on 8 bytes.
+     */
+    private static final int ALIGNMENT = 8;
+
+    /**
+     * The size of the String object, without its characters array.
+     */
+    private static final int STRING = 24;
+
+    /**
+     * The size of the node of a map or linked collection, without its key and value.
+     */
+    private static final int NODE = 32;
+
+    /**
+     * The number of levels of arrays, collections and maps which are followed.
+     */
+    private static final int MAXIMUM_DEPTH = 3;
+
+    /**
+     * The number of elements of an array, collection or map used to estimate the size of all its elements.
+     */
+    private static final int SAMPLE_SIZE = 32;
+
+    private static final ClassValue<Long> SHALLOW_SIZES = new ClassValue<Long>()
+    {
+        @Override
+        protected Long computeValue(Class<?> type)
+        {
+            long size = HEADER;
+            for (Class<?> current = type; current != null; current = current.getSuperclass()) {
+                for (Field field : current.getDeclaredFields()) {
+                    if (!Modifier.isStatic(field.getModifiers())) {
+                        size += sizeOf(field.getType());
+                    }
+                }
+            }
+
+            return align(size);
+        }
+    };
+
+    @Override
+    public long weigh(String key, Object value)
+    {
+        return estimate(key) + estimate(value);
+    }
+
+    /**
+     * @param object the object to measure
+     * @return the estimated size of the object in memory, in bytes
+     */
+    public long estimate(Object object)
+    {
+        try {
+            return estimate(object, 0);
+        } catch (RuntimeException e) {
+            // The collection was probably modified while being measured
+            return SHALLOW_SIZES.get(object.getClass());
+        }
+    }
+
+    private long estimate(Object object, int depth)
+    {
+        if (object == null) {
+            return 0;
+        }
+
+        if (object instanceof String) {
+            return STRING + align(ARRAY_HEADER + 2L * ((String) object).length());
+        }
+
+        Class<?> type = object.getClass();
+        long size;
+        if (type.isArray()) {
+            size = estimateArray(object, depth);
+        } else if (depth >= MAXIMUM_DEPTH) {
+            size = SHALLOW_SIZES.get(type);
+        } else if (object instanceof Collection) {
+            Collection<?> collection = (Collection<?>) object;
+            size = SHALLOW_SIZES.get(type) + estimateElements(collection.iterator(), collection.size(), depth, NODE);
+        } else if (object instanceof Map) {
+            Map<?, ?> map = (Map<?, ?>) object;
+            size = SHALLOW_SIZES.get(type) + estimateEntries(map, depth);
+        } else {
+            size = SHALLOW_SIZES.get(type);
+        }
+
+        return size;
+    }
+
+    private long estimateArray(Object array, int depth)
+    {
+        int length = Array.getLength(array);
+        Class<?> componentType = array.getClass().getComponentType();
+
+        long size = align(ARRAY_HEADER + (long) length * sizeOf(componentType));
+
+        if (!componentType.isPrimitive() && depth < MAXIMUM_DEPTH) {
+            size += estimateElements(new Iterator<Object>()
+            {
+                private int index;
+
+                @Override
+                public boolean hasNext()
+                {
+                    return this.index < length;
+                }
+
+                @Override
+                public Object next()
+                {
+                    return Array.get(array, this.index++);
+                }
+            }, length, depth, 0);
+        }
+
+        return size;
+    }
+
+    private long estimateElements(Iterator<?> elements, int size, int depth, int overhead)
+    {
+        long sampleSize = 0;
+        int sampled = 0;
+        for (; sampled < SAMPLE_SIZE && elements.hasNext(); ++sampled) {
+            sampleSize += overhead + estimate(elements.next(), depth + 1);
+        }
+
+        return sampled > 0 ? sampleSize * size / sampled : 0;
+    }
+
+    private long estimateEntries(Map<?, ?> map, int depth)
+    {
+        long sampleSize = 0;
+        int sampled = 0;
+        for (Iterator<? extends Map.Entry<?, ?>> it = map.entrySet().iterator(); sampled < SAMPLE_SIZE && it.hasNext();
+            ++sampled) {
+            Map.Entry<?, ?> entry = it.next();
+            sampleSize += NODE + estimate(entry.getKey(), depth + 1) + estimate(entry.getValue(), depth + 1);
+        }
+
+        // Count the table of the hash based maps too
+        return (sampled > 0 ? sampleSize * map.size() / sampled : 0) + (long) map.size() * REFERENCE;
+    }
+
+    private static long sizeOf(Class<?> type)
+    {
+        if (type == long.class || type == double.class) {
+            return Long.BYTES;
+        } else if (type == int.class || type == float.class) {
+            return Integer.BYTES;
+        } else if (type == short.class || type == char.class) {
+            return Short.BYTES;
+        } else if (type == byte.class || type == boolean.class) {
+            return Byte.BYTES;
+        }
+
+        return REFERENCE;
+    }
+
+    private static long align(long size)
+    {
+        return (size + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+    }
+}
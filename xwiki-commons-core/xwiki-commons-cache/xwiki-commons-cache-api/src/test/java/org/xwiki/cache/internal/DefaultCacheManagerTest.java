@@ -0,0 +1,230 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.cache.internal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.inject.Named;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xwiki.cache.Cache;
+import org.xwiki.cache.CacheFactory;
+import org.xwiki.cache.CacheManagerConfiguration;
+import org.xwiki.cache.CacheStatistics;
+import org.xwiki.cache.SizedCache;
+import org.xwiki.cache.config.CacheConfiguration;
+import org.xwiki.cache.event.CacheEntryEvent;
+import org.xwiki.cache.event.CacheEntryListener;
+import org.xwiki.cache.eviction.WeightedCache;
+import org.xwiki.cache.internal.jmx.JMXCacheStatistics;
+import org.xwiki.management.JMXBeanRegistration;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.CALLS_REAL_METHODS;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Validate {@link DefaultCacheManager}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+public class DefaultCacheManagerTest
+{
+    @MockComponent
+    private CacheManagerConfiguration configuration;
+
+    @MockComponent
+    private JMXBeanRegistration jmxRegistration;
+
+    @MockComponent
+    @Named("map")
+    private CacheFactory factory;
+
+    @InjectMockComponents
+    private DefaultCacheManager cacheManager;
+
+    @BeforeEach
+    public void beforeEach() throws Exception
+    {
+        when(this.configuration.getDefaultCache()).thenReturn("map");
+        when(this.configuration.isStatisticsEnabled()).thenReturn(true);
+        when(this.factory.newCache(any())).then(invocation -> new MapCache<>());
+    }
+
+    private CacheStatistics getStatistics(String name)
+    {
+        for (CacheStatistics statistics : this.cacheManager.getStatistics()) {
+            if (statistics.getName().equals(name)) {
+                return statistics;
+            }
+        }
+
+        return null;
+    }
+
+    @Test
+    public void statistics() throws Exception
+    {
+        Cache<String> cache = this.cacheManager.createNewCache(new CacheConfiguration("test"));
+
+        verify(this.jmxRegistration).registerMBean(any(JMXCacheStatistics.class),
+            eq("type=Cache,domain=Statistics,name=test"));
+
+        CacheStatistics statistics = getStatistics("test");
+
+        cache.set("key", "value");
+        assertEquals("value", cache.get("key"));
+        assertNull(cache.get("missing"));
+        assertEquals("loaded", cache.get("loaded", key -> "loaded"));
+        assertEquals("loaded", cache.get("loaded", key -> "other"));
+        assertEquals(1, cache.getAll(Arrays.asList("key", "other")).size());
+
+        assertEquals(3, statistics.getHits());
+        assertEquals(3, statistics.getMisses());
+        assertEquals(0.5, statistics.getHitRatio());
+        assertEquals(1, statistics.getLoads());
+        assertEquals(2, statistics.getSize());
+        assertEquals(0, statistics.getWeight());
+
+        cache.remove("key");
+        assertEquals(1, statistics.getSize());
+        assertEquals(0, statistics.getEvictions());
+
+        cache.removeAll();
+        assertEquals(0, statistics.getSize());
+
+        cache.dispose();
+
+        verify(this.jmxRegistration).unregisterMBean("type=Cache,domain=Statistics,name=test");
+        assertNull(getStatistics("test"));
+    }
+
+    @Test
+    public void statisticsDisabled() throws Exception
+    {
+        when(this.configuration.isStatisticsEnabled()).thenReturn(false);
+
+        Cache<String> cache = this.cacheManager.createNewCache(new CacheConfiguration("test"));
+
+        assertTrue(cache instanceof MapCache);
+        assertTrue(this.cacheManager.getStatistics().isEmpty());
+        verify(this.jmxRegistration, never()).registerMBean(any(), any());
+    }
+
+    @Test
+    public void invalidateGroupIsNotAnAccess() throws Exception
+    {
+        Cache<String> cache = this.cacheManager.createNewCache(new CacheConfiguration("test"));
+
+        cache.set("key1", "value1", Arrays.asList("group"));
+        cache.set("key2", "value2", Arrays.asList("group"));
+        cache.set("key2", "other");
+        cache.invalidateGroup("group");
+
+        CacheStatistics statistics = getStatistics("test");
+        assertEquals(0, statistics.getHits());
+        assertEquals(0, statistics.getMisses());
+        assertEquals(0, statistics.getEvictions());
+
+        MapCache<String> mapCache = cache.unwrap(MapCache.class);
+        assertNull(mapCache.get("key1"));
+        assertEquals("other", mapCache.get("key2"));
+    }
+
+    @Test
+    public void measuresReportedByTheCache() throws Exception
+    {
+        MapCache<String> mapCache = mock(MapCache.class, withSettings().spiedInstance(new MapCache<String>())
+            .extraInterfaces(SizedCache.class, WeightedCache.class).defaultAnswer(CALLS_REAL_METHODS));
+        when(((SizedCache) mapCache).getSize()).thenReturn(12L);
+        when(((WeightedCache) mapCache).getWeight()).thenReturn(42L);
+        when(this.factory.newCache(any())).then(invocation -> mapCache);
+
+        Cache<String> cache = this.cacheManager.createNewCache(new CacheConfiguration("measured"));
+
+        assertEquals(12, getStatistics("measured").getSize());
+        assertEquals(42, getStatistics("measured").getWeight());
+        assertEquals(42, new JMXCacheStatistics(getStatistics("measured")).getWeight());
+
+        // The wrapped cache is still accessible
+        assertSame(mapCache, cache.unwrap(MapCache.class));
+        assertSame(mapCache, cache.unwrap(WeightedCache.class));
+        assertSame(cache, cache.unwrap(Cache.class));
+        assertNull(cache.unwrap(String.class));
+    }
+
+    @Test
+    public void statisticsNames() throws Exception
+    {
+        this.cacheManager.createNewCache(new CacheConfiguration("test"));
+        this.cacheManager.createNewCache(new CacheConfiguration("test"));
+        this.cacheManager.createNewCache(new CacheConfiguration("a,b=c"));
+        this.cacheManager.createNewCache(new CacheConfiguration());
+
+        List<String> names = new ArrayList<>();
+        for (CacheStatistics statistics : this.cacheManager.getStatistics()) {
+            names.add(statistics.getName());
+        }
+        assertEquals(Arrays.asList("a,b=c", "anonymous", "test", "test#2"), names);
+
+        verify(this.jmxRegistration).registerMBean(any(JMXCacheStatistics.class),
+            eq("type=Cache,domain=Statistics,name=a_b_c"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void events() throws Exception
+    {
+        Cache<String> cache = this.cacheManager.createNewCache(new CacheConfiguration("test"));
+        CacheEntryListener<String> listener = mock(CacheEntryListener.class);
+        List<CacheEntryEvent<String>> events = new ArrayList<>();
+        doAnswer(invocation -> events.add(invocation.getArgument(0))).when(listener)
+            .cacheEntryAdded(any());
+
+        cache.addCacheEntryListener(listener);
+        cache.set("key", "value");
+
+        assertEquals(1, events.size());
+        assertSame(cache, events.get(0).getCache());
+        assertSame(cache, events.get(0).getEntry().getCache());
+        assertEquals("value", events.get(0).getEntry().getValue());
+
+        cache.removeCacheEntryListener(listener);
+        cache.set("key2", "value");
+        assertEquals(1, events.size());
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.cache.util;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+import org.xwiki.cache.CacheEntry;
+import org.xwiki.cache.event.CacheEntryEvent;
+import org.xwiki.cache.internal.MapCache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate the groups management of {@link AbstractCache}.
+ *
+ * @version $Id$
+ */
+public class AbstractCacheTest
+{
+    private MapCache<String> cache = new MapCache<>();
+
+    @SuppressWarnings("unchecked")
+    private void sendEntryRemovedEvent(String key, String value)
+    {
+        CacheEntry<String> entry = mock(CacheEntry.class);
+        when(entry.getKey()).thenReturn(key);
+        when(entry.getValue()).thenReturn(value);
+        CacheEntryEvent<String> event = mock(CacheEntryEvent.class);
+        when(event.getEntry()).thenReturn(entry);
+
+        this.cache.sendEntryRemovedEvent(event);
+    }
+
+    @Test
+    public void invalidateGroupAfterLateRemovedEvent()
+    {
+        String value1 = new String("value");
+        String value2 = new String("value");
+
+        this.cache.set("key", value1, Arrays.asList("group"));
+        this.cache.set("key", value2, Arrays.asList("group"));
+
+        // The removed event of the previous value is received after the new value was set
+        sendEntryRemovedEvent("key", value1);
+
+        this.cache.invalidateGroup("group");
+
+        assertNull(this.cache.get("key"));
+    }
+
+    @Test
+    public void invalidateGroupAfterSetWithoutGroups()
+    {
+        this.cache.set("key", "value1", Arrays.asList("group"));
+        this.cache.set("key", "value2");
+        this.cache.set("other", "value3", Arrays.asList("group"));
+
+        this.cache.invalidateGroup("group");
+
+        assertEquals("value2", this.cache.get("key"));
+        assertNull(this.cache.get("other"));
+    }
+
+    @Test
+    public void invalidateGroupAfterRemovedEvent()
+    {
+        String value = new String("value");
+
+        this.cache.set("key", value, Arrays.asList("group"));
+        this.cache.remove("key");
+
+        // The groups are forgotten with the removed value
+        this.cache.set("key", value);
+        this.cache.invalidateGroup("group");
+
+        assertEquals("value", this.cache.get("key"));
+    }
+
+    @Test
+    public void setReplacesGroups()
+    {
+        this.cache.set("key", "value1", Arrays.asList("group1"));
+        this.cache.set("key", "value2", Arrays.asList("group2"));
+
+        this.cache.invalidateGroup("group1");
+        assertEquals("value2", this.cache.get("key"));
+
+        this.cache.invalidateGroup("group2");
+        assertNull(this.cache.get("key"));
+    }
+
+    @Test
+    public void invalidateGroupRemovesConditionally()
+    {
+        AbstractCache<String> spyCache = spy(new MapCache<>());
+
+        spyCache.set("key1", "value1", Arrays.asList("group"));
+        spyCache.set("key2", "value2", Arrays.asList("group"));
+
+        spyCache.invalidateGroup("group");
+
+        // The entries are not accessed
+        verify(spyCache, never()).get(any());
+        verify(spyCache).remove("key1", "value1");
+        verify(spyCache).remove("key2", "value2");
+        assertNull(spyCache.get("key1"));
+        assertNull(spyCache.get("key2"));
+
+        // The entry is not removed when it's associated with another value
+        spyCache.set("key", "value");
+        assertFalse(spyCache.remove("key", "other"));
+        assertEquals("value", spyCache.get("key"));
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.cache.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Validate {@link EstimatedSizeWeigher}.
+ *
+ * @version $Id$
+ */
+public class EstimatedSizeWeigherTest
+{
+    private static final EstimatedSizeWeigher WEIGHER = EstimatedSizeWeigher.INSTANCE;
+
+    private static class Value
+    {
+        private long id;
+
+        private int count;
+
+        private String name;
+    }
+
+    @Test
+    public void estimate()
+    {
+        assertEquals(0, WEIGHER.estimate(null));
+
+        // String object and its characters
+        assertEquals(24 + 24, WEIGHER.estimate("a"));
+        assertEquals(24 + 2024, WEIGHER.estimate(new String(new char[1000])));
+
+        assertEquals(1024, WEIGHER.estimate(new byte[1000]));
+
+        // Array of references and the referenced strings
+        String[] array = new String[1000];
+        Arrays.fill(array, "a");
+        assertEquals(8024 + 1000 * 48, WEIGHER.estimate(array));
+
+        // Header, long, int and reference
+        assertEquals(40, WEIGHER.estimate(new Value()));
+    }
+
+    @Test
+    public void estimateCollections()
+    {
+        List<String> list = new ArrayList<>();
+        Map<String, String> map = new HashMap<>();
+        for (int i = 0; i < 1000; ++i) {
+            list.add("value");
+            map.put("key" + i, "value");
+        }
+
+        long listSize = WEIGHER.estimate(list);
+        assertTrue(listSize > 1000 * 48, String.valueOf(listSize));
+
+        long mapSize = WEIGHER.estimate(map);
+        assertTrue(mapSize > 1000 * (48 + 56), String.valueOf(mapSize));
+
+        // The weight of an entry includes the key
+        assertEquals(WEIGHER.estimate("key") + mapSize, WEIGHER.weigh("key", map));
+    }
+}
@@ -19,11 +19,17 @@
  */
 package org.xwiki.cache.infinispan.internal;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.infinispan.Cache;
+import org.infinispan.container.DataContainer;
 import org.infinispan.manager.EmbeddedCacheManager;
 import org.infinispan.notifications.Listener;
 import org.infinispan.notifications.cachelistener.annotation.CacheEntriesEvicted;
@@ -36,19 +42,29 @@
 import org.infinispan.notifications.cachelistener.event.CacheEntryExpiredEvent;
 import org.infinispan.notifications.cachelistener.event.CacheEntryModifiedEvent;
 import org.infinispan.notifications.cachelistener.event.CacheEntryRemovedEvent;
+import org.xwiki.cache.SizedCache;
 import org.xwiki.cache.config.CacheConfiguration;
+import org.xwiki.cache.eviction.CacheWeigher;
+import org.xwiki.cache.eviction.EntryEvictionConfiguration;
+import org.xwiki.cache.eviction.LRUEvictionConfiguration;
+import org.xwiki.cache.eviction.WeightedCache;
 import org.xwiki.cache.infinispan.internal.event.InfinispanCacheEntryEvent;
 import org.xwiki.cache.util.AbstractCache;
+import org.xwiki.cache.util.EstimatedSizeWeigher;
 
 /**
  * Implements {@link org.xwiki.cache.Cache} based on Infinispan.
+ * <p>
+ * Infinispan can only bound the memory of binary or off-heap storages, which require serializable values, so a
+ * {@link LRUEvictionConfiguration#getMaxWeight() maximum weight} is enforced by adapting the maximum number of entries
+ * of the cache to the average weight of its entries.
  * 
  * @param <T> the class of the data stored in the cache.
  * @version $Id$
  * @since 3.3M1
  */
 @Listener
-public class InfinispanCache<T> extends AbstractCache<T>
+public class InfinispanCache<T> extends AbstractCache<T> implements SizedCache, WeightedCache
 {
     /**
      * The Infinispan cache.
@@ -65,6 +81,25 @@
      */
     private EmbeddedCacheManager cacheManager;
 
+    /**
+     * The maximum total weight of the entries, 0 if the cache is not bounded by weight.
+     */
+    private long maxWeight;
+
+    /**
+     * The maximum number of entries, 0 if not limited.
+     */
+    private long maxEntries;
+
+    private CacheWeigher<? super T> weigher;
+
+    /**
+     * The weight of each entry, when the cache is bounded by weight.
+     */
+    private final Map<String, Long> weights = new ConcurrentHashMap<>();
+
+    private final AtomicLong weight = new AtomicLong();
+
     /**
      * @param cacheManager the Infinispan cache manager
      * @param configuration the XWiki Cache configuration
@@ -76,20 +111,121 @@
         this.cacheManager = cacheManager;
         this.cache = cacheManager.getCache(configuration.getConfigurationId());
 
+        initializeWeight(configuration);
+
         this.cache.addListener(this);
     }
 
+    @SuppressWarnings("unchecked")
+    private void initializeWeight(CacheConfiguration configuration)
+    {
+        EntryEvictionConfiguration eec =
+            (EntryEvictionConfiguration) configuration.get(EntryEvictionConfiguration.CONFIGURATIONID);
+
+        // The maximum weight can only be enforced when the number of entries is bounded
+        if (eec != null && eec.getAlgorithm() == EntryEvictionConfiguration.Algorithm.LRU
+            && eec.get(LRUEvictionConfiguration.MAXWEIGHT_ID) instanceof Number
+            && this.cache.getCacheConfiguration().memory().size() > 0) {
+            this.maxWeight = ((Number) eec.get(LRUEvictionConfiguration.MAXWEIGHT_ID)).longValue();
+
+            Object maxEntriesObject = eec.get(LRUEvictionConfiguration.MAXENTRIES_ID);
+            if (maxEntriesObject instanceof Number) {
+                this.maxEntries = ((Number) maxEntriesObject).longValue();
+            }
+
+            Object weigherObject = eec.get(LRUEvictionConfiguration.WEIGHER_ID);
+            this.weigher = weigherObject instanceof CacheWeigher ? (CacheWeigher<? super T>) weigherObject
+                : EstimatedSizeWeigher.INSTANCE;
+        }
+    }
+
+    @Override
+    public long getSize()
+    {
+        return this.cache.getAdvancedCache().getDataContainer().size();
+    }
+
+    @Override
+    public long getWeight()
+    {
+        // Only the entries of the caches bounded by weight are weighed
+        return this.weight.get();
+    }
+
+    private void weigh(String key, T value)
+    {
+        if (this.maxWeight > 0) {
+            long entryWeight = this.weigher.weigh(key, value);
+            Long previousWeight = this.weights.put(key, entryWeight);
+            this.weight.addAndGet(previousWeight != null ? entryWeight - previousWeight : entryWeight);
+        }
+    }
+
+    private void unweigh(String key)
+    {
+        if (this.maxWeight > 0) {
+            Long previousWeight = this.weights.remove(key);
+            if (previousWeight != null) {
+                this.weight.addAndGet(-previousWeight);
+            }
+        }
+    }
+
+    /**
+     * Adapt the maximum number of entries of the cache to the average weight of its entries, so that the entries don't
+     * weigh more than the maximum weight.
+     */
+    private void bound()
+    {
+        if (this.maxWeight > 0) {
+            long currentWeight = this.weight.get();
+            int count = this.weights.size();
+
+            if (currentWeight > 0 && count > 0) {
+                long capacity = Math.max(1, (long) ((double) this.maxWeight * count / currentWeight));
+                if (this.maxEntries > 0) {
+                    capacity = Math.min(capacity, this.maxEntries);
+                }
+
+                DataContainer<String, T> container = this.cache.getAdvancedCache().getDataContainer();
+                long currentCapacity = container.capacity();
+
+                boolean resize;
+                if (currentWeight > this.maxWeight) {
+                    // Evict entries right away
+                    resize = capacity < currentCapacity;
+                } else {
+                    // Avoid resizing the cache for each new entry
+                    resize = capacity > currentCapacity
+                        && (capacity - currentCapacity > currentCapacity / 8 || capacity == this.maxEntries);
+                }
+
+                if (resize) {
+                    container.resize(capacity);
+                }
+            }
+        }
+    }
+
     @Override
     public void remove(String key)
     {
         this.cache.remove(key);
     }
 
+    @Override
+    protected boolean remove(String key, T value)
+    {
+        return this.cache.remove(key, value);
+    }
+
     @Override
     public void set(String key, T obj)
     {
         if (obj != null) {
             this.cache.put(key, obj);
+
+            bound();
         } else {
             this.cache.remove(key);
         }
@@ -101,10 +237,63 @@ public T get(String key)
         return this.cache.get(key);
     }
 
+    @Override
+    public T setIfAbsent(String key, T value)
+    {
+        T previousValue = this.cache.putIfAbsent(key, value);
+
+        if (previousValue == null) {
+            bound();
+        }
+
+        return previousValue;
+    }
+
+    @Override
+    public Map<String, T> getAll(Collection<String> keys)
+    {
+        Map<String, T> cachedValues = this.cache.getAdvancedCache().getAll(new HashSet<>(keys));
+
+        // Respect the order of the provided keys
+        Map<String, T> values = new LinkedHashMap<>(cachedValues.size());
+        for (String key : keys) {
+            T value = cachedValues.get(key);
+
+            if (value != null) {
+                values.put(key, value);
+            }
+        }
+
+        return values;
+    }
+
+    @Override
+    public void setAll(Map<String, ? extends T> entries)
+    {
+        Map<String, T> values = new HashMap<>(entries.size());
+        for (Map.Entry<String, ? extends T> entry : entries.entrySet()) {
+            if (entry.getValue() != null) {
+                values.put(entry.getKey(), entry.getValue());
+            } else {
+                this.cache.remove(entry.getKey());
+            }
+        }
+
+        this.cache.putAll(values);
+
+        bound();
+    }
+
     @Override
     public void removeAll()
     {
         this.cache.clear();
+
+        // Clearing the cache does not produce any event
+        this.weights.clear();
+        this.weight.set(0);
+
+        clearGroups();
     }
 
     @Override
@@ -199,6 +388,8 @@ public void nodeModified(CacheEntryModifiedEvent<String, T> event)
      */
     private void cacheEntryInserted(String key, T value)
     {
+        weigh(key, value);
+
         InfinispanCacheEntryEvent<T> event =
             new InfinispanCacheEntryEvent<>(new InfinispanCacheEntry<T>(this, key, value));
 
@@ -223,6 +414,8 @@ private void cacheEntryInserted(String key, T value)
      */
     private void cacheEntryRemoved(String key, T value)
     {
+        unweigh(key);
+
         InfinispanCacheEntryEvent<T> event =
             new InfinispanCacheEntryEvent<>(new InfinispanCacheEntry<T>(this, key, value));
 
@@ -53,6 +53,11 @@ public class InfinispanConfigurationLoader extends AbstractCacheConfigurationLoa
     /**
      * The default location of a filesystem based cache loader when not provided in the xml configuration file.
      */
+    /**
+     * The maximum number of entries of a cache bounded by weight before the weight of its entries is known.
+     */
+    private static final long MAXWEIGHT_INITIAL_SIZE = 1000;
+
     private static final String DEFAULT_SINGLEFILESTORE_LOCATION = "Infinispan-SingleFileStore";
 
     /**
@@ -96,12 +101,27 @@ private void customizeEviction(ConfigurationBuilder builder)
 
     private void customizeEvictionMaxEntries(ConfigurationBuilder builder, EntryEvictionConfiguration eec)
     {
+        long size = 0;
+
         Object maxEntries = eec.get(LRUEvictionConfiguration.MAXENTRIES_ID);
         if (maxEntries instanceof Number) {
+            size = ((Number) maxEntries).longValue();
             builder.memory().evictionStrategy(EvictionStrategy.REMOVE);
-            builder.memory().evictionType(EvictionType.COUNT).size(((Number) maxEntries).longValue());
+            builder.memory().evictionType(EvictionType.COUNT).size(size);
         }
 
+        // Infinispan can only bound the memory of binary or off-heap storages, which require serializable values, so
+        // InfinispanCache enforces the maximum weight by adapting the maximum number of entries to the average weight
+        // of the entries. Start with a small number of entries since the weights are not known yet (and the eviction
+        // structures are sized according to the maximum number of entries).
+        Object maxWeight = eec.get(LRUEvictionConfiguration.MAXWEIGHT_ID);
+        if (maxWeight instanceof Number && ((Number) maxWeight).longValue() > 0) {
+            long initialSize = Math.min(((Number) maxWeight).longValue(), MAXWEIGHT_INITIAL_SIZE);
+            if (size <= 0 || size > initialSize) {
+                builder.memory().evictionStrategy(EvictionStrategy.REMOVE);
+                builder.memory().evictionType(EvictionType.COUNT).size(initialSize);
+            }
+        }
     }
 
     private void customizeExpirationWakeUpInterval(ConfigurationBuilder builder, EntryEvictionConfiguration eec)
@@ -19,7 +19,13 @@
  */
 package org.xwiki.cache.infinispan;
 
+import org.junit.Assert;
+import org.junit.Test;
+import org.xwiki.cache.Cache;
+import org.xwiki.cache.config.CacheConfiguration;
 import org.xwiki.cache.eviction.EntryEvictionConfiguration;
+import org.xwiki.cache.eviction.LRUEvictionConfiguration;
+import org.xwiki.cache.eviction.WeightedCache;
 import org.xwiki.cache.infinispan.internal.InfinispanCacheFactory;
 import org.xwiki.cache.infinispan.internal.InfinispanConfigurationLoader;
 import org.xwiki.cache.internal.DefaultCacheFactory;
@@ -48,4 +54,49 @@ protected void customizeEviction(EntryEvictionConfiguration eviction)
         // Force expiration thread to wakeup often
         eviction.put(InfinispanConfigurationLoader.CONFX_EXPIRATION_WAKEUPINTERVAL, 100);
     }
+
+    @Test
+    public void maxWeight() throws Exception
+    {
+        LRUEvictionConfiguration eviction = new LRUEvictionConfiguration();
+        eviction.setMaxWeight(100);
+        eviction.setWeigher((String key, String value) -> value.length());
+        CacheConfiguration configuration = new CacheConfiguration("maxweight");
+        configuration.put(EntryEvictionConfiguration.CONFIGURATIONID, eviction);
+
+        Cache<String> cache = getCacheFactory().newCache(configuration);
+
+        cache.set(KEY, "small");
+        cache.set(KEY2, new String(new char[90]));
+
+        Assert.assertEquals(95, ((WeightedCache) cache).getWeight());
+
+        for (int i = 0; i < 20; ++i) {
+            cache.set("key" + i, new String(new char[10]));
+            Assert.assertTrue(((WeightedCache) cache).getWeight() <= 100);
+        }
+
+        Assert.assertEquals("0123456789".length(), cache.get("key19").length());
+
+        cache.removeAll();
+        Assert.assertEquals(0, ((WeightedCache) cache).getWeight());
+
+        cache.dispose();
+    }
+
+    @Test
+    public void weightWithoutMaxWeight() throws Exception
+    {
+        LRUEvictionConfiguration eviction = new LRUEvictionConfiguration();
+        eviction.setMaxEntries(10);
+        CacheConfiguration configuration = new CacheConfiguration("maxentries");
+        configuration.put(EntryEvictionConfiguration.CONFIGURATIONID, eviction);
+
+        Cache<String> cache = getCacheFactory().newCache(configuration);
+
+        cache.set(KEY, "value");
+        Assert.assertEquals(0, ((WeightedCache) cache).getWeight());
+
+        cache.dispose();
+    }
 }
@@ -19,11 +19,26 @@
  */
 package org.xwiki.cache.test;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
 import org.junit.Assert;
 import org.junit.Test;
 import org.xwiki.cache.Cache;
 import org.xwiki.cache.CacheFactory;
 import org.xwiki.cache.config.CacheConfiguration;
+import org.xwiki.cache.event.AbstractCacheEntryListener;
+import org.xwiki.cache.event.CacheEntryEvent;
 
 /**
  * Base class for testing cache component implementation.
@@ -218,4 +233,169 @@ public void recreateCache() throws Exception
 
         Assert.assertEquals(VALUE, cache.get(KEY));
     }
+
+    /**
+     * Validate {@link Cache#get(String, Function)}.
+     * 
+     * @throws Exception error
+     */
+    @Test
+    public void getWithLoader() throws Exception
+    {
+        CacheFactory factory = getCacheFactory();
+
+        Cache<Object> cache = factory.newCache(new CacheConfiguration());
+
+        CacheEntryListenerTest eventListener = new CacheEntryListenerTest();
+        cache.addCacheEntryListener(eventListener);
+
+        AtomicInteger loads = new AtomicInteger();
+        Function<String, Object> loader = key -> {
+            loads.incrementAndGet();
+
+            return VALUE;
+        };
+
+        Assert.assertEquals(VALUE, cache.get(KEY, loader));
+        Assert.assertEquals(VALUE, cache.get(KEY, loader));
+        Assert.assertEquals(VALUE, cache.get(KEY));
+        Assert.assertEquals(1, loads.get());
+        Assert.assertNotNull(eventListener.getAddedEvent());
+
+        // Null values are not stored
+        Assert.assertNull(cache.get(KEY2, key -> null));
+        Assert.assertNull(cache.get(KEY2));
+    }
+
+    /**
+     * Validate that {@link Cache#get(String, Function)} calls the loader only once for concurrent requests.
+     * 
+     * @throws Exception error
+     */
+    @Test
+    public void getWithLoaderConcurrently() throws Exception
+    {
+        CacheFactory factory = getCacheFactory();
+
+        Cache<Object> cache = factory.newCache(new CacheConfiguration());
+
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Function<String, Object> loader = key -> {
+            loads.incrementAndGet();
+            loading.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            return VALUE;
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Object> first = executor.submit(() -> cache.get(KEY, loader));
+            Assert.assertTrue(loading.await(10, TimeUnit.SECONDS));
+            Future<Object> second = executor.submit(() -> cache.get(KEY, loader));
+
+            // Give some time to the second thread to wait for the first load
+            Thread.sleep(100);
+            release.countDown();
+
+            Assert.assertEquals(VALUE, first.get(10, TimeUnit.SECONDS));
+            Assert.assertEquals(VALUE, second.get(10, TimeUnit.SECONDS));
+            Assert.assertEquals(1, loads.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Validate {@link Cache#setIfAbsent(String, Object)}.
+     * 
+     * @throws Exception error
+     */
+    @Test
+    public void setIfAbsent() throws Exception
+    {
+        CacheFactory factory = getCacheFactory();
+
+        Cache<Object> cache = factory.newCache(new CacheConfiguration());
+
+        Assert.assertNull(cache.setIfAbsent(KEY, VALUE));
+        Assert.assertEquals(VALUE, cache.setIfAbsent(KEY, VALUE2));
+        Assert.assertEquals(VALUE, cache.get(KEY));
+    }
+
+    /**
+     * Validate {@link Cache#getAll(java.util.Collection)} and {@link Cache#setAll(Map)}.
+     * 
+     * @throws Exception error
+     */
+    @Test
+    public void getAllSetAll() throws Exception
+    {
+        CacheFactory factory = getCacheFactory();
+
+        Cache<Object> cache = factory.newCache(new CacheConfiguration());
+
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put(KEY, VALUE);
+        values.put(KEY2, VALUE2);
+        cache.setAll(values);
+
+        Assert.assertEquals(values, cache.getAll(Arrays.asList(KEY, KEY2, "missing")));
+
+        // Null values remove the entries
+        cache.setAll(Collections.singletonMap(KEY, null));
+
+        Map<String, Object> expected = new HashMap<>();
+        expected.put(KEY2, VALUE2);
+        Assert.assertEquals(expected, cache.getAll(Arrays.asList(KEY, KEY2)));
+    }
+
+    /**
+     * Validate {@link Cache#set(String, Object, java.util.Collection)} and {@link Cache#invalidateGroup(String)}.
+     * 
+     * @throws Exception error
+     */
+    @Test
+    public void invalidateGroup() throws Exception
+    {
+        CacheFactory factory = getCacheFactory();
+
+        Cache<Object> cache = factory.newCache(new CacheConfiguration());
+
+        AtomicInteger removed = new AtomicInteger();
+        cache.addCacheEntryListener(new AbstractCacheEntryListener<Object>()
+        {
+            @Override
+            public void cacheEntryRemoved(CacheEntryEvent<Object> event)
+            {
+                removed.incrementAndGet();
+            }
+        });
+
+        cache.set(KEY, VALUE, Arrays.asList("group1"));
+        cache.set(KEY2, VALUE2, Arrays.asList("group1", "group2"));
+        cache.set("key3", VALUE);
+
+        cache.invalidateGroup("group1");
+
+        Assert.assertNull(cache.get(KEY));
+        Assert.assertNull(cache.get(KEY2));
+        Assert.assertEquals(VALUE, cache.get("key3"));
+        Assert.assertEquals(2, removed.get());
+
+        // A plain set removes the entry from its groups
+        cache.set(KEY, VALUE, Arrays.asList("group2"));
+        cache.set(KEY, VALUE2);
+
+        cache.invalidateGroup("group2");
+
+        Assert.assertEquals(VALUE2, cache.get(KEY));
+        Assert.assertEquals(2, removed.get());
+    }
 }
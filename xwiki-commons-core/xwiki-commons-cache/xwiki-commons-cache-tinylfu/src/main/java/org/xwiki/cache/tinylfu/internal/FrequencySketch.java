@@ -0,0 +1,164 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.cache.tinylfu.internal;
+
+/**
+ * A probabilistic estimate of the recent access frequency of the cache entries, used to decide if an entry is worth
+ * being admitted in the cache. It's a Count-Min sketch with 4 bits counters (so the frequency saturates at 15) which
+ * are all divided by two regularly so that the old accesses are progressively forgotten.
+ * <p>
+ * This class is not thread safe.
+ *
+ * @version $Id$
+ * @since 11.9RC1
+ */
+class FrequencySketch
+{
+    private static final long[] SEEDS =
+        { 0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L };
+
+    private static final long RESET_MASK = 0x7777777777777777L;
+
+    private static final long ONE_MASK = 0x1111111111111111L;
+
+    private static final long COUNTER_MASK = 0xfL;
+
+    /**
+     * The number of counters (of the 16 stored in a long) used for each entry.
+     */
+    private static final int DEPTH = 4;
+
+    /**
+     * The number of accesses after which all the counters are divided by two, relatively to the number of entries.
+     */
+    private static final int SAMPLE_FACTOR = 10;
+
+    private static final int MINIMUM_TABLE_SIZE = 8;
+
+    private final long[] table;
+
+    private final int tableMask;
+
+    private final int sampleSize;
+
+    private int size;
+
+    /**
+     * @param maximumSize the maximum number of entries in the cache
+     */
+    FrequencySketch(int maximumSize)
+    {
+        int tableSize = Math.max(MINIMUM_TABLE_SIZE, Integer.highestOneBit(Math.max(1, maximumSize - 1)) << 1);
+
+        this.table = new long[tableSize];
+        this.tableMask = tableSize - 1;
+        this.sampleSize = SAMPLE_FACTOR * Math.max(1, maximumSize);
+    }
+
+    /**
+     * @param hashCode the hash code of the entry key
+     * @return the estimated number of recent accesses to the entry, between 0 and 15
+     */
+    int frequency(int hashCode)
+    {
+        int hash = spread(hashCode);
+        int start = (hash & 3) << 2;
+
+        int frequency = Integer.MAX_VALUE;
+        for (int i = 0; i < DEPTH; ++i) {
+            int offset = (start + i) << 2;
+            int count = (int) ((this.table[indexOf(hash, i)] >>> offset) & COUNTER_MASK);
+            frequency = Math.min(frequency, count);
+        }
+
+        return frequency;
+    }
+
+    /**
+     * Record an access to the entry.
+     *
+     * @param hashCode the hash code of the entry key
+     */
+    void increment(int hashCode)
+    {
+        int hash = spread(hashCode);
+        int start = (hash & 3) << 2;
+
+        boolean added = false;
+        for (int i = 0; i < DEPTH; ++i) {
+            added |= incrementAt(indexOf(hash, i), start + i);
+        }
+
+        if (added && ++this.size == this.sampleSize) {
+            reset();
+        }
+    }
+
+    private boolean incrementAt(int index, int counter)
+    {
+        int offset = counter << 2;
+        long mask = COUNTER_MASK << offset;
+
+        if ((this.table[index] & mask) != mask) {
+            this.table[index] += 1L << offset;
+
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Divide all the counters by two.
+     */
+    private void reset()
+    {
+        int odd = 0;
+        for (int i = 0; i < this.table.length; ++i) {
+            odd += Long.bitCount(this.table[i] & ONE_MASK);
+            this.table[i] = (this.table[i] >>> 1) & RESET_MASK;
+        }
+
+        // Each entry uses DEPTH counters and the odd counters lose half an access
+        this.size = (this.size >>> 1) - (odd >>> 2);
+    }
+
+    private int indexOf(int hash, int i)
+    {
+        long value = (hash + SEEDS[i]) * SEEDS[i];
+        value += value >>> 32;
+
+        return ((int) value) & this.tableMask;
+    }
+
+    /**
+     * Protect against poor quality hash codes.
+     *
+     * @param hashCode the hash code to spread
+     * @return the spread hash code
+     */
+    static int spread(int hashCode)
+    {
+        int hash = ((hashCode >>> 16) ^ hashCode) * 0x45d9f3b;
+        hash = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+
+        return (hash >>> 16) ^ hash;
+    }
+}
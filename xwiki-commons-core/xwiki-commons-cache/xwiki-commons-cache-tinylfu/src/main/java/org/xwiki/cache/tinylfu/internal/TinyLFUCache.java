@@ -0,0 +1,338 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.cache.tinylfu.internal;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xwiki.cache.SizedCache;
+import org.xwiki.cache.config.CacheConfiguration;
+import org.xwiki.cache.eviction.CacheWeigher;
+import org.xwiki.cache.eviction.WeightedCache;
+import org.xwiki.cache.tinylfu.internal.TinyLFUSegment.Node;
+import org.xwiki.cache.util.AbstractCache;
+
+/**
+ * A local {@link org.xwiki.cache.Cache} using the Window TinyLFU eviction policy, which keeps the entries which are
+ * frequently accessed instead of the ones which were recently accessed. A scan of entries which are accessed only
+ * once does not flush the cache like it does with a LRU policy.
+ * <p>
+ * The entries are distributed between several {@link TinyLFUSegment segments} to reduce the lock contention, each
+ * segment having its own part of the capacity.
+ *
+ * @param <T> the class of the data stored in the cache
+ * @version $Id$
+ * @since 11.9RC1
+ */
+public class TinyLFUCache<T> extends AbstractCache<T> implements SizedCache, WeightedCache
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(TinyLFUCache.class);
+
+    /**
+     * The maximum number of segments, must be a power of two not bigger than 16.
+     */
+    private static final int MAXIMUM_SEGMENTS = 16;
+
+    /**
+     * The minimum capacity of a segment, smaller segments would make the eviction policy too approximate.
+     */
+    private static final int MINIMUM_SEGMENT_SIZE = 128;
+
+    /**
+     * The segment index is taken from the highest bits of the spread hash (the lowest are used by the sketch).
+     */
+    private static final int SEGMENT_SHIFT = 28;
+
+    /**
+     * The minimum weight of a segment when the cache is only limited by weight (an entry heavier than a segment is
+     * never kept).
+     */
+    private static final long MINIMUM_SEGMENT_WEIGHT = 4L * 1024 * 1024;
+
+    private final TinyLFUSegment<T>[] segments;
+
+    private final int segmentMask;
+
+    private final CacheWeigher<? super T> weigher;
+
+    private ScheduledFuture<?> expiration;
+
+    /**
+     * @param configuration the configuration of the cache
+     * @param maxEntries the maximum number of entries in the cache, 0 for no limit
+     * @param maxWeight the maximum total weight of the entries in the cache, 0 for no limit
+     * @param weigher the weigher used to compute the weight of the entries when there is a maximum weight
+     * @param maxIdle the time after which an entry which was not accessed is expired, in nanoseconds, 0 for no limit
+     * @param lifespan the time after which an entry is expired, in nanoseconds, 0 for no limit
+     */
+    @SuppressWarnings("unchecked")
+    public TinyLFUCache(CacheConfiguration configuration, int maxEntries, long maxWeight,
+        CacheWeigher<? super T> weigher, long maxIdle, long lifespan)
+    {
+        super(configuration);
+
+        this.weigher = maxWeight > 0 ? weigher : null;
+
+        int segmentCount = 1;
+        if (maxEntries > 0) {
+            while (segmentCount < MAXIMUM_SEGMENTS && maxEntries / (segmentCount * 2) >= MINIMUM_SEGMENT_SIZE) {
+                segmentCount *= 2;
+            }
+        } else if (maxWeight > 0) {
+            while (segmentCount < MAXIMUM_SEGMENTS && maxWeight / (segmentCount * 2) >= MINIMUM_SEGMENT_WEIGHT) {
+                segmentCount *= 2;
+            }
+        } else {
+            segmentCount = MAXIMUM_SEGMENTS;
+        }
+
+        this.segments = (TinyLFUSegment<T>[]) new TinyLFUSegment<?>[segmentCount];
+        this.segmentMask = segmentCount - 1;
+        for (int i = 0; i < segmentCount; ++i) {
+            // Distribute the remainder of the division between the first segments
+            int segmentSize = (int) share(maxEntries, segmentCount, i);
+            long segmentWeight = maxWeight > 0 ? share(maxWeight, segmentCount, i) : segmentSize;
+            this.segments[i] = new TinyLFUSegment<>(segmentWeight, segmentSize, maxIdle, lifespan);
+        }
+    }
+
+    private static long share(long maximum, int segmentCount, int segment)
+    {
+        return maximum / segmentCount + (segment < maximum % segmentCount ? 1 : 0);
+    }
+
+    /**
+     * Regularly remove the expired entries, even if they are not accessed, so that the corresponding events are sent
+     * and their values disposed.
+     *
+     * @param executor the executor in charge of the expiration
+     * @param interval the interval between two expirations, in milliseconds
+     */
+    void scheduleExpiration(ScheduledExecutorService executor, long interval)
+    {
+        this.expiration = executor.scheduleWithFixedDelay(() -> {
+            try {
+                expire();
+            } catch (Exception e) {
+                // Don't cancel the next expirations
+                LOGGER.warn("Failed to expire the entries of cache [{}]",
+                    this.configuration != null ? this.configuration.getConfigurationId() : null, e);
+            }
+        }, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    private long weigh(String key, T value)
+    {
+        // Computed before locking the segment since it can be expensive
+        return this.weigher != null ? Math.max(0, this.weigher.weigh(key, value)) : 1;
+    }
+
+    private TinyLFUSegment<T> getSegment(String key)
+    {
+        return this.segments[(FrequencySketch.spread(key.hashCode()) >>> SEGMENT_SHIFT) & this.segmentMask];
+    }
+
+    private Node<T> newNode(String key, T value, Collection<String> groups)
+    {
+        return new Node<>(key, value, weigh(key, value),
+            groups != null && !groups.isEmpty() ? new ArrayList<>(groups) : null, System.nanoTime());
+    }
+
+    @Override
+    public void set(String key, T value)
+    {
+        set(key, value, null);
+    }
+
+    @Override
+    public void set(String key, T value, Collection<String> groups)
+    {
+        if (value == null) {
+            remove(key);
+
+            return;
+        }
+
+        List<Node<T>> expired = new ArrayList<>(1);
+        List<Node<T>> evicted = new ArrayList<>(1);
+        T previousValue = getSegment(key).put(newNode(key, value, groups), false, expired, evicted);
+
+        sendEntryRemovedEvents(expired);
+
+        TinyLFUCacheEntryEvent<T> event = new TinyLFUCacheEntryEvent<>(new TinyLFUCacheEntry<>(this, key, value));
+        if (previousValue == null) {
+            sendEntryAddedEvent(event);
+        } else {
+            sendEntryModifiedEvent(event);
+
+            if (previousValue != value) {
+                disposeCacheValue(previousValue);
+            }
+        }
+
+        sendEntryRemovedEvents(evicted);
+    }
+
+    @Override
+    public T setIfAbsent(String key, T value)
+    {
+        List<Node<T>> expired = new ArrayList<>(1);
+        List<Node<T>> evicted = new ArrayList<>(1);
+        T previousValue = getSegment(key).put(newNode(key, value, null), true, expired, evicted);
+
+        sendEntryRemovedEvents(expired);
+
+        if (previousValue == null) {
+            sendEntryAddedEvent(new TinyLFUCacheEntryEvent<>(new TinyLFUCacheEntry<>(this, key, value)));
+        }
+
+        sendEntryRemovedEvents(evicted);
+
+        return previousValue;
+    }
+
+    @Override
+    public T get(String key)
+    {
+        Node<T> node = getSegment(key).get(key, System.nanoTime());
+
+        if (node == null) {
+            return null;
+        }
+
+        if (node.isRemoved()) {
+            // The entry just expired
+            sendEntryRemovedEvent(node);
+
+            return null;
+        }
+
+        return node.value;
+    }
+
+    @Override
+    public void remove(String key)
+    {
+        Node<T> node = getSegment(key).remove(key);
+
+        if (node != null) {
+            sendEntryRemovedEvent(node);
+        }
+    }
+
+    @Override
+    public void removeAll()
+    {
+        for (TinyLFUSegment<T> segment : this.segments) {
+            sendEntryRemovedEvents(segment.removeAll());
+        }
+    }
+
+    @Override
+    public void invalidateGroup(String group)
+    {
+        List<Node<T>> removed = new ArrayList<>();
+
+        // A segment only knows about its own entries
+        for (TinyLFUSegment<T> segment : this.segments) {
+            segment.removeGroup(group, removed);
+        }
+
+        sendEntryRemovedEvents(removed);
+    }
+
+    @Override
+    public void dispose()
+    {
+        if (this.expiration != null) {
+            this.expiration.cancel(false);
+        }
+
+        super.dispose();
+    }
+
+    /**
+     * @return the number of entries in the cache
+     */
+    public int size()
+    {
+        int size = 0;
+        for (TinyLFUSegment<T> segment : this.segments) {
+            size += segment.size();
+        }
+
+        return size;
+    }
+
+    @Override
+    public long getSize()
+    {
+        return size();
+    }
+
+    @Override
+    public long getWeight()
+    {
+        // Without a maximum weight each entry weighs 1 for the eviction policy, which is not a weight to report
+        if (this.weigher == null) {
+            return 0;
+        }
+
+        long weight = 0;
+        for (TinyLFUSegment<T> segment : this.segments) {
+            weight += segment.weight();
+        }
+
+        return weight;
+    }
+
+    /**
+     * Remove the expired entries.
+     */
+    void expire()
+    {
+        List<Node<T>> expired = new ArrayList<>();
+
+        long now = System.nanoTime();
+        for (TinyLFUSegment<T> segment : this.segments) {
+            segment.expire(now, expired);
+        }
+
+        sendEntryRemovedEvents(expired);
+    }
+
+    private void sendEntryRemovedEvents(List<Node<T>> nodes)
+    {
+        for (Node<T> node : nodes) {
+            sendEntryRemovedEvent(node);
+        }
+    }
+
+    private void sendEntryRemovedEvent(Node<T> node)
+    {
+        sendEntryRemovedEvent(new TinyLFUCacheEntryEvent<>(new TinyLFUCacheEntry<>(this, node.key, node.value)));
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.cache.tinylfu.internal;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.xwiki.cache.Cache;
+import org.xwiki.cache.CacheException;
+import org.xwiki.cache.CacheFactory;
+import org.xwiki.cache.config.CacheConfiguration;
+import org.xwiki.cache.eviction.CacheWeigher;
+import org.xwiki.cache.eviction.EntryEvictionConfiguration;
+import org.xwiki.cache.eviction.LRUEvictionConfiguration;
+import org.xwiki.cache.util.EstimatedSizeWeigher;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.manager.ComponentLifecycleException;
+import org.xwiki.component.phase.Disposable;
+
+/**
+ * Implements {@link CacheFactory} with local caches using the Window TinyLFU eviction policy. It can be used instead of
+ * Infinispan for local caches by setting the {@code cache.defaultLocalCache} configuration property to
+ * {@code tinylfu}.
+ *
+ * @version $Id$
+ * @since 11.9RC1
+ */
+@Component
+@Named("tinylfu")
+@Singleton
+public class TinyLFUCacheFactory implements CacheFactory, Disposable
+{
+    /**
+     * The name of the field containing the interval between two removals of the expired entries, in milliseconds.
+     */
+    public static final String CONFX_EXPIRATION_WAKEUPINTERVAL = "tinylfu.expiration.wakeupinterval";
+
+    private static final long MINIMUM_WAKEUPINTERVAL = 100;
+
+    private static final long MAXIMUM_WAKEUPINTERVAL = 60000;
+
+    private ScheduledExecutorService expirationExecutor;
+
+    @Override
+    public <T> Cache<T> newCache(CacheConfiguration configuration) throws CacheException
+    {
+        int maxEntries = 0;
+        long maxWeight = 0;
+        CacheWeigher<? super T> weigher = null;
+        long maxIdle = 0;
+        long lifespan = 0;
+        long wakeUpInterval = 0;
+
+        EntryEvictionConfiguration eec =
+            (EntryEvictionConfiguration) configuration.get(EntryEvictionConfiguration.CONFIGURATIONID);
+        if (eec != null && eec.getAlgorithm() == EntryEvictionConfiguration.Algorithm.LRU) {
+            Object maxEntriesObject = eec.get(LRUEvictionConfiguration.MAXENTRIES_ID);
+            if (maxEntriesObject instanceof Number) {
+                maxEntries = ((Number) maxEntriesObject).intValue();
+            }
+            Object maxWeightObject = eec.get(LRUEvictionConfiguration.MAXWEIGHT_ID);
+            if (maxWeightObject instanceof Number) {
+                maxWeight = ((Number) maxWeightObject).longValue();
+                weigher = getWeigher(eec);
+            }
+            if (eec.getTimeToLive() > 0) {
+                maxIdle = TimeUnit.SECONDS.toNanos(eec.getTimeToLive());
+            }
+            Object lifespanObject = eec.get(LRUEvictionConfiguration.LIFESPAN_ID);
+            if (lifespanObject instanceof Number && ((Number) lifespanObject).intValue() > 0) {
+                lifespan = TimeUnit.SECONDS.toNanos(((Number) lifespanObject).intValue());
+            }
+            Object wakeUpIntervalObject = eec.get(CONFX_EXPIRATION_WAKEUPINTERVAL);
+            if (wakeUpIntervalObject instanceof Number) {
+                wakeUpInterval = ((Number) wakeUpIntervalObject).longValue();
+            }
+        }
+
+        TinyLFUCache<T> cache = new TinyLFUCache<>(configuration, maxEntries, maxWeight, weigher, maxIdle, lifespan);
+
+        if (maxIdle > 0 || lifespan > 0) {
+            if (wakeUpInterval <= 0) {
+                // Expire the entries at least twice during the shortest configured duration
+                long shortest = maxIdle > 0 && lifespan > 0 ? Math.min(maxIdle, lifespan) : Math.max(maxIdle, lifespan);
+                wakeUpInterval = Math.max(MINIMUM_WAKEUPINTERVAL,
+                    Math.min(MAXIMUM_WAKEUPINTERVAL, TimeUnit.NANOSECONDS.toMillis(shortest) / 2));
+            }
+
+            cache.scheduleExpiration(getExpirationExecutor(), wakeUpInterval);
+        }
+
+        return cache;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> CacheWeigher<? super T> getWeigher(EntryEvictionConfiguration eec)
+    {
+        Object weigher = eec.get(LRUEvictionConfiguration.WEIGHER_ID);
+
+        return weigher instanceof CacheWeigher ? (CacheWeigher<? super T>) weigher : EstimatedSizeWeigher.INSTANCE;
+    }
+
+    private synchronized ScheduledExecutorService getExpirationExecutor()
+    {
+        if (this.expirationExecutor == null) {
+            BasicThreadFactory threadFactory = new BasicThreadFactory.Builder()
+                .namingPattern("TinyLFU cache expiration").daemon(true).priority(Thread.MIN_PRIORITY).build();
+            ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, threadFactory);
+            // Don't keep the expiration of the disposed caches
+            executor.setRemoveOnCancelPolicy(true);
+
+            this.expirationExecutor = Executors.unconfigurableScheduledExecutorService(executor);
+        }
+
+        return this.expirationExecutor;
+    }
+
+    @Override
+    public synchronized void dispose() throws ComponentLifecycleException
+    {
+        if (this.expirationExecutor != null) {
+            this.expirationExecutor.shutdownNow();
+        }
+    }
+}
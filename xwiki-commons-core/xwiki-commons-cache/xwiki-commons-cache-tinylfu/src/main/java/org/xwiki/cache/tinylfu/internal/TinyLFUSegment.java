@@ -0,0 +1,802 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.cache.tinylfu.internal;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A part of a {@link TinyLFUCache}, with its own lock and eviction policy.
+ * <p>
+ * The eviction policy is Window TinyLFU: new entries are first stored in a small LRU window (1% of the capacity) and
+ * when they are pushed out of it they have to be more frequently accessed (according to a {@link FrequencySketch})
+ * than the least recently used entries of the main space to be admitted in it. The main space is a segmented LRU: the
+ * entries accessed again while in probation are moved to the protected segment (80% of the main space).
+ * <p>
+ * The capacity is expressed as a weight, which is the number of entries when each entry weighs 1. A maximum number of
+ * entries can be enforced in addition to the maximum weight.
+ * <p>
+ * The entries are also sorted by access time and by write time when they can expire, so that the expired entries are
+ * found without scanning the whole segment.
+ * <p>
+ * The methods of this class don't send any event, they return the entries which were removed so that the cache can
+ * send the events once the lock is released.
+ *
+ * @param <T> the class of the data stored in the cache
+ * @version $Id$
+ * @since 11.9RC1
+ */
+class TinyLFUSegment<T>
+{
+    private static final int WINDOW_PERCENT = 1;
+
+    private static final int PROTECTED_PERCENT = 80;
+
+    private static final int PERCENT = 100;
+
+    /**
+     * The size of the frequency sketch when the segment does not have a maximum number of entries.
+     */
+    private static final int DEFAULT_SKETCH_SIZE = 1024;
+
+    /**
+     * The position of an entry in the eviction policy.
+     *
+     * @version $Id$
+     */
+    enum Queue
+    {
+        /**
+         * The LRU window where new entries are added.
+         */
+        WINDOW,
+
+        /**
+         * The entries of the main space which were not accessed since they were admitted.
+         */
+        PROBATION,
+
+        /**
+         * The entries of the main space which were accessed since they were admitted.
+         */
+        PROTECTED
+    }
+
+    /**
+     * An entry of the segment.
+     *
+     * @param <T> the class of the data stored in the cache
+     * @version $Id$
+     */
+    static final class Node<T>
+    {
+        final String key;
+
+        final int hash;
+
+        T value;
+
+        long weight;
+
+        /**
+         * The groups of the entry, {@code null} for none.
+         */
+        Collection<String> groups;
+
+        long writeTime;
+
+        long accessTime;
+
+        /**
+         * The queue containing the entry, {@code null} once the entry is removed.
+         */
+        Queue queue;
+
+        Node<T> previous;
+
+        Node<T> next;
+
+        Node<T> accessPrevious;
+
+        Node<T> accessNext;
+
+        Node<T> writePrevious;
+
+        Node<T> writeNext;
+
+        Node(String key, T value, long weight, Collection<String> groups, long now)
+        {
+            this.key = key;
+            this.hash = key.hashCode();
+            this.value = value;
+            this.weight = weight;
+            this.groups = groups;
+            this.writeTime = now;
+            this.accessTime = now;
+        }
+
+        /**
+         * @return {@code true} if the entry is not in the cache anymore
+         */
+        boolean isRemoved()
+        {
+            return this.queue == null;
+        }
+    }
+
+    /**
+     * A doubly linked list of entries, from the least recently used to the most recently used.
+     *
+     * @param <T> the class of the data stored in the cache
+     * @version $Id$
+     */
+    static final class AccessOrder<T>
+    {
+        Node<T> head;
+
+        Node<T> tail;
+
+        int size;
+
+        long weight;
+
+        void add(Node<T> node)
+        {
+            node.previous = this.tail;
+            node.next = null;
+            if (this.tail != null) {
+                this.tail.next = node;
+            } else {
+                this.head = node;
+            }
+            this.tail = node;
+            ++this.size;
+            this.weight += node.weight;
+        }
+
+        void remove(Node<T> node)
+        {
+            if (node.previous != null) {
+                node.previous.next = node.next;
+            } else {
+                this.head = node.next;
+            }
+            if (node.next != null) {
+                node.next.previous = node.previous;
+            } else {
+                this.tail = node.previous;
+            }
+            node.previous = null;
+            node.next = null;
+            --this.size;
+            this.weight -= node.weight;
+        }
+
+        void moveToTail(Node<T> node)
+        {
+            if (node != this.tail) {
+                remove(node);
+                add(node);
+            }
+        }
+    }
+
+    /**
+     * A doubly linked list of entries sorted by access or write time, the oldest first.
+     *
+     * @param <T> the class of the data stored in the cache
+     * @version $Id$
+     */
+    static final class TimeOrder<T>
+    {
+        /**
+         * {@code true} to sort the entries by write time, {@code false} to sort them by access time.
+         */
+        private final boolean write;
+
+        Node<T> head;
+
+        Node<T> tail;
+
+        TimeOrder(boolean write)
+        {
+            this.write = write;
+        }
+
+        void add(Node<T> node)
+        {
+            setPrevious(node, this.tail);
+            setNext(node, null);
+            if (this.tail != null) {
+                setNext(this.tail, node);
+            } else {
+                this.head = node;
+            }
+            this.tail = node;
+        }
+
+        void remove(Node<T> node)
+        {
+            Node<T> previous = getPrevious(node);
+            Node<T> next = getNext(node);
+            if (previous != null) {
+                setNext(previous, next);
+            } else {
+                this.head = next;
+            }
+            if (next != null) {
+                setPrevious(next, previous);
+            } else {
+                this.tail = previous;
+            }
+            setPrevious(node, null);
+            setNext(node, null);
+        }
+
+        void moveToTail(Node<T> node)
+        {
+            if (node != this.tail) {
+                remove(node);
+                add(node);
+            }
+        }
+
+        void clear()
+        {
+            this.head = null;
+            this.tail = null;
+        }
+
+        private Node<T> getPrevious(Node<T> node)
+        {
+            return this.write ? node.writePrevious : node.accessPrevious;
+        }
+
+        private Node<T> getNext(Node<T> node)
+        {
+            return this.write ? node.writeNext : node.accessNext;
+        }
+
+        private void setPrevious(Node<T> node, Node<T> previous)
+        {
+            if (this.write) {
+                node.writePrevious = previous;
+            } else {
+                node.accessPrevious = previous;
+            }
+        }
+
+        private void setNext(Node<T> node, Node<T> next)
+        {
+            if (this.write) {
+                node.writeNext = next;
+            } else {
+                node.accessNext = next;
+            }
+        }
+    }
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Map<String, Node<T>> nodes = new HashMap<>();
+
+    private final boolean bounded;
+
+    private final int maximumSize;
+
+    private final long windowMaximum;
+
+    private final long mainMaximum;
+
+    private final long protectedMaximum;
+
+    private final FrequencySketch sketch;
+
+    private final long maxIdle;
+
+    private final long lifespan;
+
+    private final AccessOrder<T> window = new AccessOrder<>();
+
+    private final AccessOrder<T> probation = new AccessOrder<>();
+
+    private final AccessOrder<T> protectedOrder = new AccessOrder<>();
+
+    /**
+     * The entries sorted by access time, {@code null} when they don't expire after some idle time.
+     */
+    private final TimeOrder<T> accessTimeOrder;
+
+    /**
+     * The entries sorted by write time, {@code null} when they don't have a lifespan.
+     */
+    private final TimeOrder<T> writeTimeOrder;
+
+    /**
+     * The entries of each group, created when the first entry with groups is added.
+     */
+    private Map<String, Set<Node<T>>> groupIndex;
+
+    /**
+     * @param maximumWeight the maximum total weight of the entries in the segment, 0 for no limit
+     * @param maximumSize the maximum number of entries in the segment, 0 for no limit
+     * @param maxIdle the time after which an entry which was not accessed is expired, in nanoseconds, 0 for no limit
+     * @param lifespan the time after which an entry is expired, in nanoseconds, 0 for no limit
+     */
+    TinyLFUSegment(long maximumWeight, int maximumSize, long maxIdle, long lifespan)
+    {
+        this.bounded = maximumWeight > 0;
+        this.maximumSize = maximumSize;
+        if (this.bounded) {
+            this.windowMaximum = Math.max(1, maximumWeight * WINDOW_PERCENT / PERCENT);
+            this.mainMaximum = maximumWeight - this.windowMaximum;
+            this.protectedMaximum = this.mainMaximum * PROTECTED_PERCENT / PERCENT;
+            this.sketch = new FrequencySketch(maximumSize > 0 ? maximumSize : DEFAULT_SKETCH_SIZE);
+        } else {
+            this.windowMaximum = Long.MAX_VALUE;
+            this.mainMaximum = 0;
+            this.protectedMaximum = 0;
+            this.sketch = null;
+        }
+        this.maxIdle = maxIdle;
+        this.lifespan = lifespan;
+        this.accessTimeOrder = maxIdle > 0 ? new TimeOrder<>(false) : null;
+        this.writeTimeOrder = lifespan > 0 ? new TimeOrder<>(true) : null;
+    }
+
+    /**
+     * @param key the key of the entry
+     * @param now the current time, in nanoseconds
+     * @return the entry, {@code null} if there is none, or a {@link Node#isRemoved() removed} entry if it just expired
+     */
+    Node<T> get(String key, long now)
+    {
+        this.lock.lock();
+
+        try {
+            Node<T> node = this.nodes.get(key);
+
+            if (node == null) {
+                if (this.bounded) {
+                    // Missing entries are counted too so that they are admitted more easily when they're added
+                    this.sketch.increment(key.hashCode());
+                }
+            } else if (isExpired(node, now)) {
+                removeNode(node);
+            } else {
+                access(node, now);
+            }
+
+            return node;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * @param entry the new entry (its value, weight and groups are copied to the existing entry if there is one)
+     * @param onlyIfAbsent {@code true} if an existing entry should be kept as is
+     * @param expired the expired previous entry
+     * @param evicted the entries which had to be evicted to make room for the new entry
+     * @return the previous value or {@code null} if the entry was added
+     */
+    T put(Node<T> entry, boolean onlyIfAbsent, List<Node<T>> expired, List<Node<T>> evicted)
+    {
+        long now = entry.writeTime;
+
+        this.lock.lock();
+
+        try {
+            Node<T> node = this.nodes.get(entry.key);
+
+            if (node != null && isExpired(node, now)) {
+                removeNode(node);
+                expired.add(node);
+                node = null;
+            }
+
+            if (node != null) {
+                T previousValue = node.value;
+
+                access(node, now);
+
+                if (!onlyIfAbsent) {
+                    update(node, entry, evicted);
+                }
+
+                return previousValue;
+            }
+
+            this.nodes.put(entry.key, entry);
+            entry.queue = Queue.WINDOW;
+            this.window.add(entry);
+            if (this.accessTimeOrder != null) {
+                this.accessTimeOrder.add(entry);
+            }
+            if (this.writeTimeOrder != null) {
+                this.writeTimeOrder.add(entry);
+            }
+            index(entry);
+
+            if (this.bounded) {
+                this.sketch.increment(entry.hash);
+                evict(evicted);
+            }
+
+            return null;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    private void update(Node<T> node, Node<T> entry, List<Node<T>> evicted)
+    {
+        node.value = entry.value;
+        node.writeTime = entry.writeTime;
+        if (this.writeTimeOrder != null) {
+            this.writeTimeOrder.moveToTail(node);
+        }
+
+        unindex(node);
+        node.groups = entry.groups;
+        index(node);
+
+        if (node.weight != entry.weight) {
+            getOrder(node).weight += entry.weight - node.weight;
+            node.weight = entry.weight;
+
+            if (this.bounded) {
+                evict(evicted);
+            }
+        }
+    }
+
+    /**
+     * @param group the group of the entries to remove
+     * @param removed the removed entries
+     */
+    void removeGroup(String group, List<Node<T>> removed)
+    {
+        this.lock.lock();
+
+        try {
+            Set<Node<T>> groupNodes = this.groupIndex != null ? this.groupIndex.remove(group) : null;
+
+            if (groupNodes != null) {
+                for (Node<T> node : groupNodes) {
+                    removeNode(node);
+                    removed.add(node);
+                }
+            }
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * @param key the key of the entry to remove
+     * @return the removed entry or {@code null} if there was none
+     */
+    Node<T> remove(String key)
+    {
+        this.lock.lock();
+
+        try {
+            Node<T> node = this.nodes.get(key);
+
+            if (node != null) {
+                removeNode(node);
+            }
+
+            return node;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * @return the removed entries
+     */
+    List<Node<T>> removeAll()
+    {
+        this.lock.lock();
+
+        try {
+            List<Node<T>> removed = new ArrayList<>(this.nodes.values());
+
+            for (Node<T> node : removed) {
+                node.queue = null;
+            }
+            this.nodes.clear();
+            this.groupIndex = null;
+            clear(this.window);
+            clear(this.probation);
+            clear(this.protectedOrder);
+            if (this.accessTimeOrder != null) {
+                this.accessTimeOrder.clear();
+            }
+            if (this.writeTimeOrder != null) {
+                this.writeTimeOrder.clear();
+            }
+
+            return removed;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Remove the expired entries. Only the expired entries and the oldest entry which is not expired of each time order
+     * are visited.
+     *
+     * @param now the current time, in nanoseconds
+     * @param expired the expired entries which were removed
+     */
+    void expire(long now, List<Node<T>> expired)
+    {
+        if (this.accessTimeOrder == null && this.writeTimeOrder == null) {
+            return;
+        }
+
+        this.lock.lock();
+
+        try {
+            if (this.accessTimeOrder != null) {
+                expire(this.accessTimeOrder, now, expired);
+            }
+            if (this.writeTimeOrder != null) {
+                expire(this.writeTimeOrder, now, expired);
+            }
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    private void expire(TimeOrder<T> order, long now, List<Node<T>> expired)
+    {
+        for (Node<T> node = order.head; node != null && isExpired(node, now); node = order.head) {
+            removeNode(node);
+            expired.add(node);
+        }
+    }
+
+    /**
+     * @return the number of entries in the segment
+     */
+    int size()
+    {
+        this.lock.lock();
+
+        try {
+            return this.nodes.size();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * @return the total weight of the entries in the segment
+     */
+    long weight()
+    {
+        this.lock.lock();
+
+        try {
+            return this.window.weight + this.probation.weight + this.protectedOrder.weight;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    private boolean isExpired(Node<T> node, long now)
+    {
+        return (this.maxIdle > 0 && now - node.accessTime >= this.maxIdle)
+            || (this.lifespan > 0 && now - node.writeTime >= this.lifespan);
+    }
+
+    private void access(Node<T> node, long now)
+    {
+        node.accessTime = now;
+        if (this.accessTimeOrder != null) {
+            this.accessTimeOrder.moveToTail(node);
+        }
+
+        onAccess(node);
+    }
+
+    private void onAccess(Node<T> node)
+    {
+        if (!this.bounded) {
+            return;
+        }
+
+        this.sketch.increment(node.hash);
+
+        switch (node.queue) {
+            case WINDOW:
+                this.window.moveToTail(node);
+                break;
+            case PROBATION:
+                this.probation.remove(node);
+                node.queue = Queue.PROTECTED;
+                this.protectedOrder.add(node);
+                demote();
+                break;
+            default:
+                this.protectedOrder.moveToTail(node);
+                break;
+        }
+    }
+
+    /**
+     * Make room in the protected segment.
+     */
+    private void demote()
+    {
+        while (this.protectedOrder.weight > this.protectedMaximum) {
+            Node<T> demoted = this.protectedOrder.head;
+            this.protectedOrder.remove(demoted);
+            demoted.queue = Queue.PROBATION;
+            this.probation.add(demoted);
+        }
+    }
+
+    private void evict(List<Node<T>> evicted)
+    {
+        while (this.window.weight > this.windowMaximum) {
+            Node<T> candidate = this.window.head;
+            this.window.remove(candidate);
+            admit(candidate, evicted);
+        }
+
+        // The weight of an entry of the main space might have increased
+        demote();
+        while (this.probation.weight + this.protectedOrder.weight > this.mainMaximum) {
+            evict(getVictim(), evicted);
+        }
+
+        if (this.maximumSize > 0) {
+            while (this.nodes.size() > this.maximumSize) {
+                Node<T> victim = getVictim();
+                evict(victim != null ? victim : this.window.head, evicted);
+            }
+        }
+    }
+
+    /**
+     * Move an entry pushed out of the window to the main space if it's more frequently used than the entries it would
+     * replace, otherwise evict it.
+     */
+    private void admit(Node<T> candidate, List<Node<T>> evicted)
+    {
+        int candidateFrequency = this.sketch.frequency(candidate.hash);
+
+        while (this.probation.weight + this.protectedOrder.weight + candidate.weight > this.mainMaximum) {
+            Node<T> victim = getVictim();
+
+            if (victim == null || candidateFrequency <= this.sketch.frequency(victim.hash)) {
+                // Not worth the entries it would replace, or bigger than the whole main space
+                candidate.queue = null;
+                this.nodes.remove(candidate.key);
+                unorder(candidate);
+                unindex(candidate);
+                evicted.add(candidate);
+
+                return;
+            }
+
+            evict(victim, evicted);
+        }
+
+        candidate.queue = Queue.PROBATION;
+        this.probation.add(candidate);
+    }
+
+    private Node<T> getVictim()
+    {
+        return this.probation.head != null ? this.probation.head : this.protectedOrder.head;
+    }
+
+    private void evict(Node<T> node, List<Node<T>> evicted)
+    {
+        removeNode(node);
+        evicted.add(node);
+    }
+
+    private AccessOrder<T> getOrder(Node<T> node)
+    {
+        if (node.queue == Queue.WINDOW) {
+            return this.window;
+        } else if (node.queue == Queue.PROBATION) {
+            return this.probation;
+        }
+
+        return this.protectedOrder;
+    }
+
+    private void removeNode(Node<T> node)
+    {
+        this.nodes.remove(node.key);
+        unlink(node);
+    }
+
+    private void unlink(Node<T> node)
+    {
+        getOrder(node).remove(node);
+        unorder(node);
+        unindex(node);
+
+        node.queue = null;
+    }
+
+    private void unorder(Node<T> node)
+    {
+        if (this.accessTimeOrder != null) {
+            this.accessTimeOrder.remove(node);
+        }
+        if (this.writeTimeOrder != null) {
+            this.writeTimeOrder.remove(node);
+        }
+    }
+
+    private void index(Node<T> node)
+    {
+        if (node.groups != null) {
+            if (this.groupIndex == null) {
+                this.groupIndex = new HashMap<>();
+            }
+
+            for (String group : node.groups) {
+                this.groupIndex.computeIfAbsent(group, k -> new HashSet<>()).add(node);
+            }
+        }
+    }
+
+    private void unindex(Node<T> node)
+    {
+        if (node.groups != null && this.groupIndex != null) {
+            for (String group : node.groups) {
+                Set<Node<T>> groupNodes = this.groupIndex.get(group);
+
+                if (groupNodes != null) {
+                    groupNodes.remove(node);
+
+                    if (groupNodes.isEmpty()) {
+                        this.groupIndex.remove(group);
+                    }
+                }
+            }
+        }
+    }
+
+    private void clear(AccessOrder<T> order)
+    {
+        order.head = null;
+        order.tail = null;
+        order.size = 0;
+        order.weight = 0;
+    }
+}
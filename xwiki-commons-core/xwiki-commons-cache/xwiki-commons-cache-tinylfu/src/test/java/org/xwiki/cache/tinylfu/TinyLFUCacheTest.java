@@ -0,0 +1,80 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.cache.tinylfu;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.xwiki.cache.Cache;
+import org.xwiki.cache.config.CacheConfiguration;
+import org.xwiki.cache.eviction.EntryEvictionConfiguration;
+import org.xwiki.cache.eviction.LRUEvictionConfiguration;
+import org.xwiki.cache.internal.DefaultCacheFactory;
+import org.xwiki.cache.internal.DefaultCacheManager;
+import org.xwiki.cache.internal.DefaultCacheManagerConfiguration;
+import org.xwiki.cache.test.AbstractEvictionGenericTestCache;
+import org.xwiki.cache.tinylfu.internal.TinyLFUCache;
+import org.xwiki.cache.tinylfu.internal.TinyLFUCacheFactory;
+import org.xwiki.test.annotation.ComponentList;
+
+/**
+ * Unit tests for {@link org.xwiki.cache.tinylfu.internal.TinyLFUCache}.
+ *
+ * @version $Id$
+ */
+@ComponentList({ TinyLFUCacheFactory.class, DefaultCacheManager.class, DefaultCacheFactory.class,
+    DefaultCacheManagerConfiguration.class })
+public class TinyLFUCacheTest extends AbstractEvictionGenericTestCache
+{
+    public TinyLFUCacheTest()
+    {
+        super("tinylfu", true);
+    }
+
+    @Override
+    protected void customizeEviction(EntryEvictionConfiguration eviction)
+    {
+        // Force expiration thread to wakeup often
+        eviction.put(TinyLFUCacheFactory.CONFX_EXPIRATION_WAKEUPINTERVAL, 100);
+    }
+
+    @Test
+    public void maxWeight() throws Exception
+    {
+        LRUEvictionConfiguration eviction = new LRUEvictionConfiguration();
+        eviction.setMaxWeight(100);
+        eviction.setWeigher((String key, String value) -> value.length());
+        CacheConfiguration configuration = new CacheConfiguration();
+        configuration.put(EntryEvictionConfiguration.CONFIGURATIONID, eviction);
+
+        Cache<String> cache = getCacheFactory().newCache(configuration);
+
+        cache.set(KEY, "small");
+        cache.set(KEY2, new String(new char[90]));
+
+        Assert.assertEquals(95, ((TinyLFUCache<String>) cache).getWeight());
+
+        // Doesn't fit in the cache
+        cache.set("big", new String(new char[101]));
+        Assert.assertNull(cache.get("big"));
+        Assert.assertEquals(95, ((TinyLFUCache<String>) cache).getWeight());
+
+        cache.dispose();
+    }
+}
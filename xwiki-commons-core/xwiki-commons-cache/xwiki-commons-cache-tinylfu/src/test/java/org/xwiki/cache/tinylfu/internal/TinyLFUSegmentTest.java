@@ -0,0 +1,286 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.cache.tinylfu.internal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.xwiki.cache.tinylfu.internal.TinyLFUSegment.Node;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Validate {@link TinyLFUSegment}.
+ *
+ * @version $Id$
+ */
+public class TinyLFUSegmentTest
+{
+    private static final int SIZE = 100;
+
+    @Test
+    public void frequentEntriesSurviveScan()
+    {
+        TinyLFUSegment<String> segment = new TinyLFUSegment<>(SIZE, SIZE, 0, 0);
+        List<Node<String>> evicted = new ArrayList<>();
+
+        // Access a working set several times
+        for (int round = 0; round < 5; ++round) {
+            for (int i = 0; i < SIZE / 2; ++i) {
+                String key = "hot" + i;
+                if (segment.get(key, 0) == null) {
+                    segment.put(new Node<>(key, key, 1, null, 0), false, evicted, evicted);
+                }
+            }
+        }
+
+        // Scan many entries which are accessed only once
+        for (int i = 0; i < SIZE * 10; ++i) {
+            String key = "cold" + i;
+            segment.get(key, 0);
+            segment.put(new Node<>(key, key, 1, null, 0), false, evicted, evicted);
+        }
+
+        assertEquals(SIZE, segment.size());
+
+        int hits = 0;
+        for (int i = 0; i < SIZE / 2; ++i) {
+            if (segment.get("hot" + i, 0) != null) {
+                ++hits;
+            }
+        }
+        // A LRU cache would have kept none of them
+        assertTrue(hits >= SIZE / 2 * 9 / 10, "Only " + hits + " frequent entries survived the scan");
+        assertEquals(SIZE * 10 + SIZE / 2 - SIZE, evicted.size());
+    }
+
+    @Test
+    public void replaceValue()
+    {
+        TinyLFUSegment<String> segment = new TinyLFUSegment<>(1, 1, 0, 0);
+        List<Node<String>> evicted = new ArrayList<>();
+
+        assertNull(segment.put(new Node<>("key", "value", 1, null, 0), false, evicted, evicted));
+        assertEquals("value", segment.put(new Node<>("key", "value2", 1, null, 0), false, evicted, evicted));
+        assertEquals("value2", segment.get("key", 0).value);
+        assertTrue(evicted.isEmpty());
+
+        segment.put(new Node<>("key2", "value", 1, null, 0), false, evicted, evicted);
+        assertEquals(1, segment.size());
+        assertEquals(1, evicted.size());
+        assertTrue(evicted.get(0).isRemoved());
+    }
+
+    @Test
+    public void weight()
+    {
+        TinyLFUSegment<String> segment = new TinyLFUSegment<>(1000, 0, 0, 0);
+        List<Node<String>> evicted = new ArrayList<>();
+
+        for (int i = 0; i < 20; ++i) {
+            segment.put(new Node<>("key" + i, "value", 100, null, 0), false, evicted, evicted);
+            assertTrue(segment.weight() <= 1000);
+        }
+        // The entries are heavier than the window (1% of the weight) so only the main space is used
+        assertEquals(900, segment.weight());
+        assertEquals(9, segment.size());
+        assertEquals(11, evicted.size());
+
+        // An entry heavier than the segment is never kept
+        evicted.clear();
+        segment.put(new Node<>("heavy", "value", 2000, null, 0), false, evicted, evicted);
+        assertNull(segment.get("heavy", 0));
+        assertEquals(1, evicted.size());
+        assertEquals(900, segment.weight());
+
+        // Increasing the weight of an entry evicts other entries
+        evicted.clear();
+        Node<String> node = segment.get("key8", 0);
+        assertNotNull(node);
+        segment.put(new Node<>("key8", "value2", 300, null, 0), false, evicted, evicted);
+        assertEquals(2, evicted.size());
+        assertEquals(900, segment.weight());
+        assertEquals(300, node.weight);
+        assertFalse(node.isRemoved());
+    }
+
+    @Test
+    public void weightAndSize()
+    {
+        TinyLFUSegment<String> segment = new TinyLFUSegment<>(1000, 2, 0, 0);
+        List<Node<String>> evicted = new ArrayList<>();
+
+        for (int i = 0; i < 5; ++i) {
+            segment.put(new Node<>("key" + i, "value", 10, null, 0), false, evicted, evicted);
+        }
+
+        assertEquals(2, segment.size());
+        assertEquals(20, segment.weight());
+        assertEquals(3, evicted.size());
+    }
+
+    @Test
+    public void putIfAbsent()
+    {
+        long second = TimeUnit.SECONDS.toNanos(1);
+        TinyLFUSegment<String> segment = new TinyLFUSegment<>(SIZE, SIZE, second, 0);
+        List<Node<String>> expired = new ArrayList<>();
+        List<Node<String>> evicted = new ArrayList<>();
+
+        assertNull(segment.put(new Node<>("key", "value", 1, null, 0), true, expired, evicted));
+        assertEquals("value", segment.put(new Node<>("key", "value2", 1, null, 0), true, expired, evicted));
+        assertEquals("value", segment.get("key", 0).value);
+
+        // An expired entry is replaced
+        assertNull(segment.put(new Node<>("key", "value2", 1, null, second), true, expired, evicted));
+        assertEquals(1, expired.size());
+        assertEquals("value", expired.get(0).value);
+        assertEquals("value2", segment.get("key", second).value);
+        assertTrue(evicted.isEmpty());
+    }
+
+    @Test
+    public void unbounded()
+    {
+        TinyLFUSegment<String> segment = new TinyLFUSegment<>(0, 0, 0, 0);
+        List<Node<String>> evicted = new ArrayList<>();
+
+        for (int i = 0; i < SIZE * 10; ++i) {
+            segment.put(new Node<>("key" + i, "value", 1, null, 0), false, evicted, evicted);
+        }
+
+        assertEquals(SIZE * 10, segment.size());
+        assertTrue(evicted.isEmpty());
+
+        assertEquals(SIZE * 10, segment.removeAll().size());
+        assertEquals(0, segment.size());
+    }
+
+    @Test
+    public void expiration()
+    {
+        long second = TimeUnit.SECONDS.toNanos(1);
+        TinyLFUSegment<String> segment = new TinyLFUSegment<>(SIZE, SIZE, second, 3 * second);
+        List<Node<String>> evicted = new ArrayList<>();
+
+        segment.put(new Node<>("idle", "value", 1, null, 0), false, evicted, evicted);
+        segment.put(new Node<>("accessed", "value", 1, null, 0), false, evicted, evicted);
+
+        assertNotNull(segment.get("accessed", second / 2));
+
+        // Expired on access
+        assertNotNull(segment.get("accessed", second));
+        Node<String> node = segment.get("idle", second);
+        assertSame("value", node.value);
+        assertTrue(node.isRemoved());
+
+        List<Node<String>> expired = new ArrayList<>();
+        segment.expire(second, expired);
+        assertTrue(expired.isEmpty());
+
+        // The lifespan is reached even if the entry is regularly accessed
+        for (long time = second + second / 2; time < 3 * second; time += second / 2) {
+            assertNotNull(segment.get("accessed", time));
+        }
+        segment.expire(3 * second, expired);
+        assertEquals(1, expired.size());
+        assertEquals("accessed", expired.get(0).key);
+        assertEquals(0, segment.size());
+    }
+
+    @Test
+    public void expirationOrder()
+    {
+        long second = TimeUnit.SECONDS.toNanos(1);
+        TinyLFUSegment<String> segment = new TinyLFUSegment<>(SIZE, SIZE, 2 * second, 3 * second);
+        List<Node<String>> evicted = new ArrayList<>();
+
+        segment.put(new Node<>("accessed", "value", 1, null, 0), false, evicted, evicted);
+        segment.put(new Node<>("updated", "value", 1, null, 0), false, evicted, evicted);
+        segment.put(new Node<>("idle", "value", 1, null, second / 2), false, evicted, evicted);
+        segment.put(new Node<>("new", "value", 1, null, second), false, evicted, evicted);
+
+        // The oldest entries are not the first to expire anymore
+        assertNotNull(segment.get("accessed", second + second / 2));
+        segment.put(new Node<>("updated", "value2", 1, null, second + second / 2), false, evicted, evicted);
+
+        List<Node<String>> expired = new ArrayList<>();
+        segment.expire(2 * second + second / 2, expired);
+        assertEquals(1, expired.size());
+        assertEquals("idle", expired.get(0).key);
+        assertEquals(3, segment.size());
+
+        // The accessed entry reaches its lifespan, the updated one does not
+        expired.clear();
+        segment.expire(3 * second, expired);
+        assertEquals(2, expired.size());
+        assertEquals("new", expired.get(0).key);
+        assertEquals("accessed", expired.get(1).key);
+        assertEquals(1, segment.size());
+        assertNotNull(segment.get("updated", 3 * second));
+    }
+
+    @Test
+    public void groups()
+    {
+        TinyLFUSegment<String> segment = new TinyLFUSegment<>(SIZE, SIZE, 0, 0);
+        List<Node<String>> evicted = new ArrayList<>();
+
+        segment.put(new Node<>("key1", "value", 1, Arrays.asList("group1"), 0), false, evicted, evicted);
+        segment.put(new Node<>("key2", "value", 1, Arrays.asList("group1", "group2"), 0), false, evicted, evicted);
+        segment.put(new Node<>("key3", "value", 1, null, 0), false, evicted, evicted);
+
+        // The groups are replaced when the entry is modified
+        segment.put(new Node<>("key1", "value2", 1, Arrays.asList("group2"), 0), false, evicted, evicted);
+
+        List<Node<String>> removed = new ArrayList<>();
+        segment.removeGroup("group1", removed);
+        assertEquals(1, removed.size());
+        assertEquals("key2", removed.get(0).key);
+        assertEquals(2, segment.size());
+
+        removed.clear();
+        segment.removeGroup("group2", removed);
+        assertEquals(1, removed.size());
+        assertEquals("key1", removed.get(0).key);
+
+        removed.clear();
+        segment.removeGroup("group1", removed);
+        assertTrue(removed.isEmpty());
+        assertEquals(1, segment.size());
+        assertNotNull(segment.get("key3", 0));
+
+        // Evicted entries leave their groups
+        for (int i = 0; i < SIZE * 2; ++i) {
+            segment.put(new Node<>("key" + i, "value", 1, Arrays.asList("group"), 0), false, evicted, evicted);
+        }
+        segment.removeGroup("group", removed);
+        assertEquals(SIZE * 2, removed.size() + evicted.size());
+        assertFalse(evicted.isEmpty());
+    }
+}
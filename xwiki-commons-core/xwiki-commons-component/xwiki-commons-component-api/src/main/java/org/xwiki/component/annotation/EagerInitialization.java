@@ -0,0 +1,54 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.component.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import org.xwiki.stability.Unstable;
+
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * <p>
+ * Indicate that a singleton Component should be instantiated in the background as soon as the application is started
+ * instead of the first time it's looked up, so that the first requests don't have to wait for it to be initialized.
+ * This annotation is optional and should be used only for Components which are expensive to initialize and are
+ * very likely to be needed (for example a cache or a script engine).
+ * </p>
+ * <p>
+ * The eager Components are instantiated after their eager dependencies. This annotation is ignored for Components which
+ * are not singletons, and when the {@code xwiki-commons-component-warmup} module is not installed.
+ * </p>
+ *
+ * @version $Id$
+ * @since 11.9RC1
+ */
+@Documented
+@Retention(RUNTIME)
+@Target(TYPE)
+@Inherited
+@Unstable
+public @interface EagerInitialization
+{
+}
@@ -20,10 +20,14 @@
 package org.xwiki.component.internal.multi;
 
 import java.lang.reflect.Type;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.inject.Inject;
 
 import org.xwiki.component.descriptor.ComponentDescriptor;
+import org.xwiki.component.manager.ComponentLookupException;
 import org.xwiki.component.manager.ComponentManager;
 import org.xwiki.component.manager.ComponentRepositoryException;
 
@@ -37,17 +41,60 @@
  */
 public abstract class AbstractGenericComponentManager extends DelegateComponentManager
 {
+    /**
+     * The maximum number of chains of keys for which the resolutions are remembered.
+     */
+    private static final int RESOLUTIONS_MAX_SIZE = 1000;
+
+    /**
+     * Used in place of a {@code null} key in the maps which don't support {@code null} keys.
+     */
+    private static final Object NULL_KEY = new Object();
+
+    /**
+     * The resolutions remembered for a generation of {@link ComponentResolutionCache}. The first level of the tree is
+     * indexed by the key of this component manager and holds the resolutions, or when the parent is key-based too a
+     * map indexed by the key of the parent, and so on.
+     *
+     * @version $Id$
+     */
+    private static final class ResolutionsTree
+    {
+        private final long generation;
+
+        private final ConcurrentMap<Object, Object> root = new ConcurrentHashMap<>();
+
+        private final AtomicInteger size = new AtomicInteger();
+
+        ResolutionsTree(long generation)
+        {
+            this.generation = generation;
+        }
+    }
+
     /**
      * Store and provide {@link ComponentManager} instances.
      */
     @Inject
     private ComponentManagerManager componentManagerManager;
 
+    /**
+     * Remember which components can be found for each key.
+     */
+    @Inject
+    private ComponentResolutionCache resolutionCache;
+
     /**
      * @see #getInternalParent()
      */
     private ComponentManager internalParent;
 
+    /**
+     * The resolutions associated to each chain of keys (see {@link #getResolutions()}). Replaced when the generation
+     * changes or when too many chains of keys are remembered.
+     */
+    private volatile ResolutionsTree resolutions;
+
     /**
      * @return the key (any String) representing the current Component Manager. For example in the case of a User
      *         Component Manager the key can be the current user in the execution context so that we can register/lookup
@@ -82,6 +129,123 @@ protected ComponentManager getComponentManagerInternal()
         return key != null ? this.componentManagerManager.getComponentManager(key, false) : null;
     }
 
+    /**
+     * The components which can be found depend on the key of this component manager but also on the keys of its
+     * parents when they are key-based too (for example a user component manager with the current document component
+     * manager as parent). The component managers associated to a key are expected to have the internal parent as
+     * parent.
+     *
+     * @return the resolutions of the current chain of keys or {@code null} if they cannot be remembered because one of
+     *         the parents delegates to other component managers in a way which cannot be tracked
+     */
+    private ComponentResolutionCache.Resolutions getResolutions()
+    {
+        if (this.resolutionCache == null) {
+            return null;
+        }
+
+        ResolutionsTree tree = this.resolutions;
+        long generation = this.resolutionCache.getGeneration();
+        if (tree == null || tree.generation != generation) {
+            tree = new ResolutionsTree(generation);
+            this.resolutions = tree;
+        }
+
+        ConcurrentMap<Object, Object> level = tree.root;
+        AbstractGenericComponentManager manager = this;
+        while (true) {
+            String key = manager.getKey();
+            Object mapKey = key != null ? key : NULL_KEY;
+            ComponentManager parent = manager.getInternalParent();
+
+            if (parent instanceof AbstractGenericComponentManager) {
+                level = getLevel(level, mapKey);
+                manager = (AbstractGenericComponentManager) parent;
+            } else if (parent instanceof DelegateComponentManager) {
+                return null;
+            } else {
+                return getLeaf(tree, level, mapKey);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private ConcurrentMap<Object, Object> getLevel(ConcurrentMap<Object, Object> level, Object mapKey)
+    {
+        ConcurrentMap<Object, Object> next = (ConcurrentMap<Object, Object>) level.get(mapKey);
+        if (next == null) {
+            next = new ConcurrentHashMap<>();
+            ConcurrentMap<Object, Object> current = (ConcurrentMap<Object, Object>) level.putIfAbsent(mapKey, next);
+            if (current != null) {
+                next = current;
+            }
+        }
+
+        return next;
+    }
+
+    private ComponentResolutionCache.Resolutions getLeaf(ResolutionsTree tree, ConcurrentMap<Object, Object> level,
+        Object mapKey)
+    {
+        ComponentResolutionCache.Resolutions leaf = (ComponentResolutionCache.Resolutions) level.get(mapKey);
+        if (leaf == null) {
+            leaf = this.resolutionCache.getResolutions(null);
+            Object current = level.putIfAbsent(mapKey, leaf);
+            if (current != null) {
+                leaf = (ComponentResolutionCache.Resolutions) current;
+            } else if (tree.size.incrementAndGet() > RESOLUTIONS_MAX_SIZE) {
+                // Start again from scratch rather than tracking which chain of keys was used last
+                this.resolutions = new ResolutionsTree(tree.generation);
+            }
+        }
+
+        return leaf;
+    }
+
+    @Override
+    public boolean hasComponent(Type role)
+    {
+        return hasComponent(role, null);
+    }
+
+    @Override
+    public boolean hasComponent(Type role, String hint)
+    {
+        ComponentResolutionCache.Resolutions keyResolutions = getResolutions();
+        if (keyResolutions == null) {
+            return super.hasComponent(role, hint);
+        }
+
+        Boolean found = this.resolutionCache.get(keyResolutions, role, hint);
+        if (found == null) {
+            found = super.hasComponent(role, hint);
+
+            this.resolutionCache.put(keyResolutions, role, hint, found);
+        }
+
+        return found;
+    }
+
+    @Override
+    public <T> T getInstance(Type roleType) throws ComponentLookupException
+    {
+        return getInstance(roleType, null);
+    }
+
+    @Override
+    public <T> T getInstance(Type roleType, String roleHint) throws ComponentLookupException
+    {
+        // Fail fast when the component is already known to be missing
+        ComponentResolutionCache.Resolutions keyResolutions = getResolutions();
+        if (keyResolutions != null
+            && Boolean.FALSE.equals(this.resolutionCache.get(keyResolutions, roleType, roleHint))) {
+            throw new ComponentLookupException(
+                "Can't find descriptor for the component with type [" + roleType + "] and hint [" + roleHint + "]");
+        }
+
+        return super.getInstance(roleType, roleHint);
+    }
+
     @Override
     public <T> void registerComponent(ComponentDescriptor<T> componentDescriptor, T componentInstance)
         throws ComponentRepositoryException
@@ -96,6 +260,9 @@ public <T> void registerComponent(ComponentDescriptor<T> componentDescriptor, T
                 componentManager.registerComponent(componentDescriptor, componentInstance);
             }
         }
+
+        // Don't wait for the component event (which might be stacked) to forget what was resolved before
+        invalidateResolutions();
     }
 
     @Override
@@ -109,11 +276,21 @@ public void unregisterComponent(Type role, String roleHint)
     {
         super.unregisterComponent(role, roleHint);
 
+        invalidateResolutions();
+
         // Note: Ideally if the Component Manager for the current key is empty we could remove it from the list
         // of managed Component Managers. However there's currently no way to ask a Component Manager for its
         // full list of managed components or whether it's empty or not.
     }
 
+    @Override
+    public void unregisterComponent(ComponentDescriptor<?> componentDescriptor)
+    {
+        super.unregisterComponent(componentDescriptor);
+
+        invalidateResolutions();
+    }
+
     /**
      * @return the Parent Component Manager to default to when there's no Component Manager matching the key returned by
      *         {@link #getKey()}.
@@ -129,5 +306,14 @@ protected ComponentManager getInternalParent()
     protected void setInternalParent(ComponentManager parentComponentManager)
     {
         this.internalParent = parentComponentManager;
+
+        invalidateResolutions();
+    }
+
+    private void invalidateResolutions()
+    {
+        if (this.resolutionCache != null) {
+            this.resolutionCache.invalidate();
+        }
     }
 }
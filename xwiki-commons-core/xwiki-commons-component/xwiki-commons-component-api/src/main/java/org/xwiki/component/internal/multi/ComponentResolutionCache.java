@@ -0,0 +1,207 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.component.internal.multi;
+
+import java.lang.reflect.Type;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.inject.Singleton;
+
+import org.xwiki.component.annotation.Component;
+
+/**
+ * Remember, for each chain of key-based component managers (see {@link AbstractGenericComponentManager}), which
+ * components can or cannot be found so that repeated lookups (and especially the misses which go through the whole
+ * chain of parents) don't have to be resolved again.
+ * <p>
+ * All the resolutions are associated to a generation which is incremented each time a component is registered or
+ * unregistered in any component manager, making all the previous resolutions obsolete.
+ *
+ * @version $Id$
+ * @since 11.9RC1
+ */
+@Component(roles = ComponentResolutionCache.class)
+@Singleton
+public class ComponentResolutionCache
+{
+    /**
+     * The resolutions of a chain of component managers for a given generation.
+     */
+    public static final class Resolutions
+    {
+        private final long generation;
+
+        private final Map<ResolutionKey, Boolean> resolutions = new ConcurrentHashMap<>();
+
+        Resolutions(long generation)
+        {
+            this.generation = generation;
+        }
+    }
+
+    private static final class ResolutionKey
+    {
+        private final Type roleType;
+
+        private final String roleHint;
+
+        private final int hashCode;
+
+        ResolutionKey(Type roleType, String roleHint)
+        {
+            this.roleType = roleType;
+            this.roleHint = roleHint;
+            this.hashCode = Objects.hash(roleType, roleHint);
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            if (this == obj) {
+                return true;
+            }
+
+            if (obj instanceof ResolutionKey) {
+                ResolutionKey other = (ResolutionKey) obj;
+
+                return this.roleType.equals(other.roleType) && Objects.equals(this.roleHint, other.roleHint);
+            }
+
+            return false;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return this.hashCode;
+        }
+    }
+
+    private final AtomicLong generation = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder negativeHits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder invalidations = new LongAdder();
+
+    /**
+     * Make obsolete all the resolutions remembered so far.
+     */
+    public void invalidate()
+    {
+        this.generation.incrementAndGet();
+        this.invalidations.increment();
+    }
+
+    /**
+     * @param current the resolutions currently associated to a chain of component managers, {@code null} if none
+     * @return the passed resolutions if they are still valid, new empty resolutions otherwise
+     */
+    public Resolutions getResolutions(Resolutions current)
+    {
+        long currentGeneration = this.generation.get();
+
+        return current != null && current.generation == currentGeneration ? current
+            : new Resolutions(currentGeneration);
+    }
+
+    /**
+     * @param resolutions the resolutions of the chain of component managers
+     * @param roleType the role type of the component
+     * @param roleHint the role hint of the component
+     * @return {@code true} if the component is known to exist in the chain, {@code false} if it's known not to exist
+     *         and {@code null} if it's not known
+     */
+    public Boolean get(Resolutions resolutions, Type roleType, String roleHint)
+    {
+        Boolean found = resolutions.resolutions.get(new ResolutionKey(roleType, roleHint));
+
+        if (found == null) {
+            this.misses.increment();
+        } else if (found) {
+            this.hits.increment();
+        } else {
+            this.negativeHits.increment();
+        }
+
+        return found;
+    }
+
+    /**
+     * @param resolutions the resolutions of the chain of component managers
+     * @param roleType the role type of the component
+     * @param roleHint the role hint of the component
+     * @param found {@code true} if the component exists in the chain
+     */
+    public void put(Resolutions resolutions, Type roleType, String roleHint, boolean found)
+    {
+        // Don't remember anything computed for a generation which is already obsolete
+        if (resolutions.generation == this.generation.get()) {
+            resolutions.resolutions.put(new ResolutionKey(roleType, roleHint), found);
+        }
+    }
+
+    /**
+     * @return the current generation
+     */
+    public long getGeneration()
+    {
+        return this.generation.get();
+    }
+
+    /**
+     * @return the number of lookups for which the component was known to exist
+     */
+    public long getHits()
+    {
+        return this.hits.sum();
+    }
+
+    /**
+     * @return the number of lookups for which the component was known not to exist
+     */
+    public long getNegativeHits()
+    {
+        return this.negativeHits.sum();
+    }
+
+    /**
+     * @return the number of lookups which had to be resolved by the component managers
+     */
+    public long getMisses()
+    {
+        return this.misses.sum();
+    }
+
+    /**
+     * @return the number of time the remembered resolutions were made obsolete
+     */
+    public long getInvalidations()
+    {
+        return this.invalidations.sum();
+    }
+}
@@ -53,6 +53,9 @@ public class DefaultComponentManagerManager implements ComponentManagerManager
     @Inject
     private ComponentManager rootComponentManager;
 
+    @Inject
+    private ComponentResolutionCache resolutionCache;
+
     /**
      * Holds Component Managers based on identifiers.
      */
@@ -69,6 +72,9 @@ public ComponentManager getComponentManager(String namespace, boolean create)
             if (componentManager == null && create) {
                 componentManager = createComponentManager(namespace);
                 this.componentManagers.put(namespace, componentManager);
+
+                // The key-based component managers associated to this namespace now have a different chain
+                this.resolutionCache.invalidate();
             }
         }
 
@@ -0,0 +1,220 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.component.internal.multi;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.lang3.reflect.FieldUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xwiki.component.descriptor.DefaultComponentDescriptor;
+import org.xwiki.component.manager.ComponentLookupException;
+import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.component.util.ReflectionUtils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate the resolution cache of {@link AbstractGenericComponentManager}.
+ *
+ * @version $Id$
+ */
+public class AbstractGenericComponentManagerTest
+{
+    private ComponentResolutionCache resolutionCache = new ComponentResolutionCache();
+
+    private ComponentManagerManager componentManagerManager = mock(ComponentManagerManager.class);
+
+    private ComponentManager parent = mock(ComponentManager.class);
+
+    private ComponentManager keyComponentManager = mock(ComponentManager.class);
+
+    private String key = "wiki:wiki1";
+
+    private String documentKey;
+
+    private AbstractGenericComponentManager componentManager;
+
+    @BeforeEach
+    public void beforeEach()
+    {
+        this.componentManager = new AbstractGenericComponentManager()
+        {
+            @Override
+            protected String getKey()
+            {
+                return key;
+            }
+        };
+        ReflectionUtils.setFieldValue(this.componentManager, "componentManagerManager", this.componentManagerManager);
+        ReflectionUtils.setFieldValue(this.componentManager, "resolutionCache", this.resolutionCache);
+        this.componentManager.setInternalParent(this.parent);
+    }
+
+    @Test
+    public void hasComponentRemembered()
+    {
+        when(this.parent.hasComponent(String.class, "hint")).thenReturn(true);
+
+        assertTrue(this.componentManager.hasComponent(String.class, "hint"));
+        assertTrue(this.componentManager.hasComponent(String.class, "hint"));
+        assertFalse(this.componentManager.hasComponent(Integer.class, "hint"));
+        assertFalse(this.componentManager.hasComponent(Integer.class, "hint"));
+
+        verify(this.parent).hasComponent(String.class, "hint");
+        verify(this.parent).hasComponent(Integer.class, "hint");
+
+        assertEquals(2, this.resolutionCache.getMisses());
+        assertEquals(1, this.resolutionCache.getHits());
+        assertEquals(1, this.resolutionCache.getNegativeHits());
+    }
+
+    @Test
+    public void getInstanceWhenKnownToBeMissing() throws ComponentLookupException
+    {
+        assertFalse(this.componentManager.hasComponent(Integer.class, "hint"));
+
+        Throwable exception =
+            assertThrows(ComponentLookupException.class, () -> this.componentManager.getInstance(Integer.class, "hint"));
+        assertEquals("Can't find descriptor for the component with type [class java.lang.Integer] and hint [hint]",
+            exception.getMessage());
+
+        verify(this.parent, never()).getInstance(any(), anyString());
+    }
+
+    @Test
+    public void resolutionsPerKey()
+    {
+        when(this.componentManagerManager.getComponentManager("wiki:wiki2", false))
+            .thenReturn(this.keyComponentManager);
+        when(this.keyComponentManager.hasComponent(String.class, null)).thenReturn(true);
+
+        assertFalse(this.componentManager.hasComponent(String.class));
+
+        this.key = "wiki:wiki2";
+
+        assertTrue(this.componentManager.hasComponent(String.class));
+
+        this.key = null;
+
+        assertFalse(this.componentManager.hasComponent(String.class));
+
+        verify(this.parent, times(2)).hasComponent(String.class, null);
+    }
+
+    @Test
+    public void invalidatedWhenComponentRegistered() throws Exception
+    {
+        when(this.componentManagerManager.getComponentManager(anyString(), anyBoolean()))
+            .thenReturn(this.keyComponentManager);
+
+        assertFalse(this.componentManager.hasComponent(String.class, "hint"));
+
+        DefaultComponentDescriptor<String> descriptor = new DefaultComponentDescriptor<>();
+        descriptor.setRoleType(String.class);
+        descriptor.setRoleHint("hint");
+        this.componentManager.registerComponent(descriptor);
+        when(this.keyComponentManager.hasComponent(String.class, "hint")).thenReturn(true);
+
+        assertTrue(this.componentManager.hasComponent(String.class, "hint"));
+
+        // Any other invalidation
+        this.resolutionCache.invalidate();
+        when(this.keyComponentManager.hasComponent(String.class, "hint")).thenReturn(false);
+
+        assertFalse(this.componentManager.hasComponent(String.class, "hint"));
+    }
+
+    @Test
+    public void resolutionsPerParentKey() throws Exception
+    {
+        // A user component manager with the current document component manager as parent
+        ComponentManagerManager documentComponentManagerManager = mock(ComponentManagerManager.class);
+        when(documentComponentManagerManager.getComponentManager("document:doc2", false))
+            .thenReturn(this.keyComponentManager);
+        when(this.keyComponentManager.hasComponent(String.class, "hint")).thenReturn(true);
+        when(this.keyComponentManager.getInstance(String.class, "hint")).thenReturn("instance");
+
+        this.documentKey = "document:doc1";
+        AbstractGenericComponentManager documentComponentManager = new AbstractGenericComponentManager()
+        {
+            @Override
+            protected String getKey()
+            {
+                return documentKey;
+            }
+        };
+        ReflectionUtils.setFieldValue(documentComponentManager, "componentManagerManager",
+            documentComponentManagerManager);
+        ReflectionUtils.setFieldValue(documentComponentManager, "resolutionCache", this.resolutionCache);
+        documentComponentManager.setInternalParent(this.parent);
+        this.componentManager.setInternalParent(documentComponentManager);
+
+        assertFalse(this.componentManager.hasComponent(String.class, "hint"));
+        assertThrows(ComponentLookupException.class, () -> this.componentManager.getInstance(String.class, "hint"));
+
+        this.documentKey = "document:doc2";
+
+        assertTrue(this.componentManager.hasComponent(String.class, "hint"));
+        assertEquals("instance", this.componentManager.getInstance(String.class, "hint"));
+    }
+
+    @Test
+    public void notRememberedWithUntrackedParent()
+    {
+        DelegateComponentManager delegateComponentManager = new DelegateComponentManager();
+        delegateComponentManager.setComponentManager(this.parent);
+        this.componentManager.setInternalParent(delegateComponentManager);
+
+        assertFalse(this.componentManager.hasComponent(String.class, "hint"));
+        assertFalse(this.componentManager.hasComponent(String.class, "hint"));
+
+        verify(this.parent, times(2)).hasComponent(String.class, "hint");
+    }
+
+    @Test
+    public void resolutionsBounded() throws Exception
+    {
+        for (int i = 0; i < 2000; ++i) {
+            this.key = "wiki:wiki" + i;
+            this.componentManager.hasComponent(String.class, "hint");
+        }
+
+        Object resolutions = FieldUtils.readField(this.componentManager, "resolutions", true);
+        assertTrue(((AtomicInteger) FieldUtils.readField(resolutions, "size", true)).get() <= 1000);
+        assertTrue(((Map<?, ?>) FieldUtils.readField(resolutions, "root", true)).size() <= 1000);
+
+        // Still remembered after starting again from scratch
+        when(this.parent.hasComponent(String.class, "hint")).thenReturn(true);
+        assertFalse(this.componentManager.hasComponent(String.class, "hint"));
+    }
+}
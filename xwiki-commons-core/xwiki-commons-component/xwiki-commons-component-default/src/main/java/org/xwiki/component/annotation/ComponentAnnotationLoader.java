@@ -19,6 +19,7 @@
  */
 package org.xwiki.component.annotation;
 
+import java.io.BufferedInputStream;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
@@ -36,16 +37,23 @@
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 
 import javax.inject.Provider;
 
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.xwiki.component.descriptor.ComponentDescriptor;
 import org.xwiki.component.descriptor.DefaultComponentDescriptor;
 import org.xwiki.component.internal.RoleHint;
+import org.xwiki.component.internal.index.ComponentIndex;
+import org.xwiki.component.internal.index.ComponentIndex.IndexedComponent;
+import org.xwiki.component.internal.index.IndexedComponentDescriptorFactory;
 import org.xwiki.component.manager.ComponentManager;
 import org.xwiki.component.util.DefaultParameterizedType;
 import org.xwiki.component.util.ReflectionUtils;
@@ -74,6 +82,25 @@
     @Deprecated
     public static final String COMPONENT_OVERRIDE_LIST = "META-INF/component-overrides.txt";
 
+    /**
+     * Location in the classloader of the file containing the descriptors of the components declared in the
+     * {@link #COMPONENT_LIST} file of the same JAR, generated at build time by the
+     * {@link org.xwiki.component.internal.index.ComponentIndexProcessor} annotation processor. The components found
+     * in it are registered without parsing their annotations.
+     *
+     * @since 11.9RC1
+     */
+    @Unstable
+    public static final String COMPONENT_INDEX = "META-INF/components.index";
+
+    /**
+     * The system property to set to {@code false} to discover the components sequentially instead of in parallel.
+     *
+     * @since 11.9RC1
+     */
+    @Unstable
+    public static final String PARALLEL_PROPERTY = "xwiki.component.parallelDiscovery";
+
     /**
      * The encoding used to parse component list files.
      */
@@ -89,6 +116,49 @@
      */
     private ComponentDescriptorFactory factory = new ComponentDescriptorFactory();
 
+    /**
+     * Factory to create the Component Descriptors of a class from its indexed description.
+     */
+    private IndexedComponentDescriptorFactory indexedFactory = new IndexedComponentDescriptorFactory();
+
+    /**
+     * @see #isParallel()
+     */
+    private boolean parallel = !Boolean.FALSE.toString().equals(System.getProperty(PARALLEL_PROPERTY));
+
+    /**
+     * The result of the discovery of a declared component.
+     */
+    private static final class DiscoveredComponent
+    {
+        private List<? extends ComponentDescriptor> descriptors;
+
+        private RuntimeException error;
+
+        private long time;
+    }
+
+    /**
+     * @return true if the classes of the declared components are loaded and parsed in parallel (the registration
+     *         itself is always sequential and follows the declaration order)
+     * @since 11.9RC1
+     */
+    @Unstable
+    public boolean isParallel()
+    {
+        return this.parallel;
+    }
+
+    /**
+     * @param parallel true if the classes of the declared components should be loaded and parsed in parallel
+     * @since 11.9RC1
+     */
+    @Unstable
+    public void setParallel(boolean parallel)
+    {
+        this.parallel = parallel;
+    }
+
     /**
      * Loads all components defined using annotations.
      *
@@ -100,13 +170,15 @@ public void initialize(ComponentManager manager, ClassLoader classLoader)
     {
         try {
             // Find all declared components by retrieving the list defined in COMPONENT_LIST.
-            List<ComponentDeclaration> componentDeclarations = getDeclaredComponents(classLoader, COMPONENT_LIST);
+            Map<String, String> componentSources = new HashMap<>();
+            List<ComponentDeclaration> componentDeclarations =
+                getDeclaredComponents(classLoader, COMPONENT_LIST, componentSources);
 
             // Find all the Component overrides and adds them to the bottom of the list as component declarations with
             // the highest priority of 0. This is purely for backward compatibility since the override files is now
             // deprecated.
             List<ComponentDeclaration> componentOverrideDeclarations =
-                getDeclaredComponents(classLoader, COMPONENT_OVERRIDE_LIST);
+                getDeclaredComponents(classLoader, COMPONENT_OVERRIDE_LIST, null);
             for (ComponentDeclaration componentOverrideDeclaration : componentOverrideDeclarations) {
                 // Since the old way to declare an override was to define it in both a component.txt and a
                 // component-overrides.txt file we first need to remove the override component declaration stored in
@@ -117,7 +189,8 @@ public void initialize(ComponentManager manager, ClassLoader classLoader)
                     .getImplementationClassName(), 0));
             }
 
-            initialize(manager, classLoader, componentDeclarations);
+            register(manager, getComponentsDescriptors(classLoader, componentDeclarations,
+                getComponentIndex(classLoader), componentSources));
         } catch (Exception e) {
             // Make sure we make the calling code fail in order to fail fast and prevent the application to start
             // if something is amiss.
@@ -150,37 +223,180 @@ public void initialize(ComponentManager manager, ClassLoader classLoader,
     private Collection<ComponentDescriptor<?>> getComponentsDescriptors(ClassLoader classLoader,
         List<ComponentDeclaration> componentDeclarations)
     {
+        return getComponentsDescriptors(classLoader, componentDeclarations, new ComponentIndex(), null);
+    }
+
+    /**
+     * Find all component descriptors out of component declarations, using the precomputed descriptors of the index
+     * when available.
+     *
+     * @param classLoader the classloader used to load the component declaration implementation class.
+     * @param componentDeclarations the list of component declarations for which you want to build the component
+     *            descriptor.
+     * @param componentIndex the precomputed descriptors
+     * @param componentSources the location of the component list declaring each component, used for the timing
+     *            report, null if unknown
+     * @return a collection of component descriptors corresponding to the given component declarations.
+     */
+    private Collection<ComponentDescriptor<?>> getComponentsDescriptors(ClassLoader classLoader,
+        List<ComponentDeclaration> componentDeclarations, ComponentIndex componentIndex,
+        Map<String, String> componentSources)
+    {
+        long startTime = System.nanoTime();
+
+        // The types are shared between the indexed components
+        Map<String, Type> indexedTypes = new ConcurrentHashMap<>();
+
         // For each component class name found, load its class and use introspection to find the necessary
-        // annotations required to create a Component Descriptor.
+        // annotations required to create a Component Descriptor. Independent classes can be loaded and parsed in
+        // parallel.
+        DiscoveredComponent[] discoveredComponents = new DiscoveredComponent[componentDeclarations.size()];
+        IntStream indexes = IntStream.range(0, discoveredComponents.length);
+        if (this.parallel) {
+            indexes = indexes.parallel();
+        }
+        indexes.forEach(i -> discoveredComponents[i] =
+            discoverComponent(componentDeclarations.get(i), classLoader, componentIndex, indexedTypes));
+
+        // Resolve the priorities sequentially, in the declaration order, so that the result does not depend on the
+        // discovery order
         Map<RoleHint<?>, ComponentDescriptor<?>> descriptorMap = new HashMap<>();
         Map<RoleHint<?>, Integer> priorityMap = new HashMap<>();
 
-        for (ComponentDeclaration componentDeclaration : componentDeclarations) {
-            Class<?> componentClass;
+        for (int i = 0; i < discoveredComponents.length; ++i) {
+            ComponentDeclaration componentDeclaration = componentDeclarations.get(i);
+
+            if (discoveredComponents[i].error != null) {
+                throw discoveredComponents[i].error;
+            }
+
+            for (ComponentDescriptor<?> componentDescriptor : discoveredComponents[i].descriptors) {
+                // If there's already a existing role/hint in the list of descriptors then decide which one
+                // to keep by looking at their priorities. Highest priority wins (i.e. lowest integer value).
+                RoleHint<?> roleHint =
+                    new RoleHint(componentDescriptor.getRoleType(), componentDescriptor.getRoleHint());
+
+                addComponent(descriptorMap, priorityMap, roleHint, componentDescriptor, componentDeclaration, true);
+            }
+        }
+
+        if (LOGGER.isDebugEnabled()) {
+            logTimingReport(componentDeclarations, discoveredComponents, componentSources,
+                System.nanoTime() - startTime);
+        }
+
+        return descriptorMap.values();
+    }
+
+    private DiscoveredComponent discoverComponent(ComponentDeclaration componentDeclaration, ClassLoader classLoader,
+        ComponentIndex componentIndex, Map<String, Type> indexedTypes)
+    {
+        long startTime = System.nanoTime();
+
+        DiscoveredComponent discoveredComponent = new DiscoveredComponent();
+
+        Class<?> componentClass;
+        try {
+            componentClass = classLoader.loadClass(componentDeclaration.getImplementationClassName());
+        } catch (Exception e) {
+            discoveredComponent.error =
+                new RuntimeException(String.format("Failed to load component class [%s] for annotation parsing",
+                    componentDeclaration.getImplementationClassName()), e);
+
+            return discoveredComponent;
+        }
+
+        try {
+            discoveredComponent.descriptors =
+                getIndexedComponentDescriptors(componentClass, classLoader, componentIndex, indexedTypes);
+            if (discoveredComponent.descriptors == null) {
+                // Look for ComponentRole annotations and register one component per ComponentRole found
+                discoveredComponent.descriptors = getComponentsDescriptors(componentClass);
+            }
+        } catch (RuntimeException e) {
+            discoveredComponent.error = e;
+        }
+
+        discoveredComponent.time = System.nanoTime() - startTime;
+
+        return discoveredComponent;
+    }
+
+    /**
+     * Log the time spent to load and parse the components of each component list (JAR), to find what slows down the
+     * startup. Note that in parallel mode the sum of the times is bigger than the elapsed time.
+     */
+    private void logTimingReport(List<ComponentDeclaration> componentDeclarations,
+        DiscoveredComponent[] discoveredComponents, Map<String, String> componentSources, long elapsedTime)
+    {
+        Map<String, long[]> sourceTimes = new HashMap<>();
+        for (int i = 0; i < discoveredComponents.length; ++i) {
+            String source = componentSources != null
+                ? componentSources.get(componentDeclarations.get(i).getImplementationClassName()) : null;
+            long[] sourceTime = sourceTimes.computeIfAbsent(source != null ? source : "unknown", key -> new long[2]);
+            sourceTime[0]++;
+            sourceTime[1] += discoveredComponents[i].time;
+        }
+
+        StringBuilder report = new StringBuilder();
+        sourceTimes.entrySet().stream()
+            .sorted((entry1, entry2) -> Long.compare(entry2.getValue()[1], entry1.getValue()[1]))
+            .forEach(entry -> report.append(String.format("%n  %8.2f ms for %4d components in [%s]",
+                entry.getValue()[1] / 1000000.0, entry.getValue()[0], entry.getKey())));
+
+        LOGGER.debug("Discovered [{}] components in [{}] ms ({}):{}", discoveredComponents.length,
+            elapsedTime / 1000000, this.parallel ? "parallel" : "sequential", report);
+    }
+
+    private List<ComponentDescriptor<?>> getIndexedComponentDescriptors(Class<?> componentClass,
+        ClassLoader classLoader, ComponentIndex componentIndex, Map<String, Type> indexedTypes)
+    {
+        IndexedComponent indexedComponent = componentIndex.get(componentClass.getName());
+
+        if (indexedComponent != null) {
             try {
-                componentClass = classLoader.loadClass(componentDeclaration.getImplementationClassName());
+                List<ComponentDescriptor<?>> descriptors = this.indexedFactory
+                    .createComponentDescriptors(indexedComponent, componentClass, classLoader, indexedTypes);
+
+                if (descriptors == null) {
+                    getLogger().debug("The indexed descriptors of component [{}] don't match its class, parsing its"
+                        + " annotations instead", componentClass.getName());
+                }
+
+                return descriptors;
             } catch (Exception e) {
-                throw new RuntimeException(
-                    String.format("Failed to load component class [%s] for annotation parsing",
-                        componentDeclaration.getImplementationClassName()), e);
+                getLogger().debug("Failed to load the indexed descriptors of component [{}], parsing its annotations"
+                    + " instead. Root cause: [{}]", componentClass.getName(), ExceptionUtils.getRootCauseMessage(e));
             }
+        }
 
-            // Look for ComponentRole annotations and register one component per ComponentRole found
-            for (Type componentRoleType : findComponentRoleTypes(componentClass)) {
-                for (ComponentDescriptor<?> componentDescriptor : this.factory.createComponentDescriptors(
-                    componentClass, componentRoleType)) {
-                    // If there's already a existing role/hint in the list of descriptors then decide which one
-                    // to keep by looking at their priorities. Highest priority wins (i.e. lowest integer value).
-                    RoleHint<?> roleHint =
-                        new RoleHint(componentDescriptor.getRoleType(), componentDescriptor.getRoleHint());
-
-                    addComponent(descriptorMap, priorityMap, roleHint, componentDescriptor, componentDeclaration,
-                        true);
-                }
+        return null;
+    }
+
+    /**
+     * @param classLoader the classloader to use to look for the component index files
+     * @return the merged component indexes, the first index declaring a component wins (like the first JAR containing
+     *         a class wins)
+     */
+    private ComponentIndex getComponentIndex(ClassLoader classLoader) throws IOException
+    {
+        ComponentIndex componentIndex = new ComponentIndex();
+
+        Enumeration<URL> urls = classLoader.getResources(COMPONENT_INDEX);
+        while (urls.hasMoreElements()) {
+            URL url = urls.nextElement();
+
+            LOGGER.debug("Loading component index from [{}]", url);
+
+            try (InputStream stream = new BufferedInputStream(url.openStream())) {
+                componentIndex.addAll(ComponentIndex.read(stream));
+            } catch (IOException e) {
+                getLogger().warn("Failed to read the component index [{}], the annotations of its components will be"
+                    + " parsed instead. Root cause: [{}]", url, ExceptionUtils.getRootCauseMessage(e));
             }
         }
 
-        return descriptorMap.values();
+        return componentIndex;
     }
 
     /**
@@ -459,12 +675,13 @@ public Set<Class<?>> findComponentRoleClasses(Class<?> componentClass)
      *
      * @param classLoader the classloader to use to find the resources
      * @param location the name of the resources to look for
+     * @param componentSources filled with the location of the component list declaring each component, ignored if null
      * @return the list of component implementation class names
      * @throws IOException in case of an error loading the component list resource
      * @since 3.3M1
      */
-    private List<ComponentDeclaration> getDeclaredComponents(ClassLoader classLoader, String location)
-        throws IOException
+    private List<ComponentDeclaration> getDeclaredComponents(ClassLoader classLoader, String location,
+        Map<String, String> componentSources) throws IOException
     {
         List<ComponentDeclaration> annotatedClassNames = new ArrayList<>();
         Enumeration<URL> urls = classLoader.getResources(location);
@@ -476,7 +693,15 @@ private List<ComponentDeclaration> getDeclaredComponents(ClassLoader classLoader
             InputStream componentListStream = url.openStream();
 
             try {
-                annotatedClassNames.addAll(getDeclaredComponents(componentListStream));
+                List<ComponentDeclaration> componentDeclarations = getDeclaredComponents(componentListStream);
+                if (componentSources != null) {
+                    // Remember the JAR (or directory) declaring each component
+                    String source = StringUtils.removeEnd(StringUtils.removeEnd(url.toString(), location), "!/");
+                    for (ComponentDeclaration componentDeclaration : componentDeclarations) {
+                        componentSources.putIfAbsent(componentDeclaration.getImplementationClassName(), source);
+                    }
+                }
+                annotatedClassNames.addAll(componentDeclarations);
             } finally {
                 componentListStream.close();
             }
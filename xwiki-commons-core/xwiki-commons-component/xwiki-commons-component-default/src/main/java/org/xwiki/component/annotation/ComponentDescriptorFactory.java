@@ -46,10 +46,21 @@
     /**
      * Load all Component Descriptor Factories implementations using the JDK's Service Loader facility. Note that we
      * cannot use Components to do this since it would be a chicken and egg issue since this factory class is used to
-     * initialize Components...
+     * initialize Components... They are loaded once since iterating a {@link ServiceLoader} is not thread safe and
+     * component descriptors can be created concurrently (see {@link ComponentAnnotationLoader}).
      */
-    private ServiceLoader<ComponentDependencyFactory> componentDependencyFactories = ServiceLoader
-        .load(ComponentDependencyFactory.class);
+    private final List<ComponentDependencyFactory> componentDependencyFactories = new ArrayList<>();
+
+    /**
+     * Default constructor.
+     */
+    public ComponentDescriptorFactory()
+    {
+        for (ComponentDependencyFactory componentDependencyFactory : ServiceLoader
+            .load(ComponentDependencyFactory.class)) {
+            this.componentDependencyFactories.add(componentDependencyFactory);
+        }
+    }
 
     /**
      * Create component descriptors for the passed component implementation class and component role class. There can be
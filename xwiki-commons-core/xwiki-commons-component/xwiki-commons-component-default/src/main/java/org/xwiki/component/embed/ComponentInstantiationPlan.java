@@ -0,0 +1,286 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.component.embed;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import javax.inject.Provider;
+
+import org.slf4j.Logger;
+import org.xwiki.component.descriptor.ComponentDependency;
+import org.xwiki.component.descriptor.ComponentDescriptor;
+import org.xwiki.component.util.ReflectionUtils;
+
+/**
+ * Everything {@link EmbeddableComponentManager} needs to know to create an instance of a component, resolved once per
+ * component descriptor instead of on each instantiation: the constructor to call, the kind and the setter of each
+ * dependency and the {@link LifecycleHandler}s which apply to the component implementation.
+ *
+ * @param <T> the type of the component
+ * @version $Id$
+ * @since 11.9RC1
+ */
+class ComponentInstantiationPlan<T>
+{
+    private static final MethodType CONSTRUCTOR_TYPE = MethodType.methodType(Object.class);
+
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    /**
+     * The way the value of a dependency is resolved.
+     */
+    enum DependencyKind
+    {
+        /**
+         * A {@link Logger} created for the component implementation.
+         */
+        LOGGER,
+
+        /**
+         * The list of all the components implementing the dependency generic role.
+         */
+        LIST,
+
+        /**
+         * The map of all the components implementing the dependency generic role, indexed by hint.
+         */
+        MAP,
+
+        /**
+         * A registered {@link Provider} or a generic one.
+         */
+        PROVIDER,
+
+        /**
+         * A copy of the descriptor of the component.
+         */
+        DESCRIPTOR,
+
+        /**
+         * The component matching the dependency role and hint.
+         */
+        COMPONENT;
+
+        /**
+         * @param dependency the dependency to classify
+         * @return the way the value of the passed dependency is resolved
+         */
+        static DependencyKind of(ComponentDependency<?> dependency)
+        {
+            Class<?> dependencyRoleClass = ReflectionUtils.getTypeClass(dependency.getRoleType());
+
+            if (dependencyRoleClass.isAssignableFrom(Logger.class)) {
+                return LOGGER;
+            } else if (dependencyRoleClass.isAssignableFrom(List.class)) {
+                return LIST;
+            } else if (dependencyRoleClass.isAssignableFrom(Map.class)) {
+                return MAP;
+            } else if (dependencyRoleClass.isAssignableFrom(Provider.class)) {
+                return PROVIDER;
+            } else if (dependencyRoleClass.isAssignableFrom(ComponentDescriptor.class)) {
+                return DESCRIPTOR;
+            }
+
+            return COMPONENT;
+        }
+    }
+
+    /**
+     * A dependency of the component along with what is needed to resolve and inject it.
+     */
+    static final class InjectionPoint
+    {
+        final ComponentDependency<?> dependency;
+
+        final DependencyKind kind;
+
+        /**
+         * The last generic argument of the dependency role, used for {@link DependencyKind#LIST} and
+         * {@link DependencyKind#MAP}.
+         */
+        final Type elementType;
+
+        /**
+         * The setter of the field, {@code null} when the component does not have a field with the dependency name.
+         */
+        private final MethodHandle setter;
+
+        private final String fieldName;
+
+        InjectionPoint(ComponentDependency<?> dependency, Class<?> implementation)
+        {
+            this.dependency = dependency;
+            this.kind = DependencyKind.of(dependency);
+            this.elementType = this.kind == DependencyKind.LIST || this.kind == DependencyKind.MAP
+                ? ReflectionUtils.getLastTypeGenericArgument(dependency.getRoleType()) : null;
+            this.fieldName = dependency.getName();
+            this.setter = createSetter(implementation, this.fieldName);
+        }
+
+        void inject(Object instance, Object value) throws Exception
+        {
+            if (this.setter != null) {
+                try {
+                    this.setter.invokeExact(instance, value);
+                } catch (Exception | Error e) {
+                    throw e;
+                } catch (Throwable e) {
+                    throw new Exception(e);
+                }
+            } else {
+                // Keep the exact same behavior as before (including the error reporting) when the field could not be
+                // resolved in advance
+                ReflectionUtils.setFieldValue(instance, this.fieldName, value);
+            }
+        }
+
+        private static MethodHandle createSetter(Class<?> implementation, String fieldName)
+        {
+            // Same lookup as ReflectionUtils#setFieldValue
+            for (Class<?> targetClass = implementation; targetClass != null;
+                targetClass = targetClass.getSuperclass()) {
+                for (Field field : targetClass.getDeclaredFields()) {
+                    if (field.getName().equalsIgnoreCase(fieldName)) {
+                        return unreflectSetter(field);
+                    }
+                }
+            }
+
+            return null;
+        }
+
+        private static MethodHandle unreflectSetter(Field field)
+        {
+            if (Modifier.isStatic(field.getModifiers())) {
+                return null;
+            }
+
+            try {
+                field.setAccessible(true);
+
+                return MethodHandles.lookup().unreflectSetter(field).asType(SETTER_TYPE);
+            } catch (Exception e) {
+                // Fallback on reflection at injection time
+                return null;
+            }
+        }
+    }
+
+    private final ComponentDescriptor<T> descriptor;
+
+    /**
+     * The public no argument constructor, {@code null} if it can't be accessed without reflection.
+     */
+    private final MethodHandle constructor;
+
+    private final List<InjectionPoint> injectionPoints;
+
+    private final List<LifecycleHandler> lifecycleHandlers;
+
+    /**
+     * @param descriptor the descriptor of the component
+     * @param lifecycleHandlers all the available lifecycle handlers
+     */
+    ComponentInstantiationPlan(ComponentDescriptor<T> descriptor, Collection<LifecycleHandler> lifecycleHandlers)
+    {
+        this.descriptor = descriptor;
+
+        Class<? extends T> implementation = descriptor.getImplementation();
+
+        this.constructor = createConstructor(implementation);
+
+        Collection<ComponentDependency<?>> dependencies = descriptor.getComponentDependencies();
+        this.injectionPoints = new ArrayList<>(dependencies.size());
+        for (ComponentDependency<?> dependency : dependencies) {
+            this.injectionPoints.add(new InjectionPoint(dependency, implementation));
+        }
+
+        this.lifecycleHandlers = new ArrayList<>(lifecycleHandlers.size());
+        for (LifecycleHandler lifecycleHandler : lifecycleHandlers) {
+            if (lifecycleHandler.supports(descriptor)) {
+                this.lifecycleHandlers.add(lifecycleHandler);
+            }
+        }
+    }
+
+    private static MethodHandle createConstructor(Class<?> implementation)
+    {
+        try {
+            return MethodHandles.publicLookup().findConstructor(implementation, MethodType.methodType(void.class))
+                .asType(CONSTRUCTOR_TYPE);
+        } catch (Exception e) {
+            // Fallback on Class#newInstance() which will report the problem (if any) at instantiation time
+            return null;
+        }
+    }
+
+    /**
+     * @return the descriptor of the component
+     */
+    ComponentDescriptor<T> getDescriptor()
+    {
+        return this.descriptor;
+    }
+
+    /**
+     * @return the dependencies to inject, in declaration order
+     */
+    List<InjectionPoint> getInjectionPoints()
+    {
+        return this.injectionPoints;
+    }
+
+    /**
+     * @return the lifecycle handlers which apply to the component
+     */
+    List<LifecycleHandler> getLifecycleHandlers()
+    {
+        return this.lifecycleHandlers;
+    }
+
+    /**
+     * @return a new instance of the component, without any dependency injected
+     * @throws Exception when failing to create the instance
+     */
+    @SuppressWarnings("unchecked")
+    T newInstance() throws Exception
+    {
+        if (this.constructor == null) {
+            return this.descriptor.getImplementation().newInstance();
+        }
+
+        try {
+            return (T) this.constructor.invokeExact();
+        } catch (Exception | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new Exception(e);
+        }
+    }
+}
@@ -0,0 +1,250 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.component.embed;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collectors;
+
+import org.xwiki.component.descriptor.ComponentDescriptor;
+import org.xwiki.component.descriptor.ComponentInstantiationStrategy;
+import org.xwiki.component.internal.RoleHint;
+import org.xwiki.stability.Unstable;
+
+/**
+ * Statistics about the components of an {@link EmbeddableComponentManager}: how many times they were looked up, how
+ * many instances were created and how long it took to create them.
+ *
+ * @version $Id$
+ * @since 11.9RC1
+ */
+@Unstable
+public class ComponentMetrics
+{
+    /**
+     * The statistics of a component.
+     *
+     * @version $Id$
+     */
+    public static final class ComponentStatistics
+    {
+        private volatile ComponentDescriptor<?> descriptor;
+
+        private final LongAdder lookups = new LongAdder();
+
+        private final LongAdder instantiations = new LongAdder();
+
+        private final LongAdder instantiationTime = new LongAdder();
+
+        private final LongAdder initializationTime = new LongAdder();
+
+        ComponentStatistics(ComponentDescriptor<?> descriptor)
+        {
+            this.descriptor = descriptor;
+        }
+
+        /**
+         * @return the descriptor of the component (the last registered one if it was registered several times)
+         */
+        public ComponentDescriptor<?> getDescriptor()
+        {
+            return this.descriptor;
+        }
+
+        /**
+         * @return the number of times the component was looked up
+         */
+        public long getLookups()
+        {
+            return this.lookups.sum();
+        }
+
+        /**
+         * @return the number of instances of the component which were created
+         */
+        public long getInstantiations()
+        {
+            return this.instantiations.sum();
+        }
+
+        /**
+         * @return the total time spent creating instances of the component (including the creation of the dependencies
+         *         which did not exist yet and the initialization), in nanoseconds
+         */
+        public long getInstantiationTime()
+        {
+            return this.instantiationTime.sum();
+        }
+
+        /**
+         * @return the total time spent in the initialization of the instances of the component (mostly
+         *         {@link org.xwiki.component.phase.Initializable#initialize()}), in nanoseconds
+         */
+        public long getInitializationTime()
+        {
+            return this.initializationTime.sum();
+        }
+    }
+
+    private final Map<RoleHint<?>, ComponentStatistics> statistics = new ConcurrentHashMap<>();
+
+    private ComponentStatistics getStatistics(ComponentDescriptor<?> descriptor)
+    {
+        ComponentStatistics componentStatistics = this.statistics
+            .computeIfAbsent(new RoleHint<>(descriptor.getRoleType(), descriptor.getRoleHint()),
+                key -> new ComponentStatistics(descriptor));
+
+        // The component might have been overwritten
+        if (componentStatistics.descriptor != descriptor) {
+            componentStatistics.descriptor = descriptor;
+        }
+
+        return componentStatistics;
+    }
+
+    /**
+     * @param descriptor the descriptor of the component which was looked up
+     */
+    void lookup(ComponentDescriptor<?> descriptor)
+    {
+        getStatistics(descriptor).lookups.increment();
+    }
+
+    /**
+     * @param descriptor the descriptor of the component which was instantiated
+     * @param instantiationTime the time it took to create the instance, in nanoseconds
+     * @param initializationTime the part of the instantiation time spent in the initialization, in nanoseconds
+     */
+    void instantiated(ComponentDescriptor<?> descriptor, long instantiationTime, long initializationTime)
+    {
+        ComponentStatistics componentStatistics = getStatistics(descriptor);
+
+        componentStatistics.instantiations.increment();
+        componentStatistics.instantiationTime.add(instantiationTime);
+        componentStatistics.initializationTime.add(initializationTime);
+    }
+
+    /**
+     * @return the statistics of all the components which were looked up or instantiated
+     */
+    public List<ComponentStatistics> getStatistics()
+    {
+        return new ArrayList<>(this.statistics.values());
+    }
+
+    /**
+     * @param keyExtractor extracts the value to sort on from the statistics of a component
+     * @param max the maximum number of components to return
+     * @return the statistics of the components with the highest value
+     */
+    public List<ComponentStatistics> getTopStatistics(ToLongFunction<ComponentStatistics> keyExtractor, int max)
+    {
+        return this.statistics.values().stream().filter(s -> keyExtractor.applyAsLong(s) > 0)
+            .sorted(Comparator.comparingLong(keyExtractor).reversed()).limit(max).collect(Collectors.toList());
+    }
+
+    /**
+     * @return the total number of component lookups
+     */
+    public long getLookups()
+    {
+        return sum(ComponentStatistics::getLookups);
+    }
+
+    /**
+     * @return the total number of created component instances
+     */
+    public long getInstantiations()
+    {
+        return sum(ComponentStatistics::getInstantiations);
+    }
+
+    /**
+     * @return the number of created instances of {@link ComponentInstantiationStrategy#PER_LOOKUP} components
+     */
+    public long getPerLookupInstantiations()
+    {
+        return this.statistics.values().stream()
+            .filter(s -> s.getDescriptor().getInstantiationStrategy() == ComponentInstantiationStrategy.PER_LOOKUP)
+            .mapToLong(ComponentStatistics::getInstantiations).sum();
+    }
+
+    private long sum(ToLongFunction<ComponentStatistics> value)
+    {
+        return this.statistics.values().stream().mapToLong(value).sum();
+    }
+
+    /**
+     * Forget all the statistics collected so far.
+     */
+    public void reset()
+    {
+        this.statistics.clear();
+    }
+
+    /**
+     * @param max the maximum number of components to list in each section of the report
+     * @return a human readable report of the slowest and most looked up components
+     */
+    public String getReport(int max)
+    {
+        StringBuilder builder = new StringBuilder();
+
+        builder.append("Instantiated components: ").append(getInstantiations());
+        builder.append(" (per lookup: ").append(getPerLookupInstantiations()).append(')');
+        builder.append(", lookups: ").append(getLookups());
+
+        builder.append("\nSlowest components to instantiate:");
+        for (ComponentStatistics componentStatistics : getTopStatistics(ComponentStatistics::getInstantiationTime,
+            max)) {
+            appendComponent(builder, componentStatistics);
+            builder.append(": ").append(TimeUnit.NANOSECONDS.toMillis(componentStatistics.getInstantiationTime()));
+            builder.append(" ms (initialization: ")
+                .append(TimeUnit.NANOSECONDS.toMillis(componentStatistics.getInitializationTime()));
+            builder.append(" ms) for ").append(componentStatistics.getInstantiations()).append(" instance(s)");
+        }
+
+        builder.append("\nMost looked up components:");
+        for (ComponentStatistics componentStatistics : getTopStatistics(ComponentStatistics::getLookups, max)) {
+            appendComponent(builder, componentStatistics);
+            builder.append(": ").append(componentStatistics.getLookups()).append(" lookup(s)");
+        }
+
+        return builder.toString();
+    }
+
+    private void appendComponent(StringBuilder builder, ComponentStatistics componentStatistics)
+    {
+        ComponentDescriptor<?> descriptor = componentStatistics.getDescriptor();
+
+        builder.append("\n  ");
+        if (descriptor.getImplementation() != null) {
+            builder.append(descriptor.getImplementation().getName()).append(' ');
+        }
+        builder.append('[').append(descriptor.getRoleType().getTypeName()).append(", ")
+            .append(descriptor.getRoleHint()).append(']');
+    }
+}
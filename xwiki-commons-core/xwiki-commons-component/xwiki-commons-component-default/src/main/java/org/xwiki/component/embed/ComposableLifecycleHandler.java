@@ -34,12 +34,17 @@ public class ComposableLifecycleHandler implements LifecycleHandler
     @Override
     public <T> void handle(T instance, ComponentDescriptor<T> descriptor, ComponentManager componentManager)
     {
-        // Only support Composable for classes implementing ComponentManager since for all other components
-        // they should have ComponentManager injected.
-        if (ComponentManager.class.isAssignableFrom(descriptor.getImplementation())
-            && Composable.class.isAssignableFrom(descriptor.getImplementation()))
-        {
+        if (supports(descriptor)) {
             ((Composable) instance).compose(componentManager);
         }
     }
+
+    @Override
+    public boolean supports(ComponentDescriptor<?> descriptor)
+    {
+        // Only support Composable for classes implementing ComponentManager since for all other components
+        // they should have ComponentManager injected.
+        return ComponentManager.class.isAssignableFrom(descriptor.getImplementation())
+            && Composable.class.isAssignableFrom(descriptor.getImplementation());
+    }
 }
@@ -29,6 +29,7 @@
 import java.util.Objects;
 import java.util.ServiceLoader;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.inject.Provider;
 
@@ -50,6 +51,7 @@
 import org.xwiki.component.manager.NamespacedComponentManager;
 import org.xwiki.component.phase.Disposable;
 import org.xwiki.component.util.ReflectionUtils;
+import org.xwiki.stability.Unstable;
 
 /**
  * Simple implementation of {@link ComponentManager} to be used when using some XWiki modules standalone.
@@ -96,6 +98,11 @@ public class EmbeddableComponentManager implements NamespacedComponentManager, D
          */
         public boolean disposing = false;
 
+        /**
+         * The way to create new instances of the component. Lazily initialized when needed.
+         */
+        public volatile ComponentInstantiationPlan<R> plan;
+
         public ComponentEntry(ComponentDescriptor<R> descriptor, R instance)
         {
             this.descriptor = descriptor;
@@ -103,14 +110,79 @@ public ComponentEntry(ComponentDescriptor<R> descriptor, R instance)
         }
     }
 
+    /**
+     * The components instances of a role, copied by {@link #getInstanceMap(Type)} and {@link #getInstanceList(Type)}
+     * so that the callers are free to modify what they get.
+     */
+    private static final class InstanceSnapshot<T>
+    {
+        /**
+         * The value of {@link #MODIFICATION_CLOCK} before the snapshot was computed.
+         */
+        private final long stamp;
+
+        private final Map<String, T> map;
+
+        private final List<T> list;
+
+        /**
+         * True if the snapshot contains only singletons (including in the parent) so that it can be reused until a
+         * component manager of the hierarchy is modified.
+         */
+        private final boolean cacheable;
+
+        InstanceSnapshot(long stamp, Map<String, T> map, boolean cacheable)
+        {
+            this.stamp = stamp;
+            this.map = map.isEmpty() ? Collections.<String, T>emptyMap() : Collections.unmodifiableMap(map);
+            this.list = map.isEmpty() ? Collections.<T>emptyList()
+                : Collections.unmodifiableList(new ArrayList<>(map.values()));
+            this.cacheable = cacheable;
+        }
+    }
+
+    /**
+     * Shared by all the component managers so that modifications in a parent component manager can be compared with
+     * the snapshots of its children.
+     */
+    private static final AtomicLong MODIFICATION_CLOCK = new AtomicLong();
+
+    /**
+     * The system property to set to {@code true} to collect {@link ComponentMetrics} from the start.
+     *
+     * @since 11.9RC1
+     */
+    @Unstable
+    public static final String METRICS_PROPERTY = "xwiki.component.metrics";
+
     private Map<Type, Map<String, ComponentEntry<?>>> componentEntries = new ConcurrentHashMap<>();
 
+    private final Map<Type, InstanceSnapshot<?>> instanceSnapshots = new ConcurrentHashMap<>();
+
+    /**
+     * The value of {@link #MODIFICATION_CLOCK} at the last modification of the registered components (or their
+     * instances) or of the parent.
+     */
+    private volatile long lastModification;
+
     private Logger logger = LoggerFactory.getLogger(EmbeddableComponentManager.class);
 
     /**
-     * Finds all lifecycle handlers to use when instantiating a Component.
+     * All lifecycle handlers to use when instantiating a Component.
+     */
+    private final List<LifecycleHandler> lifecycleHandlers = loadLifecycleHandlers();
+
+    /**
+     * {@code true} if {@link #getDependencyInstance(ComponentDescriptor, Object, ComponentDependency)} has been
+     * overridden, in which case it needs to be called for each dependency.
+     */
+    private final boolean customDependencyInstance = isDependencyInstanceOverridden(getClass());
+
+    /**
+     * The statistics about the components of this component manager, {@code null} when disabled.
      */
-    private ServiceLoader<LifecycleHandler> lifecycleHandlers = ServiceLoader.load(LifecycleHandler.class);
+    private volatile ComponentMetrics metrics =
+        Boolean.getBoolean(METRICS_PROPERTY) ? new ComponentMetrics() : null;
 
     public EmbeddableComponentManager()
     {
@@ -222,24 +294,74 @@ public <T> List<T> getInstanceList(Type role) throws ComponentLookupException
     {
         // Reuse getInstanceMap to make sure to not return components from parent Component Manager overridden by this
         // Component Manager
-        Map<String, T> objects = getInstanceMap(role);
-
-        return objects.isEmpty() ? Collections.<T>emptyList() : new ArrayList<>(objects.values());
+        return new ArrayList<>(this.<T>getInstanceSnapshot(role).list);
     }
 
     @Override
-    @SuppressWarnings("unchecked")
     public <T> Map<String, T> getInstanceMap(Type roleType) throws ComponentLookupException
+    {
+        return new HashMap<>(this.<T>getInstanceSnapshot(roleType).map);
+    }
+
+    /**
+     * Mark the component manager as modified so that the cached instance lists and maps (of this component manager
+     * and its children) are not used anymore.
+     */
+    private void modified()
+    {
+        this.lastModification = MODIFICATION_CLOCK.incrementAndGet();
+        this.instanceSnapshots.clear();
+    }
+
+    /**
+     * @return the last modification of this component manager or of one of its parents
+     */
+    private long getLastModification()
+    {
+        long last = this.lastModification;
+
+        if (this.parent instanceof EmbeddableComponentManager) {
+            last = Math.max(last, ((EmbeddableComponentManager) this.parent).getLastModification());
+        }
+
+        return last;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> InstanceSnapshot<T> getInstanceSnapshot(Type roleType) throws ComponentLookupException
+    {
+        // Get the stamp before anything else so that any modification done while computing the snapshot invalidates it
+        long stamp = MODIFICATION_CLOCK.get();
+
+        InstanceSnapshot<T> snapshot = (InstanceSnapshot<T>) this.instanceSnapshots.get(roleType);
+        if (snapshot != null && snapshot.stamp >= getLastModification()) {
+            return snapshot;
+        }
+
+        snapshot = createInstanceSnapshot(roleType, stamp);
+        if (snapshot.cacheable) {
+            this.instanceSnapshots.put(roleType, snapshot);
+        }
+
+        return snapshot;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> InstanceSnapshot<T> createInstanceSnapshot(Type roleType, long stamp) throws ComponentLookupException
     {
         Map<String, T> components = new HashMap<>();
+        boolean cacheable = true;
 
         Map<String, ComponentEntry<?>> entries = this.componentEntries.get(roleType);
 
         // Add local components
         if (entries != null) {
             for (Map.Entry<String, ComponentEntry<?>> entry : entries.entrySet()) {
+                ComponentEntry<T> componentEntry = (ComponentEntry<T>) entry.getValue();
+                cacheable &= componentEntry.descriptor
+                    .getInstantiationStrategy() == ComponentInstantiationStrategy.SINGLETON;
                 try {
-                    components.put(entry.getKey(), getComponentInstance((ComponentEntry<T>) entry.getValue()));
+                    components.put(entry.getKey(), getComponentInstance(componentEntry));
                 } catch (Exception e) {
                     throw new ComponentLookupException(
                         "Failed to lookup component with type [" + roleType + "] and hint [" + entry.getKey() + "]", e);
@@ -248,16 +370,28 @@ public <T> Map<String, T> getInstanceMap(Type roleType) throws ComponentLookupEx
         }
 
         // Add parent components
-        if (getParent() != null) {
+        ComponentManager currentParent = getParent();
+        if (currentParent != null) {
+            Map<String, T> parentComponents;
+            if (currentParent == this.parent && currentParent instanceof EmbeddableComponentManager) {
+                InstanceSnapshot<T> parentSnapshot =
+                    ((EmbeddableComponentManager) currentParent).getInstanceSnapshot(roleType);
+                parentComponents = parentSnapshot.map;
+                cacheable &= parentSnapshot.cacheable;
+            } else {
+                // No way to know when the instances of another kind of component manager (or a parent provided by an
+                // extension of this class) change
+                parentComponents = currentParent.getInstanceMap(roleType);
+                cacheable = false;
+            }
+
             // If the hint already exists in the children Component Manager then don't add the one from the parent.
-            for (Map.Entry<String, T> entry : getParent().<T>getInstanceMap(roleType).entrySet()) {
-                if (!components.containsKey(entry.getKey())) {
-                    components.put(entry.getKey(), entry.getValue());
-                }
+            for (Map.Entry<String, T> entry : parentComponents.entrySet()) {
+                components.putIfAbsent(entry.getKey(), entry.getValue());
             }
         }
 
-        return components;
+        return new InstanceSnapshot<>(stamp, components, cacheable);
     }
 
     private ComponentEntry<?> getComponentEntry(Type role, String hint)
@@ -318,6 +452,25 @@ public <T> List<ComponentDescriptor<T>> getComponentDescriptorList(Type role)
         return new ArrayList<>(descriptors.values());
     }
 
+    /**
+     * @return the descriptors of all the components registered in this component manager (the components of the
+     *         parent are not included)
+     * @since 11.9RC1
+     */
+    @Unstable
+    public List<ComponentDescriptor<?>> getComponentDescriptors()
+    {
+        List<ComponentDescriptor<?>> descriptors = new ArrayList<>();
+
+        for (Map<String, ComponentEntry<?>> entries : this.componentEntries.values()) {
+            for (ComponentEntry<?> entry : entries.values()) {
+                descriptors.add(entry.descriptor);
+            }
+        }
+
+        return descriptors;
+    }
+
     @Override
     public ComponentEventManager getComponentEventManager()
     {
@@ -340,36 +493,151 @@ public ComponentManager getParent()
     public void setParent(ComponentManager parentComponentManager)
     {
         this.parent = parentComponentManager;
+
+        modified();
+    }
+
+    private static List<LifecycleHandler> loadLifecycleHandlers()
+    {
+        List<LifecycleHandler> handlers = new ArrayList<>();
+        for (LifecycleHandler handler : ServiceLoader.load(LifecycleHandler.class)) {
+            handlers.add(handler);
+        }
+
+        return handlers;
+    }
+
+    private static boolean isDependencyInstanceOverridden(Class<?> componentManagerClass)
+    {
+        for (Class<?> currentClass = componentManagerClass; currentClass != EmbeddableComponentManager.class;
+            currentClass = currentClass.getSuperclass()) {
+            try {
+                currentClass.getDeclaredMethod("getDependencyInstance", ComponentDescriptor.class, Object.class,
+                    ComponentDependency.class);
+
+                return true;
+            } catch (NoSuchMethodException e) {
+                // Continue with the super class
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * @return the statistics about the components of this component manager, {@code null} if they are not collected
+     * @see #setMetricsEnabled(boolean)
+     * @since 11.9RC1
+     */
+    @Unstable
+    public ComponentMetrics getMetrics()
+    {
+        return this.metrics;
+    }
+
+    /**
+     * @param enabled {@code true} to start collecting {@link ComponentMetrics}, {@code false} to stop and forget the
+     *            collected ones
+     * @since 11.9RC1
+     */
+    @Unstable
+    public void setMetricsEnabled(boolean enabled)
+    {
+        if (enabled) {
+            if (this.metrics == null) {
+                this.metrics = new ComponentMetrics();
+            }
+        } else {
+            this.metrics = null;
+        }
+    }
+
+    private <T> ComponentInstantiationPlan<T> getInstantiationPlan(ComponentEntry<T> componentEntry)
+    {
+        ComponentInstantiationPlan<T> plan = componentEntry.plan;
+
+        if (plan == null) {
+            // Several threads might create the plan at the same time but they would all produce the same result
+            plan = new ComponentInstantiationPlan<>(componentEntry.descriptor, this.lifecycleHandlers);
+            componentEntry.plan = plan;
+        }
+
+        return plan;
+    }
+
+    private <T> T createInstance(ComponentEntry<T> componentEntry) throws Exception
+    {
+        ComponentMetrics currentMetrics = this.metrics;
+
+        if (currentMetrics == null) {
+            return createInstance(componentEntry, null);
+        }
+
+        long[] initializationTime = new long[1];
+        long start = System.nanoTime();
+        T instance = createInstance(componentEntry, initializationTime);
+        currentMetrics.instantiated(componentEntry.descriptor, System.nanoTime() - start, initializationTime[0]);
+
+        return instance;
     }
 
-    private <T> T createInstance(ComponentDescriptor<T> descriptor) throws Exception
+    /**
+     * @param initializationTime where to store the time spent in the lifecycle handlers, or {@code null} if it should
+     *            not be measured
+     */
+    private <T> T createInstance(ComponentEntry<T> componentEntry, long[] initializationTime) throws Exception
     {
-        T instance = descriptor.getImplementation().newInstance();
+        ComponentInstantiationPlan<T> plan = getInstantiationPlan(componentEntry);
+        ComponentDescriptor<T> descriptor = plan.getDescriptor();
+
+        T instance = plan.newInstance();
 
         // Set each dependency
-        for (ComponentDependency<?> dependency : descriptor.getComponentDependencies()) {
+        for (ComponentInstantiationPlan.InjectionPoint injectionPoint : plan.getInjectionPoints()) {
 
             // TODO: Handle dependency cycles
 
             // Handle different field types
-            Object fieldValue = getDependencyInstance(descriptor, instance, dependency);
+            Object fieldValue;
+            if (this.customDependencyInstance) {
+                fieldValue = getDependencyInstance(descriptor, instance, injectionPoint.dependency);
+            } else {
+                fieldValue = getDependencyInstance(descriptor, instance, injectionPoint.dependency,
+                    injectionPoint.kind, injectionPoint.elementType);
+            }
 
-            // Set the field by introspection
+            // Set the field
             if (fieldValue != null) {
-                ReflectionUtils.setFieldValue(instance, dependency.getName(), fieldValue);
+                injectionPoint.inject(instance, fieldValue);
             }
         }
 
         // Call Lifecycle Handlers
-        for (LifecycleHandler lifecycleHandler : this.lifecycleHandlers) {
+        long start = initializationTime != null ? System.nanoTime() : 0;
+        for (LifecycleHandler lifecycleHandler : plan.getLifecycleHandlers()) {
             lifecycleHandler.handle(instance, descriptor, this);
         }
+        if (initializationTime != null) {
+            initializationTime[0] = System.nanoTime() - start;
+        }
 
         return instance;
     }
 
     protected Object getDependencyInstance(ComponentDescriptor<?> descriptor, Object parentInstance,
         ComponentDependency<?> dependency) throws ComponentLookupException
+    {
+        ComponentInstantiationPlan.DependencyKind kind = ComponentInstantiationPlan.DependencyKind.of(dependency);
+
+        return getDependencyInstance(descriptor, parentInstance, dependency, kind,
+            kind == ComponentInstantiationPlan.DependencyKind.LIST
+                || kind == ComponentInstantiationPlan.DependencyKind.MAP
+                    ? ReflectionUtils.getLastTypeGenericArgument(dependency.getRoleType()) : null);
+    }
+
+    private Object getDependencyInstance(ComponentDescriptor<?> descriptor, Object parentInstance,
+        ComponentDependency<?> dependency, ComponentInstantiationPlan.DependencyKind kind, Type elementType)
+        throws ComponentLookupException
     {
         // TODO: Handle dependency cycles
 
@@ -385,25 +653,30 @@ protected Object getDependencyInstance(ComponentDescriptor<?> descriptor, Object
         // Step 3: No producer found, handle scalar and collection types by looking up standard component
         // implementations.
 
-        Class<?> dependencyRoleClass = ReflectionUtils.getTypeClass(dependency.getRoleType());
-
-        if (dependencyRoleClass.isAssignableFrom(Logger.class)) {
-            fieldValue = createLogger(parentInstance.getClass());
-        } else if (dependencyRoleClass.isAssignableFrom(List.class)) {
-            fieldValue = getInstanceList(ReflectionUtils.getLastTypeGenericArgument(dependency.getRoleType()));
-        } else if (dependencyRoleClass.isAssignableFrom(Map.class)) {
-            fieldValue = getInstanceMap(ReflectionUtils.getLastTypeGenericArgument(dependency.getRoleType()));
-        } else if (dependencyRoleClass.isAssignableFrom(Provider.class)) {
-            // Check if there's a Provider registered for the type
-            if (hasComponent(dependency.getRoleType(), dependency.getRoleHint())) {
+        switch (kind) {
+            case LOGGER:
+                fieldValue = createLogger(parentInstance.getClass());
+                break;
+            case LIST:
+                fieldValue = getInstanceList(elementType);
+                break;
+            case MAP:
+                fieldValue = getInstanceMap(elementType);
+                break;
+            case PROVIDER:
+                // Check if there's a Provider registered for the type
+                if (hasComponent(dependency.getRoleType(), dependency.getRoleHint())) {
+                    fieldValue = getInstance(dependency.getRoleType(), dependency.getRoleHint());
+                } else {
+                    fieldValue = createGenericProvider(descriptor, dependency);
+                }
+                break;
+            case DESCRIPTOR:
+                fieldValue = new DefaultComponentDescriptor<>(descriptor);
+                break;
+            default:
                 fieldValue = getInstance(dependency.getRoleType(), dependency.getRoleHint());
-            } else {
-                fieldValue = createGenericProvider(descriptor, dependency);
-            }
-        } else if (dependencyRoleClass.isAssignableFrom(ComponentDescriptor.class)) {
-            fieldValue = new DefaultComponentDescriptor<>(descriptor);
-        } else {
-            fieldValue = getInstance(dependency.getRoleType(), dependency.getRoleHint());
+                break;
         }
 
         return fieldValue;
@@ -438,6 +711,11 @@ private <T> T getComponentInstance(ComponentEntry<T> componentEntry) throws Exce
 
         ComponentDescriptor<T> descriptor = componentEntry.descriptor;
 
+        ComponentMetrics currentMetrics = this.metrics;
+        if (currentMetrics != null) {
+            currentMetrics.lookup(descriptor);
+        }
+
         if (descriptor.getInstantiationStrategy() == ComponentInstantiationStrategy.SINGLETON) {
             if (componentEntry.instance != null) {
                 // If the instance exists return it
@@ -448,13 +726,13 @@ private <T> T getComponentInstance(ComponentEntry<T> componentEntry) throws Exce
                     if (componentEntry.instance != null) {
                         instance = componentEntry.instance;
                     } else {
-                        componentEntry.instance = createInstance(descriptor);
+                        componentEntry.instance = createInstance(componentEntry);
                         instance = componentEntry.instance;
                     }
                 }
             }
         } else {
-            instance = createInstance(descriptor);
+            instance = createInstance(componentEntry);
         }
 
         return instance;
@@ -490,6 +768,8 @@ private <T> void addComponent(ComponentDescriptor<T> descriptor, T instance)
         }
         entries.put(descriptor.getRoleHint(), componentEntry);
 
+        modified();
+
         // Send event about component registration
         if (this.eventManager != null) {
             this.eventManager.notifyComponentRegistered(descriptor, this);
@@ -563,6 +843,8 @@ private void releaseInstance(ComponentEntry<?> componentEntry) throws ComponentL
 
             componentEntry.instance = null;
         }
+
+        modified();
     }
 
     private void releaseComponentEntry(ComponentEntry<?> componentEntry) throws ComponentLifecycleException
@@ -581,6 +863,8 @@ private void removeComponent(Type role, String hint) throws ComponentLifecycleEx
             ComponentEntry<?> componentEntry = entries.remove(hint != null ? hint : RoleHint.DEFAULT_HINT);
 
             if (componentEntry != null) {
+                modified();
+
                 ComponentDescriptor<?> oldDescriptor = componentEntry.descriptor;
 
                 // We don't want the component manager to dispose itself just because it's not registered as component*
@@ -35,8 +35,14 @@ public class InitializableLifecycleHandler implements LifecycleHandler
     public <T> void handle(T instance, ComponentDescriptor<T> descriptor, ComponentManager componentManager)
         throws Exception
     {
-        if (Initializable.class.isAssignableFrom(descriptor.getImplementation())) {
+        if (supports(descriptor)) {
             ((Initializable) instance).initialize();
         }
     }
+
+    @Override
+    public boolean supports(ComponentDescriptor<?> descriptor)
+    {
+        return Initializable.class.isAssignableFrom(descriptor.getImplementation());
+    }
 }
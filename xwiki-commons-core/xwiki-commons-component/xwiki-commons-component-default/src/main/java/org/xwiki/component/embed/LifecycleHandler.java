@@ -21,6 +21,7 @@
 
 import org.xwiki.component.descriptor.ComponentDescriptor;
 import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.stability.Unstable;
 
 /**
  * A lifecycle handler is used when instantiating a Component and can perform operation to set up the component (for
@@ -42,4 +43,19 @@
      */
     <T> void handle(T instance, ComponentDescriptor<T> descriptor, ComponentManager componentManager)
         throws Exception;
+
+    /**
+     * Indicate if the handler has anything to do with the instances of the passed component. Called once per
+     * component descriptor so that the handlers which don't apply are skipped when instantiating the component.
+     *
+     * @param descriptor the descriptor of the component
+     * @return {@code true} if {@link #handle(Object, ComponentDescriptor, ComponentManager)} should be called for each
+     *         new instance of the component
+     * @since 11.9RC1
+     */
+    @Unstable
+    default boolean supports(ComponentDescriptor<?> descriptor)
+    {
+        return true;
+    }
 }
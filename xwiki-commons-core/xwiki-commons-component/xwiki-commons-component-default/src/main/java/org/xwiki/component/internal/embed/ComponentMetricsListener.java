@@ -0,0 +1,96 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.component.internal.embed;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.slf4j.Logger;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.embed.ComponentMetrics;
+import org.xwiki.component.embed.EmbeddableComponentManager;
+import org.xwiki.component.internal.embed.jmx.JMXComponentMetrics;
+import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.management.JMXBeanRegistration;
+import org.xwiki.observation.AbstractEventListener;
+import org.xwiki.observation.event.ApplicationStartedEvent;
+import org.xwiki.observation.event.Event;
+
+/**
+ * Expose the {@link ComponentMetrics} of the root component manager through JMX and log the components which were
+ * the slowest to instantiate during the startup of the application.
+ *
+ * @version $Id$
+ * @since 11.9RC1
+ */
+@Component
+@Singleton
+@Named(ComponentMetricsListener.NAME)
+public class ComponentMetricsListener extends AbstractEventListener
+{
+    /**
+     * The name of the listener.
+     */
+    public static final String NAME = "ComponentMetricsListener";
+
+    private static final String MBEANNAME = "type=Component,domain=Metrics";
+
+    /**
+     * The number of components to mention in each section of the startup report.
+     */
+    private static final int REPORT_SIZE = 10;
+
+    @Inject
+    private ComponentManager componentManager;
+
+    /**
+     * In order to register the component metrics MBean for management.
+     */
+    @Inject
+    private JMXBeanRegistration jmxRegistration;
+
+    @Inject
+    private Logger logger;
+
+    /**
+     * Setup event listener.
+     */
+    public ComponentMetricsListener()
+    {
+        super(NAME, new ApplicationStartedEvent());
+    }
+
+    @Override
+    public void onEvent(Event event, Object source, Object data)
+    {
+        if (this.componentManager instanceof EmbeddableComponentManager) {
+            EmbeddableComponentManager embeddableComponentManager =
+                (EmbeddableComponentManager) this.componentManager;
+
+            this.jmxRegistration.registerMBean(new JMXComponentMetrics(embeddableComponentManager), MBEANNAME);
+
+            ComponentMetrics metrics = embeddableComponentManager.getMetrics();
+            if (metrics != null) {
+                this.logger.info("Components at startup: {}", metrics.getReport(REPORT_SIZE));
+            }
+        }
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.component.internal.embed.jmx;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.CompositeDataSupport;
+import javax.management.openmbean.CompositeType;
+import javax.management.openmbean.OpenDataException;
+import javax.management.openmbean.OpenType;
+import javax.management.openmbean.SimpleType;
+import javax.management.openmbean.TabularData;
+import javax.management.openmbean.TabularDataSupport;
+import javax.management.openmbean.TabularType;
+
+import org.xwiki.component.descriptor.ComponentDescriptor;
+import org.xwiki.component.embed.ComponentMetrics;
+import org.xwiki.component.embed.ComponentMetrics.ComponentStatistics;
+import org.xwiki.component.embed.EmbeddableComponentManager;
+
+/**
+ * Expose the {@link ComponentMetrics} of an {@link EmbeddableComponentManager}.
+ *
+ * @version $Id$
+ * @since 11.9RC1
+ */
+public class JMXComponentMetrics implements JMXComponentMetricsMBean
+{
+    /**
+     * The number of components to mention in each section of the report.
+     */
+    private static final int REPORT_SIZE = 20;
+
+    private static final String[] COLUMN_NAMES = new String[] { "role", "hint", "implementation", "lookups",
+        "instantiations", "instantiationTime", "initializationTime" };
+
+    private final EmbeddableComponentManager componentManager;
+
+    /**
+     * @param componentManager the component manager for which to expose the statistics
+     */
+    public JMXComponentMetrics(EmbeddableComponentManager componentManager)
+    {
+        this.componentManager = componentManager;
+    }
+
+    @Override
+    public boolean isEnabled()
+    {
+        return this.componentManager.getMetrics() != null;
+    }
+
+    @Override
+    public void setEnabled(boolean enabled)
+    {
+        this.componentManager.setMetricsEnabled(enabled);
+    }
+
+    @Override
+    public long getLookups()
+    {
+        ComponentMetrics metrics = this.componentManager.getMetrics();
+
+        return metrics != null ? metrics.getLookups() : 0;
+    }
+
+    @Override
+    public long getInstantiations()
+    {
+        ComponentMetrics metrics = this.componentManager.getMetrics();
+
+        return metrics != null ? metrics.getInstantiations() : 0;
+    }
+
+    @Override
+    public long getPerLookupInstantiations()
+    {
+        ComponentMetrics metrics = this.componentManager.getMetrics();
+
+        return metrics != null ? metrics.getPerLookupInstantiations() : 0;
+    }
+
+    @Override
+    public TabularData getComponents()
+    {
+        TabularData data;
+
+        try {
+            String[] descriptions = new String[] { "The role type", "The role hint", "The implementation class",
+                "The number of lookups", "The number of created instances",
+                "The total time spent creating instances (ms)", "The total time spent initializing instances (ms)" };
+            CompositeType rowType = new CompositeType("component", "Statistics of a component", COLUMN_NAMES,
+                descriptions, new OpenType<?>[] { SimpleType.STRING, SimpleType.STRING, SimpleType.STRING,
+                    SimpleType.LONG, SimpleType.LONG, SimpleType.LONG, SimpleType.LONG });
+
+            TabularType type =
+                new TabularType("components", "Statistics of the components", rowType, new String[] { "role", "hint" });
+            data = new TabularDataSupport(type);
+
+            ComponentMetrics metrics = this.componentManager.getMetrics();
+            if (metrics != null) {
+                for (ComponentStatistics statistics : metrics.getStatistics()) {
+                    data.put(toCompositeData(rowType, statistics));
+                }
+            }
+        } catch (OpenDataException e) {
+            throw new RuntimeException("Failed to gather the components statistics", e);
+        }
+
+        return data;
+    }
+
+    private CompositeData toCompositeData(CompositeType rowType, ComponentStatistics statistics)
+        throws OpenDataException
+    {
+        ComponentDescriptor<?> descriptor = statistics.getDescriptor();
+
+        return new CompositeDataSupport(rowType, COLUMN_NAMES,
+            new Object[] { descriptor.getRoleType().getTypeName(), descriptor.getRoleHint(),
+                descriptor.getImplementation() != null ? descriptor.getImplementation().getName() : "",
+                statistics.getLookups(), statistics.getInstantiations(),
+                TimeUnit.NANOSECONDS.toMillis(statistics.getInstantiationTime()),
+                TimeUnit.NANOSECONDS.toMillis(statistics.getInitializationTime()) });
+    }
+
+    @Override
+    public String getReport()
+    {
+        ComponentMetrics metrics = this.componentManager.getMetrics();
+
+        return metrics != null ? metrics.getReport(REPORT_SIZE) : "Component metrics are disabled";
+    }
+
+    @Override
+    public void reset()
+    {
+        ComponentMetrics metrics = this.componentManager.getMetrics();
+
+        if (metrics != null) {
+            metrics.reset();
+        }
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.component.internal.embed.jmx;
+
+import javax.management.openmbean.TabularData;
+
+/**
+ * MBean API exposing the statistics about the components of the root component manager.
+ *
+ * @version $Id$
+ * @since 11.9RC1
+ */
+public interface JMXComponentMetricsMBean
+{
+    /**
+     * @return {@code true} if the statistics are currently collected
+     */
+    boolean isEnabled();
+
+    /**
+     * @param enabled {@code true} to start collecting the statistics, {@code false} to stop and forget the collected
+     *            ones
+     */
+    void setEnabled(boolean enabled);
+
+    /**
+     * @return the total number of component lookups
+     */
+    long getLookups();
+
+    /**
+     * @return the total number of created component instances
+     */
+    long getInstantiations();
+
+    /**
+     * @return the number of created instances of per lookup components
+     */
+    long getPerLookupInstantiations();
+
+    /**
+     * @return the statistics of each component (role, hint, implementation, lookups, instantiations, instantiation
+     *         and initialization time in milliseconds)
+     */
+    TabularData getComponents();
+
+    /**
+     * @return a human readable report of the slowest and most looked up components
+     */
+    String getReport();
+
+    /**
+     * Forget the statistics collected so far.
+     */
+    void reset();
+}
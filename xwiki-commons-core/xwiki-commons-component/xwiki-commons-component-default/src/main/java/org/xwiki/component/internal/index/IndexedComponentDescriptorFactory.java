@@ -0,0 +1,212 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.component.internal.index;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.annotation.InstantiationStrategy;
+import org.xwiki.component.descriptor.ComponentDescriptor;
+import org.xwiki.component.descriptor.ComponentInstantiationStrategy;
+import org.xwiki.component.descriptor.DefaultComponentDependency;
+import org.xwiki.component.descriptor.DefaultComponentDescriptor;
+import org.xwiki.component.internal.RoleHint;
+import org.xwiki.component.internal.index.ComponentIndex.IndexedComponent;
+import org.xwiki.component.internal.index.ComponentIndex.IndexedDependency;
+import org.xwiki.component.util.ReflectionUtils;
+
+/**
+ * Create the component descriptors of a loaded component class from its {@link IndexedComponent}.
+ *
+ * @version $Id$
+ * @since 11.9RC1
+ */
+public class IndexedComponentDescriptorFactory
+{
+    /**
+     * Create the same descriptors as {@link org.xwiki.component.annotation.ComponentAnnotationLoader} would find by
+     * parsing the annotations of the component class: one for each role and hint.
+     * <p>
+     * The index could be outdated (for example if the class comes from another version of the JAR than the index) so
+     * the hints, the instantiation strategy, the roles and the injected fields are first checked against the loaded
+     * class. This check does not resolve any generic type so it's much cheaper than parsing the annotations.
+     *
+     * @param indexedComponent the indexed description of the component
+     * @param componentClass the loaded component implementation class
+     * @param classLoader the class loader to use to resolve the types
+     * @param types the types already resolved, shared between components
+     * @return the component descriptors or {@code null} if the index does not match the passed class
+     * @throws ClassNotFoundException when failing to resolve one of the types
+     */
+    public List<ComponentDescriptor<?>> createComponentDescriptors(IndexedComponent indexedComponent,
+        Class<?> componentClass, ClassLoader classLoader, Map<String, Type> types) throws ClassNotFoundException
+    {
+        List<Type> resolvedRoleTypes = new ArrayList<>(indexedComponent.getRoleTypes().size());
+        for (String roleType : indexedComponent.getRoleTypes()) {
+            resolvedRoleTypes.add(resolveType(roleType, classLoader, types));
+        }
+
+        ComponentInstantiationStrategy instantiationStrategy = getInstantiationStrategy(componentClass);
+
+        if (!instantiationStrategy.name().equals(indexedComponent.getInstantiationStrategy())
+            || !matches(indexedComponent, componentClass, resolvedRoleTypes, classLoader, types)) {
+            return null;
+        }
+
+        List<ComponentDescriptor<?>> descriptors =
+            new ArrayList<>(resolvedRoleTypes.size() * indexedComponent.getRoleHints().size());
+
+        for (Type resolvedRoleType : resolvedRoleTypes) {
+            for (String roleHint : indexedComponent.getRoleHints()) {
+                DefaultComponentDescriptor descriptor = new DefaultComponentDescriptor();
+                descriptor.setRoleType(resolvedRoleType);
+                descriptor.setImplementation(componentClass);
+                descriptor.setRoleHint(roleHint);
+                descriptor.setInstantiationStrategy(instantiationStrategy);
+
+                for (IndexedDependency dependency : indexedComponent.getDependencies()) {
+                    descriptor.addComponentDependency(createComponentDependency(dependency, classLoader, types));
+                }
+
+                descriptors.add(descriptor);
+            }
+        }
+
+        return descriptors;
+    }
+
+    private boolean matches(IndexedComponent indexedComponent, Class<?> componentClass, List<Type> resolvedRoleTypes,
+        ClassLoader classLoader, Map<String, Type> types) throws ClassNotFoundException
+    {
+        if (!indexedComponent.getRoleHints().equals(getRoleHints(componentClass))) {
+            return false;
+        }
+
+        // The roles explicitly listed in the annotation don't have to be implemented by the component
+        Component component = componentClass.getAnnotation(Component.class);
+        List<Class<?>> explicitRoles =
+            component != null ? Arrays.asList(component.roles()) : Collections.<Class<?>>emptyList();
+        for (Type roleType : resolvedRoleTypes) {
+            Class<?> roleClass = ReflectionUtils.getTypeClass(roleType);
+            boolean valid = explicitRoles.isEmpty() ? roleClass.isAssignableFrom(componentClass)
+                : explicitRoles.contains(roleClass);
+            if (!valid) {
+                return false;
+            }
+        }
+
+        int injectedFields = 0;
+        for (Field field : ReflectionUtils.getAllFields(componentClass)) {
+            if (field.isAnnotationPresent(Inject.class)) {
+                IndexedDependency dependency = getDependency(indexedComponent, field.getName());
+                Named named = field.getAnnotation(Named.class);
+
+                if (dependency == null
+                    || !Objects.equals(dependency.getRoleHint(), named != null ? named.value() : null)
+                    || ReflectionUtils.getTypeClass(resolveType(dependency.getRoleType(), classLoader, types))
+                        != field.getType()) {
+                    return false;
+                }
+
+                ++injectedFields;
+            }
+        }
+
+        return injectedFields == indexedComponent.getDependencies().size();
+    }
+
+    private IndexedDependency getDependency(IndexedComponent indexedComponent, String name)
+    {
+        for (IndexedDependency dependency : indexedComponent.getDependencies()) {
+            if (dependency.getName().equals(name)) {
+                return dependency;
+            }
+        }
+
+        return null;
+    }
+
+    private List<String> getRoleHints(Class<?> componentClass)
+    {
+        // Same rules as ComponentDescriptorFactory
+        Named named = componentClass.getAnnotation(Named.class);
+        if (named != null) {
+            return Collections.singletonList(named.value());
+        }
+
+        Component component = componentClass.getAnnotation(Component.class);
+        if (component != null && component.hints().length > 0) {
+            return Arrays.asList(component.hints());
+        } else if (component != null && component.value().trim().length() > 0) {
+            return Collections.singletonList(component.value().trim());
+        }
+
+        return Collections.singletonList(RoleHint.DEFAULT_HINT);
+    }
+
+    private ComponentInstantiationStrategy getInstantiationStrategy(Class<?> componentClass)
+    {
+        if (componentClass.getAnnotation(Singleton.class) == null) {
+            InstantiationStrategy instantiationStrategy = componentClass.getAnnotation(InstantiationStrategy.class);
+            if (instantiationStrategy != null) {
+                return instantiationStrategy.value();
+            }
+        }
+
+        return ComponentInstantiationStrategy.SINGLETON;
+    }
+
+    private DefaultComponentDependency<?> createComponentDependency(IndexedDependency indexedDependency,
+        ClassLoader classLoader, Map<String, Type> types) throws ClassNotFoundException
+    {
+        DefaultComponentDependency<?> dependency = new DefaultComponentDependency<>();
+        dependency.setRoleType(resolveType(indexedDependency.getRoleType(), classLoader, types));
+        dependency.setName(indexedDependency.getName());
+        if (indexedDependency.getRoleHint() != null) {
+            dependency.setRoleHint(indexedDependency.getRoleHint());
+        }
+
+        return dependency;
+    }
+
+    private Type resolveType(String serializedType, ClassLoader classLoader, Map<String, Type> types)
+        throws ClassNotFoundException
+    {
+        Type type = types.get(serializedType);
+
+        if (type == null) {
+            type = ReflectionUtils.unserializeType(serializedType, classLoader);
+            types.put(serializedType, type);
+        }
+
+        return type;
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.component.internal.multi;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.event.ComponentDescriptorAddedEvent;
+import org.xwiki.component.event.ComponentDescriptorRemovedEvent;
+import org.xwiki.component.internal.multi.jmx.JMXComponentResolutionCache;
+import org.xwiki.component.phase.Initializable;
+import org.xwiki.management.JMXBeanRegistration;
+import org.xwiki.observation.AbstractEventListener;
+import org.xwiki.observation.event.Event;
+
+/**
+ * Make obsolete the resolutions remembered by {@link ComponentResolutionCache} when a component is registered or
+ * unregistered in any component manager.
+ *
+ * @version $Id$
+ * @since 11.9RC1
+ */
+@Component
+@Singleton
+@Named(ComponentResolutionCacheListener.NAME)
+public class ComponentResolutionCacheListener extends AbstractEventListener implements Initializable
+{
+    /**
+     * The name of the listener.
+     */
+    public static final String NAME = "ComponentResolutionCacheListener";
+
+    private static final String MBEANNAME = "type=Component,domain=ResolutionCache";
+
+    @Inject
+    private ComponentResolutionCache resolutionCache;
+
+    /**
+     * In order to register the cache statistics MBean for management.
+     */
+    @Inject
+    private JMXBeanRegistration jmxRegistration;
+
+    /**
+     * Setup event listener.
+     */
+    public ComponentResolutionCacheListener()
+    {
+        super(NAME, new ComponentDescriptorAddedEvent(), new ComponentDescriptorRemovedEvent());
+    }
+
+    @Override
+    public void initialize()
+    {
+        this.jmxRegistration.registerMBean(new JMXComponentResolutionCache(this.resolutionCache), MBEANNAME);
+    }
+
+    @Override
+    public void onEvent(Event event, Object source, Object data)
+    {
+        this.resolutionCache.invalidate();
+    }
+}
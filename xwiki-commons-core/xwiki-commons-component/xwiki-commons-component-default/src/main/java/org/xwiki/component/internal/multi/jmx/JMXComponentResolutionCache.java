@@ -0,0 +1,71 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.component.internal.multi.jmx;
+
+import org.xwiki.component.internal.multi.ComponentResolutionCache;
+
+/**
+ * Expose the statistics of the {@link ComponentResolutionCache}.
+ *
+ * @version $Id$
+ * @since 11.9RC1
+ */
+public class JMXComponentResolutionCache implements JMXComponentResolutionCacheMBean
+{
+    private final ComponentResolutionCache cache;
+
+    /**
+     * @param cache the cache to expose
+     */
+    public JMXComponentResolutionCache(ComponentResolutionCache cache)
+    {
+        this.cache = cache;
+    }
+
+    @Override
+    public long getHits()
+    {
+        return this.cache.getHits();
+    }
+
+    @Override
+    public long getNegativeHits()
+    {
+        return this.cache.getNegativeHits();
+    }
+
+    @Override
+    public long getMisses()
+    {
+        return this.cache.getMisses();
+    }
+
+    @Override
+    public long getInvalidations()
+    {
+        return this.cache.getInvalidations();
+    }
+
+    @Override
+    public void invalidate()
+    {
+        this.cache.invalidate();
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.component.internal.multi.jmx;
+
+/**
+ * MBean API exposing the statistics of the cache of component resolutions of the key-based component managers.
+ *
+ * @version $Id$
+ * @since 11.9RC1
+ */
+public interface JMXComponentResolutionCacheMBean
+{
+    /**
+     * @return the number of lookups for which the component was known to exist
+     */
+    long getHits();
+
+    /**
+     * @return the number of lookups for which the component was known not to exist
+     */
+    long getNegativeHits();
+
+    /**
+     * @return the number of lookups which had to be resolved by the component managers
+     */
+    long getMisses();
+
+    /**
+     * @return the number of time the remembered resolutions were made obsolete
+     */
+    long getInvalidations();
+
+    /**
+     * Make obsolete all the remembered resolutions.
+     */
+    void invalidate();
+}
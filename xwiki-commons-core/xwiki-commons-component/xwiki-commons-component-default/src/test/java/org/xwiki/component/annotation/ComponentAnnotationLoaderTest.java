@@ -37,11 +37,15 @@
 import org.xwiki.component.descriptor.ComponentDescriptor;
 import org.xwiki.component.internal.ContextComponentManagerProvider;
 import org.xwiki.component.internal.RootComponentManager;
+import org.xwiki.component.internal.embed.ComponentMetricsListener;
 import org.xwiki.component.internal.embed.EmbeddableComponentManagerFactory;
+import org.xwiki.component.internal.multi.ComponentResolutionCache;
+import org.xwiki.component.internal.multi.ComponentResolutionCacheListener;
 import org.xwiki.component.internal.multi.DefaultComponentManagerManager;
 import org.xwiki.component.internal.namespace.DefaultNamespaceValidator;
 import org.xwiki.component.manager.ComponentManager;
 import org.xwiki.component.util.DefaultParameterizedType;
+import org.xwiki.management.internal.DefaultJMXBeanRegistration;
 import org.xwiki.test.jmock.JMockRule;
 
 /**
@@ -193,8 +197,24 @@ public void tearDown() throws Exception
      * priority wins (ie the smallest integer value).
      */
     @Test
-    @SuppressWarnings({ "rawtypes", "unchecked" })
     public void testPriorities() throws Exception
+    {
+        assertPriorities();
+    }
+
+    /**
+     * Verify that the priorities are resolved the same way when the components are discovered sequentially.
+     */
+    @Test
+    public void testPrioritiesWhenSequential() throws Exception
+    {
+        this.loader.setParallel(false);
+
+        assertPriorities();
+    }
+
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    private void assertPriorities() throws Exception
     {
         final ComponentManager mockManager = this.mockery.mock(ComponentManager.class);
 
@@ -224,6 +244,14 @@ public void testPriorities() throws Exception
             this.loader.getComponentsDescriptors(ProviderTest.TestProviderWithExceptionInInitialize.class).get(0);
         final ComponentDescriptor descriptor13 =
             this.loader.getComponentsDescriptors(ProviderTest.TestComponentWithProviderInException.class).get(0);
+        final ComponentDescriptor descriptor14 =
+            this.loader.getComponentsDescriptors(ComponentResolutionCache.class).get(0);
+        final ComponentDescriptor descriptor15 =
+            this.loader.getComponentsDescriptors(ComponentResolutionCacheListener.class).get(0);
+        final ComponentDescriptor descriptor16 =
+            this.loader.getComponentsDescriptors(DefaultJMXBeanRegistration.class).get(0);
+        final ComponentDescriptor descriptor17 =
+            this.loader.getComponentsDescriptors(ComponentMetricsListener.class).get(0);
 
         // This is the test, we verify that registerComponent() is called for each of the descriptor we're expecting
         // to be discovered through annotations by the call to initialize() below.
@@ -243,6 +271,10 @@ public void testPriorities() throws Exception
                 oneOf(mockManager).registerComponent(descriptor11);
                 oneOf(mockManager).registerComponent(descriptor12);
                 oneOf(mockManager).registerComponent(descriptor13);
+                oneOf(mockManager).registerComponent(descriptor14);
+                oneOf(mockManager).registerComponent(descriptor15);
+                oneOf(mockManager).registerComponent(descriptor16);
+                oneOf(mockManager).registerComponent(descriptor17);
             }
         });
 
@@ -0,0 +1,151 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.component.embed;
+
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Provider;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.Logger;
+import org.xwiki.component.descriptor.ComponentDescriptor;
+import org.xwiki.component.descriptor.ComponentInstantiationStrategy;
+import org.xwiki.component.descriptor.DefaultComponentDependency;
+import org.xwiki.component.descriptor.DefaultComponentDescriptor;
+import org.xwiki.component.phase.Initializable;
+import org.xwiki.component.util.DefaultParameterizedType;
+
+/**
+ * Measure the throughput of the lookup of a {@link ComponentInstantiationStrategy#PER_LOOKUP} component with the most
+ * common kinds of dependencies, i.e. mostly the cost of creating and injecting a new instance.
+ * <p>
+ * This is not a unit test, run it with {@code java -cp <test classpath> org.openjdk.jmh.Main
+ * ComponentInstantiationBenchmark}.
+ *
+ * @version $Id$
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ComponentInstantiationBenchmark
+{
+    /**
+     * The role of the benchmarked components.
+     */
+    public interface Role
+    {
+    }
+
+    /**
+     * A singleton dependency.
+     */
+    public static class SingletonRole implements Role
+    {
+    }
+
+    /**
+     * The per lookup component to create.
+     */
+    public static class PerLookupRole implements Role, Initializable
+    {
+        private Logger logger;
+
+        private Role singleton;
+
+        private Provider<Role> provider;
+
+        private List<Role> roles;
+
+        private ComponentDescriptor<Role> descriptor;
+
+        private boolean initialized;
+
+        @Override
+        public void initialize()
+        {
+            this.initialized = true;
+        }
+    }
+
+    private EmbeddableComponentManager componentManager;
+
+    /**
+     * Register the components.
+     *
+     * @throws Exception when failing to initialize the benchmark
+     */
+    @Setup
+    public void setUp() throws Exception
+    {
+        this.componentManager = new EmbeddableComponentManager();
+
+        DefaultComponentDescriptor<Role> singletonDescriptor = new DefaultComponentDescriptor<>();
+        singletonDescriptor.setRoleType(Role.class);
+        singletonDescriptor.setRoleHint("singleton");
+        singletonDescriptor.setImplementation(SingletonRole.class);
+        this.componentManager.registerComponent(singletonDescriptor);
+
+        DefaultComponentDescriptor<Role> descriptor = new DefaultComponentDescriptor<>();
+        descriptor.setRoleType(Role.class);
+        descriptor.setRoleHint("perlookup");
+        descriptor.setImplementation(PerLookupRole.class);
+        descriptor.setInstantiationStrategy(ComponentInstantiationStrategy.PER_LOOKUP);
+        descriptor.addComponentDependency(createDependency("logger", Logger.class, null));
+        descriptor.addComponentDependency(createDependency("singleton", Role.class, "singleton"));
+        descriptor.addComponentDependency(
+            createDependency("provider", new DefaultParameterizedType(null, Provider.class, Role.class), "singleton"));
+        descriptor.addComponentDependency(
+            createDependency("roles", new DefaultParameterizedType(null, List.class, SingletonRole.class), null));
+        descriptor.addComponentDependency(createDependency("descriptor",
+            new DefaultParameterizedType(null, ComponentDescriptor.class, Role.class), null));
+        this.componentManager.registerComponent(descriptor);
+    }
+
+    private DefaultComponentDependency<Object> createDependency(String name, Type roleType,
+        String roleHint)
+    {
+        DefaultComponentDependency<Object> dependency = new DefaultComponentDependency<>();
+        dependency.setName(name);
+        dependency.setRoleType(roleType);
+        dependency.setRoleHint(roleHint);
+
+        return dependency;
+    }
+
+    @Benchmark
+    public Object lookupPerLookupComponent() throws Exception
+    {
+        return this.componentManager.getInstance(Role.class, "perlookup");
+    }
+}
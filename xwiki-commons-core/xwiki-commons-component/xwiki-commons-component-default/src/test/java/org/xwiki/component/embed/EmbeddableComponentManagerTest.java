@@ -37,6 +37,7 @@
 import org.junit.jupiter.api.Test;
 import org.slf4j.Logger;
 import org.xwiki.component.annotation.DisposePriority;
+import org.xwiki.component.descriptor.ComponentDependency;
 import org.xwiki.component.descriptor.ComponentDescriptor;
 import org.xwiki.component.descriptor.ComponentInstantiationStrategy;
 import org.xwiki.component.descriptor.DefaultComponentDependency;
@@ -310,6 +311,73 @@ public void getInstanceListAndMapWhenSomeComponentsInParent() throws Exception
         assertSame(roleImpl, instances.get("default"));
     }
 
+    @Test
+    public void getInstanceListAndMapCachedUntilModified() throws Exception
+    {
+        EmbeddableComponentManager parent = new EmbeddableComponentManager();
+        EmbeddableComponentManager ecm = new EmbeddableComponentManager();
+        ecm.setParent(parent);
+
+        DefaultComponentDescriptor<Role> cd1 = new DefaultComponentDescriptor<>();
+        cd1.setRoleType(Role.class);
+        cd1.setImplementation(RoleImpl.class);
+        ecm.registerComponent(cd1);
+
+        List<Role> instanceList = ecm.getInstanceList(Role.class);
+        Map<String, Role> instances = ecm.getInstanceMap(Role.class);
+        assertEquals(1, instanceList.size());
+        assertSame(instanceList.get(0), ecm.getInstanceList(Role.class).get(0));
+        assertSame(instances.get("default"), ecm.getInstanceMap(Role.class).get("default"));
+
+        // Each call returns a new collection
+        instanceList.clear();
+        instances.clear();
+        assertEquals(1, ecm.getInstanceList(Role.class).size());
+        assertEquals(1, ecm.getInstanceMap(Role.class).size());
+        instanceList = ecm.getInstanceList(Role.class);
+
+        // Modification in the parent
+        DefaultComponentDescriptor<Role> cd2 = new DefaultComponentDescriptor<>();
+        cd2.setRoleType(Role.class);
+        cd2.setRoleHint("parent");
+        cd2.setImplementation(OtherRoleImpl.class);
+        parent.registerComponent(cd2);
+
+        instances = ecm.getInstanceMap(Role.class);
+        assertEquals(2, instances.size());
+        assertEquals(instances, ecm.getInstanceMap(Role.class));
+        assertSame(instanceList.get(0), instances.get("default"));
+
+        // Modification in the child
+        ecm.unregisterComponent(Role.class, "default");
+
+        instances = ecm.getInstanceMap(Role.class);
+        assertEquals(1, instances.size());
+        assertTrue(instances.get("parent") instanceof OtherRoleImpl);
+
+        // Released instance
+        Role parentInstance = instances.get("parent");
+        parent.release(parentInstance);
+
+        assertNotSame(parentInstance, ecm.getInstanceMap(Role.class).get("parent"));
+    }
+
+    @Test
+    public void getInstanceListWithPerLookupComponentNotCached() throws Exception
+    {
+        EmbeddableComponentManager parent = new EmbeddableComponentManager();
+        EmbeddableComponentManager ecm = new EmbeddableComponentManager();
+        ecm.setParent(parent);
+
+        DefaultComponentDescriptor<Role> cd = new DefaultComponentDescriptor<>();
+        cd.setRoleType(Role.class);
+        cd.setImplementation(RoleImpl.class);
+        cd.setInstantiationStrategy(ComponentInstantiationStrategy.PER_LOOKUP);
+        parent.registerComponent(cd);
+
+        assertNotSame(ecm.getInstanceList(Role.class).get(0), ecm.getInstanceList(Role.class).get(0));
+    }
+
     @Test
     public void hasComponent() throws Exception
     {
@@ -617,4 +685,121 @@ public void componentDescriptorInjection() throws Exception
         ComponentDescriptorRoleImpl impl = ecm.getInstance(Role.class);
         assertNotNull(impl.getComponentDescriptor());
     }
+
+    public static class InheritedComponentDescriptorRoleImpl extends ComponentDescriptorRoleImpl
+    {
+    }
+
+    public static class DependencyRoleImpl implements Role
+    {
+        private Role dependency;
+
+        public Role getDependency()
+        {
+            return this.dependency;
+        }
+    }
+
+    @Test
+    public void perLookupInstancesInjectedInSuperClassField() throws Exception
+    {
+        EmbeddableComponentManager ecm = new EmbeddableComponentManager();
+
+        DefaultComponentDescriptor<Role> d = new DefaultComponentDescriptor<>();
+        d.setRoleType(Role.class);
+        d.setImplementation(InheritedComponentDescriptorRoleImpl.class);
+        d.setInstantiationStrategy(ComponentInstantiationStrategy.PER_LOOKUP);
+
+        DefaultComponentDependency dependencyDescriptor = new DefaultComponentDependency();
+        dependencyDescriptor.setRoleType(
+            new DefaultParameterizedType(null, ComponentDescriptor.class, ComponentDescriptorRoleImpl.class));
+        dependencyDescriptor.setName("descriptor");
+
+        d.addComponentDependency(dependencyDescriptor);
+        ecm.registerComponent(d);
+
+        // Make sure the instantiation plan is reused properly
+        InheritedComponentDescriptorRoleImpl impl1 = ecm.getInstance(Role.class);
+        InheritedComponentDescriptorRoleImpl impl2 = ecm.getInstance(Role.class);
+        assertNotSame(impl1, impl2);
+        assertNotNull(impl1.getComponentDescriptor());
+        assertNotNull(impl2.getComponentDescriptor());
+        assertNotSame(impl1.getComponentDescriptor(), impl2.getComponentDescriptor());
+    }
+
+    @Test
+    public void overriddenGetDependencyInstance() throws Exception
+    {
+        Role customDependency = new OtherRoleImpl();
+        EmbeddableComponentManager ecm = new EmbeddableComponentManager()
+        {
+            @Override
+            protected Object getDependencyInstance(ComponentDescriptor<?> descriptor, Object parentInstance,
+                ComponentDependency<?> dependency) throws ComponentLookupException
+            {
+                return customDependency;
+            }
+        };
+
+        DefaultComponentDescriptor<Role> d = new DefaultComponentDescriptor<>();
+        d.setRoleType(Role.class);
+        d.setRoleHint("dependency");
+        d.setImplementation(DependencyRoleImpl.class);
+
+        DefaultComponentDependency dependencyDescriptor = new DefaultComponentDependency();
+        dependencyDescriptor.setRoleType(Role.class);
+        dependencyDescriptor.setName("dependency");
+
+        d.addComponentDependency(dependencyDescriptor);
+        ecm.registerComponent(d);
+
+        DependencyRoleImpl impl = ecm.getInstance(Role.class, "dependency");
+        assertSame(customDependency, impl.getDependency());
+    }
+
+    @Test
+    public void metrics() throws Exception
+    {
+        EmbeddableComponentManager ecm = new EmbeddableComponentManager();
+        assertNull(ecm.getMetrics());
+
+        DefaultComponentDescriptor<Role> singleton = new DefaultComponentDescriptor<>();
+        singleton.setRoleType(Role.class);
+        singleton.setImplementation(InitializableRoleImpl.class);
+        ecm.registerComponent(singleton);
+
+        DefaultComponentDescriptor<Role> perLookup = new DefaultComponentDescriptor<>();
+        perLookup.setRoleType(Role.class);
+        perLookup.setRoleHint("perlookup");
+        perLookup.setImplementation(RoleImpl.class);
+        perLookup.setInstantiationStrategy(ComponentInstantiationStrategy.PER_LOOKUP);
+        ecm.registerComponent(perLookup);
+
+        ecm.setMetricsEnabled(true);
+        ComponentMetrics metrics = ecm.getMetrics();
+        assertNotNull(metrics);
+
+        ecm.getInstance(Role.class);
+        ecm.getInstance(Role.class);
+        ecm.getInstance(Role.class, "perlookup");
+        ecm.getInstance(Role.class, "perlookup");
+
+        assertEquals(4, metrics.getLookups());
+        assertEquals(3, metrics.getInstantiations());
+        assertEquals(2, metrics.getPerLookupInstantiations());
+
+        ComponentMetrics.ComponentStatistics statistics =
+            metrics.getTopStatistics(ComponentMetrics.ComponentStatistics::getInstantiations, 1).get(0);
+        assertEquals(perLookup, statistics.getDescriptor());
+        assertEquals(2, statistics.getLookups());
+        assertTrue(metrics.getReport(10).startsWith("Instantiated components: 3 (per lookup: 2), lookups: 4"));
+
+        metrics.reset();
+        assertTrue(metrics.getStatistics().isEmpty());
+
+        ecm.setMetricsEnabled(false);
+        ecm.getInstance(Role.class, "perlookup");
+        assertNull(ecm.getMetrics());
+        assertTrue(metrics.getStatistics().isEmpty());
+    }
 }
@@ -0,0 +1,120 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.component.internal.index;
+
+import java.io.File;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xwiki.component.annotation.ComponentAnnotationLoader;
+import org.xwiki.component.annotation.ComponentDeclaration;
+import org.xwiki.component.embed.EmbeddableComponentManager;
+import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.test.XWikiTempDirUtil;
+
+/**
+ * Compare the time needed to initialize a component manager (in a fresh JVM, like at startup) with all the components
+ * declared in the classpath, with and without the component index and with a parallel or sequential discovery. Run it
+ * with a classpath containing many components (the one of a module with lots of dependencies) to get meaningful
+ * numbers.
+ * <p>
+ * This is not a unit test, run it with {@code java -cp <test classpath> org.openjdk.jmh.Main
+ * ComponentIndexBenchmark}.
+ *
+ * @version $Id$
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(20)
+public class ComponentIndexBenchmark
+{
+    /**
+     * True to use the component index.
+     */
+    @Param({ "true", "false" })
+    public boolean index;
+
+    /**
+     * True to discover the components in parallel.
+     */
+    @Param({ "true", "false" })
+    public boolean parallel;
+
+    private ClassLoader classLoader;
+
+    /**
+     * Merge all the components declared in the classpath in a single component list and generate its index.
+     *
+     * @throws Exception when failing to initialize the benchmark
+     */
+    @Setup
+    public void setUp() throws Exception
+    {
+        System.setProperty(ComponentAnnotationLoader.PARALLEL_PROPERTY, String.valueOf(this.parallel));
+
+        List<String> componentDeclarations = new ArrayList<>();
+        ComponentAnnotationLoader loader = new ComponentAnnotationLoader();
+        Enumeration<URL> urls = getClass().getClassLoader().getResources(ComponentAnnotationLoader.COMPONENT_LIST);
+        while (urls.hasMoreElements()) {
+            try (InputStream stream = urls.nextElement().openStream()) {
+                for (ComponentDeclaration declaration : loader.getDeclaredComponents(stream)) {
+                    componentDeclarations
+                        .add(declaration.getPriority() + ":" + declaration.getImplementationClassName());
+                }
+            }
+        }
+
+        File directory = XWikiTempDirUtil.createTemporaryDirectory();
+        if (this.index) {
+            ComponentIndexProcessorTest.generateIndex(directory, componentDeclarations);
+        } else {
+            ComponentIndexProcessorTest.writeComponentList(directory, componentDeclarations);
+        }
+
+        this.classLoader = new ComponentIndexProcessorTest.IndexClassLoader(directory);
+    }
+
+    @Benchmark
+    public ComponentManager initialize()
+    {
+        EmbeddableComponentManager componentManager = new EmbeddableComponentManager();
+        componentManager.initialize(this.classLoader);
+
+        return componentManager;
+    }
+}
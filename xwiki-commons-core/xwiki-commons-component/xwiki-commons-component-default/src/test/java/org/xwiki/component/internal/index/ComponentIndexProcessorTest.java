@@ -0,0 +1,364 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.component.internal.index;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.lang.reflect.Type;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+
+import org.apache.commons.lang3.ArrayUtils;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.annotation.ComponentAnnotationLoader;
+import org.xwiki.component.annotation.ComponentAnnotationLoaderTest;
+import org.xwiki.component.annotation.ComponentDeclaration;
+import org.xwiki.component.annotation.InstantiationStrategy;
+import org.xwiki.component.annotation.Role;
+import org.xwiki.component.descriptor.ComponentDescriptor;
+import org.xwiki.component.descriptor.ComponentInstantiationStrategy;
+import org.xwiki.component.embed.EmbeddableComponentManager;
+import org.xwiki.component.internal.index.ComponentIndex.IndexedComponent;
+import org.xwiki.component.internal.index.ComponentIndex.IndexedDependency;
+import org.xwiki.test.XWikiTempDirUtil;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Validate {@link ComponentIndexProcessor} and the use of the generated index by {@link ComponentAnnotationLoader}.
+ *
+ * @version $Id$
+ */
+public class ComponentIndexProcessorTest
+{
+    private static File indexDirectory;
+
+    private static File reflectionDirectory;
+
+    private static List<String> components;
+
+    private static List<String> componentDeclarations;
+
+    private static ComponentIndex componentIndex;
+
+    @Role
+    public interface IndexedTestRole
+    {
+    }
+
+    @Component
+    @Singleton
+    public static class IndexedTestComponent implements IndexedTestRole
+    {
+        @Inject
+        private IndexedTestRole role;
+    }
+
+    public abstract static class AbstractTestProvider<T> implements Provider<T>
+    {
+        @Inject
+        @Named("other")
+        protected Provider<List<String>> listProvider;
+
+        @Override
+        public T get()
+        {
+            return null;
+        }
+    }
+
+    @Component
+    @Named("string")
+    @InstantiationStrategy(ComponentInstantiationStrategy.PER_LOOKUP)
+    public static class StringTestProvider extends AbstractTestProvider<String>
+    {
+        @Inject
+        private Map<String, IndexedTestRole> roles;
+    }
+
+    @Component(hints = { "hint1", "hint2" })
+    @SuppressWarnings("rawtypes")
+    public static class RawTestProvider extends AbstractTestProvider implements IndexedTestRole
+    {
+    }
+
+    @Component(roles = IndexedTestRole.class)
+    @Singleton
+    public static class ExplicitRoleTestProvider extends AbstractTestProvider<Map<String, List<Integer>>>
+    {
+    }
+
+    /**
+     * A class loader only exposing the components declared in the passed directory.
+     *
+     * @version $Id$
+     */
+    static class IndexClassLoader extends URLClassLoader
+    {
+        IndexClassLoader(File directory) throws IOException
+        {
+            super(new URL[] { directory.toURI().toURL() }, ComponentIndexProcessorTest.class.getClassLoader());
+        }
+
+        @Override
+        public Enumeration<URL> getResources(String name) throws IOException
+        {
+            return findResources(name);
+        }
+    }
+
+    @BeforeAll
+    @SuppressWarnings("deprecation")
+    public static void beforeAll() throws Exception
+    {
+        // All the components found in the classpath
+        Set<String> componentSet = new LinkedHashSet<>();
+        componentDeclarations = new ArrayList<>();
+        ComponentAnnotationLoader loader = new ComponentAnnotationLoader();
+        Enumeration<URL> urls =
+            ComponentIndexProcessorTest.class.getClassLoader().getResources(ComponentAnnotationLoader.COMPONENT_LIST);
+        while (urls.hasMoreElements()) {
+            try (InputStream stream = urls.nextElement().openStream()) {
+                for (ComponentDeclaration declaration : loader.getDeclaredComponents(stream)) {
+                    componentSet.add(declaration.getImplementationClassName());
+                    componentDeclarations
+                        .add(declaration.getPriority() + ":" + declaration.getImplementationClassName());
+                }
+            }
+        }
+        // The (not declared) components used to validate the role discovery
+        for (Class<?> componentClass : ArrayUtils.addAll(ComponentAnnotationLoaderTest.class.getDeclaredClasses(),
+            ComponentIndexProcessorTest.class.getDeclaredClasses())) {
+            if (componentClass.isAnnotationPresent(Component.class)) {
+                componentSet.add(componentClass.getName());
+            }
+        }
+        components = new ArrayList<>(componentSet);
+
+        // The temporary directory name is based on the current time so make sure to call it only once
+        File temporaryDirectory = XWikiTempDirUtil.createTemporaryDirectory();
+        indexDirectory = new File(temporaryDirectory, "index");
+        generateIndex(indexDirectory, componentDeclarations);
+        reflectionDirectory = new File(temporaryDirectory, "reflection");
+        writeComponentList(reflectionDirectory, componentDeclarations);
+        for (File directory : Arrays.asList(indexDirectory, reflectionDirectory)) {
+            try (InputStream stream = ComponentIndexProcessorTest.class.getClassLoader()
+                .getResourceAsStream(ComponentAnnotationLoader.COMPONENT_OVERRIDE_LIST)) {
+                Files.copy(stream, new File(directory, ComponentAnnotationLoader.COMPONENT_OVERRIDE_LIST).toPath());
+            }
+        }
+        // Index the not declared components too
+        File componentDirectory = new File(temporaryDirectory, "components");
+        generateIndex(componentDirectory, components);
+        componentIndex = readIndex(componentDirectory);
+    }
+
+    /**
+     * Write the passed components in a {@code META-INF/components.txt} file and generate the corresponding index by
+     * running {@link ComponentIndexProcessor} on the compiled classes of the current classpath.
+     *
+     * @param directory the directory where to generate the files
+     * @param componentDeclarations the content of the {@code META-INF/components.txt} file
+     */
+    static void generateIndex(File directory, Collection<String> componentDeclarations) throws IOException
+    {
+        writeComponentList(directory, componentDeclarations);
+
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, StandardCharsets.UTF_8);
+        fileManager.setLocation(StandardLocation.CLASS_OUTPUT, Collections.singletonList(directory));
+
+        List<String> options = Arrays.asList("-proc:only", "-classpath", System.getProperty("java.class.path"),
+            "-processor", ComponentIndexProcessor.class.getName());
+        // Ignore the notes about the components which cannot be indexed
+        assertTrue(compiler.getTask(new StringWriter(), fileManager, new DiagnosticCollector<>(), options,
+            Collections.singletonList(ComponentIndexProcessorTest.class.getName()), null).call());
+    }
+
+    /**
+     * @param directory the directory where to write the {@code META-INF/components.txt} file
+     * @param componentDeclarations the content of the file
+     */
+    static void writeComponentList(File directory, Collection<String> componentDeclarations) throws IOException
+    {
+        File componentList = new File(directory, ComponentAnnotationLoader.COMPONENT_LIST);
+        componentList.getParentFile().mkdirs();
+        Files.write(componentList.toPath(), componentDeclarations, StandardCharsets.UTF_8);
+    }
+
+    private static ComponentIndex readIndex(File directory) throws IOException
+    {
+        try (InputStream stream = new FileInputStream(new File(directory, ComponentAnnotationLoader.COMPONENT_INDEX))) {
+            return ComponentIndex.read(stream);
+        }
+    }
+
+    @Test
+    public void indexSameAsReflection() throws Exception
+    {
+        ComponentIndex index = componentIndex;
+        ComponentAnnotationLoader loader = new ComponentAnnotationLoader();
+        IndexedComponentDescriptorFactory factory = new IndexedComponentDescriptorFactory();
+        Map<String, Type> types = new HashMap<>();
+
+        Set<String> notIndexed = new HashSet<>();
+        for (String component : components) {
+            Class<?> componentClass = Class.forName(component);
+            IndexedComponent indexedComponent = index.get(component);
+
+            if (indexedComponent != null) {
+                assertEquals(loader.getComponentsDescriptors(componentClass),
+                    factory.createComponentDescriptors(indexedComponent, componentClass, getClass().getClassLoader(),
+                        types),
+                    component);
+            } else {
+                notIndexed.add(componentClass.getSimpleName());
+            }
+        }
+
+        // The owner type of a parameterized member role cannot be serialized
+        assertEquals(new HashSet<>(Arrays.asList("GenericComponent", "ExtendingGenericComponent", "ProviderImpl")),
+            notIndexed);
+    }
+
+    @Test
+    public void initializeWithIndex() throws Exception
+    {
+        EmbeddableComponentManager reflectionComponentManager = new EmbeddableComponentManager();
+        reflectionComponentManager.initialize(new IndexClassLoader(reflectionDirectory));
+
+        EmbeddableComponentManager indexComponentManager = new EmbeddableComponentManager();
+        indexComponentManager.initialize(new IndexClassLoader(indexDirectory));
+
+        // The declared components, with their priorities
+        assertEquals(componentDeclarations.size(), readIndex(indexDirectory).getComponents().size());
+        for (ComponentDescriptor<?> descriptor : reflectionComponentManager.getComponentDescriptorList(
+            (Type) ComponentAnnotationLoaderTest.NotGenericRole.class)) {
+            assertEquals(descriptor, indexComponentManager.getComponentDescriptor(descriptor.getRoleType(),
+                descriptor.getRoleHint()));
+        }
+    }
+
+    private static IndexedComponent indexedTestComponent(List<String> roleTypes, List<String> roleHints,
+        String instantiationStrategy, IndexedDependency... dependencies)
+    {
+        return new IndexedComponent(IndexedTestComponent.class.getName(), roleTypes, roleHints, instantiationStrategy,
+            Arrays.asList(dependencies));
+    }
+
+    private static IndexedComponent indexedTestComponent(List<String> roleTypes, IndexedDependency... dependencies)
+    {
+        return indexedTestComponent(roleTypes, Arrays.asList("default"),
+            ComponentInstantiationStrategy.SINGLETON.name(), dependencies);
+    }
+
+    private static EmbeddableComponentManager initialize(IndexedComponent component) throws IOException
+    {
+        File directory = XWikiTempDirUtil.createTemporaryDirectory();
+        writeComponentList(directory, Arrays.asList(IndexedTestComponent.class.getName()));
+
+        ComponentIndex index = new ComponentIndex();
+        index.add(component);
+        try (OutputStream stream =
+            Files.newOutputStream(new File(directory, ComponentAnnotationLoader.COMPONENT_INDEX).toPath())) {
+            index.write(stream);
+        }
+
+        EmbeddableComponentManager componentManager = new EmbeddableComponentManager();
+        componentManager.initialize(new IndexClassLoader(directory));
+
+        return componentManager;
+    }
+
+    @Test
+    public void initializeUsesIndex() throws Exception
+    {
+        // Declare the component with a role which is not in its annotations
+        EmbeddableComponentManager componentManager = initialize(indexedTestComponent(
+            Arrays.asList(IndexedTestRole.class.getName(), Object.class.getName()),
+            new IndexedDependency("role", IndexedTestRole.class.getName(), null)));
+
+        assertTrue(componentManager.hasComponent(IndexedTestRole.class));
+        assertTrue(componentManager.hasComponent(Object.class));
+    }
+
+    @Test
+    public void initializeIgnoresOutdatedIndex() throws Exception
+    {
+        List<String> roles = Arrays.asList(IndexedTestRole.class.getName());
+        IndexedDependency dependency = new IndexedDependency("role", IndexedTestRole.class.getName(), null);
+
+        List<IndexedComponent> outdatedComponents = Arrays.asList(
+            indexedTestComponent(roles, Arrays.asList("indexed"), ComponentInstantiationStrategy.SINGLETON.name(),
+                dependency),
+            indexedTestComponent(roles, Arrays.asList("default"), ComponentInstantiationStrategy.PER_LOOKUP.name(),
+                dependency),
+            indexedTestComponent(roles, Arrays.asList("default"), "UNKNOWN", dependency),
+            indexedTestComponent(Arrays.asList(IndexedTestRole.class.getName(), Runnable.class.getName()),
+                dependency),
+            indexedTestComponent(roles),
+            indexedTestComponent(roles, dependency, new IndexedDependency("other", String.class.getName(), null)),
+            indexedTestComponent(roles, new IndexedDependency("role", IndexedTestRole.class.getName(), "other")),
+            indexedTestComponent(roles, new IndexedDependency("role", Object.class.getName(), null)));
+
+        ComponentDescriptor<IndexedTestRole> expected = new ComponentAnnotationLoader()
+            .getComponentsDescriptors(IndexedTestComponent.class).get(0);
+        IndexedComponentDescriptorFactory factory = new IndexedComponentDescriptorFactory();
+        for (IndexedComponent outdatedComponent : outdatedComponents) {
+            assertNull(factory.createComponentDescriptors(outdatedComponent, IndexedTestComponent.class,
+                getClass().getClassLoader(), new HashMap<>()));
+
+            EmbeddableComponentManager componentManager = initialize(outdatedComponent);
+            assertEquals(expected, componentManager.getComponentDescriptor(IndexedTestRole.class, "default"));
+            assertEquals(1, componentManager.getComponentDescriptorList((Type) IndexedTestRole.class).size());
+        }
+    }
+}
@@ -0,0 +1,307 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.component.internal.index;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The precomputed descriptors of the components declared in a JAR, generated at build time by
+ * {@link ComponentIndexProcessor} and stored next to the list of components so that
+ * {@code org.xwiki.component.annotation.ComponentAnnotationLoader} does not have to find them using reflection.
+ * <p>
+ * The types are stored in their {@code org.xwiki.component.util.ReflectionUtils#serializeType(Type)} form and the
+ * instantiation strategies with the name of their {@code ComponentInstantiationStrategy} constant, since this module
+ * cannot depend on the component API.
+ *
+ * @version $Id$
+ * @since 11.9RC1
+ */
+public class ComponentIndex
+{
+    private static final int MAGIC = 0x58434958;
+
+    private static final int VERSION = 2;
+
+    private final Map<String, IndexedComponent> components = new LinkedHashMap<>();
+
+    /**
+     * The precomputed description of a component implementation.
+     *
+     * @version $Id$
+     */
+    public static class IndexedComponent
+    {
+        private final String implementation;
+
+        private final List<String> roleTypes;
+
+        private final List<String> roleHints;
+
+        private final String instantiationStrategy;
+
+        private final List<IndexedDependency> dependencies;
+
+        /**
+         * @param implementation the name of the component implementation class
+         * @param roleTypes the serialized roles implemented by the component
+         * @param roleHints the hints of the component
+         * @param instantiationStrategy the name of the instantiation strategy of the component
+         * @param dependencies the dependencies to inject in the component
+         */
+        public IndexedComponent(String implementation, List<String> roleTypes, List<String> roleHints,
+            String instantiationStrategy, List<IndexedDependency> dependencies)
+        {
+            this.implementation = implementation;
+            this.roleTypes = roleTypes;
+            this.roleHints = roleHints;
+            this.instantiationStrategy = instantiationStrategy;
+            this.dependencies = dependencies;
+        }
+
+        /**
+         * @return the name of the component implementation class
+         */
+        public String getImplementation()
+        {
+            return this.implementation;
+        }
+
+        /**
+         * @return the serialized roles implemented by the component
+         */
+        public List<String> getRoleTypes()
+        {
+            return this.roleTypes;
+        }
+
+        /**
+         * @return the hints of the component
+         */
+        public List<String> getRoleHints()
+        {
+            return this.roleHints;
+        }
+
+        /**
+         * @return the name of the instantiation strategy of the component
+         */
+        public String getInstantiationStrategy()
+        {
+            return this.instantiationStrategy;
+        }
+
+        /**
+         * @return the dependencies to inject in the component
+         */
+        public List<IndexedDependency> getDependencies()
+        {
+            return this.dependencies;
+        }
+    }
+
+    /**
+     * The precomputed description of a field to inject in a component.
+     *
+     * @version $Id$
+     */
+    public static class IndexedDependency
+    {
+        private final String name;
+
+        private final String roleType;
+
+        private final String roleHint;
+
+        /**
+         * @param name the name of the field
+         * @param roleType the serialized role of the component to inject
+         * @param roleHint the hint of the component to inject or null for the default one
+         */
+        public IndexedDependency(String name, String roleType, String roleHint)
+        {
+            this.name = name;
+            this.roleType = roleType;
+            this.roleHint = roleHint;
+        }
+
+        /**
+         * @return the name of the field
+         */
+        public String getName()
+        {
+            return this.name;
+        }
+
+        /**
+         * @return the serialized role of the component to inject
+         */
+        public String getRoleType()
+        {
+            return this.roleType;
+        }
+
+        /**
+         * @return the hint of the component to inject or null for the default one
+         */
+        public String getRoleHint()
+        {
+            return this.roleHint;
+        }
+    }
+
+    /**
+     * @param component the component to add to the index
+     */
+    public void add(IndexedComponent component)
+    {
+        this.components.put(component.getImplementation(), component);
+    }
+
+    /**
+     * Add the components of the passed index which are not already indexed.
+     *
+     * @param index the index to merge
+     */
+    public void addAll(ComponentIndex index)
+    {
+        for (IndexedComponent component : index.getComponents()) {
+            this.components.putIfAbsent(component.getImplementation(), component);
+        }
+    }
+
+    /**
+     * @param implementation the name of the component implementation class
+     * @return the component or null if the implementation is not indexed
+     */
+    public IndexedComponent get(String implementation)
+    {
+        return this.components.get(implementation);
+    }
+
+    /**
+     * @return the indexed components
+     */
+    public Collection<IndexedComponent> getComponents()
+    {
+        return Collections.unmodifiableCollection(this.components.values());
+    }
+
+    /**
+     * @param stream the stream where to write the index
+     * @throws IOException when failing to write the index
+     */
+    public void write(OutputStream stream) throws IOException
+    {
+        DataOutputStream output = new DataOutputStream(stream);
+
+        output.writeInt(MAGIC);
+        output.writeInt(VERSION);
+
+        output.writeInt(this.components.size());
+        for (IndexedComponent component : this.components.values()) {
+            output.writeUTF(component.getImplementation());
+            writeStrings(component.getRoleTypes(), output);
+            writeStrings(component.getRoleHints(), output);
+            output.writeUTF(component.getInstantiationStrategy());
+
+            output.writeInt(component.getDependencies().size());
+            for (IndexedDependency dependency : component.getDependencies()) {
+                output.writeUTF(dependency.getName());
+                output.writeUTF(dependency.getRoleType());
+                output.writeBoolean(dependency.getRoleHint() != null);
+                if (dependency.getRoleHint() != null) {
+                    output.writeUTF(dependency.getRoleHint());
+                }
+            }
+        }
+
+        output.flush();
+    }
+
+    /**
+     * @param stream the stream from where to read the index
+     * @return the index
+     * @throws IOException when failing to read the index or if it was generated by an unsupported version
+     */
+    public static ComponentIndex read(InputStream stream) throws IOException
+    {
+        DataInputStream input = new DataInputStream(stream);
+
+        if (input.readInt() != MAGIC) {
+            throw new IOException("Not a component index");
+        }
+        int version = input.readInt();
+        if (version != VERSION) {
+            throw new IOException(String.format("Unsupported component index version [%s]", version));
+        }
+
+        ComponentIndex index = new ComponentIndex();
+
+        int size = input.readInt();
+        for (int i = 0; i < size; ++i) {
+            String implementation = input.readUTF();
+            List<String> roleTypes = readStrings(input);
+            List<String> roleHints = readStrings(input);
+            String instantiationStrategy = input.readUTF();
+
+            int dependencySize = input.readInt();
+            List<IndexedDependency> dependencies = new ArrayList<>(dependencySize);
+            for (int j = 0; j < dependencySize; ++j) {
+                String name = input.readUTF();
+                String roleType = input.readUTF();
+                String roleHint = input.readBoolean() ? input.readUTF() : null;
+                dependencies.add(new IndexedDependency(name, roleType, roleHint));
+            }
+
+            index.add(new IndexedComponent(implementation, roleTypes, roleHints, instantiationStrategy, dependencies));
+        }
+
+        return index;
+    }
+
+    private static void writeStrings(List<String> strings, DataOutputStream output) throws IOException
+    {
+        output.writeInt(strings.size());
+        for (String string : strings) {
+            output.writeUTF(string);
+        }
+    }
+
+    private static List<String> readStrings(DataInputStream input) throws IOException
+    {
+        int size = input.readInt();
+        List<String> strings = new ArrayList<>(size);
+        for (int i = 0; i < size; ++i) {
+            strings.add(input.readUTF());
+        }
+
+        return strings;
+    }
+}
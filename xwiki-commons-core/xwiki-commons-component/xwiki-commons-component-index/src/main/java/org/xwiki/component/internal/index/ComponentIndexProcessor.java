@@ -0,0 +1,165 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.component.internal.index;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+import org.xwiki.component.internal.index.IndexedComponentFactory.NotIndexableException;
+
+/**
+ * Annotation processor generating the {@value #COMPONENT_INDEX} file of a JAR from the components declared in its
+ * {@value #COMPONENT_LIST} file, so that the component descriptors don't have to be created using reflection when the
+ * JAR is loaded.
+ * <p>
+ * The components which cannot be described in the index (see {@link IndexedComponentFactory}) are not indexed and are
+ * parsed at runtime as before.
+ * <p>
+ * The processor is not registered as a service, so that it's not executed by every compilation having this JAR in its
+ * classpath: it has to be explicitly enabled. In XWiki builds the {@code component-index} profile enables only this
+ * processor in the modules declaring components.
+ *
+ * @version $Id$
+ * @since 11.9RC1
+ */
+@SupportedAnnotationTypes("*")
+public class ComponentIndexProcessor extends AbstractProcessor
+{
+    /**
+     * Same as {@code org.xwiki.component.annotation.ComponentAnnotationLoader#COMPONENT_LIST}.
+     */
+    public static final String COMPONENT_LIST = "META-INF/components.txt";
+
+    /**
+     * Same as {@code org.xwiki.component.annotation.ComponentAnnotationLoader#COMPONENT_INDEX}.
+     */
+    public static final String COMPONENT_INDEX = "META-INF/components.index";
+
+    @Override
+    public SourceVersion getSupportedSourceVersion()
+    {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv)
+    {
+        // Wait for all the classes to be known
+        if (roundEnv.processingOver()) {
+            List<String> componentClassNames = getDeclaredComponents();
+
+            if (!componentClassNames.isEmpty()) {
+                try {
+                    writeIndex(createIndex(componentClassNames));
+                } catch (IOException e) {
+                    this.processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING,
+                        String.format("Failed to write the component index: %s", e.getMessage()));
+                }
+            }
+        }
+
+        // Don't claim any annotation
+        return false;
+    }
+
+    private List<String> getDeclaredComponents()
+    {
+        List<String> componentClassNames = new ArrayList<>();
+
+        try {
+            FileObject componentList = this.processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "",
+                COMPONENT_LIST);
+
+            // See ComponentAnnotationLoader#getDeclaredComponents(InputStream) for the format
+            try (InputStream stream = componentList.openInputStream()) {
+                BufferedReader reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8));
+                for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                    String declaration = line.trim();
+                    if (!declaration.isEmpty()) {
+                        componentClassNames.add(declaration.substring(declaration.indexOf(':') + 1));
+                    }
+                }
+            }
+        } catch (IOException e) {
+            // No component declared in this JAR
+        }
+
+        return componentClassNames;
+    }
+
+    private ComponentIndex createIndex(List<String> componentClassNames)
+    {
+        IndexedComponentFactory factory =
+            new IndexedComponentFactory(this.processingEnv.getElementUtils(), this.processingEnv.getTypeUtils());
+
+        ComponentIndex index = new ComponentIndex();
+
+        for (String componentClassName : componentClassNames) {
+            // The component list contains binary names
+            TypeElement componentElement =
+                this.processingEnv.getElementUtils().getTypeElement(componentClassName.replace('$', '.'));
+
+            if (componentElement == null || !this.processingEnv.getElementUtils().getBinaryName(componentElement)
+                .contentEquals(componentClassName)) {
+                printNotIndexed(componentClassName, "Unknown class");
+            } else {
+                try {
+                    index.add(factory.createIndexedComponent(componentElement));
+                } catch (NotIndexableException | RuntimeException e) {
+                    printNotIndexed(componentClassName, e.getMessage());
+                }
+            }
+        }
+
+        return index;
+    }
+
+    private void printNotIndexed(String componentClassName, String reason)
+    {
+        this.processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE, String.format(
+            "Component [%s] is not indexed and will be parsed at runtime: %s", componentClassName, reason));
+    }
+
+    private void writeIndex(ComponentIndex index) throws IOException
+    {
+        FileObject indexFile = this.processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "",
+            COMPONENT_INDEX);
+
+        try (OutputStream stream = indexFile.openOutputStream()) {
+            index.write(stream);
+        }
+    }
+}
@@ -0,0 +1,450 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.component.internal.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+
+import org.xwiki.component.internal.index.ComponentIndex.IndexedComponent;
+import org.xwiki.component.internal.index.ComponentIndex.IndexedDependency;
+
+/**
+ * Create the {@link IndexedComponent} of a component implementation from the compiler model of its class, following
+ * the same rules as {@code org.xwiki.component.annotation.ComponentAnnotationLoader} and
+ * {@code org.xwiki.component.annotation.ComponentDescriptorFactory} do with reflection.
+ * <p>
+ * The annotations are only known by their names since this module cannot depend on the component API.
+ *
+ * @version $Id$
+ * @since 11.9RC1
+ */
+public class IndexedComponentFactory
+{
+    private static final String COMPONENT = "org.xwiki.component.annotation.Component";
+
+    private static final String ROLE = "org.xwiki.component.annotation.Role";
+
+    private static final String COMPONENT_ROLE = "org.xwiki.component.annotation.ComponentRole";
+
+    private static final String INSTANTIATION_STRATEGY = "org.xwiki.component.annotation.InstantiationStrategy";
+
+    /**
+     * The legacy annotation handled by a dedicated {@code ComponentDependencyFactory}.
+     */
+    private static final String REQUIREMENT = "org.xwiki.component.annotation.Requirement";
+
+    private static final String INJECT = "javax.inject.Inject";
+
+    private static final String NAMED = "javax.inject.Named";
+
+    private static final String SINGLETON = "javax.inject.Singleton";
+
+    private static final String PROVIDER = "javax.inject.Provider";
+
+    private static final String VALUE = "value";
+
+    private static final String HINTS = "hints";
+
+    private static final String ROLES = "roles";
+
+    /**
+     * Same as {@code org.xwiki.component.internal.RoleHint#DEFAULT_HINT}.
+     */
+    private static final String DEFAULT_HINT = "default";
+
+    /**
+     * Same as {@code org.xwiki.component.descriptor.ComponentInstantiationStrategy#SINGLETON}.
+     */
+    private static final String SINGLETON_STRATEGY = "SINGLETON";
+
+    private final Elements elements;
+
+    private final Types types;
+
+    private final TypeMirror providerType;
+
+    /**
+     * Thrown when a component cannot be described in the index.
+     *
+     * @version $Id$
+     */
+    public static class NotIndexableException extends Exception
+    {
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * @param message the reason why the component cannot be indexed
+         */
+        public NotIndexableException(String message)
+        {
+            super(message);
+        }
+    }
+
+    /**
+     * @param elements the compiler utility to access the elements
+     * @param types the compiler utility to manipulate the types
+     */
+    public IndexedComponentFactory(Elements elements, Types types)
+    {
+        this.elements = elements;
+        this.types = types;
+
+        TypeElement providerElement = elements.getTypeElement(PROVIDER);
+        this.providerType = providerElement != null ? types.erasure(providerElement.asType()) : null;
+    }
+
+    /**
+     * @param componentElement the component implementation class
+     * @return the description of the component
+     * @throws NotIndexableException when the component cannot be described in the index
+     */
+    public IndexedComponent createIndexedComponent(TypeElement componentElement) throws NotIndexableException
+    {
+        Set<String> roleTypes = new LinkedHashSet<>();
+        findRoleTypes(componentElement, Collections.emptyMap(), roleTypes);
+
+        return new IndexedComponent(this.elements.getBinaryName(componentElement).toString(),
+            new ArrayList<>(roleTypes), getRoleHints(componentElement), getInstantiationStrategy(componentElement),
+            getDependencies(componentElement));
+    }
+
+    private void findRoleTypes(TypeElement element, Map<Element, TypeMirror> parameters, Set<String> roleTypes)
+        throws NotIndexableException
+    {
+        // If the roles are specified by the user then don't auto-discover roles
+        List<TypeMirror> componentRoles = getComponentRoles(element);
+        if (!componentRoles.isEmpty()) {
+            for (TypeMirror componentRole : componentRoles) {
+                roleTypes.add(serializeType(this.types.erasure(componentRole)));
+            }
+
+            return;
+        }
+
+        for (TypeMirror interfaceType : element.getInterfaces()) {
+            findInterfaceRoleTypes((DeclaredType) interfaceType, parameters, roleTypes);
+        }
+
+        TypeMirror superType = element.getSuperclass();
+        if (superType.getKind() == TypeKind.DECLARED) {
+            TypeElement superElement = (TypeElement) ((DeclaredType) superType).asElement();
+            if (!superElement.getQualifiedName().contentEquals(Object.class.getName())) {
+                findRoleTypes(superElement, getParameters(superElement, resolveTypes(
+                    ((DeclaredType) superType).getTypeArguments(), parameters)), roleTypes);
+            }
+        } else if (superType.getKind() == TypeKind.ERROR) {
+            throw new NotIndexableException(String.format("Unknown super class [%s]", superType));
+        }
+    }
+
+    private void findInterfaceRoleTypes(DeclaredType interfaceType, Map<Element, TypeMirror> parameters,
+        Set<String> roleTypes) throws NotIndexableException
+    {
+        if (interfaceType.getKind() == TypeKind.ERROR) {
+            throw new NotIndexableException(String.format("Unknown interface [%s]", interfaceType));
+        }
+
+        TypeElement interfaceElement = (TypeElement) interfaceType.asElement();
+
+        // Like with reflection an interface with type arguments which cannot be resolved is used as a raw type
+        List<TypeMirror> interfaceParameters = resolveTypes(interfaceType.getTypeArguments(), parameters);
+        TypeMirror roleType = interfaceParameters != null
+            ? this.types.getDeclaredType(interfaceElement, interfaceParameters.toArray(new TypeMirror[0]))
+            : this.types.erasure(interfaceType);
+
+        // Handle superclass of interfaces
+        findRoleTypes(interfaceElement, getParameters(interfaceElement, interfaceParameters), roleTypes);
+
+        // Handle interfaces directly declared in the passed component class and javax.inject.Provider
+        if (hasDirectAnnotation(interfaceElement, ROLE)
+            || (this.providerType != null && this.types.isAssignable(this.types.erasure(interfaceType),
+                this.providerType))) {
+            roleTypes.add(serializeType(roleType));
+        }
+
+        // Handle ComponentRole (retro-compatibility since 4.0M1)
+        if (hasDirectAnnotation(interfaceElement, COMPONENT_ROLE)) {
+            roleTypes.add(serializeType(this.types.erasure(interfaceType)));
+        }
+    }
+
+    private Map<Element, TypeMirror> getParameters(TypeElement element, List<TypeMirror> parameters)
+    {
+        if (parameters == null || parameters.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        Map<Element, TypeMirror> mapping = new HashMap<>();
+        for (int i = 0; i < parameters.size(); ++i) {
+            mapping.put(element.getTypeParameters().get(i), parameters.get(i));
+        }
+
+        return mapping;
+    }
+
+    /**
+     * @return the resolved types or null if one of them cannot be resolved
+     */
+    private List<TypeMirror> resolveTypes(List<? extends TypeMirror> typeArguments, Map<Element, TypeMirror> mapping)
+    {
+        List<TypeMirror> resolvedTypes = new ArrayList<>(typeArguments.size());
+
+        for (TypeMirror typeArgument : typeArguments) {
+            TypeMirror resolvedType = resolveType(typeArgument, mapping);
+            if (resolvedType == null) {
+                return null;
+            }
+            resolvedTypes.add(resolvedType);
+        }
+
+        return resolvedTypes;
+    }
+
+    private TypeMirror resolveType(TypeMirror type, Map<Element, TypeMirror> mapping)
+    {
+        if (type.getKind() == TypeKind.TYPEVAR) {
+            return mapping.get(this.types.asElement(type));
+        } else if (type.getKind() == TypeKind.DECLARED && !((DeclaredType) type).getTypeArguments().isEmpty()) {
+            DeclaredType declaredType = (DeclaredType) type;
+            List<TypeMirror> arguments = resolveTypes(declaredType.getTypeArguments(), mapping);
+
+            return arguments != null ? this.types.getDeclaredType((TypeElement) declaredType.asElement(),
+                arguments.toArray(new TypeMirror[0])) : null;
+        }
+
+        return type;
+    }
+
+    private List<String> getRoleHints(TypeElement element)
+    {
+        // If there's a @Named annotation, use it and ignore hints specified in the @Component annotation.
+        AnnotationMirror named = getAnnotation(element, NAMED);
+        if (named != null) {
+            return Arrays.asList((String) getValue(named, VALUE));
+        }
+
+        AnnotationMirror component = getAnnotation(element, COMPONENT);
+        if (component != null) {
+            List<String> hints = new ArrayList<>();
+            for (AnnotationValue hint : (List<? extends AnnotationValue>) getValue(component, HINTS)) {
+                hints.add((String) hint.getValue());
+            }
+            if (!hints.isEmpty()) {
+                return hints;
+            }
+
+            String hint = ((String) getValue(component, VALUE)).trim();
+            if (hint.length() > 0) {
+                return Arrays.asList(hint);
+            }
+        }
+
+        return Arrays.asList(DEFAULT_HINT);
+    }
+
+    private String getInstantiationStrategy(TypeElement element)
+    {
+        // Support both InstantiationStrategy and JSR 330's Singleton annotations.
+        if (getAnnotation(element, SINGLETON) == null) {
+            // InstantiationStrategy is inherited
+            for (TypeElement typeElement = element; typeElement != null; typeElement = getSuperElement(typeElement)) {
+                AnnotationMirror instantiationStrategy = getAnnotation(typeElement, INSTANTIATION_STRATEGY);
+                if (instantiationStrategy != null) {
+                    return ((VariableElement) getValue(instantiationStrategy, VALUE)).getSimpleName().toString();
+                }
+            }
+        }
+
+        return SINGLETON_STRATEGY;
+    }
+
+    private List<IndexedDependency> getDependencies(TypeElement element) throws NotIndexableException
+    {
+        // Make sure that if the same field is declared in a class and its superclass only the field used in the class
+        // is taken into account
+        Map<String, VariableElement> fields = new LinkedHashMap<>();
+        for (TypeElement typeElement = element; typeElement != null; typeElement = getSuperElement(typeElement)) {
+            for (VariableElement field : ElementFilter.fieldsIn(typeElement.getEnclosedElements())) {
+                fields.putIfAbsent(field.getSimpleName().toString(), field);
+            }
+        }
+
+        List<IndexedDependency> dependencies = new ArrayList<>();
+        for (VariableElement field : fields.values()) {
+            if (hasDirectAnnotation(field, REQUIREMENT)) {
+                throw new NotIndexableException(String.format("Field [%s] uses the legacy @Requirement annotation",
+                    field.getSimpleName()));
+            }
+
+            if (hasDirectAnnotation(field, INJECT)) {
+                dependencies.add(createIndexedDependency(field));
+            }
+        }
+
+        return dependencies;
+    }
+
+    private IndexedDependency createIndexedDependency(VariableElement field) throws NotIndexableException
+    {
+        TypeMirror roleType = field.asType();
+
+        if (roleType.getKind() == TypeKind.DECLARED) {
+            Element fieldClass = this.types.asElement(roleType);
+            if (hasDirectAnnotation(fieldClass, COMPONENT_ROLE) && !hasDirectAnnotation(fieldClass, ROLE)) {
+                // since 4.0M1, retro-compatibility (generic type used to not be taken into account)
+                roleType = this.types.erasure(roleType);
+            }
+        }
+
+        AnnotationMirror named = getAnnotation(field, NAMED);
+
+        return new IndexedDependency(field.getSimpleName().toString(), serializeType(roleType),
+            named != null ? (String) getValue(named, VALUE) : null);
+    }
+
+    private TypeElement getSuperElement(TypeElement element)
+    {
+        TypeMirror superType = element.getSuperclass();
+
+        return superType.getKind() == TypeKind.DECLARED ? (TypeElement) ((DeclaredType) superType).asElement() : null;
+    }
+
+    private List<TypeMirror> getComponentRoles(TypeElement element)
+    {
+        for (AnnotationMirror annotation : element.getAnnotationMirrors()) {
+            if (isAnnotation(annotation, COMPONENT)) {
+                for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : annotation
+                    .getElementValues().entrySet()) {
+                    if (entry.getKey().getSimpleName().contentEquals(ROLES)) {
+                        List<TypeMirror> roles = new ArrayList<>();
+                        for (AnnotationValue value : (List<? extends AnnotationValue>) entry.getValue().getValue()) {
+                            roles.add((TypeMirror) value.getValue());
+                        }
+
+                        return roles;
+                    }
+                }
+            }
+        }
+
+        return Collections.emptyList();
+    }
+
+    private boolean hasDirectAnnotation(Element element, String annotationName)
+    {
+        for (AnnotationMirror annotation : element.getAnnotationMirrors()) {
+            if (isAnnotation(annotation, annotationName)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Like {@link Element#getAnnotation(Class)} the inherited annotations are taken into account.
+     */
+    private AnnotationMirror getAnnotation(Element element, String annotationName)
+    {
+        for (AnnotationMirror annotation : this.elements.getAllAnnotationMirrors(element)) {
+            if (isAnnotation(annotation, annotationName)) {
+                return annotation;
+            }
+        }
+
+        return null;
+    }
+
+    private Object getValue(AnnotationMirror annotation, String name)
+    {
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : this.elements
+            .getElementValuesWithDefaults(annotation).entrySet()) {
+            if (entry.getKey().getSimpleName().contentEquals(name)) {
+                return entry.getValue().getValue();
+            }
+        }
+
+        return null;
+    }
+
+    private boolean isAnnotation(AnnotationMirror annotation, String annotationName)
+    {
+        return ((TypeElement) annotation.getAnnotationType().asElement()).getQualifiedName()
+            .contentEquals(annotationName);
+    }
+
+    /**
+     * Serialize the type in a form understood by
+     * {@code org.xwiki.component.util.ReflectionUtils#unserializeType(String, ClassLoader)}.
+     */
+    private String serializeType(TypeMirror type) throws NotIndexableException
+    {
+        if (type.getKind() != TypeKind.DECLARED) {
+            throw new NotIndexableException(String.format("Unsupported type [%s]", type));
+        }
+
+        DeclaredType declaredType = (DeclaredType) type;
+        TypeElement element = (TypeElement) declaredType.asElement();
+        StringBuilder builder = new StringBuilder(this.elements.getBinaryName(element));
+
+        if (!declaredType.getTypeArguments().isEmpty()) {
+            // The owner type of the parameterized member types cannot be unserialized
+            if (element.getNestingKind() != NestingKind.TOP_LEVEL) {
+                throw new NotIndexableException(String.format("Unsupported member parameterized type [%s]", type));
+            }
+
+            builder.append('<');
+            for (TypeMirror typeArgument : declaredType.getTypeArguments()) {
+                if (builder.charAt(builder.length() - 1) != '<') {
+                    builder.append(", ");
+                }
+                builder.append(serializeType(typeArgument));
+            }
+            builder.append('>');
+        } else if (declaredType.getEnclosingType().getKind() == TypeKind.DECLARED
+            && !((DeclaredType) declaredType.getEnclosingType()).getTypeArguments().isEmpty()) {
+            throw new NotIndexableException(String.format("Unsupported member type of parameterized type [%s]", type));
+        }
+
+        return builder.toString();
+    }
+}
@@ -0,0 +1,247 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.component.internal.warmup;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.slf4j.Logger;
+import org.xwiki.component.descriptor.ComponentDependency;
+import org.xwiki.component.descriptor.ComponentDescriptor;
+import org.xwiki.component.internal.RoleHint;
+import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.context.Execution;
+import org.xwiki.context.ExecutionContextManager;
+import org.xwiki.context.concurrent.ExecutionContextRunnable;
+
+/**
+ * Instantiate a set of singleton components with a bounded pool of threads, each component being instantiated after
+ * the components of the set it depends on (so that the threads don't wait for each other on the same component), and
+ * record how long it took for each of them.
+ * <p>
+ * Each component is instantiated in its own clean execution context when the component manager provides an
+ * {@link ExecutionContextManager}, like any other background task.
+ *
+ * @version $Id$
+ * @since 11.9RC1
+ */
+public class ComponentWarmUp
+{
+    /**
+     * The time it took to instantiate a component.
+     *
+     * @version $Id$
+     */
+    public static final class ComponentInitialization
+    {
+        private final ComponentDescriptor<?> descriptor;
+
+        private final long duration;
+
+        private final Throwable error;
+
+        ComponentInitialization(ComponentDescriptor<?> descriptor, long duration, Throwable error)
+        {
+            this.descriptor = descriptor;
+            this.duration = duration;
+            this.error = error;
+        }
+
+        /**
+         * @return the descriptor of the component
+         */
+        public ComponentDescriptor<?> getDescriptor()
+        {
+            return this.descriptor;
+        }
+
+        /**
+         * @return the time it took to get the instance of the component (including its dependencies which were not
+         *         already instantiated), in nanoseconds
+         */
+        public long getDuration()
+        {
+            return this.duration;
+        }
+
+        /**
+         * @return the error which prevented the component from being instantiated, {@code null} if it was successfully
+         *         instantiated
+         */
+        public Throwable getError()
+        {
+            return this.error;
+        }
+    }
+
+    private final ComponentManager componentManager;
+
+    private final Map<RoleHint<?>, ComponentDescriptor<?>> descriptors = new LinkedHashMap<>();
+
+    private final int threads;
+
+    private final Logger logger;
+
+    private final List<ComponentInitialization> initializations = Collections.synchronizedList(new ArrayList<>());
+
+    private long duration;
+
+    /**
+     * @param componentManager the component manager from which to get the components
+     * @param descriptors the descriptors of the components to instantiate
+     * @param threads the maximum number of components to instantiate at the same time
+     * @param logger the logger to use to report the components which could not be instantiated
+     */
+    public ComponentWarmUp(ComponentManager componentManager, Collection<ComponentDescriptor<?>> descriptors,
+        int threads, Logger logger)
+    {
+        this.componentManager = componentManager;
+        for (ComponentDescriptor<?> descriptor : descriptors) {
+            this.descriptors.put(new RoleHint<>(descriptor.getRoleType(), descriptor.getRoleHint()), descriptor);
+        }
+        this.threads = threads;
+        this.logger = logger;
+    }
+
+    /**
+     * Instantiate all the components and wait until it's done.
+     */
+    public void run()
+    {
+        long start = System.nanoTime();
+
+        ExecutorService executor = Executors.newFixedThreadPool(this.threads,
+            new BasicThreadFactory.Builder().namingPattern("Component warm-up %d").daemon(true).build());
+        try {
+            Map<ComponentDescriptor<?>, CompletableFuture<Void>> futures = new HashMap<>();
+            for (ComponentDescriptor<?> descriptor : this.descriptors.values()) {
+                schedule(descriptor, futures, new HashSet<>(), executor);
+            }
+
+            CompletableFuture.allOf(futures.values().toArray(new CompletableFuture<?>[0])).join();
+        } finally {
+            executor.shutdown();
+        }
+
+        this.duration = System.nanoTime() - start;
+    }
+
+    private CompletableFuture<Void> schedule(ComponentDescriptor<?> descriptor,
+        Map<ComponentDescriptor<?>, CompletableFuture<Void>> futures, Set<ComponentDescriptor<?>> visiting,
+        ExecutorService executor)
+    {
+        CompletableFuture<Void> future = futures.get(descriptor);
+
+        if (future == null) {
+            visiting.add(descriptor);
+
+            // Start with the dependencies which are also part of the warm up
+            List<CompletableFuture<Void>> dependencies = new ArrayList<>();
+            for (ComponentDependency<?> dependency : descriptor.getComponentDependencies()) {
+                ComponentDescriptor<?> dependencyDescriptor =
+                    this.descriptors.get(new RoleHint<>(dependency.getRoleType(), dependency.getRoleHint()));
+                // Ignore dependency cycles, the component manager will deal with them
+                if (dependencyDescriptor != null && !visiting.contains(dependencyDescriptor)) {
+                    dependencies.add(schedule(dependencyDescriptor, futures, visiting, executor));
+                }
+            }
+
+            visiting.remove(descriptor);
+
+            // Instantiate the component even if some of its dependencies failed, it will produce the right error
+            future = CompletableFuture.allOf(dependencies.toArray(new CompletableFuture<?>[0]))
+                .handle((result, error) -> null).thenRunAsync(wrap(() -> initialize(descriptor)), executor);
+            futures.put(descriptor, future);
+        }
+
+        return future;
+    }
+
+    private Runnable wrap(Runnable runnable)
+    {
+        if (this.componentManager.hasComponent(ExecutionContextManager.class)
+            && this.componentManager.hasComponent(Execution.class)) {
+            return new ExecutionContextRunnable(runnable, this.componentManager);
+        }
+
+        return runnable;
+    }
+
+    private void initialize(ComponentDescriptor<?> descriptor)
+    {
+        long start = System.nanoTime();
+
+        Throwable error = null;
+        try {
+            this.componentManager.getInstance(descriptor.getRoleType(), descriptor.getRoleHint());
+        } catch (Exception e) {
+            error = e;
+
+            this.logger.warn("Failed to warm up component [{}] with type [{}] and hint [{}]: {}",
+                descriptor.getImplementation().getName(), descriptor.getRoleType(), descriptor.getRoleHint(),
+                ExceptionUtils.getRootCauseMessage(e));
+        }
+
+        this.initializations.add(new ComponentInitialization(descriptor, System.nanoTime() - start, error));
+    }
+
+    /**
+     * @return the time it took to instantiate all the components, in nanoseconds
+     */
+    public long getDuration()
+    {
+        return this.duration;
+    }
+
+    /**
+     * @return the instantiated components, in the order they were instantiated
+     */
+    public List<ComponentInitialization> getInitializations()
+    {
+        synchronized (this.initializations) {
+            return new ArrayList<>(this.initializations);
+        }
+    }
+
+    /**
+     * @param max the maximum number of components to return
+     * @return the components which took the most time to instantiate, the slowest first
+     */
+    public List<ComponentInitialization> getSlowestInitializations(int max)
+    {
+        return getInitializations().stream()
+            .sorted(Comparator.comparingLong(ComponentInitialization::getDuration).reversed()).limit(max)
+            .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.component.internal.warmup;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.annotation.EagerInitialization;
+import org.xwiki.component.descriptor.ComponentDescriptor;
+import org.xwiki.component.descriptor.ComponentInstantiationStrategy;
+import org.xwiki.component.embed.EmbeddableComponentManager;
+import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.observation.AbstractEventListener;
+import org.xwiki.observation.event.ApplicationStartedEvent;
+import org.xwiki.observation.event.Event;
+
+/**
+ * Instantiate in the background the singleton components annotated with {@link EagerInitialization} (or listed in
+ * the {@value #COMPONENTS_PROPERTY} system property) once the application is started.
+ *
+ * @version $Id$
+ * @since 11.9RC1
+ */
+@Component
+@Singleton
+@Named(ComponentWarmUpListener.NAME)
+public class ComponentWarmUpListener extends AbstractEventListener
+{
+    /**
+     * The name of the listener.
+     */
+    public static final String NAME = "ComponentWarmUpListener";
+
+    /**
+     * The name of the system property containing the comma separated list of implementation class names of the
+     * components to instantiate eagerly, in addition to the ones annotated with {@link EagerInitialization}.
+     */
+    public static final String COMPONENTS_PROPERTY = "xwiki.component.warmup.components";
+
+    /**
+     * The name of the system property containing the maximum number of components to instantiate at the same time.
+     * Defaults to the number of available processors, up to 4.
+     */
+    public static final String THREADS_PROPERTY = "xwiki.component.warmup.threads";
+
+    /**
+     * The maximum number of components to instantiate at the same time when the number of available processors is
+     * higher.
+     */
+    private static final int DEFAULT_THREADS = 4;
+
+    /**
+     * The number of slowest components to mention in the report.
+     */
+    private static final int REPORT_SIZE = 10;
+
+    @Inject
+    private ComponentManager componentManager;
+
+    @Inject
+    private Logger logger;
+
+    private volatile ComponentWarmUp lastWarmUp;
+
+    /**
+     * Setup event listener.
+     */
+    public ComponentWarmUpListener()
+    {
+        super(NAME, new ApplicationStartedEvent());
+    }
+
+    @Override
+    public void onEvent(Event event, Object source, Object data)
+    {
+        List<ComponentDescriptor<?>> descriptors = getEagerComponents();
+
+        if (!descriptors.isEmpty()) {
+            int threads = Integer.getInteger(THREADS_PROPERTY,
+                Math.min(DEFAULT_THREADS, Runtime.getRuntime().availableProcessors()));
+            ComponentWarmUp warmUp = new ComponentWarmUp(this.componentManager, descriptors, threads, this.logger);
+            this.lastWarmUp = warmUp;
+
+            Thread thread = new Thread(() -> {
+                warmUp.run();
+                report(warmUp);
+            }, "Component warm-up");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    private List<ComponentDescriptor<?>> getEagerComponents()
+    {
+        List<ComponentDescriptor<?>> descriptors = new ArrayList<>();
+
+        if (this.componentManager instanceof EmbeddableComponentManager) {
+            Set<String> configured =
+                new HashSet<>(Arrays.asList(StringUtils.split(System.getProperty(COMPONENTS_PROPERTY, ""), ", ")));
+
+            for (ComponentDescriptor<?> descriptor : ((EmbeddableComponentManager) this.componentManager)
+                .getComponentDescriptors()) {
+                // Components registered with an instance don't always have an implementation
+                if (descriptor.getImplementation() != null
+                    && descriptor.getInstantiationStrategy() == ComponentInstantiationStrategy.SINGLETON
+                    && (descriptor.getImplementation().isAnnotationPresent(EagerInitialization.class)
+                        || configured.contains(descriptor.getImplementation().getName()))) {
+                    descriptors.add(descriptor);
+                }
+            }
+        }
+
+        return descriptors;
+    }
+
+    private void report(ComponentWarmUp warmUp)
+    {
+        if (this.logger.isInfoEnabled()) {
+            StringBuilder builder = new StringBuilder();
+            for (ComponentWarmUp.ComponentInitialization initialization : warmUp
+                .getSlowestInitializations(REPORT_SIZE)) {
+                builder.append("\n  ");
+                builder.append(initialization.getDescriptor().getImplementation().getName());
+                builder.append(": ");
+                builder.append(TimeUnit.NANOSECONDS.toMillis(initialization.getDuration()));
+                builder.append(" ms");
+                if (initialization.getError() != null) {
+                    builder.append(" (failed)");
+                }
+            }
+
+            this.logger.info("Warmed up [{}] components in [{}] ms. Slowest components:{}",
+                warmUp.getInitializations().size(), TimeUnit.NANOSECONDS.toMillis(warmUp.getDuration()), builder);
+        }
+    }
+
+    /**
+     * @return the last warm up started, {@code null} if none has been started
+     */
+    public ComponentWarmUp getLastWarmUp()
+    {
+        return this.lastWarmUp;
+    }
+}
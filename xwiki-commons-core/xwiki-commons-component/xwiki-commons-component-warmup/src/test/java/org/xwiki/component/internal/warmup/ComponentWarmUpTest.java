@@ -0,0 +1,257 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.component.internal.warmup;
+
+import java.util.Arrays;
+import java.util.List;
+
+import javax.inject.Inject;
+
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.annotation.ComponentAnnotationLoader;
+import org.xwiki.component.annotation.EagerInitialization;
+import org.xwiki.component.annotation.InstantiationStrategy;
+import org.xwiki.component.annotation.Role;
+import org.xwiki.component.descriptor.ComponentDescriptor;
+import org.xwiki.component.descriptor.ComponentInstantiationStrategy;
+import org.xwiki.component.descriptor.DefaultComponentDescriptor;
+import org.xwiki.component.embed.EmbeddableComponentManager;
+import org.xwiki.component.phase.Initializable;
+import org.xwiki.component.phase.InitializationException;
+import org.xwiki.component.util.ReflectionUtils;
+import org.xwiki.context.Execution;
+import org.xwiki.context.ExecutionContext;
+import org.xwiki.context.internal.DefaultExecution;
+import org.xwiki.context.internal.DefaultExecutionContextManager;
+import org.xwiki.observation.EventListener;
+import org.xwiki.observation.event.ApplicationStartedEvent;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Validate {@link ComponentWarmUp} and {@link ComponentWarmUpListener}.
+ *
+ * @version $Id$
+ */
+public class ComponentWarmUpTest
+{
+    @Role
+    public interface DependencyRole
+    {
+    }
+
+    @Role
+    public interface DependentRole
+    {
+    }
+
+    @Role
+    public interface OtherRole
+    {
+    }
+
+    @Component
+    @EagerInitialization
+    public static class Dependency implements DependencyRole
+    {
+    }
+
+    @Component
+    @EagerInitialization
+    public static class Dependent implements DependentRole
+    {
+        @Inject
+        private DependencyRole dependency;
+    }
+
+    @Component
+    public static class NotEager implements OtherRole
+    {
+    }
+
+    @Component
+    @EagerInitialization
+    @InstantiationStrategy(ComponentInstantiationStrategy.PER_LOOKUP)
+    public static class PerLookup implements OtherRole
+    {
+    }
+
+    @Component
+    public static class Failing implements OtherRole, Initializable
+    {
+        @Override
+        public void initialize() throws InitializationException
+        {
+            throw new InitializationException("failed");
+        }
+    }
+
+    @Component
+    public static class ContextAware implements OtherRole, Initializable
+    {
+        @Inject
+        private Execution execution;
+
+        private ExecutionContext context;
+
+        @Override
+        public void initialize() throws InitializationException
+        {
+            this.context = this.execution.getContext();
+        }
+    }
+
+    private EmbeddableComponentManager componentManager = new EmbeddableComponentManager();
+
+    private ComponentAnnotationLoader loader = new ComponentAnnotationLoader();
+
+    private void register(Class<?> componentClass, String hint) throws Exception
+    {
+        for (ComponentDescriptor<?> descriptor : this.loader.getComponentsDescriptors(componentClass)) {
+            if (hint != null) {
+                ((DefaultComponentDescriptor<?>) descriptor).setRoleHint(hint);
+            }
+            this.componentManager.registerComponent(descriptor);
+        }
+    }
+
+    @Test
+    public void runInDependencyOrder() throws Exception
+    {
+        register(Dependent.class, null);
+        register(Dependency.class, null);
+        register(Failing.class, "failing");
+
+        List<ComponentDescriptor<?>> descriptors =
+            Arrays.asList(this.componentManager.getComponentDescriptor(DependentRole.class, null),
+                this.componentManager.getComponentDescriptor(DependencyRole.class, null),
+                this.componentManager.getComponentDescriptor(OtherRole.class, "failing"));
+        Logger logger = mock(Logger.class);
+
+        ComponentWarmUp warmUp = new ComponentWarmUp(this.componentManager, descriptors, 2, logger);
+        warmUp.run();
+
+        List<ComponentWarmUp.ComponentInitialization> initializations = warmUp.getInitializations();
+        assertEquals(3, initializations.size());
+        int dependencyIndex = -1;
+        int dependentIndex = -1;
+        for (int i = 0; i < initializations.size(); ++i) {
+            Class<?> implementation = initializations.get(i).getDescriptor().getImplementation();
+            if (implementation == Dependency.class) {
+                dependencyIndex = i;
+                assertNull(initializations.get(i).getError());
+            } else if (implementation == Dependent.class) {
+                dependentIndex = i;
+                assertNull(initializations.get(i).getError());
+            } else {
+                assertNotNull(initializations.get(i).getError());
+            }
+        }
+        assertTrue(dependencyIndex < dependentIndex);
+        assertTrue(warmUp.getDuration() > 0);
+        assertEquals(2, warmUp.getSlowestInitializations(2).size());
+        assertTrue(warmUp.getSlowestInitializations(2).get(0).getDuration() >= warmUp.getSlowestInitializations(2)
+            .get(1).getDuration());
+
+        verify(logger).warn(eq("Failed to warm up component [{}] with type [{}] and hint [{}]: {}"),
+            eq(Failing.class.getName()), eq(OtherRole.class), eq("failing"), any());
+    }
+
+    @Test
+    public void onApplicationStarted() throws Exception
+    {
+        register(ComponentWarmUpListener.class, null);
+        register(Dependent.class, null);
+        register(Dependency.class, null);
+        register(NotEager.class, null);
+        register(PerLookup.class, "perlookup");
+        register(Failing.class, "failing");
+
+        ComponentWarmUpListener listener =
+            this.componentManager.getInstance(EventListener.class, ComponentWarmUpListener.NAME);
+        Logger logger = mock(Logger.class);
+        ReflectionUtils.setFieldValue(listener, "logger", logger);
+
+        String previous = System.setProperty(ComponentWarmUpListener.COMPONENTS_PROPERTY, Failing.class.getName());
+        try {
+            listener.onEvent(new ApplicationStartedEvent(), null, null);
+        } finally {
+            if (previous != null) {
+                System.setProperty(ComponentWarmUpListener.COMPONENTS_PROPERTY, previous);
+            } else {
+                System.clearProperty(ComponentWarmUpListener.COMPONENTS_PROPERTY);
+            }
+        }
+
+        ComponentWarmUp warmUp = listener.getLastWarmUp();
+        assertNotNull(warmUp);
+
+        // Wait for the warm up to finish
+        long deadline = System.currentTimeMillis() + 10000;
+        while (warmUp.getInitializations().size() < 3 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        List<ComponentWarmUp.ComponentInitialization> initializations = warmUp.getInitializations();
+        assertEquals(3, initializations.size());
+        for (ComponentWarmUp.ComponentInitialization initialization : initializations) {
+            Class<?> implementation = initialization.getDescriptor().getImplementation();
+            assertTrue(implementation == Dependency.class || implementation == Dependent.class
+                || implementation == Failing.class);
+        }
+        assertSame(Dependent.class, this.componentManager.getInstance(DependentRole.class).getClass());
+        verify(logger).warn(eq("Failed to warm up component [{}] with type [{}] and hint [{}]: {}"),
+            eq(Failing.class.getName()), eq(OtherRole.class), eq("failing"), any());
+    }
+
+    @Test
+    public void runInExecutionContext() throws Exception
+    {
+        register(DefaultExecution.class, null);
+        register(DefaultExecutionContextManager.class, null);
+        register(ContextAware.class, "contextaware");
+
+        Execution execution = this.componentManager.getInstance(Execution.class);
+        ExecutionContext context = new ExecutionContext();
+        execution.setContext(context);
+
+        ComponentWarmUp warmUp = new ComponentWarmUp(this.componentManager,
+            Arrays.asList(this.componentManager.getComponentDescriptor(OtherRole.class, "contextaware")), 1,
+            mock(Logger.class));
+        warmUp.run();
+
+        assertNull(warmUp.getInitializations().get(0).getError());
+        ContextAware component = this.componentManager.getInstance(OtherRole.class, "contextaware");
+        assertNotNull(component.context);
+        assertNotSame(context, component.context);
+        assertSame(context, execution.getContext());
+    }
+}
@@ -22,6 +22,8 @@
 import java.util.EmptyStackException;
 
 import org.xwiki.component.annotation.Role;
+import org.xwiki.context.concurrent.ExecutionContextSnapshot;
+import org.xwiki.stability.Unstable;
 
 /**
  * Allows setting/retrieving the {@link ExecutionContext}.
@@ -58,4 +60,32 @@
      * Remove all context levels for the current thread.
      */
     void removeContext();
+
+    /**
+     * Capture the execution contexts of the current thread so that they can be used in another thread, typically
+     * the thread of an executor running a task submitted by the current thread.
+     * <p>
+     * The execution contexts of the current thread are never installed in another thread: the snapshot keeps copies
+     * of them (see {@link ExecutionContext#copy()}) made by the current thread, and each installation gets its own
+     * copies.
+     *
+     * @return an immutable snapshot of the execution contexts of the current thread
+     * @since 11.9RC1
+     */
+    @Unstable
+    default ExecutionContextSnapshot snapshot()
+    {
+        ExecutionContext current = getContext();
+        ExecutionContext context = current != null ? current.copy() : null;
+
+        return () -> {
+            if (context == null) {
+                return () -> { };
+            }
+
+            pushContext(context.copy());
+
+            return this::popContext;
+        };
+    }
 }
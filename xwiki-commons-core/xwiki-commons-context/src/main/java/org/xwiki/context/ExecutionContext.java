@@ -19,12 +19,14 @@
  */
 package org.xwiki.context;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.xwiki.context.internal.ExecutionContextProperty;
+import org.xwiki.stability.Unstable;
 
 /**
  * Contains all state data related to the current user action. Note that the execution context is independent of the
@@ -38,18 +40,28 @@
     /** Logger object. */
     private static final Logger LOGGER = LoggerFactory.getLogger(ExecutionContext.class);
 
+    private static final ExecutionContextProperty[] NO_SLOTS = new ExecutionContextProperty[0];
+
     /**
+     * The properties which don't have a registered {@link ExecutionContextKey}.
+     *
      * @see #getProperty(String)
      */
     private Map<String, ExecutionContextProperty> properties = new HashMap<String, ExecutionContextProperty>();
 
+    /**
+     * The properties which have a registered {@link ExecutionContextKey}, indexed by
+     * {@link ExecutionContextKey#getIndex()}.
+     */
+    private ExecutionContextProperty[] slots = NO_SLOTS;
+
     /**
      * @param key the key under which is stored the property to retrieve
      * @return the property matching the passed key
      */
     public Object getProperty(String key)
     {
-        ExecutionContextProperty property = this.properties.get(key);
+        ExecutionContextProperty property = getExecutionContextProperty(key);
 
         if (property == null) {
             LOGGER.debug("Getting undefined property {} from execution context.", key);
@@ -59,6 +71,26 @@ public Object getProperty(String key)
         return property.getValue();
     }
 
+    /**
+     * @param <T> the type of the value of the property
+     * @param key the key under which is stored the property to retrieve
+     * @return the value of the property matching the passed key
+     * @since 11.9RC1
+     */
+    @Unstable
+    @SuppressWarnings("unchecked")
+    public <T> T getProperty(ExecutionContextKey<T> key)
+    {
+        ExecutionContextProperty property = getExecutionContextProperty(key);
+
+        if (property == null) {
+            LOGGER.debug("Getting undefined property {} from execution context.", key);
+            return null;
+        }
+
+        return (T) property.getValue();
+    }
+
     /**
      * @param key the key of the property.
      * @return a builder object for performing the declaration. The property will not be declared until the declare
@@ -69,13 +101,36 @@ public DeclarationBuilder newProperty(String key)
         return new DeclarationBuilder(key);
     }
 
+    /**
+     * @param key the key of the property.
+     * @return a builder object for performing the declaration. The property will not be declared until the declare
+     *         method is called on the builder object.
+     * @since 11.9RC1
+     */
+    @Unstable
+    public DeclarationBuilder newProperty(ExecutionContextKey<?> key)
+    {
+        return new DeclarationBuilder(key.getName());
+    }
+
     /**
      * @param key the key under which is stored the property to retrieve
      * @return {@code true} if there is a property declared for the given key.
      */
     public boolean hasProperty(String key)
     {
-        return this.properties.containsKey(key);
+        return getExecutionContextProperty(key) != null;
+    }
+
+    /**
+     * @param key the key under which is stored the property to retrieve
+     * @return {@code true} if there is a property declared for the given key.
+     * @since 11.9RC1
+     */
+    @Unstable
+    public boolean hasProperty(ExecutionContextKey<?> key)
+    {
+        return getExecutionContextProperty(key) != null;
     }
 
     /**
@@ -85,6 +140,12 @@ public Map<String, Object> getProperties()
     {
         Map<String, Object> map = new HashMap<String, Object>();
 
+        for (ExecutionContextProperty property : this.slots) {
+            if (property != null) {
+                map.put(property.getKey(), property.getValue());
+            }
+        }
+
         for (Map.Entry<String, ExecutionContextProperty> entry : this.properties.entrySet()) {
             map.put(entry.getKey(), entry.getValue().getValue());
         }
@@ -97,13 +158,38 @@ public Map<String, Object> getProperties()
      */
     public void removeProperty(String key)
     {
-        ExecutionContextProperty property = this.properties.get(key);
+        ExecutionContextKey<?> registeredKey = ExecutionContextKey.get(key);
+
+        if (registeredKey != null) {
+            removeProperty(registeredKey);
+        } else {
+            ExecutionContextProperty property = this.properties.get(key);
+
+            if (property != null && property.isFinal()) {
+                throw new PropertyIsFinalException(key);
+            }
+
+            this.properties.remove(key);
+        }
+    }
+
+    /**
+     * @param key remove the property whose key matches the passed key
+     * @since 11.9RC1
+     */
+    @Unstable
+    public void removeProperty(ExecutionContextKey<?> key)
+    {
+        ExecutionContextProperty property = getExecutionContextProperty(key);
 
         if (property != null && property.isFinal()) {
-            throw new PropertyIsFinalException(key);
+            throw new PropertyIsFinalException(key.getName());
         }
 
-        this.properties.remove(key);
+        if (key.getIndex() < this.slots.length) {
+            this.slots[key.getIndex()] = null;
+        }
+        this.properties.remove(key.getName());
     }
 
     /**
@@ -112,16 +198,46 @@ public void removeProperty(String key)
      */
     public void setProperty(String key, Object value)
     {
-        ExecutionContextProperty property = this.properties.get(key);
+        ExecutionContextProperty property = getExecutionContextProperty(key);
 
         if (property == null) {
             LOGGER.debug("Implicit declaration of property {}.", key);
             newProperty(key).declare();
-            property = this.properties.get(key);
+            property = getExecutionContextProperty(key);
         } else if (property.isFinal()) {
             throw new PropertyIsFinalException(key);
         }
 
+        if (property.isShared()) {
+            property = replaceProperty(property.copy());
+        }
+
+        property.setValue(value);
+    }
+
+    /**
+     * @param <T> the type of the value of the property
+     * @param key the key under which to save the passed property value
+     * @param value the value to set
+     * @since 11.9RC1
+     */
+    @Unstable
+    public <T> void setProperty(ExecutionContextKey<T> key, T value)
+    {
+        ExecutionContextProperty property = getExecutionContextProperty(key);
+
+        if (property == null) {
+            LOGGER.debug("Implicit declaration of property {}.", key);
+            newProperty(key).declare();
+            property = getExecutionContextProperty(key);
+        } else if (property.isFinal()) {
+            throw new PropertyIsFinalException(key.getName());
+        }
+
+        if (property.isShared()) {
+            property = replaceProperty(property.copy());
+        }
+
         property.setValue(value);
     }
 
@@ -135,6 +251,35 @@ public void setProperties(Map<String, Object> properties)
         }
     }
 
+    private ExecutionContextProperty getExecutionContextProperty(String key)
+    {
+        ExecutionContextProperty property = this.properties.get(key);
+
+        if (property == null) {
+            ExecutionContextKey<?> registeredKey = ExecutionContextKey.get(key);
+
+            if (registeredKey != null && registeredKey.getIndex() < this.slots.length) {
+                property = this.slots[registeredKey.getIndex()];
+            }
+        }
+
+        return property;
+    }
+
+    private ExecutionContextProperty getExecutionContextProperty(ExecutionContextKey<?> key)
+    {
+        int index = key.getIndex();
+
+        ExecutionContextProperty property = index < this.slots.length ? this.slots[index] : null;
+
+        // The property might have been declared before the key was registered
+        if (property == null && !this.properties.isEmpty()) {
+            property = this.properties.get(key.getName());
+        }
+
+        return property;
+    }
+
     /**
      * Declare a property.
      *
@@ -143,12 +288,49 @@ public void setProperties(Map<String, Object> properties)
      * @since 4.3M1
      */
     private void declareProperty(ExecutionContextProperty property)
+    {
+        ExecutionContextKey<?> registeredKey = ExecutionContextKey.get(property.getKey());
+
+        if (registeredKey != null) {
+            if (getExecutionContextProperty(registeredKey) != null) {
+                throw new PropertyAlreadyExistsException(property.getKey());
+            }
+
+            setSlot(registeredKey.getIndex(), property);
+        } else {
+            if (this.properties.containsKey(property.getKey())) {
+                throw new PropertyAlreadyExistsException(property.getKey());
+            }
+
+            this.properties.put(property.getKey(), property);
+        }
+    }
+
+    /**
+     * Replace the property with the same key.
+     *
+     * @param property the new property
+     * @return the new property
+     */
+    private ExecutionContextProperty replaceProperty(ExecutionContextProperty property)
     {
         if (this.properties.containsKey(property.getKey())) {
-            throw new PropertyAlreadyExistsException(property.getKey());
+            this.properties.put(property.getKey(), property);
+        } else {
+            setSlot(ExecutionContextKey.get(property.getKey()).getIndex(), property);
         }
 
-        this.properties.put(property.getKey(), property);
+        return property;
+    }
+
+    private void setSlot(int index, ExecutionContextProperty property)
+    {
+        if (index >= this.slots.length) {
+            // Make room for all the keys registered so far
+            this.slots = Arrays.copyOf(this.slots, Math.max(index + 1, ExecutionContextKey.size()));
+        }
+
+        this.slots[index] = property;
     }
 
     /**
@@ -158,7 +340,8 @@ private void declareProperty(ExecutionContextProperty property)
      * {@link Execution#pushContext(ExecutionContext)} if there is a current execution context.
      * <p>
      * All properties marked as 'inherited' will be copied into this context, unless the property already is declared in
-     * this context.
+     * this context. The properties are only actually copied when one of the execution contexts modifies them, except
+     * for the ones declared with {@link DeclarationBuilder#cloneValue()} whose value is cloned immediately.
      * <p>
      * It is an error if this context contain a value that was declared as 'inherited' and 'final' in the inherited
      * execution context and an exception will be thrown.
@@ -169,25 +352,77 @@ private void declareProperty(ExecutionContextProperty property)
      */
     public void inheritFrom(ExecutionContext executionContext)
     {
+        ExecutionContextProperty[] inheritedSlots = executionContext.slots;
+        for (int index = 0; index < inheritedSlots.length; ++index) {
+            ExecutionContextProperty property = inheritedSlots[index];
+
+            if (property != null && property.isInherited()) {
+                ExecutionContextProperty shadowingProperty = index < this.slots.length ? this.slots[index] : null;
+                if (shadowingProperty == null && !this.properties.isEmpty()) {
+                    shadowingProperty = this.properties.get(property.getKey());
+                }
+
+                if (shadowingProperty != null) {
+                    checkIfInheritedPropertyMayBeIgnored(property, shadowingProperty);
+                } else {
+                    setSlot(index, property.share());
+                }
+            }
+        }
+
         for (ExecutionContextProperty property : executionContext.properties.values()) {
             if (property.isInherited()) {
-                if (this.properties.containsKey(property.getKey())) {
-                    checkIfInheritedPropertyMayBeIgnored(property);
+                ExecutionContextProperty shadowingProperty = getExecutionContextProperty(property.getKey());
+                if (shadowingProperty != null) {
+                    checkIfInheritedPropertyMayBeIgnored(property, shadowingProperty);
                 } else {
-                    declareProperty(property.clone());
+                    declareProperty(property.share());
                 }
             }
         }
     }
 
+    /**
+     * Create a new execution context containing all the properties of this one, and not only the ones marked for
+     * inheritance. As with {@link #inheritFrom(ExecutionContext)} the properties are only actually copied when one of
+     * the execution contexts modifies them (or immediately for the ones declared with
+     * {@link DeclarationBuilder#cloneValue()}), so adding, removing or modifying a property in one of the execution
+     * contexts does not affect the other one. The values themselves are shared.
+     *
+     * @return a new execution context with the same properties
+     * @since 11.9RC1
+     */
+    @Unstable
+    public ExecutionContext copy()
+    {
+        ExecutionContext copy = new ExecutionContext();
+
+        if (this.slots.length > 0) {
+            copy.slots = new ExecutionContextProperty[this.slots.length];
+            for (int index = 0; index < this.slots.length; ++index) {
+                ExecutionContextProperty property = this.slots[index];
+                if (property != null) {
+                    copy.slots[index] = property.share();
+                }
+            }
+        }
+
+        for (ExecutionContextProperty property : this.properties.values()) {
+            copy.properties.put(property.getKey(), property.share());
+        }
+
+        return copy;
+    }
+
     /**
      * @param property Property to check.
+     * @param shadowingProperty the property of this context with the same key
      * @throws IllegalStateException if the property may not be ignored.
      */
-    private void checkIfInheritedPropertyMayBeIgnored(ExecutionContextProperty property)
+    private void checkIfInheritedPropertyMayBeIgnored(ExecutionContextProperty property,
+        ExecutionContextProperty shadowingProperty)
     {
         if (property.isFinal()) {
-            ExecutionContextProperty shadowingProperty = this.properties.get(property.getKey());
             if (!(shadowingProperty == property || shadowingProperty.isClonedFrom(property))) {
                 throw new IllegalStateException(
                     String.format("Execution context cannot be inherited because it already contains"
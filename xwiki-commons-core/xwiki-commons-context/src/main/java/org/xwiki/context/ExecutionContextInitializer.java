@@ -20,6 +20,7 @@
 package org.xwiki.context;
 
 import org.xwiki.component.annotation.Role;
+import org.xwiki.stability.Unstable;
 
 /**
  * Role which allows different components to initialize every new execution context created, by adding, altering, or
@@ -37,4 +38,22 @@
      * @throws ExecutionContextException if the context is not in a state valid for an initializer
      */
     void initialize(ExecutionContext context) throws ExecutionContextException;
+
+    /**
+     * The method that will be called when a context is created as a clone of another context (see
+     * {@link ExecutionContextManager#clone(ExecutionContext)}). The cloned context already contains the inherited
+     * properties of the source context so initializers which only declare inherited properties, or which can copy
+     * what they need from the source context, can implement something cheaper than a full initialization.
+     *
+     * @param context the execution context being created
+     * @param sourceContext the execution context being cloned
+     * @throws ExecutionContextException if the context is not in a state valid for an initializer
+     * @since 11.9RC1
+     */
+    @Unstable
+    default void initializeClone(ExecutionContext context, ExecutionContext sourceContext)
+        throws ExecutionContextException
+    {
+        initialize(context);
+    }
 }
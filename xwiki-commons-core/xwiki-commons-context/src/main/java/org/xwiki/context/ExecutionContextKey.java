@@ -0,0 +1,114 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.context;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.xwiki.stability.Unstable;
+
+/**
+ * A registered {@link ExecutionContext} property key. The properties of registered keys are stored in a slot of the
+ * execution context instead of a map so that reading and writing them through the key is a simple array access.
+ * <p>
+ * The key of a frequently accessed property should be registered once (typically in a static constant) and used with
+ * {@link ExecutionContext#getProperty(ExecutionContextKey)} and {@link ExecutionContext#setProperty(ExecutionContextKey,
+ * Object)}. The property is still accessible with the {@link String} based methods of {@link ExecutionContext}.
+ *
+ * @param <T> the type of the value of the property
+ * @version $Id$
+ * @since 11.9RC1
+ */
+@Unstable
+public final class ExecutionContextKey<T>
+{
+    private static final Map<String, ExecutionContextKey<?>> KEYS = new ConcurrentHashMap<>();
+
+    private final String name;
+
+    private final int index;
+
+    private ExecutionContextKey(String name, int index)
+    {
+        this.name = name;
+        this.index = index;
+    }
+
+    /**
+     * Register the passed property name, or return the already registered key for it.
+     *
+     * @param <T> the type of the value of the property
+     * @param name the name of the property
+     * @return the registered key
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> ExecutionContextKey<T> register(String name)
+    {
+        ExecutionContextKey<?> key = KEYS.get(name);
+
+        if (key == null) {
+            synchronized (KEYS) {
+                key = KEYS.computeIfAbsent(name, k -> new ExecutionContextKey<>(k, KEYS.size()));
+            }
+        }
+
+        return (ExecutionContextKey<T>) key;
+    }
+
+    /**
+     * @param name the name of the property
+     * @return the registered key or {@code null} if none was registered for the passed name
+     */
+    static ExecutionContextKey<?> get(String name)
+    {
+        // ConcurrentHashMap does not support null keys
+        return name != null ? KEYS.get(name) : null;
+    }
+
+    /**
+     * @return the number of registered keys
+     */
+    static int size()
+    {
+        return KEYS.size();
+    }
+
+    /**
+     * @return the name of the property
+     */
+    public String getName()
+    {
+        return this.name;
+    }
+
+    /**
+     * @return the index of the slot where the property is stored in the execution context
+     */
+    int getIndex()
+    {
+        return this.index;
+    }
+
+    @Override
+    public String toString()
+    {
+        return this.name;
+    }
+}
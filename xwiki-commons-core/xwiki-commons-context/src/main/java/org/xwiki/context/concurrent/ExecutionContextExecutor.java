@@ -0,0 +1,102 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.context.concurrent;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+
+import org.xwiki.context.Execution;
+import org.xwiki.context.concurrent.ExecutionContextSnapshot.Installation;
+import org.xwiki.stability.Unstable;
+
+/**
+ * {@link Executor} decorator which runs the submitted tasks with the execution contexts of the thread which submitted
+ * them.
+ * <p>
+ * Contrary to {@link ExecutionContextRunnable} the task does not get a new initialized execution context, and
+ * contrary to {@link ContextStoreManager} nothing is saved or restored through components: the execution contexts
+ * are copied in an immutable {@link ExecutionContextSnapshot} when the task is submitted and the copies are installed
+ * in the worker thread while the task is running. This makes it cheap enough to fan out small tasks (with
+ * {@link java.util.concurrent.CompletableFuture}, parallel rendering, asynchronous listeners, etc.) to any kind of
+ * executor.
+ *
+ * @version $Id$
+ * @since 11.9RC1
+ */
+@Unstable
+public class ExecutionContextExecutor implements Executor
+{
+    private final Execution execution;
+
+    private final Executor executor;
+
+    /**
+     * @param execution used to capture and install the execution contexts
+     * @param executor the executor to decorate
+     */
+    public ExecutionContextExecutor(Execution execution, Executor executor)
+    {
+        this.execution = execution;
+        this.executor = executor;
+    }
+
+    @Override
+    public void execute(Runnable command)
+    {
+        this.executor.execute(wrap(command));
+    }
+
+    /**
+     * @param runnable the task to wrap
+     * @return a task running the passed one with the execution contexts of the current thread
+     */
+    public Runnable wrap(Runnable runnable)
+    {
+        ExecutionContextSnapshot snapshot = this.execution.snapshot();
+
+        return () -> {
+            Installation installation = snapshot.install();
+            try {
+                runnable.run();
+            } finally {
+                installation.close();
+            }
+        };
+    }
+
+    /**
+     * @param <V> the type of the result of the task
+     * @param callable the task to wrap
+     * @return a task running the passed one with the execution contexts of the current thread
+     */
+    public <V> Callable<V> wrap(Callable<V> callable)
+    {
+        ExecutionContextSnapshot snapshot = this.execution.snapshot();
+
+        return () -> {
+            Installation installation = snapshot.install();
+            try {
+                return callable.call();
+            } finally {
+                installation.close();
+            }
+        };
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.context.concurrent;
+
+import org.xwiki.stability.Unstable;
+
+/**
+ * An immutable copy of the execution contexts of a thread (see {@link org.xwiki.context.Execution#snapshot()}) which
+ * can be installed in another thread so that the code it runs sees the same execution contexts.
+ * <p>
+ * The thread in which the snapshot is installed never works with the {@link org.xwiki.context.ExecutionContext}
+ * instances of the thread in which it was taken, which are not thread safe: it gets new execution contexts with the
+ * same properties (see {@link org.xwiki.context.ExecutionContext#copy()}). This is cheap since the properties are only
+ * copied when they are modified, and the modifications made by one of the threads are not visible to the other one.
+ * The values of the properties are shared, though.
+ *
+ * @version $Id$
+ * @since 11.9RC1
+ */
+@Unstable
+@FunctionalInterface
+public interface ExecutionContextSnapshot
+{
+    /**
+     * Restores the execution contexts which were replaced by the installation of a snapshot.
+     *
+     * @version $Id$
+     */
+    @FunctionalInterface
+    interface Installation extends AutoCloseable
+    {
+        /**
+         * Restore the execution contexts of the current thread as they were before the installation.
+         */
+        @Override
+        void close();
+    }
+
+    /**
+     * Replace the execution contexts of the current thread with the ones of this snapshot.
+     *
+     * @return the installation to close when the current thread is done with the execution contexts of this snapshot
+     */
+    Installation install();
+}
@@ -19,13 +19,17 @@
  */
 package org.xwiki.context.internal;
 
-import java.util.Stack;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EmptyStackException;
+import java.util.List;
 
 import javax.inject.Singleton;
 
 import org.xwiki.component.annotation.Component;
 import org.xwiki.context.Execution;
 import org.xwiki.context.ExecutionContext;
+import org.xwiki.context.concurrent.ExecutionContextSnapshot;
 
 /**
  * Holds the Execution Context object. Note that we require this Execution component since we want to be able to pass
@@ -40,50 +44,56 @@
 public class DefaultExecution implements Execution
 {
     /**
-     * Isolate the execution context by thread.
+     * Isolate the execution context by thread. The stack is only accessed by its thread so it does not need to be
+     * synchronized.
      */
-    private ThreadLocal<Stack<ExecutionContext>> context = new ThreadLocal<Stack<ExecutionContext>>();
+    private ThreadLocal<List<ExecutionContext>> context = new ThreadLocal<>();
 
     @Override
     public void pushContext(ExecutionContext context)
     {
-        Stack<ExecutionContext> stack = this.context.get();
+        List<ExecutionContext> stack = this.context.get();
         if (stack == null) {
-            stack = new Stack<ExecutionContext>();
+            stack = new ArrayList<>();
             this.context.set(stack);
         } else if (!stack.isEmpty()) {
-            context.inheritFrom(stack.peek());
+            context.inheritFrom(peek(stack));
         }
 
-        stack.push(context);
+        stack.add(context);
     }
 
     @Override
     public void popContext()
     {
-        this.context.get().pop();
+        List<ExecutionContext> stack = this.context.get();
+        if (stack == null || stack.isEmpty()) {
+            throw new EmptyStackException();
+        }
+
+        stack.remove(stack.size() - 1);
     }
 
     @Override
     public ExecutionContext getContext()
     {
-        Stack<ExecutionContext> stack = this.context.get();
-        return stack == null || stack.isEmpty() ? null : stack.peek();
+        List<ExecutionContext> stack = this.context.get();
+        return stack == null || stack.isEmpty() ? null : peek(stack);
     }
 
     @Override
     public void setContext(ExecutionContext context)
     {
-        Stack<ExecutionContext> stack = this.context.get();
+        List<ExecutionContext> stack = this.context.get();
         if (stack == null) {
-            stack = new Stack<ExecutionContext>();
+            stack = new ArrayList<>();
             this.context.set(stack);
-            stack.push(context);
+            stack.add(context);
         } else if (stack.isEmpty()) {
-            stack.push(context);
+            stack.add(context);
         } else {
             if (context != null) {
-                context.inheritFrom(stack.peek());
+                context.inheritFrom(peek(stack));
             }
             stack.set(stack.size() - 1, context);
         }
@@ -94,4 +104,41 @@ public void removeContext()
     {
         this.context.remove();
     }
+
+    @Override
+    public ExecutionContextSnapshot snapshot()
+    {
+        // Copy the execution contexts in the current thread since they are not thread safe
+        List<ExecutionContext> stack = this.context.get();
+        List<ExecutionContext> contexts = stack == null ? Collections.emptyList() : copy(stack);
+
+        return () -> {
+            List<ExecutionContext> previousStack = this.context.get();
+            // The snapshot can be installed several times, possibly at the same time by different threads
+            this.context.set(copy(contexts));
+
+            return () -> {
+                if (previousStack != null) {
+                    this.context.set(previousStack);
+                } else {
+                    this.context.remove();
+                }
+            };
+        };
+    }
+
+    private List<ExecutionContext> copy(List<ExecutionContext> stack)
+    {
+        List<ExecutionContext> contexts = new ArrayList<>(stack.size());
+        for (ExecutionContext context : stack) {
+            contexts.add(context != null ? context.copy() : null);
+        }
+
+        return contexts;
+    }
+
+    private ExecutionContext peek(List<ExecutionContext> stack)
+    {
+        return stack.get(stack.size() - 1);
+    }
 }
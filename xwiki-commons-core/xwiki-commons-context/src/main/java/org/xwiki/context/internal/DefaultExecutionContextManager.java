@@ -65,7 +65,8 @@ public ExecutionContext clone(ExecutionContext context) throws ExecutionContextE
         // objects put in the Execution Context and they can be of any type, including Maps which are cloneable
         // but only do shallow clones.
         // Thus instead we recreate the Execution Context from scratch and reinitialize it by calling all the
-        // Execution Context Initializers on it.
+        // Execution Context Initializers on it. The inherited properties are shared with the cloned context until one
+        // of them modifies them and the initializers can provide a cheaper initialization for clones.
         try {
             this.execution.pushContext(clonedContext);
         } catch (RuntimeException e) {
@@ -74,7 +75,9 @@ public ExecutionContext clone(ExecutionContext context) throws ExecutionContextE
             throw new ExecutionContextException("Failed to push cloned execution context.", e);
         }
         try {
-            runInitializers(clonedContext);
+            for (ExecutionContextInitializer initializer : this.initializerProvider.get()) {
+                initializer.initializeClone(clonedContext, context);
+            }
         } finally {
             // #initialize set the context but we just want to clone it so we need to restore it
             this.execution.popContext();
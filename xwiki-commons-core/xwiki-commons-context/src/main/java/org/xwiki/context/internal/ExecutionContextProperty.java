@@ -64,6 +64,9 @@ public class ExecutionContextProperty implements Cloneable
     /** @see #isClonedFrom(ExecutionContextProperty) */
     private WeakReference<ExecutionContextProperty> clonedFrom;
 
+    /** @see #isShared() */
+    private volatile boolean shared;
+
     /**
      * @param key The execution context key.
      * @param initialValue The initial value.
@@ -184,6 +187,49 @@ public ExecutionContextProperty clone()
         return clone;
     }
 
+    /**
+     * Get the property to store in an execution context inheriting this property. The property itself is returned
+     * (and marked as {@link #isShared() shared}) unless its value has to be cloned, so that inheriting a property
+     * which is never modified does not cost anything.
+     *
+     * @return the property to use in the inheriting execution context
+     * @since 11.9RC1
+     */
+    public ExecutionContextProperty share()
+    {
+        if (this.cloneValue) {
+            return clone();
+        }
+
+        this.shared = true;
+
+        return this;
+    }
+
+    /**
+     * @return {@code true} if this property is used by several execution contexts, in which case it must be copied
+     *         (see {@link #copy()}) before modifying its value
+     * @since 11.9RC1
+     */
+    public boolean isShared()
+    {
+        return this.shared;
+    }
+
+    /**
+     * @return a copy of this property sharing the same value, to be modified by an execution context instead of this
+     *         {@link #isShared() shared} property
+     * @since 11.9RC1
+     */
+    public ExecutionContextProperty copy()
+    {
+        ExecutionContextProperty copy = new ExecutionContextProperty(getKey(), getValue(), this.cloneValue, isFinal(),
+            isInherited(), this.nonNull, getType());
+        copy.clonedFrom = this.clonedFrom;
+
+        return copy;
+    }
+
     /**
      * Check that this instance was cloned from the specified instance.
      *
@@ -0,0 +1,126 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.context;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measure the cost of reading, writing and inheriting {@link ExecutionContext} properties, with a context containing
+ * a realistic number of properties, some of them inherited.
+ * <p>
+ * This is not a unit test, run it with {@code java -cp <test classpath> org.openjdk.jmh.Main
+ * ExecutionContextBenchmark}.
+ *
+ * @version $Id$
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ExecutionContextBenchmark
+{
+    private static final int PROPERTIES = 30;
+
+    private static final ExecutionContextKey<Object> HOT_KEY = ExecutionContextKey.register("benchmark.hot");
+
+    private static final String COLD_KEY = "benchmark.cold";
+
+    private ExecutionContext context;
+
+    private Object value = new Object();
+
+    /**
+     * Fill the context.
+     */
+    @Setup
+    public void setUp()
+    {
+        this.context = new ExecutionContext();
+
+        for (int i = 0; i < PROPERTIES; ++i) {
+            // Register half of the properties
+            String key = "benchmark.property" + i;
+            if (i % 2 == 0) {
+                ExecutionContextKey.register(key);
+            }
+
+            if (i % 3 == 0) {
+                this.context.newProperty(key).inherited().initial(i).declare();
+            } else {
+                this.context.setProperty(key, i);
+            }
+        }
+
+        this.context.setProperty(HOT_KEY, this.value);
+        this.context.setProperty(COLD_KEY, this.value);
+    }
+
+    @Benchmark
+    public Object getRegisteredPropertyByKey()
+    {
+        return this.context.getProperty(HOT_KEY);
+    }
+
+    @Benchmark
+    public Object getRegisteredPropertyByName()
+    {
+        return this.context.getProperty(HOT_KEY.getName());
+    }
+
+    @Benchmark
+    public Object getProperty()
+    {
+        return this.context.getProperty(COLD_KEY);
+    }
+
+    @Benchmark
+    public void setRegisteredPropertyByKey()
+    {
+        this.context.setProperty(HOT_KEY, this.value);
+    }
+
+    @Benchmark
+    public void setProperty()
+    {
+        this.context.setProperty(COLD_KEY, this.value);
+    }
+
+    @Benchmark
+    public ExecutionContext inheritFrom()
+    {
+        ExecutionContext child = new ExecutionContext();
+        child.inheritFrom(this.context);
+
+        return child;
+    }
+}
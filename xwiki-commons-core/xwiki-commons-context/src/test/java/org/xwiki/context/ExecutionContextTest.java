@@ -21,7 +21,10 @@
 
 import static org.hamcrest.Matchers.hasEntry;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 
@@ -109,4 +112,164 @@ public void removeUnexistingProperty()
         ExecutionContext context = new ExecutionContext();
         context.removeProperty("doesnotexist");
     }
+
+    @Test
+    public void registeredKey()
+    {
+        ExecutionContextKey<String> key = ExecutionContextKey.register("registeredKey");
+        assertSame(key, ExecutionContextKey.register("registeredKey"));
+
+        ExecutionContext context = new ExecutionContext();
+        assertFalse(context.hasProperty(key));
+
+        context.setProperty(key, "value");
+
+        assertTrue(context.hasProperty(key));
+        assertTrue(context.hasProperty("registeredKey"));
+        assertEquals("value", context.getProperty(key));
+        assertEquals("value", context.getProperty("registeredKey"));
+        assertThat(context.getProperties(), hasEntry("registeredKey", (Object) "value"));
+
+        context.setProperty("registeredKey", "value2");
+        assertEquals("value2", context.getProperty(key));
+
+        context.removeProperty("registeredKey");
+        assertFalse(context.hasProperty(key));
+        assertNull(context.getProperty(key));
+    }
+
+    @Test
+    public void registeredKeyInheritance()
+    {
+        ExecutionContextKey<String> inheritedKey = ExecutionContextKey.register("registeredInherited");
+        ExecutionContextKey<String> shadowedKey = ExecutionContextKey.register("registeredShadowed");
+        ExecutionContextKey<String> notInheritedKey = ExecutionContextKey.register("registeredNotInherited");
+
+        ExecutionContext context = new ExecutionContext();
+        ExecutionContext parent = new ExecutionContext();
+
+        parent.newProperty(inheritedKey).inherited().initial("test").declare();
+        parent.newProperty(shadowedKey).inherited().initial("original").declare();
+        parent.setProperty(notInheritedKey, "notinherited");
+        context.newProperty(shadowedKey).inherited().initial("shadowed").declare();
+
+        context.inheritFrom(parent);
+
+        assertEquals("test", context.getProperty(inheritedKey));
+        assertEquals("shadowed", context.getProperty(shadowedKey));
+        assertFalse(context.hasProperty(notInheritedKey));
+
+        // The inherited property is a copy
+        context.setProperty(inheritedKey, "modified");
+        assertEquals("test", parent.getProperty(inheritedKey));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void illegalRegisteredKeyInheritance()
+    {
+        ExecutionContextKey<String> key = ExecutionContextKey.register("registeredFinal");
+
+        ExecutionContext context = new ExecutionContext();
+        ExecutionContext parent = new ExecutionContext();
+
+        parent.newProperty(key).inherited().initial("test").makeFinal().declare();
+        context.newProperty(key).inherited().initial("test").makeFinal().declare();
+
+        context.inheritFrom(parent);
+    }
+
+    @Test
+    public void keyRegisteredAfterDeclaration()
+    {
+        ExecutionContext context = new ExecutionContext();
+        context.setProperty("lateKey", "value");
+
+        ExecutionContextKey<String> key = ExecutionContextKey.register("lateKey");
+
+        assertEquals("value", context.getProperty(key));
+        assertEquals("value", context.getProperty("lateKey"));
+
+        context.setProperty(key, "value2");
+        assertEquals("value2", context.getProperty("lateKey"));
+        assertEquals(1, context.getProperties().size());
+
+        context.removeProperty(key);
+        assertFalse(context.hasProperty("lateKey"));
+    }
+
+    @Test
+    public void inheritanceIsCopyOnWrite()
+    {
+        ExecutionContextKey<String> key = ExecutionContextKey.register("copyOnWrite");
+
+        ExecutionContext parent = new ExecutionContext();
+        parent.newProperty(key).inherited().initial("value").declare();
+        parent.newProperty("copyOnWriteNotRegistered").inherited().initial("value").declare();
+        parent.newProperty("copyOnWriteFinal").inherited().initial("value").makeFinal().declare();
+
+        ExecutionContext child1 = new ExecutionContext();
+        child1.inheritFrom(parent);
+        ExecutionContext child2 = new ExecutionContext();
+        child2.inheritFrom(parent);
+
+        child1.setProperty(key, "child1");
+        child1.setProperty("copyOnWriteNotRegistered", "child1");
+        parent.setProperty(key, "parent");
+
+        assertEquals("parent", parent.getProperty(key));
+        assertEquals("child1", child1.getProperty(key));
+        assertEquals("value", child2.getProperty(key));
+        assertEquals("value", parent.getProperty("copyOnWriteNotRegistered"));
+        assertEquals("child1", child1.getProperty("copyOnWriteNotRegistered"));
+        assertEquals("value", child2.getProperty("copyOnWriteNotRegistered"));
+
+        // Inheriting again the same final property is allowed
+        child1.inheritFrom(parent);
+        assertEquals("value", child1.getProperty("copyOnWriteFinal"));
+    }
+
+    @Test
+    public void inheritanceClonesValue()
+    {
+        ExecutionContext parent = new ExecutionContext();
+        parent.newProperty("cloned").inherited().initial(new HashMap<>()).cloneValue().declare();
+
+        ExecutionContext child = new ExecutionContext();
+        child.inheritFrom(parent);
+
+        assertNotSame(parent.getProperty("cloned"), child.getProperty("cloned"));
+        assertEquals(parent.getProperty("cloned"), child.getProperty("cloned"));
+    }
+
+    @Test
+    public void copy()
+    {
+        ExecutionContextKey<String> key = ExecutionContextKey.register("copied");
+
+        ExecutionContext context = new ExecutionContext();
+        context.newProperty(key).initial("value").declare();
+        context.newProperty("copiedNotRegistered").initial("value").declare();
+        context.newProperty("copiedFinal").inherited().initial("value").makeFinal().declare();
+
+        ExecutionContext copy = context.copy();
+
+        assertEquals("value", copy.getProperty(key));
+        assertEquals("value", copy.getProperty("copiedNotRegistered"));
+        assertEquals("value", copy.getProperty("copiedFinal"));
+
+        // The properties are copied on write
+        copy.setProperty(key, "copy");
+        context.setProperty("copiedNotRegistered", "context");
+        copy.removeProperty("copiedNotRegistered");
+        copy.setProperty("copyOnly", "copy");
+
+        assertEquals("value", context.getProperty(key));
+        assertEquals("copy", copy.getProperty(key));
+        assertEquals("context", context.getProperty("copiedNotRegistered"));
+        assertFalse(copy.hasProperty("copiedNotRegistered"));
+        assertFalse(context.hasProperty("copyOnly"));
+
+        // The copy can inherit again from the copied execution context
+        copy.inheritFrom(context);
+    }
 }
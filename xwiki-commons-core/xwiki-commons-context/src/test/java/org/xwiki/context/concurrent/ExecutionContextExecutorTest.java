@@ -0,0 +1,100 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.context.concurrent;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.xwiki.context.ExecutionContext;
+import org.xwiki.context.internal.DefaultExecution;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Validate {@link ExecutionContextExecutor}.
+ *
+ * @version $Id$
+ */
+public class ExecutionContextExecutorTest
+{
+    private DefaultExecution execution = new DefaultExecution();
+
+    private ExecutorService executorService;
+
+    private ExecutionContextExecutor executor;
+
+    @Before
+    public void before()
+    {
+        this.executorService = Executors.newSingleThreadExecutor();
+        this.executor = new ExecutionContextExecutor(this.execution, this.executorService);
+    }
+
+    @After
+    public void after()
+    {
+        this.executorService.shutdownNow();
+        this.execution.removeContext();
+    }
+
+    @Test
+    public void execute() throws Exception
+    {
+        ExecutionContext context = new ExecutionContext();
+        context.setProperty("key", "value");
+        this.execution.setContext(context);
+
+        // The task gets a copy of the execution context
+        ExecutionContext taskContext = CompletableFuture.supplyAsync(() -> {
+            ExecutionContext current = this.execution.getContext();
+            current.setProperty("key", "task");
+            return current;
+        }, this.executor).get();
+        assertNotSame(context, taskContext);
+        assertEquals("task", taskContext.getProperty("key"));
+        assertEquals("value", context.getProperty("key"));
+
+        // The execution contexts are removed from the worker thread after the task
+        this.execution.removeContext();
+        assertNull(CompletableFuture.supplyAsync(this.execution::getContext, this.executorService).get());
+
+        // The execution contexts are captured when the task is submitted
+        assertNull(CompletableFuture.supplyAsync(this.execution::getContext, this.executor).get());
+    }
+
+    @Test
+    public void wrapCallable() throws Exception
+    {
+        ExecutionContext context = new ExecutionContext();
+        this.execution.setContext(context);
+
+        context.setProperty("key", "value");
+
+        ExecutionContext taskContext = this.executorService.submit(this.executor.wrap(this.execution::getContext)).get();
+        assertNotSame(context, taskContext);
+        assertEquals("value", taskContext.getProperty("key"));
+    }
+}
@@ -87,4 +87,47 @@ public List<ExecutionContextInitializer> get()
         Assert.assertSame(xwikicontext, clonedContext.getProperty("property1"));
         Assert.assertNotSame(xwikicontext, clonedContext.getProperty("property2"));
     }
+
+    @Test
+    public void cloneExecutionContextWithCloneInitializer() throws Exception
+    {
+        Execution execution = new DefaultExecution();
+        ExecutionContext context = new ExecutionContext();
+        execution.setContext(context);
+
+        context.newProperty("inherited").initial("value").inherited().declare();
+        context.setProperty("notinherited", "value");
+
+        DefaultExecutionContextManager contextManager = new DefaultExecutionContextManager();
+        ReflectionUtils.setFieldValue(contextManager, "execution", execution);
+
+        final ExecutionContextInitializer initializer = new ExecutionContextInitializer()
+        {
+            @Override
+            public void initialize(ExecutionContext context) throws ExecutionContextException
+            {
+                Assert.fail("The context should not be fully initialized");
+            }
+
+            @Override
+            public void initializeClone(ExecutionContext context, ExecutionContext sourceContext)
+            {
+                context.setProperty("notinherited", sourceContext.getProperty("notinherited"));
+            }
+        };
+        Provider<List<ExecutionContextInitializer>> provider = () -> Arrays.asList(initializer);
+        ReflectionUtils.setFieldValue(contextManager, "initializerProvider", provider);
+
+        ExecutionContext clonedContext = contextManager.clone(context);
+
+        Assert.assertSame(context, execution.getContext());
+        Assert.assertEquals("value", clonedContext.getProperty("inherited"));
+        Assert.assertEquals("value", clonedContext.getProperty("notinherited"));
+
+        // The contexts don't see each other modifications
+        clonedContext.setProperty("inherited", "modified");
+        Assert.assertEquals("value", context.getProperty("inherited"));
+        context.setProperty("inherited", "modified2");
+        Assert.assertEquals("modified", clonedContext.getProperty("inherited"));
+    }
 }
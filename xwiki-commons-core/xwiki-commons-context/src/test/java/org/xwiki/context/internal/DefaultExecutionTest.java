@@ -23,6 +23,8 @@
 import org.junit.Test;
 import org.xwiki.context.Execution;
 import org.xwiki.context.ExecutionContext;
+import org.xwiki.context.concurrent.ExecutionContextSnapshot;
+import org.xwiki.context.concurrent.ExecutionContextSnapshot.Installation;
 
 /**
  * Unit tests for {@link DefaultExecution}.
@@ -86,4 +88,54 @@ public void removeContext() throws Exception
 
         Assert.assertNull(execution.getContext());
     }
+
+    @Test
+    public void snapshot() throws Exception
+    {
+        DefaultExecution execution = new DefaultExecution();
+
+        ExecutionContext context1 = new ExecutionContext();
+        context1.setProperty("level", "1");
+        ExecutionContext context2 = new ExecutionContext();
+        context2.setProperty("level", "2");
+        execution.pushContext(context1);
+        execution.pushContext(context2);
+
+        ExecutionContextSnapshot snapshot = execution.snapshot();
+
+        // The snapshot is not affected by the modifications of the stack and of the execution contexts
+        execution.popContext();
+        context2.setProperty("level", "modified");
+
+        ExecutionContext otherContext = new ExecutionContext();
+        execution.pushContext(otherContext);
+
+        Installation installation = snapshot.install();
+        try {
+            // The installed execution contexts are copies
+            Assert.assertNotSame(context2, execution.getContext());
+            Assert.assertEquals("2", execution.getContext().getProperty("level"));
+            execution.getContext().setProperty("level", "installed");
+            execution.popContext();
+            Assert.assertNotSame(context1, execution.getContext());
+            Assert.assertEquals("1", execution.getContext().getProperty("level"));
+        } finally {
+            installation.close();
+        }
+
+        Assert.assertSame(otherContext, execution.getContext());
+        execution.popContext();
+        Assert.assertSame(context1, execution.getContext());
+        Assert.assertEquals("modified", context2.getProperty("level"));
+
+        // Installing in a thread without context, each installation gets its own copies
+        execution.removeContext();
+        installation = snapshot.install();
+        try {
+            Assert.assertEquals("2", execution.getContext().getProperty("level"));
+        } finally {
+            installation.close();
+        }
+        Assert.assertNull(execution.getContext());
+    }
 }
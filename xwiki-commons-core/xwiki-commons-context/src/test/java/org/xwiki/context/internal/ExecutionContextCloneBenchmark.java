@@ -0,0 +1,127 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.context.internal;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Provider;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xwiki.component.util.ReflectionUtils;
+import org.xwiki.context.ExecutionContext;
+import org.xwiki.context.ExecutionContextInitializer;
+
+/**
+ * Measure the cost of {@link DefaultExecutionContextManager#clone(ExecutionContext)} for a context containing a
+ * realistic number of properties, some of them inherited, and an initializer which is expensive to run.
+ * <p>
+ * This is not a unit test, run it with {@code java -cp <test classpath> org.openjdk.jmh.Main
+ * ExecutionContextCloneBenchmark}.
+ *
+ * @version $Id$
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ExecutionContextCloneBenchmark
+{
+    private static final int PROPERTIES = 30;
+
+    private static final String EXPENSIVE_KEY = "benchmark.expensive";
+
+    /**
+     * An initializer creating a property which is expensive to compute but can be reused by the clones.
+     */
+    public static class ExpensiveInitializer implements ExecutionContextInitializer
+    {
+        @Override
+        public void initialize(ExecutionContext context)
+        {
+            Map<String, Object> value = new HashMap<>();
+            for (int i = 0; i < 100; ++i) {
+                value.put("entry" + i, i);
+            }
+            context.setProperty(EXPENSIVE_KEY, value);
+        }
+
+        @Override
+        public void initializeClone(ExecutionContext context, ExecutionContext sourceContext)
+        {
+            context.setProperty(EXPENSIVE_KEY, sourceContext.getProperty(EXPENSIVE_KEY));
+        }
+    }
+
+    private DefaultExecutionContextManager contextManager;
+
+    private ExecutionContext context;
+
+    /**
+     * Fill the context.
+     *
+     * @throws Exception when failing to initialize the benchmark
+     */
+    @Setup
+    public void setUp() throws Exception
+    {
+        DefaultExecution execution = new DefaultExecution();
+        this.context = new ExecutionContext();
+        execution.setContext(this.context);
+
+        for (int i = 0; i < PROPERTIES; ++i) {
+            String key = "benchmark.property" + i;
+            if (i % 3 == 0) {
+                this.context.newProperty(key).inherited().initial(i).declare();
+            } else {
+                this.context.setProperty(key, i);
+            }
+        }
+        this.context.newProperty("benchmark.cloned").inherited().cloneValue().initial(new HashMap<>()).declare();
+
+        List<ExecutionContextInitializer> initializers = Arrays.asList(new ExpensiveInitializer());
+        this.contextManager = new DefaultExecutionContextManager();
+        ReflectionUtils.setFieldValue(this.contextManager, "execution", execution);
+        ReflectionUtils.setFieldValue(this.contextManager, "initializerProvider",
+            (Provider<List<ExecutionContextInitializer>>) () -> initializers);
+
+        this.contextManager.initialize(this.context);
+    }
+
+    @Benchmark
+    public ExecutionContext cloneContext() throws Exception
+    {
+        return this.contextManager.clone(this.context);
+    }
+}
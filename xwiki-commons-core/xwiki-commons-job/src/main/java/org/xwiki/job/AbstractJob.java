@@ -46,6 +46,7 @@
 import org.xwiki.job.event.status.JobProgressManager;
 import org.xwiki.job.event.status.JobStatus;
 import org.xwiki.job.event.status.JobStatus.State;
+import org.xwiki.logging.LogQueue;
 import org.xwiki.logging.LoggerManager;
 import org.xwiki.logging.marker.BeginTranslationMarker;
 import org.xwiki.logging.marker.EndTranslationMarker;
@@ -255,6 +256,15 @@ protected void jobStarting()
             ((AbstractJobStatus<R>) this.status).setStartDate(new Date());
             ((AbstractJobStatus<R>) this.status).setState(JobStatus.State.RUNNING);
 
+            if (this.store != null) {
+                LogQueue log = this.store.createLog(this.status);
+                if (log != null) {
+                    // Keep what might have been logged before the job started
+                    log.addAll(this.status.getLog());
+                    ((AbstractJobStatus) this.status).setLog(log);
+                }
+            }
+
             ((AbstractJobStatus) this.status).startListening();
         }
 
@@ -37,7 +37,7 @@
 import org.xwiki.logging.event.LogEvent;
 import org.xwiki.logging.event.LoggerListener;
 import org.xwiki.observation.ObservationManager;
-import org.xwiki.observation.WrappedThreadEventListener;
+import org.xwiki.stability.Unstable;
 
 /**
  * Base implementation of {@link JobStatus}.
@@ -84,7 +84,7 @@
     /**
      * Log sent during job execution.
      */
-    private final LogQueue logs;
+    private LogQueue logs;
 
     /**
      * Used to listen to all the log produced during job execution.
@@ -185,33 +185,33 @@ public AbstractJobStatus(String jobType, R request, JobStatus parentJobStatus,
     }
 
     /**
-     * Start listening to events.
+     * Start listening to the events sent by the current thread.
      */
     public void startListening()
     {
         // Register progress listener
-        this.observationManager.addListener(new WrappedThreadEventListener(this.progress));
+        this.observationManager.addThreadListener(this.progress);
 
         // Isolate log for the job status
         this.logListener = new LoggerListener(LoggerListener.class.getName() + '_' + hashCode(), this.logs);
         if (isIsolated()) {
             this.loggerManager.pushLogListener(this.logListener);
         } else {
-            this.observationManager.addListener(new WrappedThreadEventListener(this.logListener));
+            this.observationManager.addThreadListener(this.logListener);
         }
     }
 
     /**
-     * Stop listening to events.
+     * Stop listening to events. Should be called from the thread which called {@link #startListening()}.
      */
     public void stopListening()
     {
         if (isIsolated()) {
             this.loggerManager.popLogListener();
         } else {
-            this.observationManager.removeListener(this.logListener.getName());
+            this.observationManager.removeThreadListener(this.logListener.getName());
         }
-        this.observationManager.removeListener(this.progress.getName());
+        this.observationManager.removeThreadListener(this.progress.getName());
 
         // Make sure the progress is closed
         this.progress.getRootStep().finish();
@@ -267,6 +267,18 @@ public LogQueue getLog()
         return this.logs != null ? this.logs : new LogQueue();
     }
 
+    /**
+     * Replace the queue where the logs of the job are stored. Should be called before {@link #startListening()}.
+     *
+     * @param logs the log queue
+     * @since 11.9RC1
+     */
+    @Unstable
+    public void setLog(LogQueue logs)
+    {
+        this.logs = logs;
+    }
+
     @Override
     public JobProgress getProgress()
     {
@@ -22,6 +22,7 @@
 import java.io.File;
 
 import org.xwiki.component.annotation.Role;
+import org.xwiki.stability.Unstable;
 
 /**
  * Some job manager related configuration.
@@ -42,4 +43,37 @@
      * @since 7.2M2
      */
     int getJobStatusCacheSize();
+
+    /**
+     * @return the maximum number of logs of a running job to keep in memory, the older ones being moved to a file next
+     *         to the job status; 0 or less to keep all of them in memory
+     * @since 11.9RC1
+     */
+    @Unstable
+    default int getJobStatusLogMemorySize()
+    {
+        return 0;
+    }
+
+    /**
+     * @return the maximum number of job statuses waiting to be written by the background writer, when the limit is
+     *         reached the statuses are written by the thread storing them; 0 or less to always write them in the
+     *         storing thread
+     * @since 11.9RC1
+     */
+    @Unstable
+    default int getJobStatusStoreQueueSize()
+    {
+        return 0;
+    }
+
+    /**
+     * @return true if each written job status should be forced to the storage device before being considered saved
+     * @since 11.9RC1
+     */
+    @Unstable
+    default boolean isJobStatusStoreSync()
+    {
+        return false;
+    }
 }
@@ -0,0 +1,186 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.job;
+
+import java.util.Date;
+import java.util.List;
+
+import org.xwiki.job.event.status.JobStatus.State;
+import org.xwiki.stability.Unstable;
+
+/**
+ * A query to the stored job statuses.
+ * <p>
+ * The criteria are combined and the <code>null</code> ones are ignored. The matching statuses are returned from the
+ * most recently ended to the oldest one.
+ *
+ * @version $Id$
+ * @since 11.9RC1
+ */
+@Unstable
+public class JobStatusQuery
+{
+    private List<String> idPrefix;
+
+    private String jobType;
+
+    private State state;
+
+    private Date endedAfter;
+
+    private Date endedBefore;
+
+    private int limit = -1;
+
+    private int offset;
+
+    /**
+     * @return the beginning of the identifier of the jobs to return
+     */
+    public List<String> getIdPrefix()
+    {
+        return this.idPrefix;
+    }
+
+    /**
+     * @param idPrefix the beginning of the identifier of the jobs to return
+     * @return this query.
+     */
+    public JobStatusQuery setIdPrefix(List<String> idPrefix)
+    {
+        this.idPrefix = idPrefix;
+
+        return this;
+    }
+
+    /**
+     * @return the type of the jobs to return
+     */
+    public String getJobType()
+    {
+        return this.jobType;
+    }
+
+    /**
+     * @param jobType the type of the jobs to return
+     * @return this query.
+     */
+    public JobStatusQuery setJobType(String jobType)
+    {
+        this.jobType = jobType;
+
+        return this;
+    }
+
+    /**
+     * @return the state of the jobs to return
+     */
+    public State getState()
+    {
+        return this.state;
+    }
+
+    /**
+     * @param state the state of the jobs to return
+     * @return this query.
+     */
+    public JobStatusQuery setState(State state)
+    {
+        this.state = state;
+
+        return this;
+    }
+
+    /**
+     * @return only the jobs which ended after this date are returned
+     */
+    public Date getEndedAfter()
+    {
+        return this.endedAfter;
+    }
+
+    /**
+     * @param endedAfter only the jobs which ended after this date are returned
+     * @return this query.
+     */
+    public JobStatusQuery setEndedAfter(Date endedAfter)
+    {
+        this.endedAfter = endedAfter;
+
+        return this;
+    }
+
+    /**
+     * @return only the jobs which ended before this date are returned
+     */
+    public Date getEndedBefore()
+    {
+        return this.endedBefore;
+    }
+
+    /**
+     * @param endedBefore only the jobs which ended before this date are returned
+     * @return this query.
+     */
+    public JobStatusQuery setEndedBefore(Date endedBefore)
+    {
+        this.endedBefore = endedBefore;
+
+        return this;
+    }
+
+    /**
+     * @return the maximum number of statuses to return, -1 for no limit
+     */
+    public int getLimit()
+    {
+        return this.limit;
+    }
+
+    /**
+     * @param limit the maximum number of statuses to return, -1 for no limit
+     * @return this query.
+     */
+    public JobStatusQuery setLimit(int limit)
+    {
+        this.limit = limit;
+
+        return this;
+    }
+
+    /**
+     * @return the number of matching statuses to skip
+     */
+    public int getOffset()
+    {
+        return this.offset;
+    }
+
+    /**
+     * @param offset the number of matching statuses to skip
+     * @return this query.
+     */
+    public JobStatusQuery setOffset(int offset)
+    {
+        this.offset = offset;
+
+        return this;
+    }
+}
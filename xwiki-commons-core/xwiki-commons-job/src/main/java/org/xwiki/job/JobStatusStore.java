@@ -19,10 +19,13 @@
  */
 package org.xwiki.job;
 
+import java.util.Collections;
 import java.util.List;
 
 import org.xwiki.component.annotation.Role;
 import org.xwiki.job.event.status.JobStatus;
+import org.xwiki.logging.LogQueue;
+import org.xwiki.stability.Unstable;
 
 /**
  * Store and retrieve {@link JobStatus} instances.
@@ -53,4 +56,43 @@
      * @param id the id of the job
      */
     void remove(List<String> id);
+
+    /**
+     * Create the queue where to store the logs of a job which is about to start.
+     *
+     * @param status the status of the job
+     * @return the queue where to store the logs of the job
+     * @since 11.9RC1
+     */
+    @Unstable
+    default LogQueue createLog(JobStatus status)
+    {
+        return new LogQueue();
+    }
+
+    /**
+     * Start loading in the background the stored statuses of the jobs belonging to the passed group so that they are
+     * ready when requested.
+     *
+     * @param group the beginning of the identifiers of the jobs to load
+     * @since 11.9RC1
+     */
+    @Unstable
+    default void prefetch(List<String> group)
+    {
+        // Nothing to prefetch by default
+    }
+
+    /**
+     * Search the stored job statuses without loading them.
+     *
+     * @param query the criteria of the statuses to return
+     * @return the summaries of the matching statuses, from the most recently ended one
+     * @since 11.9RC1
+     */
+    @Unstable
+    default List<JobStatusSummary> search(JobStatusQuery query)
+    {
+        return Collections.emptyList();
+    }
 }
@@ -0,0 +1,166 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.job;
+
+import java.util.Date;
+import java.util.List;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.xwiki.job.event.status.JobStatus;
+import org.xwiki.job.event.status.JobStatus.State;
+import org.xwiki.logging.LogLevel;
+import org.xwiki.stability.Unstable;
+
+/**
+ * The main information about a stored job status, which can be obtained without loading the whole status.
+ *
+ * @version $Id$
+ * @since 11.9RC1
+ */
+@Unstable
+public class JobStatusSummary
+{
+    private final List<String> id;
+
+    private final String jobType;
+
+    private final State state;
+
+    private final Date startDate;
+
+    private final Date endDate;
+
+    private final double progress;
+
+    private final boolean error;
+
+    private final int errorLogCount;
+
+    /**
+     * @param status the job status
+     */
+    public JobStatusSummary(JobStatus status)
+    {
+        this(status.getRequest() != null ? status.getRequest().getId() : null, status.getJobType(),
+            status.getState(), status.getStartDate(), status.getEndDate(),
+            status.getProgress() != null ? status.getProgress().getOffset() : 0, status.getError() != null,
+            status.getLog() != null ? status.getLog().getLogCount(LogLevel.ERROR) : 0);
+    }
+
+    /**
+     * @param id the id of the job
+     * @param jobType the type of the job
+     * @param state the state of the job
+     * @param startDate the date when the job started
+     * @param endDate the date when the job ended
+     * @param progress the progress of the job, between 0 and 1
+     * @param error true if the job failed
+     * @param errorLogCount the number of error logs produced by the job, -1 if unknown
+     */
+    public JobStatusSummary(List<String> id, String jobType, State state, Date startDate, Date endDate,
+        double progress, boolean error, int errorLogCount)
+    {
+        this.id = id;
+        this.jobType = jobType;
+        this.state = state;
+        this.startDate = startDate;
+        this.endDate = endDate;
+        this.progress = progress;
+        this.error = error;
+        this.errorLogCount = errorLogCount;
+    }
+
+    /**
+     * @return the id of the job
+     */
+    public List<String> getId()
+    {
+        return this.id;
+    }
+
+    /**
+     * @return the type of the job
+     */
+    public String getJobType()
+    {
+        return this.jobType;
+    }
+
+    /**
+     * @return the state of the job
+     */
+    public State getState()
+    {
+        return this.state;
+    }
+
+    /**
+     * @return the date when the job started
+     */
+    public Date getStartDate()
+    {
+        return this.startDate;
+    }
+
+    /**
+     * @return the date when the job ended
+     */
+    public Date getEndDate()
+    {
+        return this.endDate;
+    }
+
+    /**
+     * @return the progress of the job, between 0 and 1
+     */
+    public double getProgress()
+    {
+        return this.progress;
+    }
+
+    /**
+     * @return true if the job failed
+     */
+    public boolean isError()
+    {
+        return this.error;
+    }
+
+    /**
+     * @return the number of error logs produced by the job, -1 if unknown
+     */
+    public int getErrorLogCount()
+    {
+        return this.errorLogCount;
+    }
+
+    @Override
+    public String toString()
+    {
+        ToStringBuilder builder = new ToStringBuilder(this);
+
+        builder.append("id", getId());
+        builder.append("jobType", getJobType());
+        builder.append("state", getState());
+        builder.append("endDate", getEndDate());
+
+        return builder.toString();
+    }
+}
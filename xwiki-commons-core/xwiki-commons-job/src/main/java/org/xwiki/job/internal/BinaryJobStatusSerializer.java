@@ -0,0 +1,324 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.job.internal;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.CountingInputStream;
+import org.xwiki.job.AbstractJobStatus;
+import org.xwiki.job.JobStatusSummary;
+import org.xwiki.job.event.status.JobStatus;
+import org.xwiki.job.event.status.JobStatus.State;
+import org.xwiki.job.internal.xstream.SafeXStream;
+import org.xwiki.logging.FileLogQueue;
+import org.xwiki.logging.LogQueue;
+
+import com.thoughtworks.xstream.XStream;
+
+/**
+ * Serialize/unserialize job statuses in a binary file made of three sections:
+ * <ul>
+ * <li>a header containing the main information about the job, see {@link #readSummary(File)}</li>
+ * <li>the status itself, serialized with XStream but without its log</li>
+ * <li>the log, in the format of {@link FileLogQueue}, loaded only when needed</li>
+ * </ul>
+ *
+ * @version $Id$
+ * @since 11.9RC1
+ */
+public class BinaryJobStatusSerializer extends JobStatusSerializer
+{
+    private static final int MAGIC = 0x58535442;
+
+    /**
+     * The current version of the format.
+     */
+    static final int FORMAT_VERSION = 3;
+
+    /**
+     * The first version of the format in which the log does not contain Java serialized objects. The log of the
+     * previous versions is ignored.
+     */
+    private static final int SAFE_LOG_VERSION = 3;
+
+    private static final State[] STATES = State.values();
+
+    /**
+     * Used to serialize and unserialize status, without the log.
+     */
+    private final XStream xstream;
+
+    /**
+     * Default constructor.
+     *
+     * @throws ParserConfigurationException when failing to initialize
+     */
+    public BinaryJobStatusSerializer() throws ParserConfigurationException
+    {
+        this.xstream = new SafeXStream();
+        this.xstream.omitField(AbstractJobStatus.class, "logs");
+    }
+
+    @Override
+    public void write(JobStatus status, OutputStream stream) throws IOException
+    {
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(stream));
+
+        output.writeInt(MAGIC);
+        output.writeInt(FORMAT_VERSION);
+
+        // Header
+        writeSummary(new JobStatusSummary(status), output);
+
+        // Status
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        OutputStreamWriter writer = new OutputStreamWriter(bytes, StandardCharsets.UTF_8);
+        this.xstream.toXML(status, writer);
+        writer.flush();
+        output.writeInt(bytes.size());
+        bytes.writeTo(output);
+
+        // Log
+        if (status instanceof AbstractJobStatus) {
+            FileLogQueue.write(status.getLog(), output);
+        }
+
+        output.flush();
+    }
+
+    /**
+     * @param summary the summary to write
+     * @param output the stream where to write the summary
+     * @throws IOException when failing to write the summary
+     */
+    static void writeSummary(JobStatusSummary summary, DataOutputStream output) throws IOException
+    {
+        writeId(summary.getId(), output);
+        writeString(summary.getJobType(), output);
+        output.writeInt(summary.getState() != null ? summary.getState().ordinal() : -1);
+        output.writeLong(summary.getStartDate() != null ? summary.getStartDate().getTime() : -1);
+        output.writeLong(summary.getEndDate() != null ? summary.getEndDate().getTime() : -1);
+        output.writeDouble(summary.getProgress());
+        output.writeBoolean(summary.isError());
+        output.writeInt(summary.getErrorLogCount());
+    }
+
+    /**
+     * @param id the job id to write
+     * @param output the stream where to write the id
+     * @throws IOException when failing to write the id
+     */
+    static void writeId(List<String> id, DataOutputStream output) throws IOException
+    {
+        if (id != null) {
+            output.writeInt(id.size());
+            for (String element : id) {
+                writeString(element, output);
+            }
+        } else {
+            output.writeInt(-1);
+        }
+    }
+
+    private static void writeString(String value, DataOutputStream output) throws IOException
+    {
+        output.writeBoolean(value != null);
+        if (value != null) {
+            output.writeUTF(value);
+        }
+    }
+
+    /**
+     * @param file the file to read
+     * @return the main information about the job
+     * @throws IOException when failing to read the file
+     */
+    public JobStatusSummary readSummary(File file) throws IOException
+    {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            return readHeader(input);
+        }
+    }
+
+    private JobStatusSummary readHeader(DataInputStream input) throws IOException
+    {
+        return readSummary(input, readVersion(input));
+    }
+
+    private int readVersion(DataInputStream input) throws IOException
+    {
+        if (input.readInt() != MAGIC) {
+            throw new IOException("Not a binary job status");
+        }
+        int version = input.readInt();
+        if (version > FORMAT_VERSION) {
+            throw new IOException("Unsupported job status format version [" + version + "]");
+        }
+
+        return version;
+    }
+
+    /**
+     * @param input the stream from where to read the summary
+     * @param version the version of the format in which the summary was written
+     * @return the summary
+     * @throws IOException when failing to read the summary
+     */
+    static JobStatusSummary readSummary(DataInputStream input, int version) throws IOException
+    {
+        List<String> id = readId(input);
+        String jobType = readString(input);
+        int state = input.readInt();
+        long startDate = input.readLong();
+        long endDate = input.readLong();
+        double progress = input.readDouble();
+        boolean error = input.readBoolean();
+        // The number of error logs was introduced in version 2
+        int errorLogCount = version >= 2 ? input.readInt() : -1;
+
+        return new JobStatusSummary(id, jobType, state >= 0 ? STATES[state] : null,
+            startDate >= 0 ? new Date(startDate) : null, endDate >= 0 ? new Date(endDate) : null, progress, error,
+            errorLogCount);
+    }
+
+    /**
+     * @param input the stream from where to read the id
+     * @return the job id
+     * @throws IOException when failing to read the id
+     */
+    static List<String> readId(DataInputStream input) throws IOException
+    {
+        List<String> id = null;
+        int idSize = input.readInt();
+        if (idSize >= 0) {
+            id = new ArrayList<>(idSize);
+            for (int i = 0; i < idSize; ++i) {
+                id.add(readString(input));
+            }
+        }
+
+        return id;
+    }
+
+    private static String readString(DataInputStream input) throws IOException
+    {
+        return input.readBoolean() ? input.readUTF() : null;
+    }
+
+    /**
+     * Read the status, the log being only loaded when accessed.
+     *
+     * @param file the file to read
+     * @return the status
+     */
+    @Override
+    public JobStatus read(File file)
+    {
+        try (CountingInputStream stream = new CountingInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            DataInputStream input = new DataInputStream(stream);
+            int version = readVersion(input);
+            JobStatus status = readStatus(input, version);
+
+            if (status instanceof AbstractJobStatus) {
+                ((AbstractJobStatus<?>) status).setLog(openLog(file, version, stream.getByteCount()));
+            }
+
+            return status;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read job status from file [" + file + "]", e);
+        }
+    }
+
+    /**
+     * @param stream the stream to read
+     * @return the status
+     */
+    @Override
+    public JobStatus read(InputStream stream)
+    {
+        try {
+            DataInputStream input = new DataInputStream(new BufferedInputStream(stream));
+            int version = readVersion(input);
+            JobStatus status = readStatus(input, version);
+
+            if (status instanceof AbstractJobStatus) {
+                ((AbstractJobStatus<?>) status)
+                    .setLog(version >= SAFE_LOG_VERSION ? FileLogQueue.read(input) : new LogQueue());
+            }
+
+            return status;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read job status", e);
+        }
+    }
+
+    private JobStatus readStatus(DataInputStream input, int version) throws IOException
+    {
+        readSummary(input, version);
+
+        byte[] bytes = new byte[input.readInt()];
+        input.readFully(bytes);
+
+        return (JobStatus) this.xstream.fromXML(new ByteArrayInputStream(bytes));
+    }
+
+    /**
+     * @param file the file to read
+     * @return the log stored in the file, loaded only when accessed
+     * @throws IOException when failing to read the file
+     */
+    public FileLogQueue readLog(File file) throws IOException
+    {
+        try (CountingInputStream stream = new CountingInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            DataInputStream input = new DataInputStream(stream);
+
+            int version = readVersion(input);
+            readSummary(input, version);
+            IOUtils.skipFully(input, input.readInt());
+
+            return openLog(file, version, stream.getByteCount());
+        }
+    }
+
+    private FileLogQueue openLog(File file, int version, long offset)
+    {
+        // Starting at the end of the file gives an empty log
+        return FileLogQueue.open(file, version >= SAFE_LOG_VERSION ? offset : file.length());
+    }
+}
@@ -88,4 +88,22 @@ public int getJobStatusCacheSize()
     {
         return this.configuration.get().getProperty("job.statusCacheSize", 50);
     }
+
+    @Override
+    public int getJobStatusLogMemorySize()
+    {
+        return this.configuration.get().getProperty("job.statusLogMemorySize", 10000);
+    }
+
+    @Override
+    public int getJobStatusStoreQueueSize()
+    {
+        return this.configuration.get().getProperty("job.statusStoreQueueSize", 100);
+    }
+
+    @Override
+    public boolean isJobStatusStoreSync()
+    {
+        return this.configuration.get().getProperty("job.statusStoreSync", false);
+    }
 }
@@ -23,9 +23,21 @@
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
@@ -38,19 +50,25 @@
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.apache.commons.lang3.mutable.MutableInt;
 import org.slf4j.Logger;
 import org.xwiki.cache.Cache;
 import org.xwiki.cache.CacheException;
 import org.xwiki.cache.CacheManager;
 import org.xwiki.cache.config.LRUCacheConfiguration;
 import org.xwiki.component.annotation.Component;
+import org.xwiki.component.phase.Disposable;
 import org.xwiki.component.phase.Initializable;
 import org.xwiki.component.phase.InitializationException;
 import org.xwiki.job.DefaultJobStatus;
 import org.xwiki.job.JobManagerConfiguration;
+import org.xwiki.job.JobStatusQuery;
 import org.xwiki.job.JobStatusStore;
+import org.xwiki.job.JobStatusSummary;
 import org.xwiki.job.annotation.Serializable;
 import org.xwiki.job.event.status.JobStatus;
+import org.xwiki.logging.FileLogQueue;
+import org.xwiki.logging.LogQueue;
 
 /**
  * Default implementation of {@link JobStatusStorage}.
@@ -60,18 +78,33 @@
  */
 @Component
 @Singleton
-public class DefaultJobStatusStore implements JobStatusStore, Initializable
+public class DefaultJobStatusStore implements JobStatusStore, Initializable, Disposable
 {
     /**
      * The current version of the store. Should be upgraded if any change is made.
      */
-    private static final int VERSION = 1;
+    private static final int VERSION = 3;
 
     /**
-     * The name of the file where the job status is stored.
+     * The name of the file where the job status used to be stored with XStream.
      */
     private static final String FILENAME_STATUS = "status.xml";
 
+    /**
+     * The name of the file where the job status is stored.
+     */
+    private static final String FILENAME_STATUS_BINARY = "status.bin";
+
+    /**
+     * The name of the file where the older logs of a running job are stored.
+     */
+    private static final String FILENAME_LOG = "log.dat";
+
+    /**
+     * The name of the file where the catalogue of the stored statuses is persisted.
+     */
+    private static final String FILENAME_INDEX = "index.dat";
+
     /**
      * The name of the file where various information about the status store are stored (like the version of the store).
      */
@@ -92,6 +125,16 @@ public class DefaultJobStatusStore implements JobStatusStore, Initializable
      */
     private static final String FOLDER_NULL = "&null";
 
+    /**
+     * The key used for the <code>null</code> id in the maps which don't support <code>null</code> keys.
+     */
+    private static final String NULL_ID = "\u0000";
+
+    /**
+     * The number of locks used to protect the access to the stored statuses.
+     */
+    private static final int LOCK_STRIPES = 64;
+
     private static final JobStatus NOSTATUS = new DefaultJobStatus<>(null, null, null, null, null);
 
     /**
@@ -111,26 +154,56 @@ public class DefaultJobStatusStore implements JobStatusStore, Initializable
 
     private JobStatusSerializer serializer;
 
-    private ExecutorService executorService;
+    private BinaryJobStatusSerializer binarySerializer;
 
     private Cache<JobStatus> cache;
 
-    class JobStatusSerializerRunnable implements Runnable
-    {
-        /**
-         * The status to store.
-         */
-        private final JobStatus status;
+    private JobStatusIndex index;
 
-        JobStatusSerializerRunnable(JobStatus status)
-        {
-            this.status = status;
-        }
+    /**
+     * The locks protecting the files of the statuses, the lock of a status is chosen based on its id.
+     */
+    private final Object[] locks = new Object[LOCK_STRIPES];
+
+    /**
+     * The statuses currently being loaded, to share the load between all the threads asking for the same status.
+     */
+    private final ConcurrentMap<String, CompletableFuture<JobStatus>> loading = new ConcurrentHashMap<>();
+
+    /**
+     * The statuses waiting to be written by the background writer, in the order they were stored.
+     */
+    private final Map<String, JobStatus> pendingWrites = new LinkedHashMap<>();
+
+    private int pendingWritesSize;
+
+    private boolean sync;
+
+    private boolean disposed;
 
+    private Thread writerThread;
+
+    private ExecutorService prefetchExecutor;
+
+    class JobStatusWriterRunnable implements Runnable
+    {
         @Override
         public void run()
         {
-            saveJobStatus(this.status);
+            List<Map.Entry<String, JobStatus>> batch;
+            while ((batch = nextWriteBatch()) != null) {
+                writePendingStatuses(batch);
+            }
+        }
+    }
+
+    /**
+     * Default constructor.
+     */
+    public DefaultJobStatusStore()
+    {
+        for (int i = 0; i < this.locks.length; ++i) {
+            this.locks[i] = new Object();
         }
     }
 
@@ -139,9 +212,13 @@ public void initialize() throws InitializationException
     {
         try {
             this.serializer = new JobStatusSerializer();
+            this.binarySerializer = new BinaryJobStatusSerializer();
 
             // Check if the store need to be upgraded
             File folder = this.configuration.getStorage();
+
+            this.index = new JobStatusIndex(new File(folder, FILENAME_INDEX));
+            boolean indexLoaded = this.index.load();
             File file = new File(folder, INDEX_FILE);
 
             FileBasedConfigurationBuilder<PropertiesConfiguration> builder =
@@ -149,7 +226,7 @@ public void initialize() throws InitializationException
                     .configure(new Parameters().properties().setFile(file));
             PropertiesConfiguration properties = builder.getConfiguration();
             int version = properties.getInt(INDEX_FILE_VERSION, 0);
-            if (VERSION > version) {
+            if (VERSION > version || !indexLoaded) {
                 repair();
 
                 // Update version
@@ -160,10 +237,18 @@ public void initialize() throws InitializationException
             this.logger.error("Failed to load jobs", e);
         }
 
-        BasicThreadFactory threadFactory = new BasicThreadFactory.Builder().namingPattern("Job status serializer")
-            .daemon(true).priority(Thread.MIN_PRIORITY).build();
-        this.executorService =
-            new ThreadPoolExecutor(0, 10, 60L, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(), threadFactory);
+        this.pendingWritesSize = this.configuration.getJobStatusStoreQueueSize();
+        this.sync = this.configuration.isJobStatusStoreSync();
+        if (this.pendingWritesSize > 0) {
+            this.writerThread = new BasicThreadFactory.Builder().namingPattern("Job status serializer").daemon(true)
+                .priority(Thread.MIN_PRIORITY).build().newThread(new JobStatusWriterRunnable());
+            this.writerThread.start();
+        }
+
+        BasicThreadFactory prefetchThreadFactory = new BasicThreadFactory.Builder()
+            .namingPattern("Job status prefetcher").daemon(true).priority(Thread.MIN_PRIORITY).build();
+        this.prefetchExecutor = new ThreadPoolExecutor(0, 1, 60L, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<Runnable>(), prefetchThreadFactory);
 
         // Initialize cache
         LRUCacheConfiguration cacheConfiguration =
@@ -175,11 +260,39 @@ public void initialize() throws InitializationException
         }
     }
 
+    @Override
+    public void dispose()
+    {
+        synchronized (this.pendingWrites) {
+            this.disposed = true;
+
+            this.pendingWrites.notifyAll();
+        }
+
+        this.prefetchExecutor.shutdownNow();
+
+        // Make sure all the stored statuses are written before leaving
+        if (this.writerThread != null) {
+            try {
+                this.writerThread.join();
+            } catch (InterruptedException e) {
+                this.logger.warn("Interrupted while waiting for the job statuses to be written");
+
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
     private String toUniqueString(List<String> id)
     {
         return StringUtils.join(id, '/');
     }
 
+    private Object getLock(String idString)
+    {
+        return this.locks[idString != null ? Math.floorMod(idString.hashCode(), this.locks.length) : 0];
+    }
+
     /**
      * @param name the file or directory name to encode
      * @return the encoding name
@@ -212,39 +325,42 @@ private void repair() throws IOException
     {
         File folder = this.configuration.getStorage();
 
+        Map<List<String>, JobStatusSummary> summaries = new HashMap<>();
+
         if (folder.exists()) {
             if (!folder.isDirectory()) {
                 throw new IOException("Not a directory: " + folder);
             }
 
-            repairFolder(folder);
+            repairFolder(folder, summaries);
         }
+
+        // Rebuild the index
+        this.index.reset(summaries.values());
     }
 
     /**
      * @param folder the folder from where to load the jobs
+     * @param summaries the summaries of the found statuses
      */
-    private void repairFolder(File folder)
+    private void repairFolder(File folder, Map<List<String>, JobStatusSummary> summaries)
     {
         for (File file : folder.listFiles()) {
             if (file.isDirectory()) {
-                repairFolder(file);
+                repairFolder(file, summaries);
+            } else if (file.getName().equals(FILENAME_STATUS_BINARY)) {
+                try {
+                    JobStatusSummary summary = this.binarySerializer.readSummary(file);
+
+                    moveStatusFile(file, getJobFolder(summary.getId()));
+
+                    summaries.put(summary.getId(), summary);
+                } catch (Exception e) {
+                    this.logger.warn("Failed to load job status in folder [{}]", folder, e);
+                }
             } else if (file.getName().equals(FILENAME_STATUS)) {
                 try {
-                    JobStatus status = loadStatus(folder);
-
-                    if (status != null) {
-                        File properFolder = getJobFolder(status.getRequest().getId());
-
-                        if (!folder.equals(properFolder)) {
-                            // Move the status in its right place
-                            try {
-                                FileUtils.moveFileToDirectory(file, properFolder, true);
-                            } catch (IOException e) {
-                                this.logger.error("Failed to move job status file", e);
-                            }
-                        }
-                    }
+                    migrateStatusFile(file, summaries);
                 } catch (Exception e) {
                     this.logger.warn("Failed to load job status in folder [{}]", folder, e);
                 }
@@ -252,6 +368,46 @@ private void repairFolder(File folder)
         }
     }
 
+    private void moveStatusFile(File file, File properFolder)
+    {
+        if (!file.getParentFile().equals(properFolder)) {
+            // Move the status in its right place
+            try {
+                FileUtils.moveFileToDirectory(file, properFolder, true);
+            } catch (IOException e) {
+                this.logger.error("Failed to move job status file", e);
+            }
+        }
+    }
+
+    /**
+     * Convert a status stored with XStream to the binary format, in the right folder.
+     *
+     * @param file the XStream status file
+     * @param summaries the summaries of the found statuses
+     * @throws IOException when failing to convert the status
+     */
+    private void migrateStatusFile(File file, Map<List<String>, JobStatusSummary> summaries) throws IOException
+    {
+        JobStatus status = loadJobStatus(file);
+
+        if (status != null) {
+            File properFolder = getJobFolder(status.getRequest().getId());
+            File binaryFile = new File(properFolder, FILENAME_STATUS_BINARY);
+
+            if (binaryFile.exists()) {
+                // Already migrated (the XStream version is just an old leftover)
+                moveStatusFile(file, properFolder);
+            } else {
+                this.binarySerializer.write(status, binaryFile);
+
+                Files.delete(file.toPath());
+
+                summaries.put(status.getRequest().getId(), new JobStatusSummary(status));
+            }
+        }
+    }
+
     private JobStatus loadStatus(List<String> id)
     {
         return loadStatus(getJobFolder(id));
@@ -262,7 +418,21 @@ private JobStatus loadStatus(List<String> id)
      */
     private JobStatus loadStatus(File folder)
     {
-        File statusFile = new File(folder, FILENAME_STATUS);
+        File statusFile = new File(folder, FILENAME_STATUS_BINARY);
+        if (statusFile.exists()) {
+            JobStatus status = this.binarySerializer.read(statusFile);
+
+            // The log of a finished job is entirely in the status file, the log file is a leftover of the time the job
+            // was running which was kept for the instance of the status in use at that time
+            if (status != null && status.getState() == JobStatus.State.FINISHED) {
+                deleteLogFile(folder);
+            }
+
+            return status;
+        }
+
+        // Not migrated yet
+        statusFile = new File(folder, FILENAME_STATUS);
         if (statusFile.exists()) {
             return loadJobStatus(statusFile);
         }
@@ -270,6 +440,15 @@ private JobStatus loadStatus(File folder)
         return null;
     }
 
+    private void deleteLogFile(File folder)
+    {
+        try {
+            Files.deleteIfExists(new File(folder, FILENAME_LOG).toPath());
+        } catch (IOException e) {
+            this.logger.warn("Failed to delete the log file of the job status stored in [{}]", folder, e);
+        }
+    }
+
     /**
      * @param statusFile the file containing job status to load
      * @return the job status
@@ -304,19 +483,75 @@ private File getJobFolder(List<String> id)
      * @throws IOException when falling to store the provided status
      */
     private void saveJobStatus(JobStatus status)
+    {
+        synchronized (getLock(toUniqueString(status.getRequest().getId()))) {
+            saveJobStatusFile(status);
+        }
+    }
+
+    private void saveJobStatusFile(JobStatus status)
+    {
+        if (writeJobStatusFile(status, this.sync) != null) {
+            try {
+                this.index.put(new JobStatusSummary(status));
+            } catch (IOException e) {
+                this.logger.warn("Failed to add job status [{}] to the index", status, e);
+            }
+        }
+    }
+
+    /**
+     * @param status the job status to write
+     * @param fileSync true if the status file should be forced to the storage device before returning
+     * @return the written file or {@code null} if the status could not be written
+     */
+    private File writeJobStatusFile(JobStatus status, boolean fileSync)
     {
         try {
-            File statusFile = getJobFolder(status.getRequest().getId());
-            statusFile = new File(statusFile, FILENAME_STATUS);
+            File folder = getJobFolder(status.getRequest().getId());
+            File statusFile = new File(folder, FILENAME_STATUS_BINARY);
 
             this.logger.debug("Serializing status [{}] in [{}]", status.getRequest().getId(), statusFile);
 
-            this.serializer.write(status, statusFile);
+            LogQueue log = status.getLog();
+
+            this.binarySerializer.write(status, statusFile, fileSync);
+
+            // Don't let an old XStream version shadow the new status
+            Files.deleteIfExists(new File(folder, FILENAME_STATUS).toPath());
+
+            // The status might be in use elsewhere so it's not modified: when its log was read from the previous
+            // version of the status file (which does not exist anymore) the status is loaded again from the new file
+            // the next time it's asked
+            if (log instanceof FileLogQueue && ((FileLogQueue) log).getFile().equals(statusFile)) {
+                evict(toUniqueString(status.getRequest().getId()), status);
+            }
+
+            return statusFile;
         } catch (Exception e) {
             this.logger.warn("Failed to save job status [{}]", status, e);
+
+            return null;
         }
     }
 
+    /**
+     * Remove the passed status from the cache, unless it has been replaced in the meantime.
+     *
+     * @param idString the id of the status
+     * @param status the status to remove from the cache
+     */
+    private void evict(String idString, JobStatus status)
+    {
+        this.loading.compute(idString != null ? idString : NULL_ID, (k, v) -> {
+            if (this.cache.get(idString) == status) {
+                this.cache.remove(idString);
+            }
+
+            return v;
+        });
+    }
+
     @Override
     public JobStatus getJobStatus(List<String> id)
     {
@@ -331,23 +566,108 @@ public JobStatus getJobStatus(List<String> id)
         return status == NOSTATUS ? null : status;
     }
 
-    private synchronized JobStatus maybeLoadStatus(List<String> id, String idString)
+    private JobStatus maybeLoadStatus(List<String> id, String idString)
     {
+        String key = idString != null ? idString : NULL_ID;
+
+        CompletableFuture<JobStatus> future = new CompletableFuture<>();
+        CompletableFuture<JobStatus> currentFuture = this.loading.putIfAbsent(key, future);
+
+        if (currentFuture != null) {
+            // Someone else is already loading this status
+            return currentFuture.join();
+        }
+
         JobStatus status = this.cache.get(idString);
 
         if (status == null) {
             try {
-                status = loadStatus(id);
+                status = loadPendingOrStoredStatus(id, idString);
+
+                JobStatus loadedStatus = status;
+                this.loading.computeIfPresent(key, (k, v) -> {
+                    // Don't overwrite a status stored while loading
+                    if (v == future) {
+                        this.cache.set(idString, loadedStatus);
+
+                        return null;
+                    }
 
-                this.cache.set(idString, status);
+                    return v;
+                });
             } catch (Exception e) {
                 this.logger.warn("Failed to load job status for id {}", id, e);
 
-                this.cache.remove(idString);
+                this.loading.remove(key, future);
             }
+        } else {
+            this.loading.remove(key, future);
         }
 
-        return status;
+        // Does nothing if a status was stored while loading
+        future.complete(status);
+
+        return future.join();
+    }
+
+    private JobStatus loadPendingOrStoredStatus(List<String> id, String idString)
+    {
+        // A status waiting to be written is more recent than the one on the file system
+        synchronized (this.pendingWrites) {
+            JobStatus status = this.pendingWrites.get(idString);
+            if (status != null) {
+                return status;
+            }
+        }
+
+        JobStatus status;
+        synchronized (getLock(idString)) {
+            status = loadStatus(id);
+        }
+
+        return status != null ? status : NOSTATUS;
+    }
+
+    @Override
+    public void prefetch(List<String> group)
+    {
+        File folder = getJobFolder(group);
+
+        if (folder.isDirectory()) {
+            // Don't load more statuses than what the cache can hold
+            MutableInt remaining = new MutableInt(this.configuration.getJobStatusCacheSize());
+
+            this.prefetchExecutor.execute(() -> prefetchFolder(folder, remaining));
+        }
+    }
+
+    private void prefetchFolder(File folder, MutableInt remaining)
+    {
+        File[] files = folder.listFiles();
+
+        if (files == null) {
+            return;
+        }
+
+        for (File file : files) {
+            if (remaining.intValue() <= 0 || Thread.currentThread().isInterrupted()) {
+                return;
+            }
+
+            if (file.isDirectory()) {
+                prefetchFolder(file, remaining);
+            } else if (file.getName().equals(FILENAME_STATUS_BINARY)) {
+                try {
+                    List<String> id = this.binarySerializer.readSummary(file).getId();
+
+                    getJobStatus(id);
+
+                    remaining.decrement();
+                } catch (Exception e) {
+                    this.logger.debug("Failed to prefetch job status [{}]", file, e);
+                }
+            }
+        }
     }
 
     @Override
@@ -365,25 +685,150 @@ public void storeAsync(JobStatus status)
     private void store(JobStatus status, boolean async)
     {
         if (status != null && status.getRequest() != null && status.getRequest().getId() != null) {
-            synchronized (this.cache) {
-                String id = toUniqueString(status.getRequest().getId());
+            String id = toUniqueString(status.getRequest().getId());
 
-                this.logger.debug("Store status [{}] in cache", id);
+            this.logger.debug("Store status [{}] in cache", id);
 
+            this.loading.compute(id, (k, v) -> {
                 this.cache.set(id, status);
-            }
+
+                // Give the stored status to the threads waiting for it to be loaded
+                if (v != null) {
+                    v.complete(status);
+                }
+
+                return null;
+            });
 
             // Only store Serializable job status on file system
             if (isSerializable(status)) {
-                if (async) {
-                    this.executorService.execute(new JobStatusSerializerRunnable(status));
-                } else {
+                if (!async || !addPendingWrite(id, status)) {
+                    synchronized (this.pendingWrites) {
+                        // Make sure an older version is not going to be written after this one
+                        this.pendingWrites.remove(id);
+                    }
+
                     saveJobStatus(status);
                 }
             }
         }
     }
 
+    private boolean addPendingWrite(String id, JobStatus status)
+    {
+        synchronized (this.pendingWrites) {
+            if (this.disposed || this.writerThread == null) {
+                return false;
+            }
+
+            // Replace the previous version waiting to be written or add the status if there is room for it
+            if (this.pendingWrites.containsKey(id) || this.pendingWrites.size() < this.pendingWritesSize) {
+                this.pendingWrites.put(id, status);
+
+                this.pendingWrites.notifyAll();
+
+                return true;
+            }
+
+            return false;
+        }
+    }
+
+    private List<Map.Entry<String, JobStatus>> nextWriteBatch()
+    {
+        synchronized (this.pendingWrites) {
+            while (this.pendingWrites.isEmpty()) {
+                if (this.disposed) {
+                    return null;
+                }
+
+                try {
+                    this.pendingWrites.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+
+                    return null;
+                }
+            }
+
+            List<Map.Entry<String, JobStatus>> batch = new ArrayList<>(this.pendingWrites.size());
+            for (Map.Entry<String, JobStatus> entry : this.pendingWrites.entrySet()) {
+                batch.add(new AbstractMap.SimpleImmutableEntry<>(entry));
+            }
+
+            return batch;
+        }
+    }
+
+    private void writePendingStatuses(List<Map.Entry<String, JobStatus>> batch)
+    {
+        List<Map.Entry<String, JobStatus>> written = new ArrayList<>(batch.size());
+        List<File> files = new ArrayList<>(batch.size());
+
+        // Write all the status files of the batch without waiting for the storage device
+        for (Map.Entry<String, JobStatus> entry : batch) {
+            synchronized (getLock(entry.getKey())) {
+                if (isPendingWrite(entry)) {
+                    File file = writeJobStatusFile(entry.getValue(), false);
+
+                    if (file != null) {
+                        written.add(entry);
+                        files.add(file);
+                    }
+                }
+            }
+        }
+
+        // Flush them all at once
+        if (this.sync) {
+            for (File file : files) {
+                forceFile(file);
+            }
+        }
+
+        List<JobStatusSummary> summaries = new ArrayList<>(written.size());
+        synchronized (this.pendingWrites) {
+            for (Map.Entry<String, JobStatus> entry : written) {
+                // Don't index a status which was removed or stored again in the meantime
+                if (this.pendingWrites.remove(entry.getKey(), entry.getValue())) {
+                    summaries.add(new JobStatusSummary(entry.getValue()));
+                }
+            }
+
+            // Forget the statuses which could not be written
+            for (Map.Entry<String, JobStatus> entry : batch) {
+                this.pendingWrites.remove(entry.getKey(), entry.getValue());
+            }
+
+            // Update the index while holding the lock to make sure a concurrent remove or synchronous store is
+            // indexed after this batch
+            try {
+                this.index.put(summaries);
+            } catch (IOException e) {
+                this.logger.warn("Failed to add job statuses to the index", e);
+            }
+        }
+    }
+
+    private boolean isPendingWrite(Map.Entry<String, JobStatus> entry)
+    {
+        synchronized (this.pendingWrites) {
+            // Skip the status if it was removed or replaced by a more recent version in the meantime
+            return this.pendingWrites.get(entry.getKey()) == entry.getValue();
+        }
+    }
+
+    private void forceFile(File file)
+    {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+            channel.force(true);
+        } catch (NoSuchFileException e) {
+            this.logger.debug("Job status file [{}] was removed before being flushed", file, e);
+        } catch (IOException e) {
+            this.logger.warn("Failed to flush job status file [{}]", file, e);
+        }
+    }
+
     private boolean isSerializable(JobStatus status)
     {
         if (!status.isSerialized()) {
@@ -398,19 +843,63 @@ private boolean isSerializable(JobStatus status)
         return status instanceof java.io.Serializable;
     }
 
+    @Override
+    public LogQueue createLog(JobStatus status)
+    {
+        int memorySize = this.configuration.getJobStatusLogMemorySize();
+
+        // Only keep the logs in a file next to the status when the status itself is stored on the file system
+        if (memorySize > 0 && status.getRequest() != null && status.getRequest().getId() != null
+            && isSerializable(status)) {
+            return new FileLogQueue(new File(getJobFolder(status.getRequest().getId()), FILENAME_LOG), memorySize);
+        }
+
+        return new LogQueue();
+    }
+
     @Override
     public void remove(List<String> id)
     {
+        String idString = toUniqueString(id);
+
         File jobFolder = getJobFolder(id);
 
-        if (jobFolder.exists()) {
+        synchronized (getLock(idString)) {
+            synchronized (this.pendingWrites) {
+                this.pendingWrites.remove(idString);
+            }
+
+            if (jobFolder.exists()) {
+                try {
+                    FileUtils.deleteDirectory(jobFolder);
+                } catch (IOException e) {
+                    this.logger.warn("Failed to delete job folder [{}]", jobFolder, e);
+                }
+            }
+
             try {
-                FileUtils.deleteDirectory(jobFolder);
+                this.index.remove(id);
             } catch (IOException e) {
-                this.logger.warn("Failed to delete job folder [{}]", jobFolder, e);
+                this.logger.warn("Failed to remove job status [{}] from the index", id, e);
             }
         }
 
-        this.cache.remove(toUniqueString(id));
+        this.loading.compute(idString != null ? idString : NULL_ID, (k, v) -> {
+            this.cache.remove(idString);
+
+            // Make sure a status loaded before the removal is not put back in the cache and give the threads waiting for
+            // it the fact that there isn't any status anymore
+            if (v != null) {
+                v.complete(NOSTATUS);
+            }
+
+            return null;
+        });
+    }
+
+    @Override
+    public List<JobStatusSummary> search(JobStatusQuery query)
+    {
+        return this.index.search(query);
     }
 }
@@ -0,0 +1,332 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.job.internal;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.xwiki.job.JobStatusQuery;
+import org.xwiki.job.JobStatusSummary;
+
+/**
+ * A catalogue of the stored job statuses, kept in memory and persisted in an append only file.
+ * <p>
+ * Each change is appended to the file as a record and the file is rewritten from scratch when it contains too many
+ * outdated records.
+ *
+ * @version $Id$
+ * @since 11.9RC1
+ */
+public class JobStatusIndex
+{
+    private static final int MAGIC = 0x58534958;
+
+    private static final byte RECORD_PUT = 1;
+
+    private static final byte RECORD_REMOVE = 2;
+
+    /**
+     * The number of outdated records to accept in the file before rewriting it.
+     */
+    private static final int COMPACT_THRESHOLD = 1000;
+
+    private static final Comparator<JobStatusSummary> ORDER = Comparator.comparing(JobStatusSummary::getEndDate,
+        Comparator.nullsLast(Comparator.<Date>reverseOrder()));
+
+    private final File file;
+
+    private final Map<List<String>, JobStatusSummary> entries = new HashMap<>();
+
+    private int records;
+
+    /**
+     * @param file the file where the index is persisted
+     */
+    public JobStatusIndex(File file)
+    {
+        this.file = file;
+    }
+
+    /**
+     * Load the index from the file.
+     *
+     * @return false if there was no valid index to load
+     */
+    public synchronized boolean load()
+    {
+        this.entries.clear();
+        this.records = 0;
+
+        if (!this.file.exists()) {
+            return false;
+        }
+
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(this.file)))) {
+            if (input.readInt() != MAGIC) {
+                return false;
+            }
+            int version = input.readInt();
+            if (version > BinaryJobStatusSerializer.FORMAT_VERSION) {
+                return false;
+            }
+
+            readRecords(input, version);
+        } catch (IOException e) {
+            this.entries.clear();
+
+            return false;
+        }
+
+        return true;
+    }
+
+    private void readRecords(DataInputStream input, int version) throws IOException
+    {
+        while (true) {
+            int type = input.read();
+            if (type == -1) {
+                break;
+            }
+
+            try {
+                if (type == RECORD_PUT) {
+                    JobStatusSummary summary = BinaryJobStatusSerializer.readSummary(input, version);
+                    this.entries.put(summary.getId(), summary);
+                } else if (type == RECORD_REMOVE) {
+                    removeEntries(BinaryJobStatusSerializer.readId(input));
+                } else {
+                    throw new IOException("Unknown job status index record type [" + type + "]");
+                }
+            } catch (EOFException e) {
+                // The last record was not fully written, forget about it and make sure the file is rewritten
+                // before anything is appended to it
+                this.records = Integer.MAX_VALUE;
+
+                break;
+            }
+
+            ++this.records;
+        }
+    }
+
+    /**
+     * Replace the whole content of the index.
+     *
+     * @param summaries the new content of the index
+     * @throws IOException when failing to write the index
+     */
+    public synchronized void reset(Collection<JobStatusSummary> summaries) throws IOException
+    {
+        this.entries.clear();
+        for (JobStatusSummary summary : summaries) {
+            this.entries.put(summary.getId(), summary);
+        }
+
+        save();
+    }
+
+    /**
+     * Add or replace the summary of a status.
+     *
+     * @param summary the summary of the stored status
+     * @throws IOException when failing to write the index
+     */
+    public synchronized void put(JobStatusSummary summary) throws IOException
+    {
+        this.entries.put(summary.getId(), summary);
+
+        append(RECORD_PUT, summary, null);
+    }
+
+    /**
+     * Add or replace the summaries of several statuses, appending all the records to the file at once.
+     *
+     * @param summaries the summaries of the stored statuses
+     * @throws IOException when failing to write the index
+     */
+    public synchronized void put(Collection<JobStatusSummary> summaries) throws IOException
+    {
+        if (summaries.isEmpty()) {
+            return;
+        }
+
+        for (JobStatusSummary summary : summaries) {
+            this.entries.put(summary.getId(), summary);
+        }
+
+        if (mustSave()) {
+            save();
+
+            return;
+        }
+
+        try (DataOutputStream output =
+            new DataOutputStream(new BufferedOutputStream(new FileOutputStream(this.file, true)))) {
+            for (JobStatusSummary summary : summaries) {
+                output.writeByte(RECORD_PUT);
+                BinaryJobStatusSerializer.writeSummary(summary, output);
+            }
+        }
+
+        this.records += summaries.size();
+    }
+
+    /**
+     * Remove the status with the passed id and all the statuses with an id starting with it.
+     *
+     * @param id the id of the job
+     * @throws IOException when failing to write the index
+     */
+    public synchronized void remove(List<String> id) throws IOException
+    {
+        removeEntries(id);
+
+        append(RECORD_REMOVE, null, id);
+    }
+
+    private void removeEntries(List<String> id)
+    {
+        this.entries.keySet().removeIf(entryId -> startsWith(entryId, id));
+    }
+
+    /**
+     * @param query the criteria of the statuses to return
+     * @return the summaries of the matching statuses, from the most recently ended one
+     */
+    public List<JobStatusSummary> search(JobStatusQuery query)
+    {
+        List<JobStatusSummary> summaries;
+        synchronized (this) {
+            summaries = new ArrayList<>(this.entries.values());
+        }
+
+        Stream<JobStatusSummary> stream = summaries.stream().filter(summary -> matches(summary, query)).sorted(ORDER)
+            .skip(query.getOffset());
+        if (query.getLimit() >= 0) {
+            stream = stream.limit(query.getLimit());
+        }
+
+        return stream.collect(Collectors.toList());
+    }
+
+    /**
+     * @return the number of statuses in the index
+     */
+    public synchronized int size()
+    {
+        return this.entries.size();
+    }
+
+    private boolean matches(JobStatusSummary summary, JobStatusQuery query)
+    {
+        if (query.getIdPrefix() != null && !startsWith(summary.getId(), query.getIdPrefix())) {
+            return false;
+        }
+        if (query.getJobType() != null && !query.getJobType().equals(summary.getJobType())) {
+            return false;
+        }
+        if (query.getState() != null && query.getState() != summary.getState()) {
+            return false;
+        }
+        if (query.getEndedAfter() != null
+            && (summary.getEndDate() == null || !summary.getEndDate().after(query.getEndedAfter()))) {
+            return false;
+        }
+
+        return query.getEndedBefore() == null
+            || (summary.getEndDate() != null && summary.getEndDate().before(query.getEndedBefore()));
+    }
+
+    private boolean startsWith(List<String> id, List<String> prefix)
+    {
+        if (prefix == null || prefix.isEmpty()) {
+            return true;
+        }
+
+        return id != null && id.size() >= prefix.size() && id.subList(0, prefix.size()).equals(prefix);
+    }
+
+    private void append(byte type, JobStatusSummary summary, List<String> id) throws IOException
+    {
+        if (mustSave()) {
+            save();
+
+            return;
+        }
+
+        try (DataOutputStream output =
+            new DataOutputStream(new BufferedOutputStream(new FileOutputStream(this.file, true)))) {
+            output.writeByte(type);
+            if (type == RECORD_PUT) {
+                BinaryJobStatusSerializer.writeSummary(summary, output);
+            } else {
+                BinaryJobStatusSerializer.writeId(id, output);
+            }
+        }
+
+        ++this.records;
+    }
+
+    private boolean mustSave()
+    {
+        // Rewrite the file when it's missing (for example because the whole store was removed) or too big
+        return !this.file.exists() || this.records - this.entries.size() > COMPACT_THRESHOLD;
+    }
+
+    private void save() throws IOException
+    {
+        this.file.getParentFile().mkdirs();
+
+        File tempFile = new File(this.file.getParentFile(), this.file.getName() + ".tmp");
+        try (DataOutputStream output =
+            new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+            output.writeInt(MAGIC);
+            // The records are written in the format of the job status headers
+            output.writeInt(BinaryJobStatusSerializer.FORMAT_VERSION);
+
+            for (JobStatusSummary summary : this.entries.values()) {
+                output.writeByte(RECORD_PUT);
+                BinaryJobStatusSerializer.writeSummary(summary, output);
+            }
+        }
+
+        Files.move(tempFile.toPath(), this.file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+        this.records = this.entries.size();
+    }
+}
@@ -71,11 +71,27 @@ public JobStatusSerializer() throws ParserConfigurationException
      * @throws IOException when failing to serialize the status
      */
     public void write(JobStatus status, File file) throws IOException
+    {
+        write(status, file, false);
+    }
+
+    /**
+     * @param status the status to serialize
+     * @param file the file to serialize the status to
+     * @param sync true if the content of the file should be forced to the storage device before returning
+     * @throws IOException when failing to serialize the status
+     * @since 11.9RC1
+     */
+    public void write(JobStatus status, File file, boolean sync) throws IOException
     {
         File tempFile = File.createTempFile(file.getName(), ".tmp");
 
         try (FileOutputStream stream = FileUtils.openOutputStream(tempFile)) {
             write(status, stream);
+
+            if (sync) {
+                stream.getFD().sync();
+            }
         }
 
         // Copy the file to its final destination
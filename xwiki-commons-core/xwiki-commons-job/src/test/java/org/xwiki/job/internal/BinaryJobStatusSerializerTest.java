@@ -0,0 +1,173 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.job.internal;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Date;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xwiki.job.DefaultJobStatus;
+import org.xwiki.job.DefaultRequest;
+import org.xwiki.job.JobStatusSummary;
+import org.xwiki.job.event.status.JobStatus;
+import org.xwiki.logging.FileLogQueue;
+import org.xwiki.logging.LogLevel;
+import org.xwiki.logging.marker.TranslationMarker;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Validate {@link BinaryJobStatusSerializer}.
+ *
+ * @version $Id$
+ */
+public class BinaryJobStatusSerializerTest
+{
+    private BinaryJobStatusSerializer serializer;
+
+    private File testFile = new File("target/test/status.bin");
+
+    private DefaultJobStatus<DefaultRequest> status;
+
+    @BeforeEach
+    public void before() throws Exception
+    {
+        this.serializer = new BinaryJobStatusSerializer();
+
+        DefaultRequest request = new DefaultRequest();
+        request.setId(Arrays.asList("id1", null, "id3"));
+        request.setProperty("property", "value");
+
+        this.status = new DefaultJobStatus<>("type", request, null, null, null);
+        this.status.setState(JobStatus.State.FINISHED);
+        this.status.setStartDate(new Date(1000));
+        this.status.setEndDate(new Date(2000));
+        this.status.setError(new Exception("failed"));
+
+        this.status.getLog().error(new TranslationMarker("translation.key"), "error message {}", 42,
+            new Exception("exception"));
+        for (int i = 0; i < 200; ++i) {
+            this.status.getLog().info("message {}", i);
+        }
+    }
+
+    private void assertStatus(JobStatus readStatus)
+    {
+        assertEquals(Arrays.asList("id1", null, "id3"), readStatus.getRequest().getId());
+        assertEquals("value", readStatus.getRequest().getProperty("property"));
+        assertEquals("type", readStatus.getJobType());
+        assertEquals(JobStatus.State.FINISHED, readStatus.getState());
+        assertEquals(new Date(1000), readStatus.getStartDate());
+        assertEquals("failed", readStatus.getError().getMessage());
+
+        assertEquals(201, readStatus.getLog().size());
+        assertEquals("error message 42", readStatus.getLog().peek().getFormattedMessage());
+        assertEquals("42", readStatus.getLog().peek().getArgumentArray()[0]);
+        assertEquals("exception", readStatus.getLog().peek().getThrowable().getMessage());
+        assertEquals(new TranslationMarker("translation.key"), readStatus.getLog().peek().getMarker());
+        assertEquals("message 199", readStatus.getLog().getLogs(200, 1).get(0).getFormattedMessage());
+        assertEquals(1, readStatus.getLog().getLogCount(LogLevel.ERROR));
+    }
+
+    @Test
+    public void writeReadFile() throws Exception
+    {
+        this.serializer.write(this.status, this.testFile);
+
+        JobStatus readStatus = this.serializer.read(this.testFile);
+
+        assertTrue(readStatus.getLog() instanceof FileLogQueue);
+        assertStatus(readStatus);
+    }
+
+    @Test
+    public void writeReadStream() throws Exception
+    {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        this.serializer.write(this.status, stream);
+
+        JobStatus readStatus = this.serializer.read(new ByteArrayInputStream(stream.toByteArray()));
+
+        assertFalse(readStatus.getLog() instanceof FileLogQueue);
+        assertStatus(readStatus);
+    }
+
+    @Test
+    public void readSummary() throws Exception
+    {
+        this.serializer.write(this.status, this.testFile);
+
+        JobStatusSummary summary = this.serializer.readSummary(this.testFile);
+
+        assertEquals(Arrays.asList("id1", null, "id3"), summary.getId());
+        assertEquals("type", summary.getJobType());
+        assertEquals(JobStatus.State.FINISHED, summary.getState());
+        assertEquals(new Date(1000), summary.getStartDate());
+        assertEquals(new Date(2000), summary.getEndDate());
+        assertEquals(0D, summary.getProgress());
+        assertTrue(summary.isError());
+        assertEquals(1, summary.getErrorLogCount());
+    }
+
+    @Test
+    public void writeReadWithoutLogAndDates() throws Exception
+    {
+        this.status = new DefaultJobStatus<>(null, new DefaultRequest(), null, null, null);
+
+        this.serializer.write(this.status, this.testFile);
+
+        JobStatusSummary summary = this.serializer.readSummary(this.testFile);
+
+        assertNull(summary.getId());
+        assertNull(summary.getJobType());
+        assertNull(summary.getStartDate());
+        assertFalse(summary.isError());
+
+        assertTrue(this.serializer.read(this.testFile).getLog().isEmpty());
+        assertTrue(this.serializer.readLog(this.testFile).isEmpty());
+    }
+
+    @Test
+    public void ignoreLogOfPreviousFormat() throws Exception
+    {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        this.serializer.write(this.status, stream);
+        byte[] bytes = stream.toByteArray();
+        // The version follows the magic number
+        ByteBuffer.wrap(bytes).putInt(Integer.BYTES, 2);
+
+        JobStatus readStatus = this.serializer.read(new ByteArrayInputStream(bytes));
+        assertEquals("type", readStatus.getJobType());
+        assertTrue(readStatus.getLog().isEmpty());
+
+        Files.write(this.testFile.toPath(), bytes);
+        assertTrue(this.serializer.read(this.testFile).getLog().isEmpty());
+        assertTrue(this.serializer.readLog(this.testFile).isEmpty());
+    }
+}
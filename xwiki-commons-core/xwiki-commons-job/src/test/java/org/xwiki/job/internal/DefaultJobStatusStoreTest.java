@@ -20,8 +20,13 @@
 package org.xwiki.job.internal;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.commons.io.FileUtils;
 import org.junit.jupiter.api.Test;
@@ -31,7 +36,11 @@
 import org.xwiki.job.DefaultJobStatus;
 import org.xwiki.job.DefaultRequest;
 import org.xwiki.job.JobManagerConfiguration;
+import org.xwiki.job.JobStatusQuery;
+import org.xwiki.job.JobStatusSummary;
 import org.xwiki.job.event.status.JobStatus;
+import org.xwiki.logging.FileLogQueue;
+import org.xwiki.logging.LogQueue;
 import org.xwiki.test.annotation.BeforeComponent;
 import org.xwiki.test.junit5.mockito.ComponentTest;
 import org.xwiki.test.junit5.mockito.InjectComponentManager;
@@ -66,6 +75,8 @@
     @MockComponent
     private JobStatusSerializer serializer;
 
+    private MapCache<Object> cache = new MapCache<>();
+
     @BeforeComponent
     public void before() throws Exception
     {
@@ -74,8 +85,9 @@ public void before() throws Exception
 
         when(this.jobManagerConfiguration.getStorage()).thenReturn(new File("target/test/jobs/status"));
         when(this.jobManagerConfiguration.getJobStatusCacheSize()).thenReturn(100);
+        when(this.jobManagerConfiguration.getJobStatusStoreQueueSize()).thenReturn(10);
 
-        when(this.cacheManager.createNewCache(any())).thenReturn(new MapCache<>());
+        when(this.cacheManager.createNewCache(any())).thenReturn(this.cache);
     }
 
     @Test
@@ -170,6 +182,213 @@ public void storeJobStatusWhenSerializable()
 
         // Verify that the status has been serialized, indirectly verifying that isSerializable() has been called and
         // returned true.
-        assertTrue(new File("target/test/jobs/status/newstatus/status.xml").exists());
+        assertTrue(new File("target/test/jobs/status/newstatus/status.bin").exists());
+    }
+
+    @Test
+    public void createLog()
+    {
+        DefaultRequest request = new DefaultRequest();
+        request.setId(Arrays.asList("logstatus"));
+        JobStatus jobStatus = new DefaultJobStatus("type", request, null, null, null);
+
+        assertSame(LogQueue.class, this.store.createLog(jobStatus).getClass());
+
+        when(this.jobManagerConfiguration.getJobStatusLogMemorySize()).thenReturn(10);
+
+        LogQueue log = this.store.createLog(jobStatus);
+
+        assertTrue(log instanceof FileLogQueue);
+        assertEquals(new File("target/test/jobs/status/logstatus/log.dat"), ((FileLogQueue) log).getFile());
+
+        request.setStatusSerialized(false);
+
+        assertSame(LogQueue.class, this.store.createLog(jobStatus).getClass());
+    }
+
+    @Test
+    public void storeFinishedJobStatusWithFileLog()
+    {
+        List<String> id = Arrays.asList("filelogstatus");
+
+        DefaultRequest request = new DefaultRequest();
+        request.setId(id);
+        DefaultJobStatus<DefaultRequest> jobStatus = new DefaultJobStatus<>("type", request, null, null, null);
+        jobStatus.setState(JobStatus.State.FINISHED);
+
+        when(this.jobManagerConfiguration.getJobStatusLogMemorySize()).thenReturn(10);
+        jobStatus.setLog(this.store.createLog(jobStatus));
+        for (int i = 0; i < 100; ++i) {
+            jobStatus.getLog().info("message {}", i);
+        }
+
+        File logFile = new File("target/test/jobs/status/filelogstatus/log.dat");
+        assertTrue(logFile.exists());
+
+        this.store.store(jobStatus);
+
+        // The stored status is not modified
+        assertTrue(logFile.exists());
+        assertEquals(logFile, ((FileLogQueue) jobStatus.getLog()).getFile());
+        assertEquals(100, jobStatus.getLog().size());
+        assertSame(jobStatus, this.store.getJobStatus(id));
+
+        // Once loaded again the log is read from the status file
+        this.cache.removeAll();
+        JobStatus loadedStatus = this.store.getJobStatus(id);
+        assertNotSame(jobStatus, loadedStatus);
+        assertFalse(logFile.exists());
+        File statusFile = new File("target/test/jobs/status/filelogstatus/status.bin");
+        assertEquals(statusFile, ((FileLogQueue) loadedStatus.getLog()).getFile());
+        assertEquals(100, loadedStatus.getLog().size());
+
+        // Store it again: the status file it was read from is replaced so it's loaded again
+        this.store.store(loadedStatus);
+
+        JobStatus reloadedStatus = this.store.getJobStatus(id);
+        assertNotSame(loadedStatus, reloadedStatus);
+        assertEquals(100, reloadedStatus.getLog().size());
+        assertEquals("message 99", reloadedStatus.getLog().getLogs(99, 1).get(0).getFormattedMessage());
+    }
+
+    @Test
+    public void getJobStatusConcurrently() throws Exception
+    {
+        BinaryJobStatusSerializer binarySerializer = spy(new BinaryJobStatusSerializer());
+        ReflectionUtils.setFieldValue(this.store, "binarySerializer", binarySerializer);
+
+        CountDownLatch loadStarted = new CountDownLatch(1);
+        CountDownLatch loadReleased = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            loadStarted.countDown();
+            loadReleased.await();
+
+            return invocation.callRealMethod();
+        }).when(binarySerializer).read(new File("target/test/jobs/status/id1/id2/status.bin"));
+
+        List<String> id = Arrays.asList("id1", "id2");
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<JobStatus> status1 = executor.submit(() -> this.store.getJobStatus(id));
+            loadStarted.await();
+            Future<JobStatus> status2 = executor.submit(() -> this.store.getJobStatus(id));
+
+            // Other statuses are not blocked by the slow load
+            assertNotNull(this.store.getJobStatus(Arrays.asList("id1", "id2", "id3")));
+
+            loadReleased.countDown();
+
+            assertEquals(id, status1.get().getRequest().getId());
+            assertSame(status1.get(), status2.get());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        verify(binarySerializer).read(new File("target/test/jobs/status/id1/id2/status.bin"));
+    }
+
+    @Test
+    public void removeWhileLoading() throws Exception
+    {
+        BinaryJobStatusSerializer binarySerializer = spy(new BinaryJobStatusSerializer());
+        ReflectionUtils.setFieldValue(this.store, "binarySerializer", binarySerializer);
+
+        List<String> id = Arrays.asList("id1", "id2");
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            List<Future<?>> removal = new ArrayList<>();
+            doAnswer(invocation -> {
+                // Removed as soon as the status file is read
+                removal.add(executor.submit(() -> this.store.remove(id)));
+
+                return invocation.callRealMethod();
+            }).when(binarySerializer).read(new File("target/test/jobs/status/id1/id2/status.bin"));
+
+            this.store.getJobStatus(id);
+            removal.get(0).get();
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // The loaded status is not put back in the cache
+        assertNull(this.store.getJobStatus(id));
+    }
+
+    @Test
+    public void storeAsync()
+    {
+        List<String> id = Arrays.asList("asyncstatus");
+
+        DefaultRequest request = new DefaultRequest();
+        request.setId(id);
+        DefaultJobStatus<DefaultRequest> jobStatus = new DefaultJobStatus<>("type", request, null, null, null);
+
+        this.store.storeAsync(jobStatus);
+        jobStatus.setState(JobStatus.State.FINISHED);
+        this.store.storeAsync(jobStatus);
+
+        assertSame(jobStatus, this.store.getJobStatus(id));
+
+        // Write everything which is still waiting
+        this.store.dispose();
+
+        assertTrue(new File("target/test/jobs/status/asyncstatus/status.bin").exists());
+        assertEquals(JobStatus.State.FINISHED,
+            this.store.search(new JobStatusQuery().setIdPrefix(id)).get(0).getState());
+
+        // Stored statuses are written in the storing thread after dispose
+        request = new DefaultRequest();
+        request.setId(Arrays.asList("asyncstatus2"));
+        this.store.storeAsync(new DefaultJobStatus<>("type", request, null, null, null));
+
+        assertTrue(new File("target/test/jobs/status/asyncstatus2/status.bin").exists());
+    }
+
+    @Test
+    public void prefetch() throws Exception
+    {
+        BinaryJobStatusSerializer binarySerializer = spy(new BinaryJobStatusSerializer());
+        ReflectionUtils.setFieldValue(this.store, "binarySerializer", binarySerializer);
+
+        this.store.prefetch(Arrays.asList("id1"));
+
+        File statusFile = new File("target/test/jobs/status/id1/id2/id3/status.bin");
+        verify(binarySerializer, timeout(10000)).read(statusFile);
+
+        // Already loaded
+        assertEquals(Arrays.asList("id1", "id2", "id3"),
+            this.store.getJobStatus(Arrays.asList("id1", "id2", "id3")).getRequest().getId());
+        verify(binarySerializer, times(1)).read(statusFile);
+    }
+
+    @Test
+    public void search()
+    {
+        // The index was rebuilt from the existing statuses
+        List<JobStatusSummary> summaries = this.store.search(new JobStatusQuery().setIdPrefix(Arrays.asList("id1")));
+        assertEquals(2, summaries.size());
+        assertEquals(4, this.store.search(new JobStatusQuery()).size());
+
+        List<String> id = Arrays.asList("id1", "indexedstatus");
+        DefaultRequest request = new DefaultRequest();
+        request.setId(id);
+        DefaultJobStatus<DefaultRequest> jobStatus = new DefaultJobStatus<>("indexed", request, null, null, null);
+        jobStatus.setState(JobStatus.State.FINISHED);
+        jobStatus.getLog().error("error");
+
+        this.store.store(jobStatus);
+
+        summaries = this.store.search(new JobStatusQuery().setJobType("indexed"));
+        assertEquals(1, summaries.size());
+        assertEquals(id, summaries.get(0).getId());
+        assertEquals(JobStatus.State.FINISHED, summaries.get(0).getState());
+        assertEquals(1, summaries.get(0).getErrorLogCount());
+
+        this.store.remove(Arrays.asList("id1"));
+
+        assertEquals(0, this.store.search(new JobStatusQuery().setIdPrefix(Arrays.asList("id1"))).size());
+        assertEquals(2, this.store.search(new JobStatusQuery()).size());
     }
 }
@@ -0,0 +1,175 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.job.internal;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.xwiki.job.JobStatusQuery;
+import org.xwiki.job.JobStatusSummary;
+import org.xwiki.job.event.status.JobStatus.State;
+import org.xwiki.test.junit5.XWikiTempDir;
+import org.xwiki.test.junit5.XWikiTempDirExtension;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Validate {@link JobStatusIndex}.
+ *
+ * @version $Id$
+ */
+@ExtendWith(XWikiTempDirExtension.class)
+public class JobStatusIndexTest
+{
+    @XWikiTempDir
+    private File tmpDir;
+
+    private File file;
+
+    private JobStatusIndex index;
+
+    @BeforeEach
+    public void beforeEach()
+    {
+        this.file = new File(this.tmpDir, "index.dat");
+        this.index = new JobStatusIndex(this.file);
+    }
+
+    private JobStatusSummary summary(String type, State state, long endDate, String... id)
+    {
+        return new JobStatusSummary(Arrays.asList(id), type, state, new Date(0), new Date(endDate), 1, false, 0);
+    }
+
+    private List<List<String>> ids(List<JobStatusSummary> summaries)
+    {
+        return summaries.stream().map(JobStatusSummary::getId).collect(Collectors.toList());
+    }
+
+    @Test
+    public void putRemoveAndSearch() throws Exception
+    {
+        assertFalse(this.index.load());
+
+        this.index.put(summary("install", State.FINISHED, 1000, "extension", "install", "wiki:xwiki"));
+        this.index.put(summary("uninstall", State.FINISHED, 3000, "extension", "uninstall", "wiki:xwiki"));
+        this.index.put(summary("install", State.RUNNING, 2000, "extension", "install", "wiki:other"));
+        this.index.put(summary("refactoring", State.FINISHED, 4000, "refactoring", "delete"));
+
+        assertEquals(4, this.index.size());
+
+        // Ordered from the most recently ended
+        assertEquals(
+            Arrays.asList(Arrays.asList("extension", "uninstall", "wiki:xwiki"),
+                Arrays.asList("extension", "install", "wiki:other"),
+                Arrays.asList("extension", "install", "wiki:xwiki")),
+            ids(this.index.search(new JobStatusQuery().setIdPrefix(Arrays.asList("extension")))));
+        assertEquals(Arrays.asList(Arrays.asList("extension", "install", "wiki:xwiki")),
+            ids(this.index.search(new JobStatusQuery().setJobType("install").setState(State.FINISHED))));
+        assertEquals(
+            Arrays.asList(Arrays.asList("refactoring", "delete"),
+                Arrays.asList("extension", "uninstall", "wiki:xwiki")),
+            ids(this.index.search(new JobStatusQuery().setEndedAfter(new Date(2000)))));
+        assertEquals(Arrays.asList(Arrays.asList("extension", "uninstall", "wiki:xwiki")),
+            ids(this.index.search(new JobStatusQuery().setOffset(1).setLimit(1))));
+
+        // Replace
+        this.index.put(summary("install", State.FINISHED, 5000, "extension", "install", "wiki:other"));
+        // Remove with children
+        this.index.remove(Arrays.asList("extension", "uninstall"));
+
+        assertEquals(3, this.index.size());
+
+        // Reload
+        JobStatusIndex loadedIndex = new JobStatusIndex(this.file);
+        assertTrue(loadedIndex.load());
+
+        assertEquals(
+            Arrays.asList(Arrays.asList("extension", "install", "wiki:other"), Arrays.asList("refactoring", "delete"),
+                Arrays.asList("extension", "install", "wiki:xwiki")),
+            ids(loadedIndex.search(new JobStatusQuery())));
+        assertEquals(State.FINISHED, loadedIndex.search(new JobStatusQuery()).get(0).getState());
+    }
+
+    @Test
+    public void loadWithTruncatedRecord() throws Exception
+    {
+        this.index.put(summary("type", State.FINISHED, 1000, "id1"));
+        this.index.put(summary("type", State.FINISHED, 2000, "id2"));
+
+        try (RandomAccessFile randomFile = new RandomAccessFile(this.file, "rw")) {
+            randomFile.setLength(randomFile.length() - 5);
+        }
+
+        assertTrue(this.index.load());
+        assertEquals(Arrays.asList(Arrays.asList("id1")), ids(this.index.search(new JobStatusQuery())));
+
+        // The file is rewritten before adding anything
+        this.index.put(summary("type", State.FINISHED, 3000, "id3"));
+
+        JobStatusIndex loadedIndex = new JobStatusIndex(this.file);
+        assertTrue(loadedIndex.load());
+        assertEquals(Arrays.asList(Arrays.asList("id3"), Arrays.asList("id1")),
+            ids(loadedIndex.search(new JobStatusQuery())));
+    }
+
+    @Test
+    public void resetAndRemoveAll() throws Exception
+    {
+        this.index.reset(Arrays.asList(summary("type", State.FINISHED, 1000, "id1"),
+            summary("type", State.FINISHED, 2000, "id2")));
+
+        assertEquals(2, this.index.size());
+
+        // The whole store is removed
+        this.file.delete();
+        this.index.remove(null);
+
+        assertEquals(0, this.index.size());
+        assertTrue(this.index.load());
+        assertEquals(Collections.emptyList(), this.index.search(new JobStatusQuery()));
+    }
+
+    @Test
+    public void putSeveral() throws Exception
+    {
+        this.index.put(summary("type", State.FINISHED, 1000, "id1"));
+
+        this.index.put(Arrays.asList(summary("type", State.FINISHED, 2000, "id2"),
+            summary("type", State.RUNNING, 3000, "id1")));
+
+        assertEquals(2, this.index.size());
+
+        JobStatusIndex loadedIndex = new JobStatusIndex(this.file);
+        assertTrue(loadedIndex.load());
+        assertEquals(Arrays.asList(Arrays.asList("id1"), Arrays.asList("id2")),
+            ids(loadedIndex.search(new JobStatusQuery())));
+        assertEquals(State.RUNNING, loadedIndex.search(new JobStatusQuery()).get(0).getState());
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.job.internal;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.xwiki.job.DefaultJobStatus;
+import org.xwiki.job.DefaultRequest;
+import org.xwiki.job.JobStatusSummary;
+import org.xwiki.job.event.status.JobStatus;
+import org.xwiki.logging.LogQueue;
+import org.xwiki.logging.event.LogEvent;
+import org.xwiki.logging.marker.BeginTranslationMarker;
+import org.xwiki.logging.marker.EndTranslationMarker;
+import org.xwiki.logging.marker.TranslationMarker;
+
+/**
+ * Compare the time needed to write and read a job status with {@link BinaryJobStatusSerializer} and with the XStream
+ * based {@link JobStatusSerializer}, for statuses with logs similar to the ones of an extension install job.
+ * <p>
+ * This is not a unit test, run it with {@code java -cp <test classpath> org.openjdk.jmh.Main
+ * JobStatusSerializerBenchmark}.
+ *
+ * @version $Id$
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JobStatusSerializerBenchmark
+{
+    /**
+     * The number of logs in the job status.
+     */
+    @Param({ "100", "10000" })
+    public int logs;
+
+    private JobStatusSerializer xstreamSerializer;
+
+    private BinaryJobStatusSerializer binarySerializer;
+
+    private JobStatus status;
+
+    private File xstreamFile;
+
+    private File binaryFile;
+
+    private File writeFile;
+
+    /**
+     * Create the status and store it in both formats.
+     *
+     * @throws Exception when failing to initialize the benchmark
+     */
+    @Setup
+    public void setUp() throws Exception
+    {
+        this.xstreamSerializer = new JobStatusSerializer();
+        this.binarySerializer = new BinaryJobStatusSerializer();
+
+        DefaultRequest request = new DefaultRequest();
+        request.setId(Arrays.asList("extension", "action", "wiki:xwiki"));
+        request.setProperty("extensions", Arrays.asList("org.xwiki.contrib:application-1.0"));
+        DefaultJobStatus<DefaultRequest> jobStatus =
+            new DefaultJobStatus<>("install", request, null, null, null);
+        jobStatus.setStartDate(new Date());
+        jobStatus.setEndDate(new Date());
+        jobStatus.setState(JobStatus.State.FINISHED);
+
+        LogQueue log = jobStatus.getLog();
+        for (int i = 0; i < this.logs; ++i) {
+            String extension = "org.xwiki.contrib:extension" + i % 100;
+            if (i % 10 == 0) {
+                log.info(new BeginTranslationMarker("extension.log.job.install.begin"),
+                    "Installing extension [{}] on namespace [{}]", extension, "wiki:xwiki");
+            } else if (i % 10 == 9) {
+                log.info(new EndTranslationMarker("extension.log.job.install.end"),
+                    "Done installing extension [{}] on namespace [{}]", extension, "wiki:xwiki");
+            } else if (i % 100 == 50) {
+                log.warn(new TranslationMarker("extension.log.job.install.failed"),
+                    "Failed to install extension [{}]", extension, new IOException("Connection refused"));
+            } else {
+                log.info("Resolving dependency [{}] with version constraint [{}] (step {})", extension, "[1.0,)", i);
+            }
+        }
+        this.status = jobStatus;
+
+        this.xstreamFile = File.createTempFile("status", ".xml");
+        this.binaryFile = File.createTempFile("status", ".bin");
+        this.writeFile = File.createTempFile("status", ".tmp");
+        this.xstreamFile.deleteOnExit();
+        this.binaryFile.deleteOnExit();
+        this.writeFile.deleteOnExit();
+
+        this.xstreamSerializer.write(this.status, this.xstreamFile);
+        this.binarySerializer.write(this.status, this.binaryFile);
+    }
+
+    @Benchmark
+    public void writeXStream() throws IOException
+    {
+        this.xstreamSerializer.write(this.status, this.writeFile);
+    }
+
+    @Benchmark
+    public void writeBinary() throws IOException
+    {
+        this.binarySerializer.write(this.status, this.writeFile);
+    }
+
+    @Benchmark
+    public void readXStream(Blackhole blackhole)
+    {
+        readLog(this.xstreamSerializer.read(this.xstreamFile), blackhole);
+    }
+
+    @Benchmark
+    public void readBinary(Blackhole blackhole)
+    {
+        readLog(this.binarySerializer.read(this.binaryFile), blackhole);
+    }
+
+    /**
+     * What's needed to list the job statuses (the log is not read).
+     */
+    @Benchmark
+    public JobStatus readBinaryWithoutLog()
+    {
+        return this.binarySerializer.read(this.binaryFile);
+    }
+
+    @Benchmark
+    public JobStatusSummary readBinarySummary() throws IOException
+    {
+        return this.binarySerializer.readSummary(this.binaryFile);
+    }
+
+    private void readLog(JobStatus readStatus, Blackhole blackhole)
+    {
+        for (LogEvent logEvent : readStatus.getLog()) {
+            blackhole.consume(logEvent);
+        }
+    }
+}
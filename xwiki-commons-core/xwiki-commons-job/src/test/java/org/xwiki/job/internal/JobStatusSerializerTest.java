@@ -37,6 +37,8 @@
 import org.xwiki.job.event.status.JobStatus;
 import org.xwiki.job.test.SerializableStandaloneComponent;
 import org.xwiki.job.test.StandaloneComponent;
+import org.xwiki.logging.FileLogQueue;
+import org.xwiki.logging.LogQueue;
 import org.xwiki.logging.marker.TranslationMarker;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -223,6 +225,23 @@ public void serializeUnserializeWhenLogMarker() throws IOException
         assertEquals(new TranslationMarker("translation.key"), status.getLog().peek().getMarker());
     }
 
+    @Test
+    public void serializeUnserializeWhenFileLog() throws IOException
+    {
+        DefaultJobStatus<Request> status = new DefaultJobStatus<>("type", new DefaultRequest(), null, null, null);
+        status.setLog(new FileLogQueue(new File("target/test/log.dat"), 10));
+
+        for (int i = 0; i < 100; ++i) {
+            status.getLog().error("error message {}", i);
+        }
+
+        JobStatus unserializedStatus = writeRead(status);
+
+        assertSame(LogQueue.class, unserializedStatus.getLog().getClass());
+        assertEquals(100, unserializedStatus.getLog().size());
+        assertEquals("error message 0", unserializedStatus.getLog().peek().getFormattedMessage());
+    }
+
     @Test
     public void serializeUnserializeWhenLogWithException() throws IOException
     {
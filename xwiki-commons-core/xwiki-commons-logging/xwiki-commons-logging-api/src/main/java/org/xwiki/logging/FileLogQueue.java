@@ -0,0 +1,911 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.logging;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.slf4j.LoggerFactory;
+import org.xwiki.logging.event.LogEvent;
+import org.xwiki.logging.internal.helpers.BinaryLogFormat;
+import org.xwiki.stability.Unstable;
+
+/**
+ * A {@link LogQueue} which keeps only the most recent logs in memory and moves the older ones to an append only file.
+ * <p>
+ * The logs stored in the file are kept in a compact pre-formatted form: the arguments are converted to {@link String}s
+ * and only the class name, message, stack trace and causes of the throwable are kept. Nothing is unserialized with
+ * Java serialization when reading the file. Iterating on the queue reads the file by chunks so that the whole log is
+ * never loaded in memory at once.
+ * <p>
+ * The logs are efficiently removed with {@link #poll()} and {@link #clear()}. The other ways of removing logs (like
+ * {@link #remove(Object)} or {@link #removeIf(Predicate)}) load all the logs and rewrite the file in a temporary file
+ * which then replaces it, so that the file is never left half written. The iterators don't support removal.
+ * <p>
+ * When serialized, the queue is replaced by a standard {@link LogQueue} containing all the logs.
+ * <p>
+ * {@link #write(Iterable, OutputStream)} produces the same format and {@link #open(File, long)} gives access to such
+ * logs without loading them.
+ *
+ * @version $Id$
+ * @since 11.9RC1
+ */
+@Unstable
+public class FileLogQueue extends LogQueue
+{
+    /**
+     * Serialization identifier.
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The number of logs between two positions remembered in the file index, and the number of logs read from the file
+     * at once.
+     */
+    private static final int CHUNK_SIZE = 128;
+
+    private static final int LEVEL_COUNT = LogLevel.values().length;
+
+    private static final org.slf4j.Logger LOGGER = LoggerFactory.getLogger(FileLogQueue.class);
+
+    private final File file;
+
+    /**
+     * The position of the first log in the file.
+     */
+    private final long fileOffset;
+
+    /**
+     * True if the file has been written by someone else, in which case it's never modified.
+     */
+    private final boolean existingFile;
+
+    private final int maxInMemory;
+
+    private final transient Object lock = new Object();
+
+    // All the following fields are protected by the lock
+
+    /**
+     * The format of the logs stored in the file, which remembers the markers found in the file.
+     */
+    private transient BinaryLogFormat format;
+
+    /**
+     * Incremented each time the file is replaced, to invalidate the positions known by the iterators.
+     */
+    private int generation;
+
+    /**
+     * The logs read from the file and not yet removed, to avoid reading the file each time a log is polled.
+     */
+    private final transient Deque<LogEvent> fileHead = new ArrayDeque<>();
+
+    private final int[] levelCounts = new int[LEVEL_COUNT];
+
+    /**
+     * False until an existing file has been indexed.
+     */
+    private boolean scanned;
+
+    /**
+     * Used to detect that an existing file has been replaced.
+     */
+    private long fileModified;
+
+    /**
+     * Used to detect that an existing file has been replaced.
+     */
+    private long fileModifiedLength;
+
+    /**
+     * The number of logs in memory.
+     */
+    private int memorySize;
+
+    /**
+     * The number of logs written in the file.
+     */
+    private int fileSize;
+
+    /**
+     * The number of logs at the beginning of the file which have already been removed from the queue.
+     */
+    private int fileStart;
+
+    /**
+     * The position of the end of the file.
+     */
+    private long fileLength;
+
+    /**
+     * The position in the file of one log every {@link #CHUNK_SIZE} logs.
+     */
+    private long[] fileIndex = new long[16];
+
+    /**
+     * True if the file cannot be written, in which case all the logs are kept in memory.
+     */
+    private boolean fileDisabled;
+
+    /**
+     * @param file the file where to store the older logs, any existing file is replaced
+     * @param maxInMemory the maximum number of logs to keep in memory
+     */
+    public FileLogQueue(File file, int maxInMemory)
+    {
+        this.file = file;
+        this.fileOffset = 0;
+        this.existingFile = false;
+        this.maxInMemory = Math.max(1, maxInMemory);
+        this.format = new BinaryLogFormat();
+        this.scanned = true;
+
+        if (this.file.exists()) {
+            this.file.delete();
+        }
+    }
+
+    private FileLogQueue(File file, long offset)
+    {
+        this.file = file;
+        this.fileOffset = offset;
+        this.existingFile = true;
+        this.maxInMemory = Integer.MAX_VALUE;
+        this.format = new BinaryLogFormat();
+        this.fileLength = offset;
+        // Logs added to the queue are kept in memory
+        this.fileDisabled = true;
+    }
+
+    /**
+     * Give access to logs written with {@link #write(Iterable, OutputStream)} at the end of a file. The file is only
+     * read when the logs are accessed and it's never modified.
+     *
+     * @param file the file containing the logs
+     * @param offset the position of the first log in the file
+     * @return the queue
+     */
+    public static FileLogQueue open(File file, long offset)
+    {
+        return new FileLogQueue(file, offset);
+    }
+
+    /**
+     * Write logs in the format expected by {@link #open(File, long)}.
+     *
+     * @param logs the logs to write
+     * @param stream the stream where to write the logs
+     * @throws IOException when failing to write the logs
+     */
+    public static void write(Iterable<LogEvent> logs, OutputStream stream) throws IOException
+    {
+        BinaryLogFormat format = new BinaryLogFormat();
+
+        DataOutputStream output = new DataOutputStream(stream);
+        for (LogEvent log : logs) {
+            format.write(log, output);
+        }
+        output.flush();
+    }
+
+    /**
+     * @return the file where the older logs are stored
+     */
+    public File getFile()
+    {
+        return this.file;
+    }
+
+    /**
+     * @return the maximum number of logs to keep in memory
+     */
+    public int getMaxInMemory()
+    {
+        return this.maxInMemory;
+    }
+
+    /**
+     * Read logs written with {@link #write(Iterable, OutputStream)}.
+     *
+     * @param stream the stream from where to read the logs, until its end
+     * @return the logs
+     * @throws IOException when failing to read the logs
+     */
+    public static LogQueue read(InputStream stream) throws IOException
+    {
+        BinaryLogFormat format = new BinaryLogFormat();
+
+        LogQueue logs = new LogQueue();
+        DataInputStream input = new DataInputStream(new BufferedInputStream(stream));
+        while (readLength(input) >= 0) {
+            logs.add(format.read(input));
+        }
+
+        return logs;
+    }
+
+    @Override
+    public boolean offer(LogEvent logEvent)
+    {
+        synchronized (this.lock) {
+            super.offer(logEvent);
+
+            ++this.memorySize;
+            ++this.levelCounts[logEvent.getLevel().ordinal()];
+
+            if (this.memorySize > this.maxInMemory && !this.fileDisabled) {
+                // Move a batch of logs to avoid writing in the file for each new log
+                writeLogs(this.memorySize - this.maxInMemory / 2);
+            }
+        }
+
+        return true;
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends LogEvent> logs)
+    {
+        if (logs == this) {
+            throw new IllegalArgumentException();
+        }
+
+        boolean modified = false;
+        for (LogEvent log : logs) {
+            modified |= offer(log);
+        }
+
+        return modified;
+    }
+
+    @Override
+    public LogEvent poll()
+    {
+        synchronized (this.lock) {
+            ensureScanned();
+
+            LogEvent log = null;
+
+            if (this.fileStart < this.fileSize) {
+                log = readFileHead().poll();
+                if (log != null) {
+                    ++this.fileStart;
+                } else {
+                    // Forget about the logs which cannot be read anymore
+                    this.fileStart = this.fileSize;
+                }
+            }
+
+            if (log == null) {
+                log = super.poll();
+                if (log != null) {
+                    --this.memorySize;
+                }
+            }
+
+            if (log != null) {
+                --this.levelCounts[log.getLevel().ordinal()];
+            }
+
+            return log;
+        }
+    }
+
+    @Override
+    public LogEvent peek()
+    {
+        synchronized (this.lock) {
+            ensureScanned();
+
+            LogEvent log = readFileHead().peek();
+
+            return log != null ? log : super.peek();
+        }
+    }
+
+    @Override
+    public void clear()
+    {
+        synchronized (this.lock) {
+            reset();
+
+            if (!this.existingFile) {
+                this.file.delete();
+            }
+        }
+    }
+
+    /**
+     * Empty the queue without touching the file.
+     */
+    private void reset()
+    {
+        while (super.poll() != null) {
+            // Empty the memory
+        }
+
+        this.memorySize = 0;
+        this.fileSize = 0;
+        this.fileStart = 0;
+        this.fileLength = this.fileOffset;
+        this.fileIndex = new long[16];
+        this.fileDisabled = this.existingFile;
+        this.scanned = true;
+        Arrays.fill(this.levelCounts, 0);
+        this.format.clear();
+        this.fileHead.clear();
+        ++this.generation;
+    }
+
+    @Override
+    public int size()
+    {
+        synchronized (this.lock) {
+            ensureScanned();
+
+            return this.fileSize - this.fileStart + this.memorySize;
+        }
+    }
+
+    @Override
+    public boolean isEmpty()
+    {
+        return size() == 0;
+    }
+
+    @Override
+    public boolean contains(Object o)
+    {
+        for (LogEvent log : this) {
+            if (log.equals(o)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    @Override
+    public boolean remove(Object o)
+    {
+        synchronized (this.lock) {
+            List<LogEvent> logs = toList();
+            if (!logs.remove(o)) {
+                return false;
+            }
+
+            replaceLogs(logs);
+
+            return true;
+        }
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> c)
+    {
+        Objects.requireNonNull(c);
+
+        return removeIf(c::contains);
+    }
+
+    @Override
+    public boolean retainAll(Collection<?> c)
+    {
+        Objects.requireNonNull(c);
+
+        return removeIf(log -> !c.contains(log));
+    }
+
+    @Override
+    public boolean removeIf(Predicate<? super LogEvent> filter)
+    {
+        Objects.requireNonNull(filter);
+
+        synchronized (this.lock) {
+            List<LogEvent> logs = toList();
+            if (!logs.removeIf(filter)) {
+                return false;
+            }
+
+            replaceLogs(logs);
+
+            return true;
+        }
+    }
+
+    /**
+     * Replace the content of the queue. The logs which were in memory stay in memory, the others are written in a
+     * temporary file which then replaces the current one. An existing file is left untouched and the logs are kept in
+     * memory instead.
+     *
+     * @param logs the new logs of the queue
+     */
+    private void replaceLogs(List<LogEvent> logs)
+    {
+        int fileCount = logs.size() - Math.min(logs.size(), this.memorySize);
+
+        if (this.existingFile || this.fileDisabled || fileCount == 0) {
+            clear();
+
+            for (LogEvent log : logs) {
+                offer(log);
+            }
+
+            return;
+        }
+
+        if (!replaceFile(logs.subList(0, fileCount))) {
+            // Leave the file as it is and keep everything in memory from now on
+            reset();
+            this.fileDisabled = true;
+
+            for (LogEvent log : logs) {
+                offer(log);
+            }
+
+            return;
+        }
+
+        while (super.poll() != null) {
+            // Empty the memory
+        }
+        for (LogEvent log : logs.subList(fileCount, logs.size())) {
+            super.offer(log);
+        }
+        this.memorySize = logs.size() - fileCount;
+
+        Arrays.fill(this.levelCounts, 0);
+        for (LogEvent log : logs) {
+            ++this.levelCounts[log.getLevel().ordinal()];
+        }
+    }
+
+    /**
+     * Replace the file with a new one containing the passed logs.
+     *
+     * @param logs the logs to write in the file
+     * @return {@code true} if the file was replaced, {@code false} if the file is left untouched
+     */
+    private boolean replaceFile(List<LogEvent> logs)
+    {
+        BinaryLogFormat newFormat = new BinaryLogFormat();
+        long[] index = new long[Math.max(16, Integer.highestOneBit(logs.size() / CHUNK_SIZE) * 2)];
+        long length = 0;
+
+        File temporaryFile = new File(this.file.getPath() + ".tmp");
+        try (OutputStream stream = new BufferedOutputStream(new FileOutputStream(temporaryFile))) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream output = new DataOutputStream(bytes);
+            for (int chunk = 0; chunk * CHUNK_SIZE < logs.size(); ++chunk) {
+                bytes.reset();
+                for (LogEvent log : logs.subList(chunk * CHUNK_SIZE, Math.min((chunk + 1) * CHUNK_SIZE, logs.size()))) {
+                    newFormat.write(log, output);
+                }
+                output.flush();
+
+                index[chunk] = length;
+                length += bytes.size();
+                bytes.writeTo(stream);
+            }
+        } catch (IOException e) {
+            temporaryFile.delete();
+
+            LOGGER.warn("Failed to rewrite logs in file [{}], keeping them in memory. Root cause: [{}]", this.file,
+                ExceptionUtils.getRootCauseMessage(e));
+
+            return false;
+        }
+
+        try {
+            Files.move(temporaryFile.toPath(), this.file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            temporaryFile.delete();
+
+            LOGGER.warn("Failed to replace logs file [{}], keeping the logs in memory. Root cause: [{}]", this.file,
+                ExceptionUtils.getRootCauseMessage(e));
+
+            return false;
+        }
+
+        this.format = newFormat;
+        this.fileSize = logs.size();
+        this.fileStart = 0;
+        this.fileLength = length;
+        this.fileIndex = index;
+        this.fileHead.clear();
+        ++this.generation;
+
+        return true;
+    }
+
+    @Override
+    public Iterator<LogEvent> iterator()
+    {
+        return iterator(0);
+    }
+
+    private Iterator<LogEvent> iterator(int offset)
+    {
+        synchronized (this.lock) {
+            ensureScanned();
+
+            int fileCount = this.fileSize - this.fileStart;
+
+            List<LogEvent> memory = Arrays.asList(super.toArray(new LogEvent[this.memorySize]));
+            if (offset > fileCount) {
+                memory = memory.subList(Math.min(offset - fileCount, memory.size()), memory.size());
+            }
+
+            return new FileLogIterator(this.generation, this.fileIndex, this.fileStart + Math.min(offset, fileCount),
+                this.fileSize, memory.iterator());
+        }
+    }
+
+    @Override
+    public Spliterator<LogEvent> spliterator()
+    {
+        return Spliterators.spliterator(this, Spliterator.ORDERED | Spliterator.NONNULL);
+    }
+
+    @Override
+    public void forEach(Consumer<? super LogEvent> action)
+    {
+        for (LogEvent log : this) {
+            action.accept(log);
+        }
+    }
+
+    @Override
+    public Object[] toArray()
+    {
+        return toList().toArray();
+    }
+
+    @Override
+    public <T> T[] toArray(T[] a)
+    {
+        return toList().toArray(a);
+    }
+
+    private List<LogEvent> toList()
+    {
+        List<LogEvent> logs = new ArrayList<>(size());
+        for (LogEvent log : this) {
+            logs.add(log);
+        }
+
+        return logs;
+    }
+
+    @Override
+    public String toString()
+    {
+        return toList().toString();
+    }
+
+    @Override
+    public List<LogEvent> getLogs(int offset, int limit)
+    {
+        List<LogEvent> logs = new ArrayList<>();
+
+        for (Iterator<LogEvent> it = iterator(offset); logs.size() < limit && it.hasNext();) {
+            logs.add(it.next());
+        }
+
+        return logs;
+    }
+
+    @Override
+    public List<LogEvent> getLogs(LogLevel level)
+    {
+        return getLogCount(level) > 0 ? super.getLogs(level) : new ArrayList<>();
+    }
+
+    @Override
+    public int getLogCount(LogLevel level)
+    {
+        synchronized (this.lock) {
+            ensureScanned();
+
+            return this.levelCounts[level.ordinal()];
+        }
+    }
+
+    @Override
+    public boolean containLogsFrom(LogLevel level)
+    {
+        synchronized (this.lock) {
+            ensureScanned();
+
+            for (int i = 0; i <= level.ordinal(); ++i) {
+                if (this.levelCounts[i] > 0) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    // Serialization
+
+    private Object writeReplace()
+    {
+        LogQueue queue = new LogQueue();
+        for (LogEvent log : this) {
+            queue.add(log);
+        }
+
+        return queue;
+    }
+
+    // File
+
+    /**
+     * Move the oldest logs from the memory to the end of the file.
+     *
+     * @param count the number of logs to move
+     */
+    private void writeLogs(int count)
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(bytes);
+        long[] index = this.fileIndex;
+
+        try {
+            Iterator<LogEvent> it = super.iterator();
+            for (int i = 0; i < count; ++i) {
+                int logIndex = this.fileSize + i;
+                if (logIndex % CHUNK_SIZE == 0) {
+                    int indexSize = logIndex / CHUNK_SIZE;
+                    if (indexSize == index.length) {
+                        index = Arrays.copyOf(index, index.length * 2);
+                    }
+                    index[indexSize] = this.fileLength + output.size();
+                }
+
+                this.format.write(it.next(), output);
+            }
+
+            this.file.getParentFile().mkdirs();
+            try (FileOutputStream stream = new FileOutputStream(this.file, true)) {
+                bytes.writeTo(stream);
+            }
+        } catch (IOException e) {
+            // Keep everything in memory from now on
+            this.fileDisabled = true;
+
+            LOGGER.warn("Failed to write logs in file [{}], keeping them in memory. Root cause: [{}]", this.file,
+                ExceptionUtils.getRootCauseMessage(e));
+
+            return;
+        }
+
+        for (int i = 0; i < count; ++i) {
+            super.poll();
+        }
+
+        this.memorySize -= count;
+        this.fileSize += count;
+        this.fileLength += bytes.size();
+        // Readers might still be using the previous array which is never modified once replaced
+        this.fileIndex = index;
+    }
+
+    /**
+     * @return the logs read from the file and not yet removed, read from the file up to the end of the current chunk
+     *         when empty
+     */
+    private Deque<LogEvent> readFileHead()
+    {
+        if (this.fileHead.isEmpty() && this.fileStart < this.fileSize) {
+            // Stop at the end of the current chunk so that the next read is aligned on the index
+            int count = Math.min(CHUNK_SIZE - this.fileStart % CHUNK_SIZE, this.fileSize - this.fileStart);
+            this.fileHead.addAll(readLogs(this.fileIndex, this.fileStart, count));
+        }
+
+        return this.fileHead;
+    }
+
+    /**
+     * Must be called with the lock held since the format keeps track of the markers found in the file.
+     *
+     * @param index the file index to use
+     * @param from the index in the file of the first log to read
+     * @param count the maximum number of logs to read
+     * @return the logs, or an empty list if the file cannot be read
+     */
+    private List<LogEvent> readLogs(long[] index, int from, int count)
+    {
+        int chunk = from / CHUNK_SIZE;
+
+        List<LogEvent> logs = new ArrayList<>(count);
+        try (FileInputStream stream = new FileInputStream(this.file)) {
+            if (this.existingFile
+                && (this.file.lastModified() != this.fileModified || this.file.length() != this.fileModifiedLength)) {
+                throw new IOException("The file has been modified");
+            }
+
+            stream.getChannel().position(index[chunk]);
+
+            DataInputStream input = new DataInputStream(new BufferedInputStream(stream));
+            for (int i = chunk * CHUNK_SIZE; i < from; ++i) {
+                this.format.skip(input);
+            }
+            for (int i = 0; i < count; ++i) {
+                logs.add(this.format.read(input));
+            }
+        } catch (Exception e) {
+            LOGGER.warn("Failed to read logs from file [{}]. Root cause: [{}]", this.file,
+                ExceptionUtils.getRootCauseMessage(e));
+
+            return Collections.emptyList();
+        }
+
+        return logs;
+    }
+
+    /**
+     * Index the logs of an existing file the first time they are needed.
+     */
+    private void ensureScanned()
+    {
+        if (this.scanned) {
+            return;
+        }
+
+        this.scanned = true;
+
+        long[] index = this.fileIndex;
+        try (FileInputStream stream = new FileInputStream(this.file)) {
+            this.fileModified = this.file.lastModified();
+            this.fileModifiedLength = this.file.length();
+            stream.getChannel().position(this.fileOffset);
+
+            DataInputStream input = new DataInputStream(new BufferedInputStream(stream));
+            long position = this.fileOffset;
+            for (int length = readLength(input); length >= 0; length = readLength(input)) {
+                if (this.fileSize % CHUNK_SIZE == 0) {
+                    int indexSize = this.fileSize / CHUNK_SIZE;
+                    if (indexSize == index.length) {
+                        index = Arrays.copyOf(index, index.length * 2);
+                    }
+                    index[indexSize] = position;
+                }
+
+                ++this.levelCounts[this.format.skip(input).ordinal()];
+                ++this.fileSize;
+                position += Integer.BYTES + length;
+            }
+            this.fileLength = position;
+        } catch (IOException e) {
+            LOGGER.warn("Failed to read logs from file [{}]. Root cause: [{}]", this.file,
+                ExceptionUtils.getRootCauseMessage(e));
+        }
+
+        this.fileIndex = index;
+    }
+
+    /**
+     * @param input the stream from where to read the logs
+     * @return the length of the next record, or -1 at the end of the file
+     * @throws IOException when failing to read the stream
+     */
+    private static int readLength(DataInputStream input) throws IOException
+    {
+        input.mark(Integer.BYTES);
+
+        try {
+            int length = input.readInt();
+            input.reset();
+
+            return length;
+        } catch (EOFException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Iterate on a snapshot of the queue: first the logs stored in the file, read by chunks, and then the logs which
+     * were in memory. The remaining logs of the file are skipped if the file is replaced in the meantime.
+     *
+     * @version $Id$
+     */
+    private final class FileLogIterator implements Iterator<LogEvent>
+    {
+        private final int generation;
+
+        private final long[] index;
+
+        private final int fileEnd;
+
+        private final Iterator<LogEvent> memory;
+
+        private int fileNext;
+
+        private Iterator<LogEvent> chunk = Collections.emptyIterator();
+
+        FileLogIterator(int generation, long[] index, int fileNext, int fileEnd, Iterator<LogEvent> memory)
+        {
+            this.generation = generation;
+            this.index = index;
+            this.fileNext = fileNext;
+            this.fileEnd = fileEnd;
+            this.memory = memory;
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            if (!this.chunk.hasNext() && this.fileNext < this.fileEnd) {
+                // Stop at the end of the current chunk so that the next read is aligned on the index
+                int count = Math.min(CHUNK_SIZE - this.fileNext % CHUNK_SIZE, this.fileEnd - this.fileNext);
+                List<LogEvent> logs;
+                synchronized (FileLogQueue.this.lock) {
+                    // The file positions are not valid anymore once the file has been replaced
+                    logs = this.generation == FileLogQueue.this.generation
+                        ? readLogs(this.index, this.fileNext, count) : Collections.emptyList();
+                }
+                this.fileNext = logs.isEmpty() ? this.fileEnd : this.fileNext + count;
+                this.chunk = logs.iterator();
+            }
+
+            return this.chunk.hasNext() || this.memory.hasNext();
+        }
+
+        @Override
+        public LogEvent next()
+        {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+
+            return this.chunk.hasNext() ? this.chunk.next() : this.memory.next();
+        }
+    }
+}
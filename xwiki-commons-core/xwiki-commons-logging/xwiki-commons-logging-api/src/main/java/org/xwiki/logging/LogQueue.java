@@ -19,14 +19,15 @@
  */
 package org.xwiki.logging;
 
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.concurrent.ConcurrentLinkedQueue;
 
 import org.apache.commons.lang3.ArrayUtils;
 import org.slf4j.Marker;
 import org.xwiki.logging.event.LogEvent;
+import org.xwiki.stability.Unstable;
 
 /**
  * A queue of {@link LogEvent}s.
@@ -134,7 +135,7 @@ public void log(LogEvent logEvent)
      */
     public List<LogEvent> getLogs(LogLevel level)
     {
-        List<LogEvent> levelLogs = new LinkedList<LogEvent>();
+        List<LogEvent> levelLogs = new ArrayList<>();
 
         for (LogEvent log : this) {
             if (log.getLevel() == level) {
@@ -154,7 +155,7 @@ public List<LogEvent> getLogs(LogLevel level)
      */
     public List<LogEvent> getLogsFrom(LogLevel level)
     {
-        List<LogEvent> levelLogs = new LinkedList<LogEvent>();
+        List<LogEvent> levelLogs = new ArrayList<>();
 
         for (LogEvent log : this) {
             if (log.getLevel().compareTo(level) <= 0) {
@@ -183,6 +184,56 @@ public boolean containLogsFrom(LogLevel level)
         return false;
     }
 
+    /**
+     * Count the logs of a specific level.
+     *
+     * @param level the level of the logs to count
+     * @return the number of logs of the provided level
+     * @since 11.9RC1
+     */
+    @Unstable
+    public int getLogCount(LogLevel level)
+    {
+        int count = 0;
+
+        for (LogEvent log : this) {
+            if (log.getLevel() == level) {
+                ++count;
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Return a page of logs, in the order they were added. Allow displaying a big log without copying the whole queue.
+     *
+     * @param offset the index of the first log to return
+     * @param limit the maximum number of logs to return
+     * @return the logs
+     * @since 11.9RC1
+     */
+    @Unstable
+    public List<LogEvent> getLogs(int offset, int limit)
+    {
+        List<LogEvent> logs = new ArrayList<>();
+
+        int index = 0;
+        for (LogEvent log : this) {
+            if (logs.size() >= limit) {
+                break;
+            }
+
+            if (index >= offset) {
+                logs.add(log);
+            }
+
+            ++index;
+        }
+
+        return logs;
+    }
+
     // Logger
 
     @Override
@@ -26,6 +26,7 @@
 import org.xwiki.logging.internal.helpers.MessageParser;
 import org.xwiki.logging.internal.helpers.MessageParser.MessageElement;
 import org.xwiki.logging.internal.helpers.MessageParser.MessageIndex;
+import org.xwiki.stability.Unstable;
 
 /**
  * @version $Id$
@@ -68,16 +69,36 @@ public static LogEvent newLogEvent(Marker marker, LogLevel level, String message
      */
     public static LogEvent newLogEvent(Marker marker, LogLevel level, String message, Object[] argumentArray,
         Throwable throwable, long timeStamp)
+    {
+        Class<? extends LogEvent> eventClass = getLogEventClass(marker);
+
+        if (eventClass == BeginLogEvent.class) {
+            return new BeginLogEvent(marker, level, message, argumentArray, throwable, timeStamp);
+        } else if (eventClass == EndLogEvent.class) {
+            return new EndLogEvent(marker, level, message, argumentArray, throwable, timeStamp);
+        }
+
+        return new LogEvent(marker, level, message, argumentArray, throwable, timeStamp);
+    }
+
+    /**
+     * @param marker the log marker
+     * @return the class of the {@link LogEvent} {@link #newLogEvent(Marker, LogLevel, String, Object[], Throwable)}
+     *         would return for the passed marker
+     * @since 11.9RC1
+     */
+    @Unstable
+    public static Class<? extends LogEvent> getLogEventClass(Marker marker)
     {
         if (marker != null) {
             if (marker.contains(LogEvent.MARKER_BEGIN)) {
-                return new BeginLogEvent(marker, level, message, argumentArray, throwable, timeStamp);
+                return BeginLogEvent.class;
             } else if (marker.contains(LogEvent.MARKER_END)) {
-                return new EndLogEvent(marker, level, message, argumentArray, throwable, timeStamp);
+                return EndLogEvent.class;
             }
         }
 
-        return new LogEvent(marker, level, message, argumentArray, throwable, timeStamp);
+        return LogEvent.class;
     }
 
     /**
@@ -0,0 +1,493 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.logging.internal.helpers;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Marker;
+import org.slf4j.MarkerFactory;
+import org.xwiki.logging.LogLevel;
+import org.xwiki.logging.LogUtils;
+import org.xwiki.logging.event.LogEvent;
+import org.xwiki.logging.marker.BeginTranslationMarker;
+import org.xwiki.logging.marker.EndTranslationMarker;
+import org.xwiki.logging.marker.TranslationMarker;
+
+/**
+ * Compact binary representation of a sequence of {@link LogEvent}s.
+ * <p>
+ * Each log is stored as a length prefixed record so that it can be skipped without being parsed. A marker is fully
+ * stored only in the first record using it, the following records only contain its index.
+ * <p>
+ * Nothing is stored using Java serialization so that reading a log never instantiates arbitrary classes: the arguments
+ * are stored as {@link String}s, the throwables as their class name, message, stack trace and causes (see
+ * {@link StoredThrowable}) and only the name, translation key and references of the markers are kept.
+ * <p>
+ * Writing is not thread safe, reading is.
+ *
+ * @version $Id$
+ * @since 11.9RC1
+ */
+public class BinaryLogFormat
+{
+    private static final LogLevel[] LEVELS = LogLevel.values();
+
+    private static final byte ARGUMENT_NULL = 0;
+
+    private static final byte ARGUMENT_STRING = 1;
+
+    private static final byte MARKER_BASIC = 0;
+
+    private static final byte MARKER_TRANSLATION = 1;
+
+    private static final byte MARKER_BEGIN_TRANSLATION = 2;
+
+    private static final byte MARKER_END_TRANSLATION = 3;
+
+    /**
+     * Protect against cycles between the markers.
+     */
+    private static final int MAX_MARKER_DEPTH = 16;
+
+    private final Map<ByteBuffer, Integer> markerIds = new HashMap<>();
+
+    private final List<Marker> markers = new ArrayList<>();
+
+    private final ByteArrayOutputStream recordBytes = new ByteArrayOutputStream();
+
+    private final DataOutputStream record = new DataOutputStream(this.recordBytes);
+
+    /**
+     * A {@link Throwable} read from a log, which is not necessarily of the same class as the logged one but which has
+     * the same message, stack trace and causes.
+     *
+     * @version $Id$
+     */
+    public static final class StoredThrowable extends Exception
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final String className;
+
+        /**
+         * @param className the name of the class of the logged throwable
+         * @param message the message of the logged throwable
+         * @param cause the cause of the logged throwable
+         */
+        public StoredThrowable(String className, String message, Throwable cause)
+        {
+            super(message, cause);
+
+            this.className = className;
+        }
+
+        /**
+         * @return the name of the class of the logged throwable
+         */
+        public String getClassName()
+        {
+            return this.className;
+        }
+
+        @Override
+        public synchronized Throwable fillInStackTrace()
+        {
+            // The stack trace is the one of the logged throwable
+            return this;
+        }
+
+        @Override
+        public String toString()
+        {
+            String message = getLocalizedMessage();
+
+            return message != null ? this.className + ": " + message : this.className;
+        }
+    }
+
+    /**
+     * Forget about the known markers, to start a new sequence of logs.
+     */
+    public synchronized void clear()
+    {
+        this.markerIds.clear();
+        this.markers.clear();
+    }
+
+    /**
+     * @param log the log to write
+     * @param output the stream where to write the log
+     * @throws IOException when failing to write the log
+     */
+    public void write(LogEvent log, DataOutputStream output) throws IOException
+    {
+        this.recordBytes.reset();
+
+        this.record.writeByte(log.getLevel().ordinal());
+        this.record.writeLong(log.getTimeStamp());
+        writeMarker(log.getMarker());
+        writeString(log.getMessage(), this.record);
+
+        Object[] arguments = log.getArgumentArray();
+        if (arguments != null) {
+            this.record.writeInt(arguments.length);
+            for (Object argument : arguments) {
+                writeArgument(argument);
+            }
+        } else {
+            this.record.writeInt(-1);
+        }
+
+        writeThrowable(log.getThrowable());
+
+        this.record.flush();
+        output.writeInt(this.recordBytes.size());
+        this.recordBytes.writeTo(output);
+    }
+
+    private void writeMarker(Marker marker) throws IOException
+    {
+        if (marker == null) {
+            this.record.writeInt(-1);
+            this.record.writeInt(-1);
+
+            return;
+        }
+
+        // Markers equality is not reliable enough (it's generally only based on the name) so use the serialized form
+        ByteArrayOutputStream bytesStream = new ByteArrayOutputStream();
+        DataOutputStream markerOutput = new DataOutputStream(bytesStream);
+        writeMarker(marker, markerOutput, 0);
+        markerOutput.flush();
+        byte[] bytes = bytesStream.toByteArray();
+        ByteBuffer key = ByteBuffer.wrap(bytes);
+
+        Integer id;
+        boolean newMarker;
+        synchronized (this) {
+            id = this.markerIds.get(key);
+            newMarker = id == null;
+            if (newMarker) {
+                id = this.markers.size();
+                this.markers.add(marker);
+                this.markerIds.put(key, id);
+            }
+        }
+
+        this.record.writeInt(id);
+        if (newMarker) {
+            this.record.writeInt(bytes.length);
+            this.record.write(bytes);
+        } else {
+            this.record.writeInt(-1);
+        }
+    }
+
+    private static void writeMarker(Marker marker, DataOutputStream output, int depth) throws IOException
+    {
+        if (marker instanceof EndTranslationMarker) {
+            output.writeByte(MARKER_END_TRANSLATION);
+        } else if (marker instanceof BeginTranslationMarker) {
+            output.writeByte(MARKER_BEGIN_TRANSLATION);
+        } else if (marker instanceof TranslationMarker) {
+            output.writeByte(MARKER_TRANSLATION);
+        } else {
+            output.writeByte(MARKER_BASIC);
+        }
+
+        writeString(marker.getName(), output);
+        if (marker instanceof TranslationMarker) {
+            writeString(((TranslationMarker) marker).getTranslationKey(), output);
+        }
+
+        List<Marker> references = new ArrayList<>();
+        if (depth < MAX_MARKER_DEPTH) {
+            for (Iterator<Marker> it = marker.iterator(); it.hasNext();) {
+                references.add(it.next());
+            }
+        }
+        output.writeInt(references.size());
+        for (Marker reference : references) {
+            writeMarker(reference, output, depth + 1);
+        }
+    }
+
+    private void writeArgument(Object argument) throws IOException
+    {
+        if (argument == null) {
+            this.record.writeByte(ARGUMENT_NULL);
+        } else {
+            this.record.writeByte(ARGUMENT_STRING);
+            writeString(toString(argument), this.record);
+        }
+    }
+
+    private String toString(Object argument)
+    {
+        try {
+            return argument.toString();
+        } catch (Exception e) {
+            return "[FAILED toString()]";
+        }
+    }
+
+    private void writeThrowable(Throwable throwable) throws IOException
+    {
+        // Stop at the first cause already written in case of a cycle
+        Set<Throwable> written = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Throwable current = throwable; current != null && written.add(current); current = current.getCause()) {
+            this.record.writeBoolean(true);
+
+            writeString(current instanceof StoredThrowable ? ((StoredThrowable) current).getClassName()
+                : current.getClass().getName(), this.record);
+            writeString(current.getMessage(), this.record);
+
+            StackTraceElement[] stackTrace = current.getStackTrace();
+            this.record.writeInt(stackTrace.length);
+            for (StackTraceElement element : stackTrace) {
+                writeString(element.getClassName(), this.record);
+                writeString(element.getMethodName(), this.record);
+                writeString(element.getFileName(), this.record);
+                this.record.writeInt(element.getLineNumber());
+            }
+        }
+
+        this.record.writeBoolean(false);
+    }
+
+    private static void writeString(String value, DataOutputStream output) throws IOException
+    {
+        if (value != null) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            output.writeInt(bytes.length);
+            output.write(bytes);
+        } else {
+            output.writeInt(-1);
+        }
+    }
+
+    /**
+     * Skip a log without parsing it, except for the markers it might define.
+     *
+     * @param input the stream from where to read the log
+     * @return the level of the skipped log
+     * @throws IOException when failing to read the log
+     */
+    public LogLevel skip(DataInputStream input) throws IOException
+    {
+        int length = input.readInt();
+
+        LogLevel level = LEVELS[input.readByte()];
+        input.readLong();
+        int remaining = length - readMarker(input).length;
+
+        while (remaining > 0) {
+            int skipped = input.skipBytes(remaining);
+            if (skipped <= 0) {
+                throw new EOFException();
+            }
+            remaining -= skipped;
+        }
+
+        return level;
+    }
+
+    /**
+     * @param input the stream from where to read the log
+     * @return the log
+     * @throws IOException when failing to read the log
+     */
+    public LogEvent read(DataInputStream input) throws IOException
+    {
+        input.readInt();
+
+        LogLevel level = LEVELS[input.readByte()];
+        long timeStamp = input.readLong();
+        Marker marker = readMarker(input).marker;
+        String message = readString(input);
+
+        Object[] arguments = null;
+        int argumentCount = input.readInt();
+        if (argumentCount >= 0) {
+            arguments = new Object[argumentCount];
+            for (int i = 0; i < argumentCount; ++i) {
+                arguments[i] = input.readByte() == ARGUMENT_NULL ? null : readString(input);
+            }
+        }
+
+        Throwable throwable = readThrowable(input);
+
+        return LogUtils.newLogEvent(marker, level, message, arguments, throwable, timeStamp);
+    }
+
+    private MarkerRecord readMarker(DataInputStream input) throws IOException
+    {
+        int id = input.readInt();
+        byte[] bytes = readBytes(input);
+
+        Marker marker = null;
+        if (id >= 0) {
+            synchronized (this) {
+                if (id < this.markers.size()) {
+                    marker = this.markers.get(id);
+                } else if (bytes != null) {
+                    marker = readMarker(new DataInputStream(new ByteArrayInputStream(bytes)), 0);
+
+                    this.markers.add(marker);
+                    this.markerIds.put(ByteBuffer.wrap(bytes), id);
+                }
+            }
+        }
+
+        // level + timestamp + marker id + marker bytes
+        return new MarkerRecord(marker, 1 + 8 + 4 + 4 + (bytes != null ? bytes.length : 0));
+    }
+
+    private static Marker readMarker(DataInputStream input, int depth) throws IOException
+    {
+        if (depth > MAX_MARKER_DEPTH) {
+            throw new IOException("Too many nested log markers");
+        }
+
+        byte type = input.readByte();
+        String name = readString(input);
+        String translationKey = type != MARKER_BASIC ? readString(input) : null;
+
+        int referenceCount = input.readInt();
+        Marker[] references = new Marker[Math.max(0, referenceCount)];
+        for (int i = 0; i < references.length; ++i) {
+            references[i] = readMarker(input, depth + 1);
+        }
+
+        if (name == null || (type != MARKER_BASIC && translationKey == null)) {
+            throw new IOException("Invalid log marker");
+        }
+
+        Marker marker;
+        if (type == MARKER_END_TRANSLATION) {
+            marker = new EndTranslationMarker(translationKey);
+        } else if (type == MARKER_BEGIN_TRANSLATION) {
+            marker = new BeginTranslationMarker(translationKey);
+        } else if (type == MARKER_TRANSLATION) {
+            // The name of a translation marker depends on the constructor used to create it
+            if (name.equals(TranslationMarker.NAME)) {
+                marker = new TranslationMarker(translationKey);
+            } else {
+                marker = new TranslationMarker(translationKey, references);
+            }
+        } else {
+            marker = MarkerFactory.getDetachedMarker(name);
+        }
+
+        for (Marker reference : references) {
+            if (!marker.contains(reference)) {
+                marker.add(reference);
+            }
+        }
+
+        return marker;
+    }
+
+    private static Throwable readThrowable(DataInputStream input) throws IOException
+    {
+        List<String[]> throwables = new ArrayList<>();
+        List<StackTraceElement[]> stackTraces = new ArrayList<>();
+        while (input.readBoolean()) {
+            throwables.add(new String[] { readString(input), readString(input) });
+
+            StackTraceElement[] stackTrace = new StackTraceElement[input.readInt()];
+            for (int i = 0; i < stackTrace.length; ++i) {
+                stackTrace[i] = readStackTraceElement(input);
+            }
+            stackTraces.add(stackTrace);
+        }
+
+        // Start with the deepest cause
+        Throwable throwable = null;
+        for (int i = throwables.size() - 1; i >= 0; --i) {
+            throwable = new StoredThrowable(throwables.get(i)[0], throwables.get(i)[1], throwable);
+            throwable.setStackTrace(stackTraces.get(i));
+        }
+
+        return throwable;
+    }
+
+    private static StackTraceElement readStackTraceElement(DataInputStream input) throws IOException
+    {
+        String className = readString(input);
+        String methodName = readString(input);
+        String fileName = readString(input);
+        int lineNumber = input.readInt();
+
+        if (className == null || methodName == null) {
+            throw new IOException("Invalid stack trace element");
+        }
+
+        return new StackTraceElement(className, methodName, fileName, lineNumber);
+    }
+
+    private static byte[] readBytes(DataInputStream input) throws IOException
+    {
+        int length = input.readInt();
+        if (length < 0) {
+            return null;
+        }
+
+        byte[] bytes = new byte[length];
+        input.readFully(bytes);
+
+        return bytes;
+    }
+
+    private static String readString(DataInputStream input) throws IOException
+    {
+        byte[] bytes = readBytes(input);
+
+        return bytes != null ? new String(bytes, StandardCharsets.UTF_8) : null;
+    }
+
+    private static final class MarkerRecord
+    {
+        private final Marker marker;
+
+        private final int length;
+
+        MarkerRecord(Marker marker, int length)
+        {
+            this.marker = marker;
+            this.length = length;
+        }
+    }
+}
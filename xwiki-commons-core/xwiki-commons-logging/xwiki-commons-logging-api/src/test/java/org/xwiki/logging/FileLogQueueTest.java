@@ -0,0 +1,285 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.logging;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.xwiki.logging.event.BeginLogEvent;
+import org.xwiki.logging.event.LogEvent;
+import org.xwiki.logging.marker.BeginTranslationMarker;
+import org.xwiki.logging.marker.TranslationMarker;
+import org.xwiki.test.junit5.XWikiTempDir;
+import org.xwiki.test.junit5.XWikiTempDirExtension;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test {@link FileLogQueue}.
+ *
+ * @version $Id$
+ */
+@ExtendWith(XWikiTempDirExtension.class)
+public class FileLogQueueTest
+{
+    @XWikiTempDir
+    private File tmpDir;
+
+    private File file;
+
+    private FileLogQueue queue;
+
+    @BeforeEach
+    public void beforeEach()
+    {
+        this.file = new File(this.tmpDir, "log");
+        this.queue = new FileLogQueue(this.file, 100);
+    }
+
+    private List<String> messages(Iterable<LogEvent> logs)
+    {
+        List<String> messages = new ArrayList<>();
+        for (LogEvent log : logs) {
+            messages.add(log.getFormattedMessage());
+        }
+
+        return messages;
+    }
+
+    private List<String> expected(int from, int to)
+    {
+        List<String> messages = new ArrayList<>();
+        for (int i = from; i < to; ++i) {
+            messages.add("message " + i);
+        }
+
+        return messages;
+    }
+
+    @Test
+    public void keepOnlyRecentLogsInMemory()
+    {
+        for (int i = 0; i < 1000; ++i) {
+            this.queue.info("message {}", i);
+        }
+
+        assertTrue(this.file.exists());
+        assertEquals(1000, this.queue.size());
+        assertEquals(expected(0, 1000), messages(this.queue));
+        assertEquals(1000, this.queue.toArray().length);
+        assertEquals(1000, this.queue.getLogCount(LogLevel.INFO));
+        assertEquals(0, this.queue.getLogCount(LogLevel.ERROR));
+        assertFalse(this.queue.containLogsFrom(LogLevel.WARN));
+        assertTrue(this.queue.containLogsFrom(LogLevel.INFO));
+        assertEquals(1000, this.queue.getLogs(LogLevel.INFO).size());
+    }
+
+    @Test
+    public void getLogsPage()
+    {
+        for (int i = 0; i < 1000; ++i) {
+            this.queue.info("message {}", i);
+        }
+
+        assertEquals(expected(0, 10), messages(this.queue.getLogs(0, 10)));
+        assertEquals(expected(120, 140), messages(this.queue.getLogs(120, 20)));
+        assertEquals(expected(990, 1000), messages(this.queue.getLogs(990, 20)));
+        assertEquals(expected(0, 0), messages(this.queue.getLogs(1000, 20)));
+    }
+
+    @Test
+    public void storedLogs()
+    {
+        Exception exception = new Exception("exception");
+        this.queue.error(new BeginTranslationMarker("translation.key"), "message {} {}",
+            new Object[] { null, Arrays.asList("value"), exception });
+        for (int i = 0; i < 200; ++i) {
+            this.queue.info("message {}", i);
+        }
+
+        LogEvent log = this.queue.peek();
+
+        assertTrue(log instanceof BeginLogEvent);
+        assertEquals(LogLevel.ERROR, log.getLevel());
+        assertEquals("translation.key", ((TranslationMarker) log.getMarker()).getTranslationKey());
+        assertEquals("message null [value]", log.getFormattedMessage());
+        assertEquals("exception", log.getThrowable().getMessage());
+        assertArrayEquals(exception.getStackTrace(), log.getThrowable().getStackTrace());
+        assertEquals(exception.toString(), log.getThrowable().toString());
+        assertTrue(this.queue.containLogsFrom(LogLevel.ERROR));
+    }
+
+    @Test
+    public void storedThrowableWithCauses()
+    {
+        Exception cause = new IllegalStateException("cause");
+        Exception exception = new RuntimeException(new Exception("wrapper", cause));
+        // A cycle between the causes
+        cause.initCause(exception);
+        this.queue.error(new TranslationMarker("translation.key", new BeginTranslationMarker("reference")), "message",
+            exception);
+        for (int i = 0; i < 200; ++i) {
+            this.queue.info("message {}", i);
+        }
+
+        LogEvent log = this.queue.peek();
+
+        assertEquals(new TranslationMarker("translation.key"), log.getMarker());
+        assertTrue(log.getMarker().contains(new BeginTranslationMarker("reference")));
+
+        Throwable throwable = log.getThrowable();
+        assertEquals(exception.toString(), throwable.toString());
+        assertEquals("java.lang.Exception: wrapper", throwable.getCause().toString());
+        assertEquals("java.lang.IllegalStateException: cause", throwable.getCause().getCause().toString());
+        assertNull(throwable.getCause().getCause().getCause());
+        assertArrayEquals(cause.getStackTrace(), throwable.getCause().getCause().getStackTrace());
+    }
+
+    @Test
+    public void poll()
+    {
+        for (int i = 0; i < 300; ++i) {
+            this.queue.info("message {}", i);
+        }
+
+        for (int i = 0; i < 150; ++i) {
+            assertEquals("message " + i, this.queue.poll().getFormattedMessage());
+        }
+
+        assertEquals(150, this.queue.size());
+        assertEquals(expected(150, 300), messages(this.queue));
+        assertEquals(expected(160, 170), messages(this.queue.getLogs(10, 10)));
+
+        this.queue.clear();
+
+        assertTrue(this.queue.isEmpty());
+        assertNull(this.queue.poll());
+        assertFalse(this.file.exists());
+        assertEquals(0, this.queue.getLogCount(LogLevel.INFO));
+    }
+
+    @Test
+    public void remove()
+    {
+        for (int i = 0; i < 300; ++i) {
+            this.queue.info("message {}", i);
+        }
+
+        // Stored in the file
+        LogEvent log = this.queue.getLogs(10, 1).get(0);
+        Iterator<LogEvent> iterator = this.queue.iterator();
+        assertTrue(this.queue.remove(log));
+        assertFalse(this.queue.remove(log));
+        assertEquals(299, this.queue.size());
+        // The file is replaced, not removed
+        assertTrue(this.file.exists());
+        assertFalse(new File(this.file.getPath() + ".tmp").exists());
+        assertEquals(expected(0, 10), messages(this.queue.getLogs(0, 10)));
+        assertEquals("message 11", this.queue.getLogs(10, 1).get(0).getFormattedMessage());
+        // The iterators created before only return what they can still read
+        while (iterator.hasNext()) {
+            assertNotNull(iterator.next());
+        }
+
+        assertTrue(this.queue.removeIf(event -> event.getFormattedMessage().endsWith("0")));
+        assertFalse(this.queue.removeIf(event -> event.getFormattedMessage().endsWith("0")));
+        assertEquals(270, this.queue.size());
+
+        List<LogEvent> retained = this.queue.getLogs(0, 5);
+        assertTrue(this.queue.retainAll(retained));
+        assertEquals(retained, new ArrayList<>(this.queue));
+
+        assertTrue(this.queue.removeAll(retained.subList(0, 2)));
+        assertEquals(Arrays.asList("message 3", "message 4", "message 5"), messages(this.queue));
+        assertEquals(3, this.queue.getLogCount(LogLevel.INFO));
+    }
+
+    @Test
+    public void serialize() throws Exception
+    {
+        for (int i = 0; i < 300; ++i) {
+            this.queue.info("message {}", i);
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream output = new ObjectOutputStream(bytes)) {
+            output.writeObject(this.queue);
+        }
+
+        LogQueue serializedQueue;
+        try (ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            serializedQueue = (LogQueue) input.readObject();
+        }
+
+        assertSame(LogQueue.class, serializedQueue.getClass());
+        assertEquals(expected(0, 300), messages(serializedQueue));
+    }
+
+    @Test
+    public void writeAndOpen() throws Exception
+    {
+        LogQueue logs = new LogQueue();
+        logs.warn(new TranslationMarker("translation.key"), "message {}", 42);
+        for (int i = 1; i < 300; ++i) {
+            logs.info("message {}", i);
+        }
+
+        try (FileOutputStream stream = new FileOutputStream(this.file)) {
+            stream.write("header".getBytes());
+            FileLogQueue.write(logs, stream);
+        }
+
+        FileLogQueue openedQueue = FileLogQueue.open(this.file, 6);
+
+        assertEquals(300, openedQueue.size());
+        assertEquals(1, openedQueue.getLogCount(LogLevel.WARN));
+        assertEquals("message 42", openedQueue.peek().getFormattedMessage());
+        // The arguments are stored as Strings
+        assertEquals("42", openedQueue.peek().getArgumentArray()[0]);
+        assertEquals(new TranslationMarker("translation.key"), openedQueue.peek().getMarker());
+        assertEquals(expected(200, 210), messages(openedQueue.getLogs(200, 10)));
+
+        openedQueue.info("message {}", 300);
+
+        assertEquals(expected(290, 301), messages(openedQueue.getLogs(290, 20)));
+
+        openedQueue.clear();
+
+        assertTrue(openedQueue.isEmpty());
+        assertTrue(this.file.exists());
+    }
+}
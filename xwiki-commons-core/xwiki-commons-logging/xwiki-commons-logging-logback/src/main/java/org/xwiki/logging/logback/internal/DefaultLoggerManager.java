@@ -34,7 +34,6 @@
 import org.xwiki.logging.LoggerManager;
 import org.xwiki.observation.EventListener;
 import org.xwiki.observation.ObservationManager;
-import org.xwiki.observation.WrappedThreadEventListener;
 
 import ch.qos.logback.classic.LoggerContext;
 import ch.qos.logback.classic.spi.ILoggingEvent;
@@ -110,11 +109,11 @@ public void pushLogListener(EventListener listener)
         }
 
         if (!listenerStack.isEmpty()) {
-            this.observation.removeListener(listenerStack.peek().getName());
+            this.observation.removeThreadListener(listenerStack.peek().getName());
         }
 
         if (listener != null) {
-            this.observation.addListener(new WrappedThreadEventListener(listener));
+            this.observation.addThreadListener(listener);
         }
         if (listenerStack.isEmpty()) {
             grabLog(Thread.currentThread());
@@ -131,14 +130,14 @@ public EventListener popLogListener()
         if (listenerStack != null && !listenerStack.isEmpty()) {
             listener = listenerStack.pop();
             if (listener != null) {
-                this.observation.removeListener(listener.getName());
+                this.observation.removeThreadListener(listener.getName());
             }
             if (listenerStack.isEmpty()) {
                 ungrabLog(Thread.currentThread());
             } else {
                 EventListener topListener = listenerStack.peek();
                 if (topListener != null) {
-                    this.observation.addListener(new WrappedThreadEventListener(topListener));
+                    this.observation.addThreadListener(topListener);
                 }
             }
         } else {
@@ -84,6 +84,11 @@ public class LogbackEventGenerator extends AppenderBase<ILoggingEvent> implement
      */
     private LogbackUtils utils = new LogbackUtils();
 
+    /**
+     * Lazily resolved the first time a log is appended and then reused for all the following ones.
+     */
+    private volatile ObservationManager observationManager;
+
     @Override
     public String getName()
     {
@@ -127,26 +132,37 @@ public void onEvent(Event event, Object source, Object data)
      */
     private ObservationManager getObservationManager() throws ComponentLookupException
     {
-        return this.componentManager.getInstance(ObservationManager.class);
+        if (this.observationManager == null) {
+            this.observationManager = this.componentManager.getInstance(ObservationManager.class);
+        }
+
+        return this.observationManager;
     }
 
     @Override
     protected void append(ILoggingEvent event)
     {
-        Throwable throwable = null;
-        IThrowableProxy throwableProxy = event.getThrowableProxy();
-        if (throwableProxy instanceof ThrowableProxy) {
-            throwable = ((ThrowableProxy) throwableProxy).getThrowable();
-        }
-
         try {
+            ObservationManager observation = getObservationManager();
+
+            // Don't waste time converting the log if nobody is interested in it
+            if (!observation.hasListeners(LogUtils.getLogEventClass(event.getMarker()))) {
+                return;
+            }
+
+            Throwable throwable = null;
+            IThrowableProxy throwableProxy = event.getThrowableProxy();
+            if (throwableProxy instanceof ThrowableProxy) {
+                throwable = ((ThrowableProxy) throwableProxy).getThrowable();
+            }
+
             LogLevel logLevel = this.utils.toLogLevel(event.getLevel());
 
             LogEvent logevent =
                 LogUtils.newLogEvent(event.getMarker(), logLevel, event.getMessage(), event.getArgumentArray(),
                     throwable, event.getTimeStamp());
 
-            getObservationManager().notify(logevent, event.getLoggerName(), null);
+            observation.notify(logevent, event.getLoggerName(), null);
         } catch (IllegalArgumentException e) {
             this.logger.debug("Unsupported log level [{}]", event.getLevel());
         } catch (ComponentLookupException e) {
@@ -0,0 +1,189 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.logging.logback.internal;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.slf4j.LoggerFactory;
+import org.xwiki.component.descriptor.DefaultComponentDescriptor;
+import org.xwiki.component.embed.EmbeddableComponentManager;
+import org.xwiki.component.manager.ComponentLookupException;
+import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.component.util.ReflectionUtils;
+import org.xwiki.logging.LogLevel;
+import org.xwiki.logging.LogUtils;
+import org.xwiki.logging.event.AbstractLogEventListener;
+import org.xwiki.observation.ObservationManager;
+import org.xwiki.observation.event.Event;
+import org.xwiki.observation.internal.DefaultObservationManager;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.AppenderBase;
+
+/**
+ * Measure the cost of logging through {@link LogbackEventGenerator} depending on the number of listeners capturing the
+ * logs, compared to the previous implementation (reproduced in {@link LegacyEventGenerator}).
+ * <p>
+ * This is not a unit test, run it with {@code java -cp <test classpath> org.openjdk.jmh.Main
+ * LogbackEventGeneratorBenchmark}.
+ *
+ * @version $Id$
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LogbackEventGeneratorBenchmark
+{
+    /**
+     * The number of listeners capturing the logs.
+     */
+    @Param({ "0", "1", "10" })
+    public int listeners;
+
+    private Logger logger;
+
+    private Logger legacyLogger;
+
+    private Blackhole blackhole;
+
+    /**
+     * Reproduce the previous implementation: lookup the observation manager and convert the log for each log line.
+     */
+    private static class LegacyEventGenerator extends AppenderBase<ILoggingEvent>
+    {
+        private final ComponentManager componentManager;
+
+        private final LogbackUtils utils = new LogbackUtils();
+
+        LegacyEventGenerator(ComponentManager componentManager)
+        {
+            this.componentManager = componentManager;
+        }
+
+        @Override
+        protected void append(ILoggingEvent event)
+        {
+            try {
+                LogLevel logLevel = this.utils.toLogLevel(event.getLevel());
+
+                this.componentManager.<ObservationManager>getInstance(ObservationManager.class).notify(
+                    LogUtils.newLogEvent(event.getMarker(), logLevel, event.getMessage(), event.getArgumentArray(),
+                        null, event.getTimeStamp()),
+                    event.getLoggerName(), null);
+            } catch (ComponentLookupException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    /**
+     * Create one Logback logger per implementation, each with the corresponding appender as only appender.
+     *
+     * @param blackhole used to consume the events received by the listeners
+     */
+    @Setup
+    public void setUp(Blackhole blackhole)
+    {
+        this.blackhole = blackhole;
+
+        DefaultObservationManager observationManager = new DefaultObservationManager();
+        ReflectionUtils.setFieldValue(observationManager, "logger",
+            LoggerFactory.getLogger(DefaultObservationManager.class));
+        for (int i = 0; i < this.listeners; ++i) {
+            String name = "listener" + i;
+            observationManager.addListener(new AbstractLogEventListener()
+            {
+                @Override
+                public String getName()
+                {
+                    return name;
+                }
+
+                @Override
+                public void onEvent(Event event, Object source, Object data)
+                {
+                    LogbackEventGeneratorBenchmark.this.blackhole.consume(event);
+                }
+            });
+        }
+
+        EmbeddableComponentManager componentManager = new EmbeddableComponentManager();
+        DefaultComponentDescriptor<ObservationManager> descriptor = new DefaultComponentDescriptor<>();
+        descriptor.setRoleType(ObservationManager.class);
+        componentManager.registerComponent(descriptor, observationManager);
+
+        LoggerContext context = new LoggerContext();
+
+        LogbackEventGenerator generator = new LogbackEventGenerator();
+        ReflectionUtils.setFieldValue(generator, "componentManager", componentManager);
+        this.logger = createLogger(context, "logger", generator);
+
+        this.legacyLogger = createLogger(context, "legacy", new LegacyEventGenerator(componentManager));
+    }
+
+    private Logger createLogger(LoggerContext context, String name, AppenderBase<ILoggingEvent> appender)
+    {
+        appender.setContext(context);
+        appender.start();
+
+        Logger contextLogger = context.getLogger(name);
+        contextLogger.setLevel(Level.DEBUG);
+        contextLogger.setAdditive(false);
+        contextLogger.addAppender(appender);
+
+        return contextLogger;
+    }
+
+    /**
+     * Log through the previous implementation.
+     */
+    @Benchmark
+    public void legacyLog()
+    {
+        this.legacyLogger.debug("Debug message with parameter [{}]", this);
+    }
+
+    /**
+     * Log through {@link LogbackEventGenerator}.
+     */
+    @Benchmark
+    public void log()
+    {
+        this.logger.debug("Debug message with parameter [{}]", this);
+    }
+}
@@ -28,6 +28,7 @@
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.xwiki.logging.LogLevel;
+import org.xwiki.logging.event.BeginLogEvent;
 import org.xwiki.logging.event.LogEvent;
 import org.xwiki.observation.EventListener;
 import org.xwiki.observation.ObservationManager;
@@ -38,6 +39,7 @@
 import org.xwiki.test.annotation.ComponentList;
 
 import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
@@ -92,6 +94,30 @@ public void verifyThatLoggingGeneratesALogEvent()
         assertEquals("error message", this.logCapture.getMessage(0));
     }
 
+    @Test
+    public void logBeforeAndAfterRegisteringListener()
+    {
+        this.logger.error("error message");
+
+        Event event = new BeginLogEvent(null, LogLevel.INFO, "dummy", null, null);
+
+        EventListener listener = mock(EventListener.class);
+        when(listener.getName()).thenReturn("mylistener");
+        when(listener.getEvents()).thenReturn(Arrays.asList(event));
+
+        this.observationManager.addListener(listener);
+
+        this.logger.error(LogEvent.MARKER_BEGIN, "begin message");
+        this.logger.error("other message");
+
+        Event expected = new BeginLogEvent(LogEvent.MARKER_BEGIN, LogLevel.ERROR, "begin message", null, null);
+        verify(listener).onEvent(eq(expected), eq(getClass().getName()), eq(null));
+        verify(listener).onEvent(any(), any(), any());
+        assertEquals("error message", this.logCapture.getMessage(0));
+        assertEquals("begin message", this.logCapture.getMessage(1));
+        assertEquals("other message", this.logCapture.getMessage(2));
+    }
+
     @Test
     public void initializeWhenNoLogback() throws Exception
     {
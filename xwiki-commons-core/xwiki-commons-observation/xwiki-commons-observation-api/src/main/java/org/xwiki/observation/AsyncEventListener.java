@@ -0,0 +1,50 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.observation;
+
+import java.util.Collection;
+
+import org.xwiki.stability.Unstable;
+
+/**
+ * An {@link EventListener} which accepts to receive events asynchronously, in a thread different from the one which
+ * sent the event.
+ * <p>
+ * The events are delivered to a given listener in the order they were sent but the {@link ObservationManager} does
+ * not wait for {@link #onEvent(org.xwiki.observation.event.Event, Object, Object)} to be called before returning so
+ * the listener must not expect to be able to modify the source or the data of the event (or to cancel it) in a way
+ * visible to the code which sent it.
+ *
+ * @version $Id$
+ * @since 11.9RC1
+ */
+@Unstable
+public interface AsyncEventListener extends EventListener
+{
+    /**
+     * @return the names of the context entries to propagate to the thread calling
+     *         {@link #onEvent(org.xwiki.observation.event.Event, Object, Object)}, {@code null} for all the entries
+     *         supported by the {@code org.xwiki.context.concurrent.ContextStoreManager}
+     */
+    default Collection<String> getContextEntries()
+    {
+        return null;
+    }
+}
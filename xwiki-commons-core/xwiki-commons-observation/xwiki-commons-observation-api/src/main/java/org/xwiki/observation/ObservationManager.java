@@ -21,6 +21,7 @@
 
 import org.xwiki.component.annotation.Role;
 import org.xwiki.observation.event.Event;
+import org.xwiki.stability.Unstable;
 
 /**
  * The main orchestrator for event notification. To receive events create a component implementing the
@@ -46,6 +47,33 @@
      */
     void removeListener(String listenerName);
 
+    /**
+     * Add a listener which only receives the events sent by the current thread. It's the same as registering a
+     * {@link WrappedThreadEventListener} but without impacting the cost of the events sent by other threads.
+     * <p>
+     * The listener should be removed from the same thread using {@link #removeThreadListener(String)}.
+     *
+     * @param eventListener the listener to register for the current thread
+     * @since 11.9RC1
+     */
+    @Unstable
+    default void addThreadListener(EventListener eventListener)
+    {
+        addListener(new WrappedThreadEventListener(eventListener));
+    }
+
+    /**
+     * Remove a listener registered for the current thread using {@link #addThreadListener(EventListener)}.
+     *
+     * @param listenerName the name of the listener to remove (must match {@link EventListener#getName()}
+     * @since 11.9RC1
+     */
+    @Unstable
+    default void removeThreadListener(String listenerName)
+    {
+        removeListener(listenerName);
+    }
+
     /**
      * Adds an Event to an already registered listener.
      *
@@ -70,6 +98,24 @@
      */
     EventListener getListener(String listenerName);
 
+    /**
+     * Indicate if sending an event of the passed class from the current thread might reach a listener. It allows
+     * skipping the creation of costly events nobody listens to.
+     * <p>
+     * A {@code true} result does not mean that a listener will actually be called since it also depends on the event
+     * instance (see {@link Event#matches(Object)}).
+     *
+     * @param eventClass the concrete class of the event to send
+     * @return false if it's certain that no listener will receive an event of the passed class sent by the current
+     *         thread
+     * @since 11.9RC1
+     */
+    @Unstable
+    default boolean hasListeners(Class<? extends Event> eventClass)
+    {
+        return true;
+    }
+
     /**
      * Call the registered listeners matching the passed Event. The definition of <em>source</em> and <em>data</em> is
      * purely up to the communicating classes.
@@ -0,0 +1,80 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.observation.event;
+
+import java.util.Objects;
+
+import org.xwiki.stability.Unstable;
+
+/**
+ * Special event matcher used by a listener which need to listen to a whole family of events: all the events which are
+ * instances of a given class or interface (for example all the {@code org.xwiki.job.event.JobEvent}s).
+ * <p>
+ * Contrary to listening to {@link AllEvent} and filtering in the listener, the listener is only called for the events
+ * of the family.
+ *
+ * @version $Id$
+ * @since 11.9RC1
+ */
+@Unstable
+public final class AssignableEvent implements Event
+{
+    private final Class<?> type;
+
+    /**
+     * @param type the class or interface implemented by the events to listen to
+     */
+    public AssignableEvent(Class<?> type)
+    {
+        this.type = type;
+    }
+
+    /**
+     * @return the class or interface implemented by the events to listen to
+     */
+    public Class<?> getType()
+    {
+        return this.type;
+    }
+
+    @Override
+    public boolean matches(Object otherEvent)
+    {
+        return this.type.isInstance(otherEvent);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return this.type.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object object)
+    {
+        return object instanceof AssignableEvent && Objects.equals(this.type, ((AssignableEvent) object).type);
+    }
+
+    @Override
+    public String toString()
+    {
+        return "AssignableEvent [" + this.type.getName() + ']';
+    }
+}
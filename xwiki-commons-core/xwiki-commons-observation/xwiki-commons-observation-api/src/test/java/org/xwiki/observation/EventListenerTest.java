@@ -27,6 +27,7 @@
 import org.xwiki.observation.event.Event;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 
 /**
  * Unit tests for {@link AbstractEventListener}.
@@ -90,4 +91,30 @@ public void constructorWithObjects()
         assertEquals(Arrays.asList(new ActionExecutionEvent("action1"), new ActionExecutionEvent("action2"),
             new ActionExecutionEvent("action3")), listener.getEvents());
     }
+
+    @Test
+    public void asyncListenerContextEntries()
+    {
+        AsyncEventListener listener = new AsyncEventListener()
+        {
+            @Override
+            public String getName()
+            {
+                return "name";
+            }
+
+            @Override
+            public List<Event> getEvents()
+            {
+                return Arrays.asList(new ActionExecutionEvent("action"));
+            }
+
+            @Override
+            public void onEvent(Event event, Object source, Object data)
+            {
+            }
+        };
+
+        assertNull(listener.getContextEntries());
+    }
 }
@@ -0,0 +1,56 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.observation.event;
+
+import java.io.Serializable;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for {@link AssignableEvent}.
+ *
+ * @version $Id$
+ */
+public class AssignableEventTest
+{
+    @Test
+    public void matches()
+    {
+        AssignableEvent event = new AssignableEvent(Serializable.class);
+
+        assertTrue(event.matches(new ActionExecutionEvent("action")));
+        assertFalse(event.matches(new ApplicationStartedEvent()));
+        assertFalse(event.matches(null));
+    }
+
+    @Test
+    public void equalsAndHashCode()
+    {
+        assertEquals(new AssignableEvent(Serializable.class), new AssignableEvent(Serializable.class));
+        assertEquals(new AssignableEvent(Serializable.class).hashCode(),
+            new AssignableEvent(Serializable.class).hashCode());
+        assertNotEquals(new AssignableEvent(Serializable.class), new AssignableEvent(Event.class));
+    }
+}
@@ -0,0 +1,276 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.observation.internal;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.slf4j.Logger;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.manager.ComponentLifecycleException;
+import org.xwiki.component.phase.Disposable;
+import org.xwiki.component.phase.Initializable;
+import org.xwiki.context.Execution;
+import org.xwiki.context.ExecutionContext;
+import org.xwiki.context.ExecutionContextManager;
+import org.xwiki.context.concurrent.ContextStoreManager;
+import org.xwiki.management.JMXBeanRegistration;
+import org.xwiki.observation.AsyncEventListener;
+import org.xwiki.observation.event.Event;
+import org.xwiki.observation.internal.AsyncListenerQueue.AsyncEvent;
+import org.xwiki.observation.internal.jmx.JMXAsyncEventListener;
+
+/**
+ * Deliver events to {@link AsyncEventListener}s in a pool of background threads, through one ordered and bounded
+ * {@link AsyncListenerQueue} per listener. The context of the thread sending the event is saved and restored using
+ * {@link ContextStoreManager}.
+ *
+ * @version $Id$
+ * @since 11.9RC1
+ */
+@Component(roles = AsyncEventDispatcher.class)
+@Singleton
+public class AsyncEventDispatcher implements Initializable, Disposable
+{
+    /**
+     * The maximum number of events waiting to be delivered to a listener before the threads sending events are
+     * blocked.
+     */
+    private static final int QUEUE_CAPACITY = 1000;
+
+    /**
+     * The maximum time (in seconds) to wait for the waiting events to be delivered when the dispatcher is disposed.
+     */
+    private static final long DISPOSE_TIMEOUT = 10;
+
+    private static final String MBEANNAME_PREFIX = "type=Observation,domain=AsyncListeners,name=";
+
+    /**
+     * Lazily loaded since it's only needed when an event is actually dispatched (and to avoid cycles).
+     */
+    @Inject
+    private Provider<ContextStoreManager> contextStoreManagerProvider;
+
+    /**
+     * Lazily loaded since it's only needed when an event is actually dispatched (and to avoid cycles).
+     */
+    @Inject
+    private Provider<ExecutionContextManager> executionContextManagerProvider;
+
+    @Inject
+    private Execution execution;
+
+    /**
+     * In order to register the listener queues MBeans for management.
+     */
+    @Inject
+    private JMXBeanRegistration jmxRegistration;
+
+    @Inject
+    private Logger logger;
+
+    private final Map<String, AsyncListenerQueue> queues = new ConcurrentHashMap<>();
+
+    private ThreadPoolExecutor executor;
+
+    @Override
+    public void initialize()
+    {
+        int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+        BasicThreadFactory threadFactory = new BasicThreadFactory.Builder()
+            .namingPattern("Asynchronous event listener %d").daemon(true).build();
+        this.executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<Runnable>(), threadFactory);
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    @Override
+    public void dispose() throws ComponentLifecycleException
+    {
+        // Give the listeners a chance to handle the events which are still waiting
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(DISPOSE_TIMEOUT);
+        try {
+            while (!isIdle()) {
+                for (AsyncListenerQueue queue : this.queues.values()) {
+                    queue.awaitIdle(deadline - System.nanoTime());
+                }
+                if (System.nanoTime() - deadline >= 0) {
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            this.logger.warn("Interrupted while waiting for the asynchronous listeners to handle their events");
+
+            Thread.currentThread().interrupt();
+        }
+
+        this.executor.shutdownNow();
+
+        for (AsyncListenerQueue queue : this.queues.values()) {
+            int dropped = queue.close();
+            if (dropped > 0) {
+                this.logger.warn("[{}] events were not delivered to listener [{}] before the dispatcher was disposed",
+                    dropped, queue.getListener().getName());
+            }
+        }
+    }
+
+    private boolean isIdle()
+    {
+        for (AsyncListenerQueue queue : this.queues.values()) {
+            if (!queue.isIdle()) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Queue the event to be delivered to the passed listener in a background thread. Wait if too many events are
+     * already waiting for this listener, for a limited time only when called from a listener.
+     *
+     * @param listener the listener to notify
+     * @param event the event to pass to the listener
+     * @param source the source of the event (or <code>null</code>)
+     * @param data the additional data related to the event (or <code>null</code>)
+     */
+    public void dispatch(AsyncEventListener listener, Event event, Object source, Object data)
+    {
+        AsyncListenerQueue queue = getQueue(listener);
+
+        try {
+            if (!queue.add(new AsyncEvent(event, source, data, saveContext(listener)))) {
+                this.logger.warn("Event [{}] was not sent to listener [{}] since the dispatcher is disposed", event,
+                    listener.getName());
+            }
+        } catch (InterruptedException e) {
+            this.logger.warn("Interrupted while waiting to send event [{}] to listener [{}]", event,
+                listener.getName());
+
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private AsyncListenerQueue getQueue(AsyncEventListener listener)
+    {
+        AsyncListenerQueue queue = this.queues.get(listener.getName());
+
+        // The listener might have been replaced by another one with the same name
+        if (queue == null || queue.getListener() != listener) {
+            synchronized (this.queues) {
+                queue = this.queues.get(listener.getName());
+                if (queue == null || queue.getListener() != listener) {
+                    if (queue != null) {
+                        this.jmxRegistration.unregisterMBean(getMBeanName(listener.getName()));
+                    }
+
+                    queue = new AsyncListenerQueue(listener, QUEUE_CAPACITY, this, this.executor);
+                    this.queues.put(listener.getName(), queue);
+
+                    this.jmxRegistration.registerMBean(new JMXAsyncEventListener(queue),
+                        getMBeanName(listener.getName()));
+                }
+            }
+        }
+
+        return queue;
+    }
+
+    /**
+     * Forget about the queue associated with the passed listener. The events already in the queue are still
+     * delivered.
+     *
+     * @param listenerName the name of the listener which has been unregistered
+     */
+    public void removeListener(String listenerName)
+    {
+        synchronized (this.queues) {
+            if (this.queues.remove(listenerName) != null) {
+                this.jmxRegistration.unregisterMBean(getMBeanName(listenerName));
+            }
+        }
+    }
+
+    private String getMBeanName(String listenerName)
+    {
+        return MBEANNAME_PREFIX + listenerName.replaceAll("[,=:\\'\\\"]", "_");
+    }
+
+    private Map<String, Serializable> saveContext(AsyncEventListener listener)
+    {
+        try {
+            ContextStoreManager contextStoreManager = this.contextStoreManagerProvider.get();
+
+            Collection<String> entries = listener.getContextEntries();
+            if (entries == null) {
+                entries = contextStoreManager.getSupportedEntries();
+            }
+
+            return contextStoreManager.save(entries);
+        } catch (Exception e) {
+            this.logger.warn("Failed to save the context to send to listener [{}]. Root cause: [{}]",
+                listener.getName(), ExceptionUtils.getRootCauseMessage(e));
+
+            return null;
+        }
+    }
+
+    /**
+     * Call the listener in a new {@link ExecutionContext} initialized from the passed stored context.
+     *
+     * @param listener the listener to notify
+     * @param event the event to pass to the listener
+     * @param source the source of the event (or <code>null</code>)
+     * @param data the additional data related to the event (or <code>null</code>)
+     * @param contextStore the context of the thread which sent the event
+     * @return true if the listener was successfully called
+     */
+    boolean deliver(AsyncEventListener listener, Event event, Object source, Object data,
+        Map<String, Serializable> contextStore)
+    {
+        try {
+            this.executionContextManagerProvider.get().initialize(new ExecutionContext());
+            this.contextStoreManagerProvider.get().restore(contextStore);
+
+            listener.onEvent(event, source, data);
+
+            return true;
+        } catch (Exception e) {
+            // protect from bad listeners
+            this.logger.error("Failed to send event [{}] to listener [{}]", event, listener, e);
+
+            return false;
+        } finally {
+            this.execution.removeContext();
+        }
+    }
+}
@@ -0,0 +1,394 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.observation.internal;
+
+import java.io.Serializable;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.xwiki.observation.AsyncEventListener;
+import org.xwiki.observation.event.Event;
+
+/**
+ * The ordered and bounded queue of events waiting to be delivered to an {@link AsyncEventListener}.
+ * <p>
+ * The queue is drained by at most one thread of the shared executor at a time so that the listener receives the events
+ * in the order they were sent. A thread trying to add an event to a full queue is blocked until some room is made,
+ * unless it's itself delivering events to a listener (see {@link #add(AsyncEvent)}).
+ *
+ * @version $Id$
+ * @since 11.9RC1
+ */
+public class AsyncListenerQueue
+{
+    /**
+     * The maximum number of events delivered in a row before giving the executor thread back to other listeners.
+     */
+    private static final int BATCH_SIZE = 100;
+
+    /**
+     * The maximum time (in milliseconds) a thread delivering events waits for some room in a full queue before adding
+     * its event beyond the capacity of the queue.
+     */
+    private static final long OVERFLOW_TIMEOUT = 100;
+
+    /**
+     * The queue drained by the current thread, if any.
+     */
+    private static final ThreadLocal<AsyncListenerQueue> DRAINING = new ThreadLocal<>();
+
+    /**
+     * The threads delivering events which are waiting for some room in a full queue.
+     */
+    private static final Set<Thread> WAITING = ConcurrentHashMap.newKeySet();
+
+    /**
+     * An event waiting to be delivered.
+     *
+     * @version $Id$
+     */
+    static final class AsyncEvent
+    {
+        private final Event event;
+
+        private final Object source;
+
+        private final Object data;
+
+        private final Map<String, Serializable> contextStore;
+
+        private final long queuedTime = System.nanoTime();
+
+        /**
+         * Indicate if the event took one of the places of the queue, or if it was added beyond its capacity.
+         */
+        private boolean bounded;
+
+        AsyncEvent(Event event, Object source, Object data, Map<String, Serializable> contextStore)
+        {
+            this.event = event;
+            this.source = source;
+            this.data = data;
+            this.contextStore = contextStore;
+        }
+    }
+
+    private final AsyncEventListener listener;
+
+    private final AsyncEventDispatcher dispatcher;
+
+    private final Executor executor;
+
+    private final int capacity;
+
+    private final Queue<AsyncEvent> queue = new LinkedBlockingQueue<>();
+
+    /**
+     * The free places of the queue.
+     */
+    private final Semaphore permits;
+
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    private volatile Thread drainingThread;
+
+    private volatile boolean closed;
+
+    private final LongAdder processedEvents = new LongAdder();
+
+    private final LongAdder failedEvents = new LongAdder();
+
+    private final LongAdder totalQueueTime = new LongAdder();
+
+    private final LongAdder totalProcessingTime = new LongAdder();
+
+    private final AtomicLong maxQueueTime = new AtomicLong();
+
+    /**
+     * @param listener the listener to deliver the events to
+     * @param capacity the maximum number of waiting events
+     * @param dispatcher the dispatcher in charge of actually delivering the event
+     * @param executor the executor used to drain the queue
+     */
+    AsyncListenerQueue(AsyncEventListener listener, int capacity, AsyncEventDispatcher dispatcher, Executor executor)
+    {
+        this.listener = listener;
+        this.capacity = capacity;
+        this.permits = new Semaphore(capacity);
+        this.dispatcher = dispatcher;
+        this.executor = executor;
+    }
+
+    /**
+     * @return the listener to deliver the events to
+     */
+    AsyncEventListener getListener()
+    {
+        return this.listener;
+    }
+
+    /**
+     * Add an event to the queue, waiting for some room if the queue is full.
+     * <p>
+     * A thread delivering events (i.e. a listener sending an event) never waits indefinitely since it might be the one
+     * which would make room in the queue, either directly or through a chain of listeners. When the queue is full such
+     * a thread first drains the queue itself if no other thread is already doing it, then waits for a limited time and
+     * finally adds the event beyond the capacity of the queue. The events are always delivered in the order they were
+     * added.
+     *
+     * @param event the event to add
+     * @return {@code false} if the queue is closed and the event was dropped
+     * @throws InterruptedException when interrupted while waiting for some room in the queue
+     */
+    boolean add(AsyncEvent event) throws InterruptedException
+    {
+        if (this.closed) {
+            return false;
+        }
+
+        if (DRAINING.get() != null) {
+            event.bounded = acquireFromDeliveringThread();
+        } else {
+            this.permits.acquire();
+            event.bounded = true;
+        }
+
+        if (this.closed) {
+            release(event);
+
+            return false;
+        }
+
+        this.queue.add(event);
+
+        schedule();
+
+        return true;
+    }
+
+    private boolean acquireFromDeliveringThread() throws InterruptedException
+    {
+        while (!this.permits.tryAcquire()) {
+            Thread drainer = this.drainingThread;
+            if (drainer != null && (drainer == Thread.currentThread() || WAITING.contains(drainer))) {
+                // The queue won't have any room until the current thread is done with the event it's delivering, or
+                // until the thread draining the queue finds some room in another one
+                return false;
+            } else if (this.scheduled.compareAndSet(false, true)) {
+                // Nobody is draining the queue: make room ourselves
+                drain();
+            } else {
+                return waitForPermit();
+            }
+        }
+
+        return true;
+    }
+
+    private boolean waitForPermit() throws InterruptedException
+    {
+        Thread thread = Thread.currentThread();
+        WAITING.add(thread);
+        try {
+            return this.permits.tryAcquire(OVERFLOW_TIMEOUT, TimeUnit.MILLISECONDS);
+        } finally {
+            WAITING.remove(thread);
+        }
+    }
+
+    private void release(AsyncEvent event)
+    {
+        if (event.bounded) {
+            this.permits.release();
+        }
+    }
+
+    private void schedule()
+    {
+        if (this.scheduled.compareAndSet(false, true)) {
+            try {
+                this.executor.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                // The dispatcher is being disposed: the waiting events are reported when the queue is closed
+                this.scheduled.set(false);
+            }
+        }
+    }
+
+    private void drain()
+    {
+        AsyncListenerQueue previous = DRAINING.get();
+        DRAINING.set(this);
+        this.drainingThread = Thread.currentThread();
+
+        try {
+            AsyncEvent event;
+            for (int i = 0; i < BATCH_SIZE && (event = this.queue.poll()) != null; ++i) {
+                release(event);
+                deliver(event);
+            }
+        } finally {
+            this.drainingThread = null;
+            if (previous != null) {
+                DRAINING.set(previous);
+            } else {
+                DRAINING.remove();
+            }
+            this.scheduled.set(false);
+
+            // Events might have been added after the last poll but before the flag was reset
+            if (!this.queue.isEmpty()) {
+                schedule();
+            } else {
+                synchronized (this) {
+                    notifyAll();
+                }
+            }
+        }
+    }
+
+    /**
+     * @return {@code true} if no event is waiting and no event is being delivered
+     */
+    boolean isIdle()
+    {
+        return this.queue.isEmpty() && !this.scheduled.get();
+    }
+
+    /**
+     * Wait until all the events of the queue are delivered.
+     *
+     * @param timeout the maximum time to wait, in nanoseconds
+     * @return {@code true} if the queue is idle, {@code false} if the timeout elapsed before
+     * @throws InterruptedException when interrupted while waiting
+     */
+    synchronized boolean awaitIdle(long timeout) throws InterruptedException
+    {
+        long deadline = System.nanoTime() + timeout;
+        while (!isIdle()) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return false;
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+
+        return true;
+    }
+
+    /**
+     * Stop accepting events and remove the ones still waiting to be delivered.
+     *
+     * @return the number of events which won't be delivered
+     */
+    int close()
+    {
+        this.closed = true;
+
+        int dropped = 0;
+        for (AsyncEvent event = this.queue.poll(); event != null; event = this.queue.poll()) {
+            release(event);
+            ++dropped;
+        }
+
+        return dropped;
+    }
+
+    private void deliver(AsyncEvent event)
+    {
+        long startTime = System.nanoTime();
+        long queueTime = startTime - event.queuedTime;
+        this.totalQueueTime.add(queueTime);
+        this.maxQueueTime.accumulateAndGet(queueTime, Math::max);
+
+        if (!this.dispatcher.deliver(this.listener, event.event, event.source, event.data, event.contextStore)) {
+            this.failedEvents.increment();
+        }
+
+        this.totalProcessingTime.add(System.nanoTime() - startTime);
+        this.processedEvents.increment();
+    }
+
+    /**
+     * @return the number of events waiting to be delivered
+     */
+    public int size()
+    {
+        return this.queue.size();
+    }
+
+    /**
+     * @return the maximum number of waiting events
+     */
+    public int getCapacity()
+    {
+        return this.capacity;
+    }
+
+    /**
+     * @return the number of events delivered to the listener
+     */
+    public long getProcessedEvents()
+    {
+        return this.processedEvents.sum();
+    }
+
+    /**
+     * @return the number of events for which the listener failed
+     */
+    public long getFailedEvents()
+    {
+        return this.failedEvents.sum();
+    }
+
+    /**
+     * @return the total time (in nanoseconds) spent by delivered events in the queue
+     */
+    public long getTotalQueueTime()
+    {
+        return this.totalQueueTime.sum();
+    }
+
+    /**
+     * @return the maximum time (in nanoseconds) spent by an event in the queue
+     */
+    public long getMaxQueueTime()
+    {
+        return this.maxQueueTime.get();
+    }
+
+    /**
+     * @return the total time (in nanoseconds) spent by the listener handling events
+     */
+    public long getTotalProcessingTime()
+    {
+        return this.totalProcessingTime.sum();
+    }
+}
@@ -20,14 +20,20 @@
 package org.xwiki.observation.internal;
 
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
+import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.slf4j.Logger;
 import org.xwiki.component.annotation.Component;
@@ -37,17 +43,29 @@
 import org.xwiki.component.event.ComponentDescriptorRemovedEvent;
 import org.xwiki.component.manager.ComponentLookupException;
 import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.observation.AsyncEventListener;
 import org.xwiki.observation.EventListener;
 import org.xwiki.observation.ObservationManager;
 import org.xwiki.observation.event.AllEvent;
+import org.xwiki.observation.event.AssignableEvent;
 import org.xwiki.observation.event.Event;
 
 /**
  * Default implementation of the {@link ObservationManager}.
  * <p>
- * This component use synchronized for concurrent protection instead of having
- * {@link java.util.concurrent.ConcurrentHashMap} everywhere because it's more efficient since most of methods access to
- * several maps and generally do enumerations.
+ * Registrations are modified under a lock and compiled into an immutable dispatch table (one flat array of listeners
+ * per concrete event class, with the {@link AssignableEvent} and {@link AllEvent} listeners merged in) which is replaced
+ * as a whole on each modification. The entry of a given event class is resolved the first time an event of this class
+ * is sent and removed when a registration which could impact it is modified. This way, once resolved,
+ * {@link #notify(Event, Object, Object)} never takes any lock and does not allocate anything: it's a single map lookup
+ * followed by an array walk.
+ * <p>
+ * Listeners registered with {@link #addThreadListener(EventListener)} are stored in a thread local and are only
+ * consulted for the events sent by the thread which registered them, so that their number does not impact the events
+ * sent by the other threads.
+ * <p>
+ * Listeners implementing {@link AsyncEventListener} are notified through the {@link AsyncEventDispatcher} instead of
+ * being called in the thread sending the event.
  *
  * @version $Id$
  */
@@ -55,16 +73,30 @@
 @Singleton
 public class DefaultObservationManager implements ObservationManager
 {
+    private static final RegisteredListener[] NO_LISTENERS = new RegisteredListener[0];
+
     /**
      * @see #getListenersByEvent()
      */
-    private volatile Map<Class<? extends Event>, Map<String, RegisteredListener>> listenersByEvent;
+    private volatile Map<Object, Map<String, RegisteredListener>> listenersByEvent;
 
     /**
      * @see #getListenersByName()
      */
     private volatile Map<String, EventListener> listenersByName;
 
+    /**
+     * The immutable dispatch table used by {@link #notify(Event, Object, Object)}, lazily filled (copy-on-write) with
+     * the listeners resolved for each concrete event class and invalidated when {@link #listenersByEvent} is modified.
+     */
+    private volatile Map<Class<? extends Event>, RegisteredListener[]> dispatchTable = Collections.emptyMap();
+
+    /**
+     * The listeners registered for the current thread, indexed by name. The thread local value is removed as soon as
+     * there is no listener left for the thread.
+     */
+    private final ThreadLocal<ThreadListeners> threadListeners = new ThreadLocal<>();
+
     /**
      * Used to find all components implementing {@link EventListener} to register them automatically.
      */
@@ -78,55 +110,120 @@ public class DefaultObservationManager implements ObservationManager
     private Logger logger;
 
     /**
-     * Helper class to store the list of events of a given type associated with a given listener. We need this for
-     * performance reasons and also in order to be able to add events after a listener has been registered.
+     * Lazily loaded the first time an event is sent to an {@link AsyncEventListener} to not impact environments which
+     * don't use them.
      */
-    private static class RegisteredListener
+    private AsyncEventDispatcher asyncDispatcher;
+
+    private volatile boolean asyncDispatcherInitialized;
+
+    /**
+     * Immutable association between a listener and the events of a given type it registered. We need this for
+     * performance reasons and also in order to be able to add events after a listener has been registered (in which
+     * case a new instance replaces the previous one).
+     */
+    private static final class RegisteredListener
     {
         /**
          * Events of a given type associated with a given listener.
          */
-        private List<Event> events = new ArrayList<>();
+        private final Event[] events;
 
         /**
          * Listener associated with the events.
          */
-        private EventListener listener;
+        private final EventListener listener;
+
+        /**
+         * True if the listener accepts to receive events asynchronously.
+         */
+        private final boolean async;
 
         /**
          * @param listener the listener associated with the events.
-         * @param event the first event to associate with the passed listener. More events are added by calling
-         *            {@link #addEvent(Event)}
+         * @param events the events to associate with the passed listener
          */
-        RegisteredListener(EventListener listener, Event event)
+        RegisteredListener(EventListener listener, Event... events)
         {
-            addEvent(event);
-
             this.listener = listener;
+            this.events = events;
+            this.async = listener instanceof AsyncEventListener;
         }
 
         /**
          * @param event the event to add
+         * @return a new {@link RegisteredListener} with the passed event added
          */
-        void addEvent(Event event)
+        RegisteredListener addEvent(Event event)
         {
-            this.events.add(event);
+            return new RegisteredListener(this.listener, ArrayUtils.add(this.events, event));
         }
 
         /**
          * @param event the event to remove
+         * @return a new {@link RegisteredListener} with the passed event removed
          */
-        void removeEvent(Event event)
+        RegisteredListener removeEvent(Event event)
         {
-            this.events.remove(event);
+            return new RegisteredListener(this.listener, ArrayUtils.removeElement(this.events, event));
         }
     }
 
     /**
-     * @return the registered listeners indexed on Event classes so that it's fast to find all the listeners registered
-     *         for a given event, so that {@link #notify} calls execute fast and in a fixed amount a time.
+     * The listeners registered for a given thread. Only accessed by this thread so no synchronization is needed.
      */
-    private Map<Class<? extends Event>, Map<String, RegisteredListener>> getListenersByEvent()
+    private static final class ThreadListeners
+    {
+        private final Map<String, RegisteredListener> listeners = new LinkedHashMap<>();
+
+        /**
+         * The listeners resolved for each concrete event class, replaced on each modification so that a listener can
+         * be added or removed while the events are being sent.
+         */
+        private Map<Class<? extends Event>, RegisteredListener[]> dispatchTable = new HashMap<>();
+
+        void put(EventListener listener)
+        {
+            this.listeners.put(listener.getName(),
+                new RegisteredListener(listener, listener.getEvents().toArray(new Event[0])));
+            this.dispatchTable = new HashMap<>();
+        }
+
+        boolean remove(String listenerName)
+        {
+            if (this.listeners.remove(listenerName) != null) {
+                this.dispatchTable = new HashMap<>();
+            }
+
+            return this.listeners.isEmpty();
+        }
+
+        RegisteredListener[] get(Class<? extends Event> eventClass)
+        {
+            // Event#matches is not enough (most events accept any other event of any type) so select the events the
+            // same way the global listeners are indexed
+            return this.dispatchTable.computeIfAbsent(eventClass, key -> {
+                List<RegisteredListener> resolved = new ArrayList<>(this.listeners.size());
+                for (RegisteredListener listener : this.listeners.values()) {
+                    Event[] events = Arrays.stream(listener.events)
+                        .filter(listenerEvent -> isRegisteredFor(listenerEvent, eventClass)).toArray(Event[]::new);
+                    if (events.length > 0) {
+                        resolved.add(new RegisteredListener(listener.listener, events));
+                    }
+                }
+
+                return resolved.toArray(NO_LISTENERS);
+            });
+        }
+    }
+
+    /**
+     * @return the registered listeners indexed on Event classes (or on the {@link AssignableEvent} itself for
+     *         listeners of a family of events, see {@link #getRegistrationKey(Event)}) so that it's fast to find all the
+     *         listeners registered for a given event. Should only be modified while holding its lock and followed by a
+     *         call to {@link #invalidateDispatchTable(Object)}.
+     */
+    private Map<Object, Map<String, RegisteredListener>> getListenersByEvent()
     {
         if (this.listenersByEvent == null) {
             initializeListeners();
@@ -148,15 +245,25 @@ private Map<String, EventListener> getListenersByName()
         return this.listenersByName;
     }
 
+    /**
+     * @return the dispatch table, initialized if needed
+     */
+    private Map<Class<? extends Event>, RegisteredListener[]> getDispatchTable()
+    {
+        if (this.listenersByName == null) {
+            initializeListeners();
+        }
+
+        return this.dispatchTable;
+    }
+
     /**
      * Lazily initialized to allow @Inject {@link ObservationManager} in a listener.
-     *
-     * @todo Should we allow event inheritance ?
      */
     private synchronized void initializeListeners()
     {
         if (this.listenersByName == null) {
-            this.listenersByEvent = new ConcurrentHashMap<>();
+            this.listenersByEvent = new HashMap<>();
             this.listenersByName = new ConcurrentHashMap<>();
 
             // Can be null in unit tests
@@ -210,63 +317,216 @@ private void addListenerInernal(EventListener eventListener)
         synchronized (this.listenersByEvent) {
             // For each event defined for this listener, add it to the Event Map.
             for (Event event : eventListener.getEvents()) {
-                // Check if this is a new Event type not already registered
-                Map<String, RegisteredListener> eventListeners = this.listenersByEvent.get(event.getClass());
-                if (eventListeners == null) {
-                    // No listener registered for this event yet. Create a map to store listeners for this event.
-                    eventListeners = new ConcurrentHashMap<>();
-                    this.listenersByEvent.put(event.getClass(), eventListeners);
-                    // There is no RegisteredListener yet, create one
-                    eventListeners.put(eventListener.getName(), new RegisteredListener(eventListener, event));
-                } else {
-                    // Add an event to existing RegisteredListener object
-                    RegisteredListener registeredListener = eventListeners.get(eventListener.getName());
-                    if (registeredListener == null) {
-                        eventListeners.put(eventListener.getName(), new RegisteredListener(eventListener, event));
-                    } else {
-                        registeredListener.addEvent(event);
+                addEventInternal(eventListener.getName(), eventListener, event);
+            }
+        }
+    }
+
+    /**
+     * Must be called while holding the lock on {@link #listenersByEvent}.
+     *
+     * @param listenerName the name of the listener
+     * @param eventListener the listener to associate with the event if not already registered for this event type
+     * @param event the event to add
+     */
+    private void addEventInternal(String listenerName, EventListener eventListener, Event event)
+    {
+        Object key = getRegistrationKey(event);
+
+        // Check if this is a new Event type not already registered
+        Map<String, RegisteredListener> eventListeners =
+            this.listenersByEvent.computeIfAbsent(key, k -> new LinkedHashMap<>());
+
+        RegisteredListener registeredListener = eventListeners.get(listenerName);
+        if (registeredListener == null) {
+            // There is no RegisteredListener yet, create one
+            eventListeners.put(listenerName, new RegisteredListener(eventListener, event));
+        } else {
+            // Add an event to existing RegisteredListener object
+            eventListeners.put(listenerName, registeredListener.addEvent(event));
+        }
+
+        invalidateDispatchTable(key);
+    }
+
+    /**
+     * @param event the event registered by a listener
+     * @return the key under which the listeners registered for the passed event are stored: the {@link AssignableEvent}
+     *         itself for a family of events, the event class otherwise
+     */
+    private static Object getRegistrationKey(Event event)
+    {
+        return event instanceof AssignableEvent ? event : event.getClass();
+    }
+
+    /**
+     * @param listenerEvent the event registered by a listener
+     * @param eventClass the concrete class of the sent event
+     * @return true if the listener registered with the passed event should be given a chance to match events of the
+     *         passed class, consistently with {@link #resolveListeners(Class)}
+     */
+    private static boolean isRegisteredFor(Event listenerEvent, Class<? extends Event> eventClass)
+    {
+        Object key = getRegistrationKey(listenerEvent);
+
+        if (key instanceof AssignableEvent) {
+            return ((AssignableEvent) key).getType().isAssignableFrom(eventClass);
+        }
+
+        return key == eventClass || key == AllEvent.class;
+    }
+
+    /**
+     * Remove from the dispatch table the entries impacted by a modification of the listeners registered with the passed
+     * key. Must be called while holding the lock on {@link #listenersByEvent}.
+     *
+     * @param key the key of the registrations which have been modified
+     */
+    private void invalidateDispatchTable(Object key)
+    {
+        Predicate<Class<? extends Event>> impacted;
+        if (key == AllEvent.class) {
+            // The AllEvent listeners are merged in every entry
+            impacted = eventClass -> true;
+        } else if (key instanceof AssignableEvent) {
+            Class<?> type = ((AssignableEvent) key).getType();
+            impacted = type::isAssignableFrom;
+        } else {
+            impacted = eventClass -> eventClass == key;
+        }
+
+        if (this.dispatchTable.keySet().stream().anyMatch(impacted)) {
+            Map<Class<? extends Event>, RegisteredListener[]> table = new HashMap<>(this.dispatchTable);
+            table.keySet().removeIf(impacted);
+            this.dispatchTable = table;
+        }
+    }
+
+    /**
+     * Resolve the listeners to notify for events of the passed class and add them to the dispatch table.
+     *
+     * @param eventClass the concrete class of the sent event
+     * @return the listeners to notify
+     */
+    private RegisteredListener[] resolveListeners(Class<? extends Event> eventClass)
+    {
+        synchronized (getListenersByEvent()) {
+            // Might have been resolved by another thread in the meantime
+            RegisteredListener[] listeners = this.dispatchTable.get(eventClass);
+
+            if (listeners == null) {
+                // Make sure a listener is only listed once, even if it registered several matching events
+                Map<String, RegisteredListener> resolved = new LinkedHashMap<>();
+                addListeners(resolved, this.listenersByEvent.get(eventClass));
+                for (Map.Entry<Object, Map<String, RegisteredListener>> entry : this.listenersByEvent.entrySet()) {
+                    if (entry.getKey() instanceof AssignableEvent
+                        && ((AssignableEvent) entry.getKey()).getType().isAssignableFrom(eventClass)) {
+                        addListeners(resolved, entry.getValue());
                     }
                 }
+                addListeners(resolved, this.listenersByEvent.get(AllEvent.class));
+
+                listeners = toArray(resolved);
+
+                Map<Class<? extends Event>, RegisteredListener[]> table = new HashMap<>(this.dispatchTable);
+                table.put(eventClass, listeners);
+                this.dispatchTable = table;
+            }
+
+            return listeners;
+        }
+    }
+
+    private static void addListeners(Map<String, RegisteredListener> resolved,
+        Map<String, RegisteredListener> listeners)
+    {
+        if (listeners != null) {
+            for (Map.Entry<String, RegisteredListener> entry : listeners.entrySet()) {
+                resolved.merge(entry.getKey(), entry.getValue(), (previous, listener) -> new RegisteredListener(
+                    previous.listener, ArrayUtils.addAll(previous.events, listener.events)));
             }
         }
     }
 
+    private static RegisteredListener[] toArray(Map<String, RegisteredListener> listeners)
+    {
+        return listeners != null ? listeners.values().toArray(NO_LISTENERS) : NO_LISTENERS;
+    }
+
     @Override
     public void removeListener(String listenerName)
     {
         getListenersByName().remove(listenerName);
-        for (Map.Entry<Class<? extends Event>, Map<String, RegisteredListener>> entry : this.listenersByEvent
-            .entrySet()) {
-            entry.getValue().remove(listenerName);
-            if (entry.getValue().isEmpty()) {
-                this.listenersByEvent.remove(entry.getKey());
+
+        synchronized (this.listenersByEvent) {
+            List<Object> modifiedKeys = new ArrayList<>();
+            for (Iterator<Map.Entry<Object, Map<String, RegisteredListener>>> it =
+                this.listenersByEvent.entrySet().iterator(); it.hasNext();) {
+                Map.Entry<Object, Map<String, RegisteredListener>> entry = it.next();
+                if (entry.getValue().remove(listenerName) != null) {
+                    modifiedKeys.add(entry.getKey());
+                    if (entry.getValue().isEmpty()) {
+                        it.remove();
+                    }
+                }
             }
+
+            modifiedKeys.forEach(this::invalidateDispatchTable);
+        }
+
+        if (this.asyncDispatcher != null) {
+            this.asyncDispatcher.removeListener(listenerName);
         }
     }
 
     @Override
-    public void addEvent(String listenerName, Event event)
+    public void addThreadListener(EventListener eventListener)
     {
-        Map<String, RegisteredListener> listeners = getListenersByEvent().get(event.getClass());
+        // Make sure the listener components are registered since some of them might be the ones generating the events
+        // (for example the log events)
+        getListenersByName();
+
+        ThreadListeners listeners = this.threadListeners.get();
         if (listeners == null) {
-            listeners = new ConcurrentHashMap<>();
-            this.listenersByEvent.put(event.getClass(), listeners);
+            listeners = new ThreadListeners();
+            this.threadListeners.set(listeners);
         }
-        RegisteredListener listener = listeners.get(listenerName);
-        if (listener != null) {
-            listener.addEvent(event);
-        } else {
-            listeners.put(listenerName, new RegisteredListener(this.getListener(listenerName), event));
+
+        listeners.put(eventListener);
+    }
+
+    @Override
+    public void removeThreadListener(String listenerName)
+    {
+        ThreadListeners listeners = this.threadListeners.get();
+        if (listeners != null && listeners.remove(listenerName)) {
+            // Don't keep anything in threads which don't need it anymore (typically the threads of a pool)
+            this.threadListeners.remove();
+        }
+    }
+
+    @Override
+    public void addEvent(String listenerName, Event event)
+    {
+        synchronized (getListenersByEvent()) {
+            addEventInternal(listenerName, getListener(listenerName), event);
         }
     }
 
     @Override
     public void removeEvent(String listenerName, Event event)
     {
-        Map<String, RegisteredListener> listeners = getListenersByEvent().get(event.getClass());
-        RegisteredListener listener = listeners.get(listenerName);
-        if (listener != null) {
-            listener.removeEvent(event);
+        synchronized (getListenersByEvent()) {
+            Object key = getRegistrationKey(event);
+            Map<String, RegisteredListener> listeners = this.listenersByEvent.get(key);
+            if (listeners != null) {
+                RegisteredListener listener = listeners.get(listenerName);
+                if (listener != null) {
+                    listeners.put(listenerName, listener.removeEvent(event));
+
+                    invalidateDispatchTable(key);
+                }
+            }
         }
     }
 
@@ -276,19 +536,31 @@ public EventListener getListener(String listenerName)
         return getListenersByName().get(listenerName);
     }
 
+    @Override
+    public boolean hasListeners(Class<? extends Event> eventClass)
+    {
+        RegisteredListener[] listeners = getDispatchTable().get(eventClass);
+        if (listeners == null) {
+            listeners = resolveListeners(eventClass);
+        }
+
+        return listeners.length > 0 || this.threadListeners.get() != null;
+    }
+
     @Override
     public void notify(Event event, Object source, Object data)
     {
-        // Find all listeners for this event
-        Map<String, RegisteredListener> regListeners = getListenersByEvent().get(event.getClass());
-        if (regListeners != null) {
-            notify(regListeners.values(), event, source, data);
+        // Find all listeners for this event, including the ones listening to its family or to all events
+        RegisteredListener[] listeners = getDispatchTable().get(event.getClass());
+        if (listeners == null) {
+            listeners = resolveListeners(event.getClass());
         }
+        notify(listeners, event, source, data);
 
-        // Find listener listening all events
-        Map<String, RegisteredListener> allEventRegListeners = this.listenersByEvent.get(AllEvent.class);
-        if (allEventRegListeners != null) {
-            notify(allEventRegListeners.values(), event, source, data);
+        // Listeners registered for the current thread
+        ThreadListeners currentThreadListeners = this.threadListeners.get();
+        if (currentThreadListeners != null) {
+            notify(currentThreadListeners.get(event.getClass()), event, source, data);
         }
 
         // We want this Observation Manager to be able to handle new Event Listener components being added or removed
@@ -310,14 +582,19 @@ public void notify(Event event, Object source, Object data)
      * @param source the source of the event (or <code>null</code>)
      * @param data the additional data related to the event (or <code>null</code>)
      */
-    private void notify(Collection<RegisteredListener> listeners, Event event, Object source, Object data)
+    private void notify(RegisteredListener[] listeners, Event event, Object source, Object data)
     {
         for (RegisteredListener listener : listeners) {
             // Verify that one of the events matches and send the first matching event
             for (Event listenerEvent : listener.events) {
                 if (listenerEvent.matches(event)) {
                     try {
-                        listener.listener.onEvent(event, source, data);
+                        AsyncEventDispatcher dispatcher = listener.async ? getAsyncDispatcher() : null;
+                        if (dispatcher != null) {
+                            dispatcher.dispatch((AsyncEventListener) listener.listener, event, source, data);
+                        } else {
+                            listener.listener.onEvent(event, source, data);
+                        }
                     } catch (Exception e) {
                         // protect from bad listeners
                         this.logger.error("Failed to send event [{}] to listener [{}]", new Object[] { event,
@@ -331,6 +608,33 @@ private void notify(Collection<RegisteredListener> listeners, Event event, Objec
         }
     }
 
+    /**
+     * @return the dispatcher used to notify {@link AsyncEventListener}s or null if it's not available (in which case
+     *         the events are sent synchronously)
+     */
+    private AsyncEventDispatcher getAsyncDispatcher()
+    {
+        if (!this.asyncDispatcherInitialized) {
+            synchronized (this) {
+                if (!this.asyncDispatcherInitialized) {
+                    // Can be null in unit tests
+                    if (this.componentManager != null) {
+                        try {
+                            this.asyncDispatcher = this.componentManager.getInstance(AsyncEventDispatcher.class);
+                        } catch (ComponentLookupException e) {
+                            this.logger.warn("Failed to lookup the asynchronous event dispatcher, all events will be "
+                                + "sent synchronously. Root cause: [{}]", ExceptionUtils.getRootCauseMessage(e));
+                        }
+                    }
+
+                    this.asyncDispatcherInitialized = true;
+                }
+            }
+        }
+
+        return this.asyncDispatcher;
+    }
+
     @Override
     public void notify(Event event, Object source)
     {
@@ -0,0 +1,94 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.observation.internal.jmx;
+
+import java.util.concurrent.TimeUnit;
+
+import org.xwiki.observation.internal.AsyncListenerQueue;
+
+/**
+ * Expose the statistics of an {@link AsyncListenerQueue}.
+ *
+ * @version $Id$
+ * @since 11.9RC1
+ */
+public class JMXAsyncEventListener implements JMXAsyncEventListenerMBean
+{
+    private static final double NANOS_PER_MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final AsyncListenerQueue queue;
+
+    /**
+     * @param queue the queue for which to return management data
+     */
+    public JMXAsyncEventListener(AsyncListenerQueue queue)
+    {
+        this.queue = queue;
+    }
+
+    @Override
+    public int getQueueSize()
+    {
+        return this.queue.size();
+    }
+
+    @Override
+    public int getQueueCapacity()
+    {
+        return this.queue.getCapacity();
+    }
+
+    @Override
+    public long getProcessedEvents()
+    {
+        return this.queue.getProcessedEvents();
+    }
+
+    @Override
+    public long getFailedEvents()
+    {
+        return this.queue.getFailedEvents();
+    }
+
+    @Override
+    public double getAverageQueueTime()
+    {
+        return average(this.queue.getTotalQueueTime());
+    }
+
+    @Override
+    public double getMaxQueueTime()
+    {
+        return this.queue.getMaxQueueTime() / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getAverageProcessingTime()
+    {
+        return average(this.queue.getTotalProcessingTime());
+    }
+
+    private double average(long totalNanos)
+    {
+        long processed = this.queue.getProcessedEvents();
+
+        return processed > 0 ? totalNanos / NANOS_PER_MILLI / processed : 0;
+    }
+}
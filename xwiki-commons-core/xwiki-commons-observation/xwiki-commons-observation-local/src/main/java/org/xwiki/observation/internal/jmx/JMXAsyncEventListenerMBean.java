@@ -0,0 +1,64 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.observation.internal.jmx;
+
+/**
+ * MBean API exposing the state of the queue of events waiting to be delivered to an asynchronous listener.
+ *
+ * @version $Id$
+ * @since 11.9RC1
+ */
+public interface JMXAsyncEventListenerMBean
+{
+    /**
+     * @return the number of events waiting to be delivered to the listener
+     */
+    int getQueueSize();
+
+    /**
+     * @return the maximum number of events waiting to be delivered before the threads sending events are blocked
+     */
+    int getQueueCapacity();
+
+    /**
+     * @return the number of events delivered to the listener
+     */
+    long getProcessedEvents();
+
+    /**
+     * @return the number of events for which the listener failed
+     */
+    long getFailedEvents();
+
+    /**
+     * @return the average time (in milliseconds) spent by an event in the queue before being delivered
+     */
+    double getAverageQueueTime();
+
+    /**
+     * @return the maximum time (in milliseconds) spent by an event in the queue before being delivered
+     */
+    double getMaxQueueTime();
+
+    /**
+     * @return the average time (in milliseconds) spent by the listener to handle an event
+     */
+    double getAverageProcessingTime();
+}
@@ -0,0 +1,279 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.observation;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.xwiki.context.ExecutionContextManager;
+import org.xwiki.context.concurrent.ContextStoreManager;
+import org.xwiki.management.JMXBeanRegistration;
+import org.xwiki.observation.event.ActionExecutionEvent;
+import org.xwiki.observation.event.Event;
+import org.xwiki.observation.internal.AsyncEventDispatcher;
+import org.xwiki.observation.internal.jmx.JMXAsyncEventListener;
+import org.xwiki.test.LogLevel;
+import org.xwiki.test.junit5.LogCaptureExtension;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link AsyncEventDispatcher}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+public class AsyncEventDispatcherTest
+{
+    @InjectMockComponents
+    private AsyncEventDispatcher dispatcher;
+
+    @MockComponent
+    private ContextStoreManager contextStoreManager;
+
+    @MockComponent
+    private ExecutionContextManager executionContextManager;
+
+    @MockComponent
+    private JMXBeanRegistration jmxRegistration;
+
+    @RegisterExtension
+    LogCaptureExtension logCapture = new LogCaptureExtension(LogLevel.WARN);
+
+    @AfterEach
+    public void afterEach() throws Exception
+    {
+        this.dispatcher.dispose();
+    }
+
+    @Test
+    public void dispatchInOrderWithContext() throws Exception
+    {
+        Map<String, Serializable> context = Collections.singletonMap("entry", "value");
+        when(this.contextStoreManager.getSupportedEntries()).thenReturn(Arrays.asList("entry"));
+        when(this.contextStoreManager.save(Arrays.asList("entry"))).thenReturn(context);
+
+        List<Event> events = new ArrayList<>();
+        for (int i = 0; i < 2000; ++i) {
+            events.add(new ActionExecutionEvent("action" + i));
+        }
+
+        List<Event> received = new CopyOnWriteArrayList<>();
+        CountDownLatch latch = new CountDownLatch(events.size());
+        AsyncEventListener listener = mock(AsyncEventListener.class);
+        when(listener.getName()).thenReturn("listener");
+        when(listener.getContextEntries()).thenReturn(null);
+        doAnswer(invocation -> {
+            received.add(invocation.getArgument(0));
+            latch.countDown();
+            return null;
+        }).when(listener).onEvent(any(), any(), any());
+
+        for (Event event : events) {
+            this.dispatcher.dispatch(listener, event, null, null);
+        }
+
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        assertEquals(events, received);
+
+        verify(this.contextStoreManager, times(events.size())).restore(context);
+        verify(this.jmxRegistration).registerMBean(any(JMXAsyncEventListener.class),
+            eq("type=Observation,domain=AsyncListeners,name=listener"));
+
+        this.dispatcher.removeListener("listener");
+
+        verify(this.jmxRegistration).unregisterMBean("type=Observation,domain=AsyncListeners,name=listener");
+    }
+
+    @Test
+    public void dispatchWhenListenerFails() throws Exception
+    {
+        CountDownLatch latch = new CountDownLatch(2);
+        AsyncEventListener listener = mock(AsyncEventListener.class);
+        when(listener.getName()).thenReturn("listener");
+        when(listener.getContextEntries()).thenReturn(Collections.emptyList());
+        doAnswer(invocation -> {
+            latch.countDown();
+            throw new RuntimeException("error");
+        }).when(listener).onEvent(any(), any(), any());
+
+        Event event = new ActionExecutionEvent("action");
+        this.dispatcher.dispatch(listener, event, null, null);
+        this.dispatcher.dispatch(listener, event, null, null);
+
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        // The error is logged after the listener returns
+        for (int i = 0; i < 100 && this.logCapture.size() < 2; ++i) {
+            Thread.sleep(100);
+        }
+
+        verify(this.contextStoreManager, times(2)).save(Collections.emptyList());
+        assertEquals(2, this.logCapture.size());
+        assertTrue(this.logCapture.getMessage(0).startsWith("Failed to send event ["));
+        assertTrue(this.logCapture.getMessage(1).startsWith("Failed to send event ["));
+    }
+
+    @Test
+    public void dispatchWhenContextCannotBeSaved() throws Exception
+    {
+        doThrow(new RuntimeException("error")).when(this.contextStoreManager).getSupportedEntries();
+
+        CountDownLatch latch = new CountDownLatch(1);
+        AsyncEventListener listener = mock(AsyncEventListener.class);
+        when(listener.getName()).thenReturn("listener");
+        when(listener.getContextEntries()).thenReturn(null);
+        doAnswer(invocation -> {
+            latch.countDown();
+            return null;
+        }).when(listener).onEvent(any(), any(), any());
+
+        this.dispatcher.dispatch(listener, new ActionExecutionEvent("action"), null, null);
+
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        assertEquals("Failed to save the context to send to listener [listener]. Root cause: [RuntimeException: error]",
+            this.logCapture.getMessage(0));
+    }
+
+    @Test
+    public void dispatchFromListenerBeyondCapacity() throws Exception
+    {
+        Event start = new ActionExecutionEvent("start");
+        List<Event> events = new ArrayList<>();
+        for (int i = 0; i < 1500; ++i) {
+            events.add(new ActionExecutionEvent("action" + i));
+        }
+
+        List<Event> received = new CopyOnWriteArrayList<>();
+        CountDownLatch latch = new CountDownLatch(events.size() + 1);
+        AsyncEventListener listener = mock(AsyncEventListener.class);
+        when(listener.getName()).thenReturn("listener");
+        when(listener.getContextEntries()).thenReturn(Collections.emptyList());
+        doAnswer(invocation -> {
+            received.add(invocation.getArgument(0));
+            if (invocation.getArgument(0) == start) {
+                for (Event event : events) {
+                    this.dispatcher.dispatch(listener, event, null, null);
+                }
+            }
+            latch.countDown();
+            return null;
+        }).when(listener).onEvent(any(), any(), any());
+
+        this.dispatcher.dispatch(listener, start, null, null);
+
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        assertEquals(start, received.get(0));
+        assertEquals(events, received.subList(1, received.size()));
+    }
+
+    @Test
+    public void dispatchBetweenListenersWithFullQueues() throws Exception
+    {
+        Event start = new ActionExecutionEvent("start");
+        List<Event> events = new ArrayList<>();
+        for (int i = 0; i < 3000; ++i) {
+            events.add(new ActionExecutionEvent("action" + i));
+        }
+
+        CountDownLatch started = new CountDownLatch(2);
+        CountDownLatch latch = new CountDownLatch(2 * (events.size() + 1));
+        List<Event> received1 = new CopyOnWriteArrayList<>();
+        List<Event> received2 = new CopyOnWriteArrayList<>();
+        AsyncEventListener listener1 = mock(AsyncEventListener.class);
+        AsyncEventListener listener2 = mock(AsyncEventListener.class);
+        mockForwardingListener(listener1, "listener1", listener2, start, events, received1, started, latch);
+        mockForwardingListener(listener2, "listener2", listener1, start, events, received2, started, latch);
+
+        this.dispatcher.dispatch(listener1, start, null, null);
+        this.dispatcher.dispatch(listener2, start, null, null);
+
+        assertTrue(latch.await(30, TimeUnit.SECONDS));
+        assertEquals(events, received1);
+        assertEquals(events, received2);
+    }
+
+    private void mockForwardingListener(AsyncEventListener listener, String name, AsyncEventListener target,
+        Event start, List<Event> events, List<Event> received, CountDownLatch started, CountDownLatch latch)
+        throws Exception
+    {
+        when(listener.getName()).thenReturn(name);
+        when(listener.getContextEntries()).thenReturn(Collections.emptyList());
+        doAnswer(invocation -> {
+            if (invocation.getArgument(0) == start) {
+                // Make sure both listeners are sending events at the same time
+                started.countDown();
+                started.await(10, TimeUnit.SECONDS);
+                for (Event event : events) {
+                    this.dispatcher.dispatch(target, event, null, null);
+                }
+            } else {
+                received.add(invocation.getArgument(0));
+            }
+            latch.countDown();
+            return null;
+        }).when(listener).onEvent(any(), any(), any());
+    }
+
+    @Test
+    public void disposeDeliversWaitingEvents() throws Exception
+    {
+        List<Event> received = new CopyOnWriteArrayList<>();
+        AsyncEventListener listener = mock(AsyncEventListener.class);
+        when(listener.getName()).thenReturn("listener");
+        when(listener.getContextEntries()).thenReturn(Collections.emptyList());
+        doAnswer(invocation -> {
+            Thread.sleep(10);
+            received.add(invocation.getArgument(0));
+            return null;
+        }).when(listener).onEvent(any(), any(), any());
+
+        List<Event> events = new ArrayList<>();
+        for (int i = 0; i < 20; ++i) {
+            events.add(new ActionExecutionEvent("action" + i));
+            this.dispatcher.dispatch(listener, events.get(i), null, null);
+        }
+
+        this.dispatcher.dispose();
+
+        assertEquals(events, received);
+    }
+}
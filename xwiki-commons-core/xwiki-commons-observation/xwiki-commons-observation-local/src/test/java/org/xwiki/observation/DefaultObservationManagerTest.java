@@ -19,6 +19,7 @@
  */
 package org.xwiki.observation;
 
+import java.io.Serializable;
 import java.util.Arrays;
 import java.util.Collections;
 
@@ -29,21 +30,28 @@
 import org.xwiki.component.event.ComponentDescriptorAddedEvent;
 import org.xwiki.observation.event.ActionExecutionEvent;
 import org.xwiki.observation.event.AllEvent;
+import org.xwiki.observation.event.ApplicationStartedEvent;
+import org.xwiki.observation.event.AssignableEvent;
 import org.xwiki.observation.event.Event;
+import org.xwiki.observation.internal.AsyncEventDispatcher;
 import org.xwiki.observation.internal.DefaultObservationManager;
 import org.xwiki.test.LogLevel;
 import org.xwiki.test.junit5.LogCaptureExtension;
 import org.xwiki.test.junit5.mockito.ComponentTest;
 import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
 import org.xwiki.test.mockito.MockitoComponentManager;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.same;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -58,6 +66,9 @@
     @InjectMockComponents
     private DefaultObservationManager manager;
 
+    @MockComponent
+    private AsyncEventDispatcher asyncDispatcher;
+
     @RegisterExtension
     LogCaptureExtension logCapture = new LogCaptureExtension(LogLevel.WARN);
 
@@ -77,6 +88,24 @@ public void notifyWhenMatching()
         verify(listener).onEvent(event, "some source", "some data");
     }
 
+    @Test
+    public void notifyAsyncListener()
+    {
+        AsyncEventListener listener = mock(AsyncEventListener.class);
+        Event event = new ActionExecutionEvent("action");
+
+        when(listener.getName()).thenReturn("mylistener");
+        when(listener.getEvents()).thenReturn(Arrays.asList(event));
+
+        this.manager.addListener(listener);
+        this.manager.notify(event, "some source", "some data");
+        verify(this.asyncDispatcher).dispatch(listener, event, "some source", "some data");
+        verify(listener, never()).onEvent(any(Event.class), any(), any());
+
+        this.manager.removeListener("mylistener");
+        verify(this.asyncDispatcher).removeListener("mylistener");
+    }
+
     @Test
     public void removeListener()
     {
@@ -200,6 +229,154 @@ public void registerListenerForAllEvents()
         verify(listener).onEvent(event, "some source", "some data");
     }
 
+    @Test
+    public void removeListenerForAllEventsWhenOtherListenersRegistered()
+    {
+        EventListener allListener = mock(EventListener.class, "all");
+        EventListener listener = mock(EventListener.class, "specific");
+        Event event = new ActionExecutionEvent("action");
+
+        when(allListener.getName()).thenReturn("all");
+        when(allListener.getEvents()).thenReturn(Arrays.asList(AllEvent.ALLEVENT));
+        when(listener.getName()).thenReturn("specific");
+        when(listener.getEvents()).thenReturn(Arrays.asList(event));
+
+        this.manager.addListener(allListener);
+        this.manager.addListener(listener);
+        this.manager.notify(event, null);
+        verify(allListener).onEvent(event, null, null);
+        verify(listener).onEvent(event, null, null);
+
+        this.manager.removeListener("all");
+        this.manager.notify(event, null);
+        verify(allListener).onEvent(event, null, null);
+        verify(listener, times(2)).onEvent(event, null, null);
+    }
+
+    @Test
+    public void registerListenerForFamilyOfEvents()
+    {
+        EventListener listener = mock(EventListener.class);
+        Event event = new ActionExecutionEvent("action");
+        Event otherEvent = new ApplicationStartedEvent();
+
+        when(listener.getName()).thenReturn("mylistener");
+        when(listener.getEvents()).thenReturn(Arrays.asList(new AssignableEvent(Serializable.class), event));
+
+        this.manager.addListener(listener);
+        this.manager.notify(event, "some source", "some data");
+        this.manager.notify(otherEvent, "some source", "some data");
+        // Called only once even if both registered events match
+        verify(listener).onEvent(event, "some source", "some data");
+        verify(listener, never()).onEvent(same(otherEvent), any(), any());
+
+        this.manager.removeEvent("mylistener", event);
+        this.manager.notify(event, "some source", "some data");
+        verify(listener, times(2)).onEvent(event, "some source", "some data");
+
+        this.manager.removeEvent("mylistener", new AssignableEvent(Serializable.class));
+        this.manager.notify(event, "some source", "some data");
+        verify(listener, times(2)).onEvent(event, "some source", "some data");
+    }
+
+    @Test
+    public void addFamilyListenerAfterEventResolution()
+    {
+        EventListener listener = mock(EventListener.class, "specific");
+        EventListener familyListener = mock(EventListener.class, "family");
+        Event event = new ActionExecutionEvent("action");
+
+        when(listener.getName()).thenReturn("specific");
+        when(listener.getEvents()).thenReturn(Arrays.asList(event));
+        when(familyListener.getName()).thenReturn("family");
+        when(familyListener.getEvents()).thenReturn(Arrays.asList(new AssignableEvent(Event.class)));
+
+        this.manager.addListener(listener);
+        this.manager.notify(event, null);
+        verify(listener).onEvent(event, null, null);
+
+        this.manager.addListener(familyListener);
+        this.manager.notify(event, null);
+        verify(listener, times(2)).onEvent(event, null, null);
+        verify(familyListener).onEvent(event, null, null);
+
+        this.manager.removeListener("family");
+        this.manager.notify(event, null);
+        verify(listener, times(3)).onEvent(event, null, null);
+        verify(familyListener).onEvent(event, null, null);
+    }
+
+    @Test
+    public void threadListener() throws Exception
+    {
+        EventListener listener = mock(EventListener.class);
+        Event event = new ActionExecutionEvent("action");
+
+        when(listener.getName()).thenReturn("mylistener");
+        when(listener.getEvents()).thenReturn(Arrays.asList(event));
+
+        this.manager.addThreadListener(listener);
+        // Not a global listener
+        assertNull(this.manager.getListener("mylistener"));
+
+        Thread thread = new Thread(() -> this.manager.notify(event, "other thread"));
+        thread.start();
+        thread.join();
+        verify(listener, never()).onEvent(any(Event.class), any(), any());
+
+        this.manager.notify(event, "current thread");
+        verify(listener).onEvent(event, "current thread", null);
+
+        this.manager.removeThreadListener("mylistener");
+        this.manager.notify(event, "current thread");
+        verify(listener).onEvent(event, "current thread", null);
+    }
+
+    @Test
+    public void threadListenerWithEventMatchingAnyEvent()
+    {
+        EventListener listener = mock(EventListener.class);
+        Event event = mock(Event.class);
+
+        when(listener.getName()).thenReturn("mylistener");
+        when(listener.getEvents()).thenReturn(Arrays.asList(event));
+        when(event.matches(any())).thenReturn(true);
+
+        this.manager.addThreadListener(listener);
+
+        // Like for the global listeners the listener should only receive events of the type it registered
+        Event otherEvent = new ActionExecutionEvent("action");
+        this.manager.notify(otherEvent, null);
+        verify(listener, never()).onEvent(any(Event.class), any(), any());
+
+        this.manager.notify(event, null);
+        verify(listener).onEvent(event, null, null);
+
+        this.manager.removeThreadListener("mylistener");
+    }
+
+    @Test
+    public void hasListeners()
+    {
+        EventListener listener = mock(EventListener.class);
+
+        when(listener.getName()).thenReturn("mylistener");
+        when(listener.getEvents()).thenReturn(Arrays.asList(new AssignableEvent(Serializable.class)));
+
+        assertFalse(this.manager.hasListeners(ActionExecutionEvent.class));
+
+        this.manager.addListener(listener);
+        assertTrue(this.manager.hasListeners(ActionExecutionEvent.class));
+        assertFalse(this.manager.hasListeners(ApplicationStartedEvent.class));
+
+        this.manager.addThreadListener(listener);
+        assertTrue(this.manager.hasListeners(ApplicationStartedEvent.class));
+
+        this.manager.removeThreadListener("mylistener");
+        this.manager.removeListener("mylistener");
+        assertFalse(this.manager.hasListeners(ActionExecutionEvent.class));
+    }
+
     /**
      * Verify that a warning is logged is we try to register a listener with the same name.
      */
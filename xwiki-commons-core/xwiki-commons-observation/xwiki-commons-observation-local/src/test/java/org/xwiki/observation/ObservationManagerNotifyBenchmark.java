@@ -0,0 +1,195 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.observation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.slf4j.LoggerFactory;
+import org.xwiki.component.util.ReflectionUtils;
+import org.xwiki.observation.event.ActionExecutionEvent;
+import org.xwiki.observation.event.AllEvent;
+import org.xwiki.observation.event.ApplicationStartedEvent;
+import org.xwiki.observation.event.Event;
+import org.xwiki.observation.internal.DefaultObservationManager;
+
+/**
+ * Compare the dispatch of {@link DefaultObservationManager#notify(Event, Object, Object)} with the previous map based
+ * implementation (reproduced in {@link LegacyDispatcher}).
+ * <p>
+ * This is not a unit test, run it with {@code java -cp <test classpath> org.openjdk.jmh.Main
+ * ObservationManagerNotifyBenchmark}.
+ *
+ * @version $Id$
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ObservationManagerNotifyBenchmark
+{
+    /**
+     * The number of registered listeners.
+     */
+    @Param({ "10", "100", "1000" })
+    public int listeners;
+
+    private DefaultObservationManager manager;
+
+    private LegacyDispatcher legacy;
+
+    private Event event;
+
+    private Blackhole blackhole;
+
+    /**
+     * Reproduce the dispatch of the previous implementation: a concurrent map of registrations per event class,
+     * iterated through its values view, looked up twice (exact class and {@link AllEvent}).
+     */
+    private static class LegacyDispatcher
+    {
+        private final Map<Class<? extends Event>, Map<String, LegacyRegistration>> listenersByEvent =
+            new ConcurrentHashMap<>();
+
+        void addListener(EventListener listener)
+        {
+            for (Event listenerEvent : listener.getEvents()) {
+                this.listenersByEvent.computeIfAbsent(listenerEvent.getClass(), k -> new ConcurrentHashMap<>())
+                    .computeIfAbsent(listener.getName(), k -> new LegacyRegistration(listener)).events
+                    .add(listenerEvent);
+            }
+        }
+
+        void notify(Event event, Object source, Object data)
+        {
+            Map<String, LegacyRegistration> regListeners = this.listenersByEvent.get(event.getClass());
+            if (regListeners != null) {
+                notify(regListeners.values(), event, source, data);
+            }
+
+            Map<String, LegacyRegistration> allEventRegListeners = this.listenersByEvent.get(AllEvent.class);
+            if (allEventRegListeners != null) {
+                notify(allEventRegListeners.values(), event, source, data);
+            }
+        }
+
+        private void notify(Iterable<LegacyRegistration> registrations, Event event, Object source, Object data)
+        {
+            for (LegacyRegistration registration : registrations) {
+                for (Event listenerEvent : registration.events) {
+                    if (listenerEvent.matches(event)) {
+                        registration.listener.onEvent(event, source, data);
+
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    private static class LegacyRegistration
+    {
+        private final List<Event> events = new ArrayList<>();
+
+        private final EventListener listener;
+
+        LegacyRegistration(EventListener listener)
+        {
+            this.listener = listener;
+        }
+    }
+
+    /**
+     * Register the listeners: most of them listen to various actions, some to an unrelated event type and a few to all
+     * events.
+     *
+     * @param blackhole used to consume the events received by the listeners
+     */
+    @Setup
+    public void setUp(Blackhole blackhole)
+    {
+        this.blackhole = blackhole;
+
+        this.manager = new DefaultObservationManager();
+        ReflectionUtils.setFieldValue(this.manager, "logger", LoggerFactory.getLogger(DefaultObservationManager.class));
+        this.legacy = new LegacyDispatcher();
+
+        for (int i = 0; i < this.listeners; ++i) {
+            Event listenerEvent;
+            if (i % 10 == 0) {
+                listenerEvent = AllEvent.ALLEVENT;
+            } else if (i % 3 == 0) {
+                listenerEvent = new ApplicationStartedEvent();
+            } else {
+                listenerEvent = new ActionExecutionEvent("action" + (i % 20));
+            }
+
+            EventListener listener = new AbstractEventListener("listener" + i, Arrays.asList(listenerEvent))
+            {
+                @Override
+                public void onEvent(Event event, Object source, Object data)
+                {
+                    ObservationManagerNotifyBenchmark.this.blackhole.consume(event);
+                }
+            };
+
+            this.manager.addListener(listener);
+            this.legacy.addListener(listener);
+        }
+
+        this.event = new ActionExecutionEvent("action1");
+    }
+
+    /**
+     * Dispatch through the previous implementation.
+     */
+    @Benchmark
+    public void legacyNotify()
+    {
+        this.legacy.notify(this.event, null, null);
+    }
+
+    /**
+     * Dispatch through the precompiled dispatch table.
+     */
+    @Benchmark
+    public void notifyDispatchTable()
+    {
+        this.manager.notify(this.event, null, null);
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.observation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.slf4j.LoggerFactory;
+import org.xwiki.component.util.ReflectionUtils;
+import org.xwiki.observation.event.ActionExecutionEvent;
+import org.xwiki.observation.event.Event;
+import org.xwiki.observation.internal.DefaultObservationManager;
+
+/**
+ * Measure the cost of an event sent by a running job while other jobs are running in other threads, with the job
+ * listeners registered as global {@link WrappedThreadEventListener}s or as thread listeners.
+ * <p>
+ * This is not a unit test, run it with {@code java -cp <test classpath> org.openjdk.jmh.Main
+ * ObservationManagerThreadListenerBenchmark}.
+ *
+ * @version $Id$
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class ObservationManagerThreadListenerBenchmark
+{
+    /**
+     * The number of jobs running in other threads.
+     */
+    @Param({ "0", "10", "100" })
+    public int jobs;
+
+    /**
+     * True to register the job listeners with {@link ObservationManager#addThreadListener(EventListener)}, false to
+     * register them as {@link WrappedThreadEventListener}s.
+     */
+    @Param({ "false", "true" })
+    public boolean threadListeners;
+
+    private DefaultObservationManager manager;
+
+    private final List<Thread> jobThreads = new ArrayList<>();
+
+    private final CountDownLatch jobsFinished = new CountDownLatch(1);
+
+    private final Event event = new ActionExecutionEvent("progress");
+
+    private Blackhole blackhole;
+
+    /**
+     * The state of a thread sending events (i.e. a running job).
+     */
+    @State(Scope.Thread)
+    public static class Job
+    {
+        private ObservationManagerThreadListenerBenchmark benchmark;
+
+        private EventListener listener;
+
+        /**
+         * Register the listener of the job in the benchmark thread.
+         *
+         * @param benchmark the benchmark
+         */
+        @Setup
+        public void setUp(ObservationManagerThreadListenerBenchmark benchmark)
+        {
+            this.benchmark = benchmark;
+            this.listener = benchmark.createListener("job" + Thread.currentThread().getId());
+
+            benchmark.startListening(this.listener);
+        }
+
+        /**
+         * Unregister the listener of the job.
+         */
+        @TearDown
+        public void tearDown()
+        {
+            this.benchmark.stopListening(this.listener);
+        }
+    }
+
+    private EventListener createListener(String name)
+    {
+        return new AbstractEventListener(name, Arrays.<Event>asList(new ActionExecutionEvent("progress")))
+        {
+            @Override
+            public void onEvent(Event event, Object source, Object data)
+            {
+                ObservationManagerThreadListenerBenchmark.this.blackhole.consume(event);
+            }
+        };
+    }
+
+    /**
+     * Start the other jobs, each one registering its listener and waiting until the end of the benchmark.
+     *
+     * @param blackhole used to consume the events received by the listeners
+     * @throws InterruptedException when interrupted while waiting for the jobs to start
+     */
+    @Setup
+    public void setUp(Blackhole blackhole) throws InterruptedException
+    {
+        this.blackhole = blackhole;
+
+        this.manager = new DefaultObservationManager();
+        ReflectionUtils.setFieldValue(this.manager, "logger", LoggerFactory.getLogger(DefaultObservationManager.class));
+
+        CountDownLatch jobsStarted = new CountDownLatch(this.jobs);
+        for (int i = 0; i < this.jobs; ++i) {
+            EventListener listener = createListener("otherjob" + i);
+            Thread thread = new Thread(() -> {
+                startListening(listener);
+                jobsStarted.countDown();
+                try {
+                    this.jobsFinished.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                stopListening(listener);
+            });
+            thread.setDaemon(true);
+            thread.start();
+            this.jobThreads.add(thread);
+        }
+
+        jobsStarted.await();
+    }
+
+    /**
+     * Stop the other jobs.
+     *
+     * @throws InterruptedException when interrupted while waiting for the jobs to stop
+     */
+    @TearDown
+    public void tearDown() throws InterruptedException
+    {
+        this.jobsFinished.countDown();
+        for (Thread thread : this.jobThreads) {
+            thread.join();
+        }
+    }
+
+    private void startListening(EventListener listener)
+    {
+        if (this.threadListeners) {
+            this.manager.addThreadListener(listener);
+        } else {
+            this.manager.addListener(new WrappedThreadEventListener(listener));
+        }
+    }
+
+    private void stopListening(EventListener listener)
+    {
+        if (this.threadListeners) {
+            this.manager.removeThreadListener(listener.getName());
+        } else {
+            this.manager.removeListener(listener.getName());
+        }
+    }
+
+    /**
+     * Send a progress event from a running job.
+     *
+     * @param job the running job
+     */
+    @Benchmark
+    public void notifyProgress(Job job)
+    {
+        this.manager.notify(this.event, job, null);
+    }
+}
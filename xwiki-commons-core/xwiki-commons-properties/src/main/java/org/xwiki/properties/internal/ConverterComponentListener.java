@@ -0,0 +1,85 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.properties.internal;
+
+import java.util.Arrays;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.event.ComponentDescriptorAddedEvent;
+import org.xwiki.component.event.ComponentDescriptorEvent;
+import org.xwiki.component.event.ComponentDescriptorRemovedEvent;
+import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.component.util.ReflectionUtils;
+import org.xwiki.observation.AbstractEventListener;
+import org.xwiki.observation.event.Event;
+import org.xwiki.properties.ConverterManager;
+import org.xwiki.properties.converter.Converter;
+
+/**
+ * Invalidate the {@link Converter}s remembered by {@link DefaultConverterManager} when a {@link Converter} component is
+ * registered or unregistered.
+ *
+ * @version $Id$
+ * @since 11.9RC1
+ */
+@Component
+@Singleton
+@Named(ConverterComponentListener.NAME)
+public class ConverterComponentListener extends AbstractEventListener
+{
+    /**
+     * The name of the listener.
+     */
+    public static final String NAME = "ConverterComponentListener";
+
+    /**
+     * Lazily loaded to not initialize the converter manager too early.
+     */
+    @Inject
+    private Provider<ConverterManager> converterManagerProvider;
+
+    /**
+     * Setup event listener.
+     */
+    public ConverterComponentListener()
+    {
+        super(NAME, Arrays.asList(new ComponentDescriptorAddedEvent(), new ComponentDescriptorRemovedEvent()));
+    }
+
+    @Override
+    public void onEvent(Event event, Object source, Object data)
+    {
+        ComponentDescriptorEvent descriptorEvent = (ComponentDescriptorEvent) event;
+
+        if (ReflectionUtils.getTypeClass(descriptorEvent.getRoleType()) == Converter.class) {
+            ConverterManager converterManager = this.converterManagerProvider.get();
+
+            if (converterManager instanceof DefaultConverterManager) {
+                ((DefaultConverterManager) converterManager).onConverterChanged(descriptorEvent.getRoleType(),
+                    descriptorEvent.getRoleHint(), (ComponentManager) source);
+            }
+        }
+    }
+}
@@ -22,6 +22,11 @@
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.lang.reflect.WildcardType;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -30,6 +35,8 @@
 
 import org.slf4j.Logger;
 import org.xwiki.component.annotation.Component;
+import org.xwiki.component.descriptor.ComponentDescriptor;
+import org.xwiki.component.descriptor.ComponentInstantiationStrategy;
 import org.xwiki.component.manager.ComponentLookupException;
 import org.xwiki.component.manager.ComponentManager;
 import org.xwiki.component.util.DefaultParameterizedType;
@@ -47,6 +54,10 @@
  * <li>then it use the default {@link Converter} (which is based on {@link org.apache.commons.beanutils.ConvertUtils} by
  * default)</li>
  * </ul>
+ * <p>
+ * The {@link Converter} found for a target type (or the lack of one) is remembered until a {@link Converter} component
+ * is registered or unregistered. Converters registered in a specific namespace are always looked up since the result
+ * depend on the context.
  *
  * @version $Id$
  * @since 2.0M2
@@ -55,6 +66,8 @@
 @Singleton
 public class DefaultConverterManager implements ConverterManager
 {
+    private static final String DEFAULT_HINT = "default";
+
     /**
      * Use to find the proper {@link Converter} component for provided target type.
      */
@@ -75,12 +88,39 @@ public class DefaultConverterManager implements ConverterManager
     @Inject
     private Converter defaultConverter;
 
+    /**
+     * Used to know if a {@link Converter} was registered in a specific namespace.
+     */
+    @Inject
+    private ComponentManager rootComponentManager;
+
     /**
      * The logger to use for logging.
      */
     @Inject
     private Logger logger;
 
+    /**
+     * The {@link Converter}s found for each target type, empty when there isn't any.
+     */
+    private final ConcurrentMap<Type, Optional<Converter<?>>> converters = new ConcurrentHashMap<>();
+
+    /**
+     * Incremented each time the cache is cleared, to not cache a {@link Converter} found before it was cleared.
+     */
+    private final AtomicLong cacheGeneration = new AtomicLong();
+
+    /**
+     * The roles of the {@link Converter}s registered in a specific namespace.
+     */
+    private final Set<Type> namespacedConverterTypes = ConcurrentHashMap.newKeySet();
+
+    /**
+     * The hints of the {@link Converter}s registered in a specific namespace with the old way of registering
+     * converters.
+     */
+    private final Set<String> namespacedConverterHints = ConcurrentHashMap.newKeySet();
+
     @Override
     public <T> T convert(Type targetType, Object value)
     {
@@ -155,24 +195,85 @@ private <T> Converter<T> lookupConverter(Type targetType)
     @Override
     public <T> Converter<T> getConverter(Type targetType)
     {
+        Optional<Converter<?>> cachedConverter = this.converters.get(targetType);
+        if (cachedConverter != null) {
+            return (Converter<T>) cachedConverter.orElse(null);
+        }
+
+        long generation = this.cacheGeneration.get();
+
+        ComponentDescriptor<?> descriptor;
+        Converter<T> converter;
         try {
             ComponentManager componentManager = this.componentManagerProvider.get();
 
             ParameterizedType converterType = new DefaultParameterizedType(null, Converter.class, targetType);
             if (componentManager.hasComponent(converterType)) {
-                return componentManager.getInstance(converterType);
+                descriptor = this.namespacedConverterTypes.contains(converterType) ? null
+                    : componentManager.getComponentDescriptor(converterType, DEFAULT_HINT);
+                converter = componentManager.getInstance(converterType);
+            } else {
+                // Old way of registering converters
+                String typeGenericName = getTypeGenericName(targetType);
+                if (componentManager.hasComponent(Converter.class, typeGenericName)) {
+                    descriptor = this.namespacedConverterHints.contains(typeGenericName) ? null
+                        : componentManager.getComponentDescriptor(Converter.class, typeGenericName);
+                    converter = componentManager.getInstance(Converter.class, typeGenericName);
+                } else {
+                    descriptor = null;
+                    converter = null;
+                }
             }
 
-            // Old way of registering converters
-            String typeGenericName = getTypeGenericName(targetType);
-            if (componentManager.hasComponent(Converter.class, typeGenericName)) {
-                return componentManager.getInstance(Converter.class, typeGenericName);
+            // Don't remember the lack of converter if a converter was registered in a namespace for this type
+            if (converter == null && isNamespaced(converterType, targetType)) {
+                return null;
             }
         } catch (ComponentLookupException e) {
             throw new ConversionException("Failed to initialize converter for target type [" + targetType + "]", e);
         }
 
-        return null;
+        // Only remember converters which are the same for every lookup
+        if (converter == null || (descriptor != null
+            && descriptor.getInstantiationStrategy() != ComponentInstantiationStrategy.PER_LOOKUP)) {
+            this.converters.put(targetType, Optional.ofNullable(converter));
+
+            // The cache was cleared in the meantime so the converter might be outdated
+            if (this.cacheGeneration.get() != generation) {
+                this.converters.remove(targetType);
+            }
+        }
+
+        return converter;
+    }
+
+    private boolean isNamespaced(Type converterType, Type targetType)
+    {
+        return this.namespacedConverterTypes.contains(converterType) || (!this.namespacedConverterHints.isEmpty()
+            && this.namespacedConverterHints.contains(getTypeGenericName(targetType)));
+    }
+
+    /**
+     * Forget about the {@link Converter}s found until now.
+     *
+     * @param roleType the role of the {@link Converter} component which was registered or unregistered
+     * @param roleHint the hint of the {@link Converter} component which was registered or unregistered
+     * @param componentManager the component manager where the {@link Converter} component was registered or
+     *            unregistered
+     * @since 11.9RC1
+     */
+    public void onConverterChanged(Type roleType, String roleHint, ComponentManager componentManager)
+    {
+        if (componentManager != null && componentManager != this.rootComponentManager) {
+            if (roleType instanceof ParameterizedType) {
+                this.namespacedConverterTypes.add(roleType);
+            } else if (roleHint != null) {
+                this.namespacedConverterHints.add(roleHint);
+            }
+        }
+
+        this.cacheGeneration.incrementAndGet();
+        this.converters.clear();
     }
 
     /**
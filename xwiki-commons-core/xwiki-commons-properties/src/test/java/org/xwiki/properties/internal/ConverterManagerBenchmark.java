@@ -0,0 +1,127 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.properties.internal;
+
+import java.awt.Color;
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xwiki.component.embed.EmbeddableComponentManager;
+import org.xwiki.component.util.DefaultParameterizedType;
+import org.xwiki.properties.ConverterManager;
+import org.xwiki.properties.converter.Converter;
+
+/**
+ * Compare the conversion of common types by {@link DefaultConverterManager} when the {@link Converter} is remembered
+ * and when it's looked up each time (which was the behavior before the cache).
+ * <p>
+ * This is not a unit test, run it with {@code java -cp <test classpath> org.openjdk.jmh.Main
+ * ConverterManagerBenchmark}.
+ *
+ * @version $Id$
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConverterManagerBenchmark
+{
+    /**
+     * The type to convert to.
+     */
+    @Param({ "Integer", "Boolean", "Enum", "Color", "List<String>" })
+    public String type;
+
+    private DefaultConverterManager converterManager;
+
+    private Type targetType;
+
+    private String value;
+
+    /**
+     * Initialize the component manager with all the available components.
+     *
+     * @throws Exception when failing to initialize the benchmark
+     */
+    @Setup
+    public void setUp() throws Exception
+    {
+        EmbeddableComponentManager componentManager = new EmbeddableComponentManager();
+        componentManager.initialize(getClass().getClassLoader());
+
+        this.converterManager = componentManager.getInstance(ConverterManager.class);
+
+        switch (this.type) {
+            case "Integer":
+                this.targetType = Integer.class;
+                this.value = "42";
+                break;
+            case "Boolean":
+                this.targetType = Boolean.class;
+                this.value = "true";
+                break;
+            case "Enum":
+                this.targetType = TimeUnit.class;
+                this.value = "SECONDS";
+                break;
+            case "Color":
+                this.targetType = Color.class;
+                this.value = "#ffffff";
+                break;
+            default:
+                this.targetType = new DefaultParameterizedType(null, List.class, String.class);
+                this.value = "value1, value2, value3";
+                break;
+        }
+    }
+
+    @Benchmark
+    public Object convert()
+    {
+        return this.converterManager.convert(this.targetType, this.value);
+    }
+
+    /**
+     * Forget the {@link Converter}s before each conversion, to measure the cost of looking them up.
+     *
+     * @return the converted value
+     */
+    @Benchmark
+    public Object convertWithoutCache()
+    {
+        this.converterManager.onConverterChanged(Converter.class, null, null);
+
+        return this.converterManager.convert(this.targetType, this.value);
+    }
+}
@@ -20,16 +20,25 @@
 package org.xwiki.properties.internal;
 
 import java.awt.Color;
+import java.lang.reflect.Type;
 
 import org.junit.Assert;
 import org.junit.Rule;
 import org.junit.Test;
+import org.xwiki.component.event.ComponentDescriptorAddedEvent;
 import org.xwiki.component.manager.ComponentLookupException;
+import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.component.util.DefaultParameterizedType;
+import org.xwiki.observation.EventListener;
 import org.xwiki.properties.ConverterManager;
 import org.xwiki.properties.converter.ConversionException;
+import org.xwiki.properties.converter.Converter;
 import org.xwiki.test.annotation.AllComponents;
 import org.xwiki.test.mockito.MockitoComponentMockingRule;
 
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
 /**
  * Validate {@link DefaultConverterManager}.
  *
@@ -47,6 +56,10 @@
         ENUMVALUE
     }
 
+    public static class CustomType
+    {
+    }
+
     @Test
     public void testConvert() throws ComponentLookupException
     {
@@ -77,4 +90,44 @@ public void testConvertSame() throws ComponentLookupException
     {
         Assert.assertSame(Color.WHITE, this.mocker.getComponentUnderTest().convert(Color.class, Color.WHITE));
     }
+
+    @Test
+    public void testConvertWithConverterRegisteredAfterConversion() throws Exception
+    {
+        CustomType value = new CustomType();
+
+        try {
+            this.mocker.getComponentUnderTest().convert(CustomType.class, "value");
+            Assert.fail("Should have failed");
+        } catch (ConversionException expected) {
+            // There is no converter for this type yet
+        }
+
+        Type converterType = new DefaultParameterizedType(null, Converter.class, CustomType.class);
+        Converter<CustomType> converter = this.mocker.registerMockComponent(converterType);
+        when(converter.convert(CustomType.class, "value")).thenReturn(value);
+
+        this.mocker.<EventListener>getInstance(EventListener.class, ConverterComponentListener.NAME)
+            .onEvent(new ComponentDescriptorAddedEvent(converterType, "default"), this.mocker, null);
+
+        Assert.assertSame(value, this.mocker.getComponentUnderTest().convert(CustomType.class, "value"));
+        Assert.assertSame(converter, this.mocker.getComponentUnderTest().getConverter(CustomType.class));
+    }
+
+    @Test
+    public void testConvertWithConverterRegisteredInNamespace() throws Exception
+    {
+        Type converterType = new DefaultParameterizedType(null, Converter.class, CustomType.class);
+        Converter<CustomType> converter = this.mocker.registerMockComponent(converterType);
+
+        this.mocker.<EventListener>getInstance(EventListener.class, ConverterComponentListener.NAME).onEvent(
+            new ComponentDescriptorAddedEvent(converterType, "default"), mock(ComponentManager.class), null);
+
+        Assert.assertSame(converter, this.mocker.getComponentUnderTest().getConverter(CustomType.class));
+
+        // The converter is looked up again each time since it depends on the context
+        this.mocker.unregisterComponent(converterType, "default");
+
+        Assert.assertNull(this.mocker.getComponentUnderTest().getConverter(CustomType.class));
+    }
 }
@@ -73,7 +73,6 @@ public ScriptContext getCurrentScriptContext()
     {
         // The Script Context is set in ScriptExecutionContextInitializer, when the XWiki Execution Context is
         // initialized so we are guaranteed it is defined when this method is called.
-        return (ScriptContext) this.execution.getContext()
-            .getProperty(ScriptExecutionContextInitializer.SCRIPT_CONTEXT_ID);
+        return this.execution.getContext().getProperty(ScriptExecutionContextInitializer.SCRIPT_CONTEXT_KEY);
     }
 }
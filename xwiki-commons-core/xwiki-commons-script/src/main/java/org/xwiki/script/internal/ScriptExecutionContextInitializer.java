@@ -21,11 +21,13 @@
 
 import javax.inject.Named;
 import javax.inject.Singleton;
+import javax.script.ScriptContext;
 
 import org.xwiki.component.annotation.Component;
 import org.xwiki.context.ExecutionContext;
 import org.xwiki.context.ExecutionContextException;
 import org.xwiki.context.ExecutionContextInitializer;
+import org.xwiki.context.ExecutionContextKey;
 
 /**
  * Allow registering the Script Context in the Execution Context object since it's shared during the whole execution of
@@ -43,11 +45,19 @@ public class ScriptExecutionContextInitializer implements ExecutionContextInitia
      */
     public static final String SCRIPT_CONTEXT_ID = "scriptContext";
 
+    /**
+     * The registered key under which the Script Context is stored in the Execution Context.
+     *
+     * @since 11.9RC1
+     */
+    public static final ExecutionContextKey<ScriptContext> SCRIPT_CONTEXT_KEY =
+        ExecutionContextKey.register(SCRIPT_CONTEXT_ID);
+
     @Override
     public void initialize(ExecutionContext executionContext) throws ExecutionContextException
     {
-        if (!executionContext.hasProperty(SCRIPT_CONTEXT_ID)) {
-            executionContext.newProperty(SCRIPT_CONTEXT_ID)
+        if (!executionContext.hasProperty(SCRIPT_CONTEXT_KEY)) {
+            executionContext.newProperty(SCRIPT_CONTEXT_KEY)
                 .cloneValue()
                 .inherited()
                 .initial(new CloneableSimpleScriptContext())
@@ -28,6 +28,7 @@
 import org.xwiki.context.ExecutionContext;
 import org.xwiki.context.ExecutionContextException;
 import org.xwiki.context.ExecutionContextInitializer;
+import org.xwiki.context.ExecutionContextKey;
 import org.xwiki.velocity.VelocityContextFactory;
 import org.xwiki.velocity.XWikiVelocityException;
 
@@ -49,6 +50,14 @@ public class VelocityExecutionContextInitializer implements ExecutionContextInit
      */
     public static final String VELOCITY_CONTEXT_ID = "velocityContext";
 
+    /**
+     * The registered key under which the Velocity Context is stored in the Execution Context.
+     *
+     * @since 11.9RC1
+     */
+    public static final ExecutionContextKey<VelocityContext> VELOCITY_CONTEXT_KEY =
+        ExecutionContextKey.register(VELOCITY_CONTEXT_ID);
+
     /**
      * The Velocity context factory component used for creating the Velocity Context (injected automatically by the
      * Component subsystem).
@@ -60,9 +69,9 @@ public class VelocityExecutionContextInitializer implements ExecutionContextInit
     public void initialize(ExecutionContext executionContext) throws ExecutionContextException
     {
         try {
-            if (!executionContext.hasProperty(VELOCITY_CONTEXT_ID)) {
+            if (!executionContext.hasProperty(VELOCITY_CONTEXT_KEY)) {
                 VelocityContext context = this.velocityContextFactory.createContext();
-                executionContext.newProperty(VELOCITY_CONTEXT_ID)
+                executionContext.newProperty(VELOCITY_CONTEXT_KEY)
                     .cloneValue()
                     .inherited()
                     .initial(context)